@@ -0,0 +1,106 @@
+package myorg.benchmarks;
+
+import myorg.Bm25Index;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the FAQ BM25 index on a generated corpus, for error code questions and for questions
+ * of plain topic words. Run the main method for build time, index size against the text and an
+ * uncompressed posting list, and how often error code questions get a confident, and correct, answer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bm25Benchmark {
+    private static final int WORDS_PER_PARAGRAPH = 60;
+    private static final int TOPICS = 2000;
+    private static final int K = 4;
+
+    @Param({"100000"})
+    public int corpusSize;
+
+    private Bm25Index index;
+    private List<SyntheticFaqCorpus.Question> errorCodeQuestions;
+    private List<SyntheticFaqCorpus.Question> topicQuestions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticFaqCorpus corpus = new SyntheticFaqCorpus(corpusSize, WORDS_PER_PARAGRAPH, TOPICS, 5);
+        index = Bm25Index.build(corpusSize, corpus.paragraphs()::get);
+        errorCodeQuestions = corpus.errorCodeQuestions(1000);
+        topicQuestions = corpus.topicQuestions(1000);
+    }
+
+    @Benchmark
+    public Bm25Index.Matches errorCode() {
+        return index.search(errorCodeQuestions.get(next++ % errorCodeQuestions.size()).text(), K);
+    }
+
+    @Benchmark
+    public Bm25Index.Matches topicWords() {
+        return index.search(topicQuestions.get(next++ % topicQuestions.size()).text(), K);
+    }
+
+    public static void main(String[] args) {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        SyntheticFaqCorpus corpus = new SyntheticFaqCorpus(corpusSize, WORDS_PER_PARAGRAPH, TOPICS, 5);
+        long textBytes = 0;
+        for (String paragraph : corpus.paragraphs()) {
+            textBytes += paragraph.getBytes(StandardCharsets.UTF_8).length;
+        }
+        Bm25Index index = null;
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            index = Bm25Index.build(corpusSize, corpus.paragraphs()::get);
+            System.out.printf("Build %d: %d chunks in %.2f s, %d terms, %d postings%n", round, corpusSize, (System.nanoTime() - start) / 1e9,
+                    index.termCount(), index.postingCount());
+        }
+        System.out.printf("Index %.1f MB, text %.1f MB, postings as two ints each %.1f MB%n", index.sizeInBytes() / 1e6, textBytes / 1e6,
+                index.postingCount() * 2 * Integer.BYTES / 1e6);
+
+        report("Error code questions", index, corpus.errorCodeQuestions(2000));
+        report("Topic word questions", index, corpus.topicQuestions(2000));
+    }
+
+    private static void report(String label, Bm25Index index, List<SyntheticFaqCorpus.Question> questions) {
+        int confident = 0;
+        int correct = 0;
+        int found = 0;
+        for (int round = 0; round < 2; round++) {
+            confident = 0;
+            correct = 0;
+            found = 0;
+            long start = System.nanoTime();
+            for (SyntheticFaqCorpus.Question question : questions) {
+                Bm25Index.Matches matches = index.search(question.text(), K);
+                boolean top = !matches.hits().isEmpty() && matches.hits().get(0).chunk() == question.paragraph();
+                confident += matches.confident() ? 1 : 0;
+                correct += matches.confident() && top ? 1 : 0;
+                found += matches.hits().stream().anyMatch(hit -> hit.chunk() == question.paragraph()) ? 1 : 0;
+            }
+            if (round == 1) {
+                System.out.printf("%s: %.1f us per query%n", label, (System.nanoTime() - start) / 1e3 / questions.size());
+            }
+        }
+        System.out.printf("  confident %d of %d, %d of them the answering chunk; answering chunk in top %d for %d%n",
+                confident, questions.size(), correct, K, found);
+    }
+}
@@ -0,0 +1,168 @@
+package myorg.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import myorg.BulkOrderIngestion;
+import myorg.Json;
+import myorg.OrderConfirmation;
+import myorg.SqsEmailOutbox;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of BulkOrderIngestion against the in-memory table and queue with simulated round trips.
+ * Sends {@code orders} orders as NDJSON requests of {@code ordersPerRequest} lines, one line in 500
+ * malformed, with every {@code unprocessedEvery}-th BatchWriteItem call leaving half its items unprocessed
+ * (0 never does). Then places a few hundred of the same orders one PutItem and one SendMessage at a time,
+ * the way conversations do, for comparison. Checks that every accepted order is stored under its own
+ * number with one confirmation queued, and that only the malformed lines were rejected. Arguments: orders
+ * (default 20000), orders per request (default 1000), writer threads (default 8), simulated latency in ms
+ * of DynamoDB (default 5) and SQS (default 5), and unprocessedEvery (default 10). Exits with status 1 if a
+ * check fails.
+ */
+public final class BulkIngestionBenchmark {
+    private static final String OUTBOX_URL = "local-email-outbox";
+    private static final int MALFORMED_EVERY = 500;
+    private static final int ONE_AT_A_TIME_ORDERS = 300;
+    private static final TypeReference<Map<String, List<Map<String, Object>>>> RESULT = new TypeReference<>() {
+    };
+
+    /** Leaves the second half of every {@code every}-th batch unprocessed, like a throttled table. */
+    private static final class ThrottlingDynamoDbClient extends LatencyDynamoDbClient {
+        private final int every;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong unprocessed = new AtomicLong();
+
+        ThrottlingDynamoDbClient(long latencyMillis, int every) {
+            super(0, latencyMillis);
+            this.every = every;
+        }
+
+        @Override
+        public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+            if (every <= 0 || calls.incrementAndGet() % every != 0) {
+                return super.batchWriteItem(request);
+            }
+            Map.Entry<String, List<WriteRequest>> table = request.requestItems().entrySet().iterator().next();
+            List<WriteRequest> writes = table.getValue();
+            int kept = Math.max(1, writes.size() / 2);
+            super.batchWriteItem(BatchWriteItemRequest.builder().requestItems(Map.of(table.getKey(), writes.subList(0, kept))).build());
+            unprocessed.addAndGet(writes.size() - kept);
+            return BatchWriteItemResponse.builder()
+                    .unprocessedItems(kept == writes.size() ? Map.of() : Map.of(table.getKey(), writes.subList(kept, writes.size())))
+                    .build();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int ordersPerRequest = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long dynamoDbMillis = args.length > 3 ? Long.parseLong(args[3]) : 5;
+        long sqsMillis = args.length > 4 ? Long.parseLong(args[4]) : 5;
+        int unprocessedEvery = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+
+        ThrottlingDynamoDbClient dynamoDbClient = new ThrottlingDynamoDbClient(dynamoDbMillis, unprocessedEvery);
+        InMemorySqsClient sqsClient = new InMemorySqsClient(sqsMillis);
+        SqsEmailOutbox outbox = new SqsEmailOutbox(sqsClient, OUTBOX_URL);
+        BulkOrderIngestion ingestion = new BulkOrderIngestion(dynamoDbClient, outbox, parallelism);
+        LocalContext context = new LocalContext(line -> {
+        });
+        Random random = new Random(42);
+
+        // Warm-up request, not counted.
+        ingestion.handleRequest(Map.of("body", ndjson(random, 200, Integer.MAX_VALUE)), context);
+        long storedBefore = dynamoDbClient.operationCount("BatchWriteItem");
+        long unprocessedBefore = dynamoDbClient.unprocessed.get();
+        long callsBefore = sqsClient.callCount();
+        int queuedBefore = sqsClient.depth(OUTBOX_URL);
+
+        Set<Integer> orderNumbers = new HashSet<>();
+        int placed = 0;
+        int rejected = 0;
+        int expectedRejected = 0;
+        long[] requestNanos = new long[(orders + ordersPerRequest - 1) / ordersPerRequest];
+        boolean ok = true;
+        long start = System.nanoTime();
+        for (int request = 0, sent = 0; sent < orders; request++) {
+            int lines = Math.min(ordersPerRequest, orders - sent);
+            String body = ndjson(random, lines, MALFORMED_EVERY);
+            expectedRejected += (int) body.lines().filter(line -> !line.contains("@")).count();
+            long requestStart = System.nanoTime();
+            Map<String, Object> response = ingestion.handleRequest(Map.of("body", body), context);
+            requestNanos[request] = System.nanoTime() - requestStart;
+            Map<String, List<Map<String, Object>>> result = Json.MAPPER.readValue((String) response.get("body"), RESULT);
+            for (Map<String, Object> order : result.get("placed")) {
+                int orderNumber = ((Number) order.get("orderNumber")).intValue();
+                if (!orderNumbers.add(orderNumber) || dynamoDbClient.lookup(orderNumber) == null) {
+                    System.out.println("Order #" + orderNumber + " is missing from the table or was handed out twice");
+                    ok = false;
+                }
+            }
+            placed += result.get("placed").size();
+            rejected += result.get("rejected").size();
+            sent += lines;
+        }
+        long nanos = System.nanoTime() - start;
+
+        Arrays.sort(requestNanos);
+        long batchWrites = dynamoDbClient.operationCount("BatchWriteItem") - storedBefore;
+        int queued = sqsClient.depth(OUTBOX_URL) - queuedBefore;
+        System.out.printf("Bulk: %d orders in %.2f s on %d writers: %.0f orders/s, request p50 %.1f ms, max %.1f ms%n", orders, nanos / 1e9,
+                parallelism, orders / (nanos / 1e9), requestNanos[requestNanos.length / 2] / 1e6, requestNanos[requestNanos.length - 1] / 1e6);
+        System.out.printf("  %d placed, %d rejected; %d BatchWriteItem calls, %d items re-sent after being left unprocessed, %d SQS calls for %d emails%n",
+                placed, rejected, batchWrites, dynamoDbClient.unprocessed.get() - unprocessedBefore, sqsClient.callCount() - callsBefore, queued);
+        if (queued != placed || rejected != expectedRejected || placed + rejected != orders) {
+            System.out.println("Expected " + (orders - expectedRejected) + " placed orders with as many emails and " + expectedRejected + " rejected lines");
+            ok = false;
+        }
+
+        long oneAtATimeStart = System.nanoTime();
+        for (int i = 0; i < ONE_AT_A_TIME_ORDERS; i++) {
+            OrderConfirmation order = Json.MAPPER.readValue(ndjson(random, 1, Integer.MAX_VALUE), OrderConfirmation.class);
+            OrderConfirmation numbered = new OrderConfirmation(1_000_000 + i, order.clientName(), order.email(), order.products(),
+                    order.productName(), order.productNumber(), order.paymentMethod(), order.shippingAddress());
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName("Clients_Database")
+                    .item(numbered.toItem())
+                    .conditionExpression("attribute_not_exists(order_number)")
+                    .build());
+            outbox.enqueue(numbered);
+        }
+        double oneAtATimeSeconds = (System.nanoTime() - oneAtATimeStart) / 1e9;
+        System.out.printf("One at a time: %d orders in %.2f s: %.0f orders/s%n", ONE_AT_A_TIME_ORDERS, oneAtATimeSeconds,
+                ONE_AT_A_TIME_ORDERS / oneAtATimeSeconds);
+
+        System.out.println(ok ? "All bulk ingestion checks passed" : "Bulk ingestion checks failed");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static String ndjson(Random random, int lines, int malformedEvery) throws Exception {
+        String[][] catalog = {{"laptop", "Streambook"}, {"printer", "LaserJet"}, {"desktop", "Pavilion"}, {"monitor", "EliteDisplay"}};
+        String[] cities = {"Paris", "Nantes", "Lyon", "Lille"};
+        StringBuilder body = new StringBuilder(lines * 200);
+        for (int i = 0; i < lines; i++) {
+            int customer = random.nextInt(1_000_000);
+            String[] product = catalog[random.nextInt(catalog.length)];
+            String email = (i + 1) % malformedEvery == 0 ? "" : "customer" + customer + "@example.com";
+            body.append(Json.MAPPER.writeValueAsString(Map.of(
+                    "clientName", "Customer " + customer,
+                    "email", email,
+                    "products", product[0],
+                    "productName", product[1],
+                    "productNumber", String.valueOf(1 + random.nextInt(20)),
+                    "paymentMethod", random.nextBoolean() ? "cash" : "card",
+                    "shippingAddress", cities[random.nextInt(cities.length)]))).append('\n');
+        }
+        return body.toString();
+    }
+}
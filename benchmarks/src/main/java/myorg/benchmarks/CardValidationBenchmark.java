@@ -0,0 +1,71 @@
+package myorg.benchmarks;
+
+import myorg.CardValidator;
+import myorg.CardVerdictCache;
+import myorg.OutboundHttp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One card validation against the local validator stand-in: a number rejected by the Luhn check, a
+ * verdict already in the cache (a CVV re-entry), and a remote call with caching turned off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardValidationBenchmark {
+    private static final String VALID_CARD = "4111111111111111";
+    private static final String LUHN_INVALID_CARD = "4111111111111112";
+
+    @Param({"luhnInvalid", "cachedVerdict", "remoteVerdict"})
+    public String path;
+
+    @Param({"0"})
+    public long validatorLatencyMillis;
+
+    private LocalCardValidatorServer server;
+    private CardValidator validator;
+    private LocalContext context;
+    private String cardNumber;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new LocalCardValidatorServer(validatorLatencyMillis);
+        OutboundHttp outboundHttp = new OutboundHttp(HttpClient.newHttpClient(), Duration.ofSeconds(4), false);
+        CardVerdictCache cache = path.equals("remoteVerdict") ? new CardVerdictCache(0, 0) : new CardVerdictCache(1000, 900);
+        validator = new CardValidator(outboundHttp, context -> "local", server.endpoint(), cache);
+        context = new LocalContext();
+        cardNumber = path.equals("luhnInvalid") ? LUHN_INVALID_CARD : VALID_CARD;
+        if (!path.equals("luhnInvalid") && validator.validate(cardNumber, "123", context) != CardValidator.Result.VALID) {
+            throw new IllegalStateException("Stand-in rejected a valid card");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public CardValidator.Result validate() {
+        return validator.validate(cardNumber, "123", context);
+    }
+}
@@ -0,0 +1,81 @@
+package myorg.benchmarks;
+
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One whole update_payment change order dialog per operation: order number, action, card number, expiry
+ * date and CVV, each its own turn, on a different cash order every time. Reports how many GetItem calls
+ * the dialogs made; without the order cache every turn reads the order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeOrderDialogBenchmark {
+    private static final int EXISTING_ORDERS = 100_000;
+    private static final List<Map<String, String>> TURNS = List.of(
+            Map.of(),
+            Map.of("ActionType", "update_payment"),
+            Map.of("CardNumber", "4111111111111112"),
+            Map.of("ExpirationDate", "12/30"),
+            Map.of("CVV", "123"));
+
+    private SimpleHandler handler;
+    private InMemoryDynamoDbClient dynamoDbClient;
+    private LocalContext context;
+    private LexEvents events;
+    private int nextOrder;
+    private long dialogs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dynamoDbClient = new InMemoryDynamoDbClient(EXISTING_ORDERS);
+        handler = new SimpleHandler(new InMemoryLambdaClient(), dynamoDbClient, HttpClient.newHttpClient(),
+                new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+        context = new LocalContext();
+        events = LexEvents.load();
+    }
+
+    @Benchmark
+    public Map<String, Object> dialog() {
+        // Even synthetic orders are paid cash, so the dialog goes on to ask for a card.
+        int orderNumber = 1000 + (nextOrder += 2) % EXISTING_ORDERS;
+        Map<String, String> session = new HashMap<>();
+        session.put("OrderNumber", String.valueOf(orderNumber));
+        Map<String, Object> response = null;
+        for (Map<String, String> turn : TURNS) {
+            session.putAll(turn);
+            String transcript = turn.isEmpty() ? String.valueOf(orderNumber) : turn.values().iterator().next();
+            response = handler.handleRequest(events.event("ChangeOrderIntent", transcript, LexEvents.CHANGE_ORDER_SLOTS, turn, session), context);
+        }
+        dialogs++;
+        return response;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%n%d dialogs of %d turns, %d GetItem calls, %.2f per dialog%n", dialogs, TURNS.size(),
+                dynamoDbClient.operationCount("GetItem"), dynamoDbClient.operationCount("GetItem") / (double) dialogs);
+    }
+}
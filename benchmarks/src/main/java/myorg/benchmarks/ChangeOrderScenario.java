@@ -0,0 +1,149 @@
+package myorg.benchmarks;
+
+import myorg.FaqClient;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the writing turns of the change order dialog against the in-memory table and checks what each
+ * one sent to DynamoDB and answered: one conditional write and no read per turn, no order created by
+ * updating one that is gone, and a payment made from another session between the dialog's read and its
+ * write caught by the write, and no payment recorded while the card validator is down. Exits with status 1 if
+ * any check fails. The payment turns need ALGOBOOK_API_KEY_SECRET_ARN set to any value; the in-memory
+ * Secrets Manager answers for every ARN, and cards are checked by the loopback validator stand-in.
+ */
+public final class ChangeOrderScenario {
+    private static final int EXISTING_ORDERS = 1000;
+    // Synthetic orders start at 1000; even ones are paid cash, odd ones by card.
+    private static final int CASH_ORDER = 1002;
+    private static final int OTHER_CASH_ORDER = 1004;
+    private static final int UNVERIFIED_CASH_ORDER = 1006;
+    // Luhn-valid, and not yet in the verdict cache when the validator goes down.
+    private static final String UNVERIFIED_CARD = "5555555555554444";
+    private static final int SHIPPING_ORDER = 1001;
+    private static final int MISSING_ORDER = 99_999;
+
+    private final InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient(EXISTING_ORDERS);
+    private final LocalCardValidatorServer validator;
+    private final SimpleHandler handler;
+    private final LexEvents events = LexEvents.load();
+    private final LocalContext context = new LocalContext();
+    private Map<String, Long> callsBefore = Map.of();
+    private int failedChecks;
+
+    private ChangeOrderScenario(LocalCardValidatorServer validator) {
+        this.validator = validator;
+        this.handler = new SimpleHandler(FaqClient.fromEnvironment(new InMemoryLambdaClient(), "arn:aws:lambda:us-east-1:000000000000:function:faq_handler"), dynamoDbClient,
+                HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"),
+                new InMemorySecretsManagerClient(), validator.endpoint());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int failedChecks;
+        try (LocalCardValidatorServer validator = new LocalCardValidatorServer(0)) {
+            ChangeOrderScenario scenario = new ChangeOrderScenario(validator);
+            scenario.run();
+            failedChecks = scenario.failedChecks;
+        }
+        System.exit(failedChecks == 0 ? 0 : 1);
+    }
+
+    private void run() {
+        expect("shipping update", turn(SHIPPING_ORDER, Map.of("ActionType", "update shipping address", "ShippingAddress", "Lyon")),
+                "successfully updated to Lyon", Map.of("UpdateItem", 1L));
+        expect("shipping update of a missing order", turn(MISSING_ORDER, Map.of("ActionType", "update shipping address", "ShippingAddress", "Lyon")),
+                "does not exist", Map.of("UpdateItem", 1L));
+        if (read(MISSING_ORDER) != null) {
+            fail("shipping update of a missing order", "the update created the order");
+        }
+
+        expect("cancel", turn(SHIPPING_ORDER, Map.of("ActionType", "cancel")), "successfully deleted", Map.of("DeleteItem", 1L));
+        expect("cancel again", turn(SHIPPING_ORDER, Map.of("ActionType", "cancel")), "does not exist", Map.of("DeleteItem", 1L));
+
+        if (System.getenv("ALGOBOOK_API_KEY_SECRET_ARN") == null) {
+            System.out.println("Payment checks skipped: set ALGOBOOK_API_KEY_SECRET_ARN (any value) so card validation can get an API key");
+            return;
+        }
+
+        Map<String, String> payment = new HashMap<>(Map.of("ActionType", "update_payment", "CardNumber", "4111111111111111",
+                "ExpirationDate", "12/30"));
+        expect("payment dialog reads the order", turn(CASH_ORDER, payment), "provide the CVV", Map.of("GetItem", 1L));
+        payment.put("CVV", "123");
+        expect("payment", turn(CASH_ORDER, payment), "paid successfully", Map.of("UpdateItem", 1L));
+        if (!"card".equals(read(CASH_ORDER).get("payment_method").s())) {
+            fail("payment", "the order is still not paid by card");
+        }
+
+        payment.remove("CVV");
+        expect("second payment dialog reads the order", turn(OTHER_CASH_ORDER, payment), "provide the CVV", Map.of("GetItem", 1L));
+        dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                .tableName("Clients_Database")
+                .key(Map.of("order_number", AttributeValue.builder().n(String.valueOf(OTHER_CASH_ORDER)).build()))
+                .updateExpression("SET payment_method = :card")
+                .expressionAttributeValues(Map.of(":card", AttributeValue.builder().s("card").build()))
+                .build());
+        callsBefore = dynamoDbClient.operationCounts();
+        payment.put("CVV", "123");
+        expect("payment already made from another session", turn(OTHER_CASH_ORDER, payment), "already been paid online",
+                Map.of("UpdateItem", 1L));
+
+        Map<String, String> unverified = new HashMap<>(Map.of("ActionType", "update_payment", "CardNumber", UNVERIFIED_CARD,
+                "ExpirationDate", "12/30"));
+        expect("third payment dialog reads the order", turn(UNVERIFIED_CASH_ORDER, unverified), "provide the CVV", Map.of("GetItem", 1L));
+        validator.faults().fail(0);
+        unverified.put("CVV", "123");
+        expect("payment while the card validator is down", turn(UNVERIFIED_CASH_ORDER, unverified), "can't verify cards", Map.of());
+        validator.faults().heal();
+        if (!"cash".equals(read(UNVERIFIED_CASH_ORDER).get("payment_method").s())) {
+            fail("payment while the card validator is down", "the order was recorded as paid by card");
+        }
+    }
+
+    private Map<String, Object> turn(int orderNumber, Map<String, String> session) {
+        Map<String, String> attributes = new HashMap<>(session);
+        attributes.put("OrderNumber", String.valueOf(orderNumber));
+        return handler.handleRequest(events.event("ChangeOrderIntent", "turn", LexEvents.CHANGE_ORDER_SLOTS, Map.of(), attributes), context);
+    }
+
+    /** Reads the order behind the handler's back; the read is not counted against the next turn. */
+    private Map<String, AttributeValue> read(int orderNumber) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName("Clients_Database")
+                .key(Map.of("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build()))
+                .build()).item();
+        callsBefore = dynamoDbClient.operationCounts();
+        return item.isEmpty() ? null : item;
+    }
+
+    private void expect(String step, Map<String, Object> response, String message, Map<String, Long> calls) {
+        Map<String, Long> after = dynamoDbClient.operationCounts();
+        Map<String, Long> made = new HashMap<>();
+        after.forEach((operation, count) -> {
+            long delta = count - callsBefore.getOrDefault(operation, 0L);
+            if (delta != 0) {
+                made.put(operation, delta);
+            }
+        });
+        callsBefore = after;
+        String content = String.valueOf(((Map<?, ?>) ((Object[]) response.get("messages"))[0]).get("content"));
+        if (!content.contains(message)) {
+            fail(step, "answered \"" + content + "\"");
+        } else if (!made.equals(calls)) {
+            fail(step, "made " + made + ", expected " + calls);
+        } else {
+            System.out.println(step + ": " + made + " -> " + content);
+        }
+    }
+
+    private void fail(String step, String message) {
+        failedChecks++;
+        System.out.println(step + ": FAILED, " + message);
+    }
+}
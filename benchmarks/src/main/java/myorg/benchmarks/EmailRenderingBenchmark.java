@@ -0,0 +1,63 @@
+package myorg.benchmarks;
+
+import myorg.OrderConfirmation;
+import myorg.OrderConfirmationTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subject, text and HTML of one confirmation email, rendered by the compiled templates and by the old
+ * format-then-reparse code. The "markup" order carries characters that must be escaped in the HTML.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailRenderingBenchmark {
+    @Param({"plain", "markup"})
+    public String order;
+
+    private OrderConfirmation confirmation;
+
+    @Setup
+    public void setUp() {
+        confirmation = switch (order) {
+            case "plain" -> new OrderConfirmation(1042, "Rihem Trigui", "client@example.com", "laptop", "Pavilion", "15-eg2",
+                    "cash", "12 Rue de la Liberte, Tunis");
+            case "markup" -> new OrderConfirmation(1042, "Tom & Jerry <Ltd>", "client@example.com", "laptop", "\"Omen\"", null,
+                    "card", "5 O'Connell St, Apt <3>");
+            default -> throw new IllegalArgumentException("Unknown order: " + order);
+        };
+        if (order.equals("plain") && !LegacyOrderEmail.html(confirmation).equals(OrderConfirmationTemplates.html(confirmation))) {
+            throw new IllegalStateException("Compiled HTML template drifted from the legacy output");
+        }
+    }
+
+    @Benchmark
+    public void compiledTemplates(Blackhole blackhole) {
+        blackhole.consume(OrderConfirmationTemplates.subject(confirmation));
+        blackhole.consume(OrderConfirmationTemplates.text(confirmation));
+        blackhole.consume(OrderConfirmationTemplates.html(confirmation));
+    }
+
+    @Benchmark
+    public void legacyParseAndRebuild(Blackhole blackhole) {
+        blackhole.consume(LegacyOrderEmail.subject(confirmation));
+        blackhole.consume(LegacyOrderEmail.text(confirmation));
+        blackhole.consume(LegacyOrderEmail.html(confirmation));
+    }
+}
@@ -0,0 +1,112 @@
+package myorg.benchmarks;
+
+import myorg.FaqQueryNormalizer;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FAQ turns against a faq_handler stand-in that takes {@code faqLatencyMillis} per answer. "repeated"
+ * cycles through the same questions in varying case and punctuation, so after warmup every turn is an
+ * answer cache hit; "unique" asks a new question every turn and always pays for the FAQ function. Run
+ * through main, checks that the normalizer folds rewordings together but keeps different questions apart.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FaqCacheBenchmark {
+    private static final List<String> QUESTIONS = List.of("How do I reset my printer?", "what's the warranty on a laptop",
+            "Where is my order", "Can I return the item?", "How do I contact support?");
+    // Rewordings that must share an answer.
+    private static final List<List<String>> SAME_QUESTION = List.of(
+            List.of("How do I reset my printer?", "hi, how do I reset my printer please"),
+            List.of("What's the warranty on a laptop", "whats the warranty on the laptop?"),
+            List.of("Can I return the item?", "CAN I RETURN AN ITEM"),
+            List.of("Where is my order", "Hello! Where is my order? Thanks"));
+    // Questions that differ only in words a looser normalizer would drop, and must not share an answer.
+    private static final List<List<String>> DIFFERENT_QUESTIONS = List.of(
+            List.of("Can I return a laptop?", "Should I return a laptop?"),
+            List.of("What is the warranty?", "How is the warranty?"),
+            List.of("How do I cancel my order?", "Can you cancel my order?"),
+            List.of("Is my order shipped?", "Was my order shipped?"),
+            List.of("Can I pay by card?", "Can I pay without a card?"),
+            List.of("Do you ship to France?", "Do you ship from France?"));
+
+    @Param({"repeated", "unique"})
+    public String questions;
+
+    @Param({"800"})
+    public long faqLatencyMillis;
+
+    private SimpleHandler handler;
+    private LocalContext context;
+    private LexEvents events;
+    private int sequence;
+
+    @Setup
+    public void setUp() {
+        handler = new SimpleHandler(new InMemoryLambdaClient(faqLatencyMillis), new InMemoryDynamoDbClient(1000),
+                HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+        context = new LocalContext();
+        events = LexEvents.load();
+    }
+
+    @Benchmark
+    public Map<String, Object> faqTurn() {
+        int n = sequence++;
+        String question = QUESTIONS.get(n % QUESTIONS.size());
+        question = switch (questions) {
+            case "repeated" -> n % 2 == 0 ? question.toUpperCase() : question.replace("?", "");
+            case "unique" -> question + " " + n;
+            default -> throw new IllegalArgumentException("Unknown questions: " + questions);
+        };
+        return handler.handleRequest(events.event("FAQIntent", question, List.of("Query"), Map.of("Query", question), new HashMap<>()), context);
+    }
+
+    /**
+     * Prints the cache key for each argument, to check what the normalizer folds together. Without
+     * arguments, checks the rewordings and the distinct questions above and exits with status 1 on a miss.
+     */
+    public static void main(String[] args) {
+        for (String question : args.length == 0 ? QUESTIONS : List.of(args)) {
+            System.out.println(question + " -> " + FaqQueryNormalizer.normalize(question));
+        }
+        if (args.length > 0) {
+            return;
+        }
+        int failed = 0;
+        for (List<String> pair : SAME_QUESTION) {
+            if (!FaqQueryNormalizer.normalize(pair.get(0)).equals(FaqQueryNormalizer.normalize(pair.get(1)))) {
+                System.out.println("Expected one key for \"" + pair.get(0) + "\" and \"" + pair.get(1) + "\"");
+                failed++;
+            }
+        }
+        for (List<String> pair : DIFFERENT_QUESTIONS) {
+            if (FaqQueryNormalizer.normalize(pair.get(0)).equals(FaqQueryNormalizer.normalize(pair.get(1)))) {
+                System.out.println("\"" + pair.get(0) + "\" and \"" + pair.get(1) + "\" collide on \"" + FaqQueryNormalizer.normalize(pair.get(0)) + "\"");
+                failed++;
+            }
+        }
+        System.out.println(failed == 0 ? "All normalizer checks passed" : failed + " normalizer checks failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
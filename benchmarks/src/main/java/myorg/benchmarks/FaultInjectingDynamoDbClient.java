@@ -0,0 +1,48 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+public class FaultInjectingDynamoDbClient extends InMemoryDynamoDbClient {
+    private final FaultInjector faults;
+
+    public FaultInjectingDynamoDbClient(int syntheticOrders, FaultInjector faults) {
+        super(syntheticOrders);
+        this.faults = faults;
+    }
+
+    private void check() {
+        faults.check(() -> DynamoDbException.builder().statusCode(500).message("Injected internal server error").build());
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        check();
+        return super.getItem(request);
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        check();
+        return super.putItem(request);
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        check();
+        return super.updateItem(request);
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        check();
+        return super.deleteItem(request);
+    }
+}
@@ -0,0 +1,25 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+import software.amazon.awssdk.services.lambda.model.TooManyRequestsException;
+
+import java.util.concurrent.CompletableFuture;
+
+public class FaultInjectingLambdaClient extends InMemoryLambdaClient {
+    private final FaultInjector faults;
+
+    public FaultInjectingLambdaClient(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public CompletableFuture<InvokeResponse> invoke(InvokeRequest request) {
+        try {
+            faults.check(() -> TooManyRequestsException.builder().statusCode(429).message("Injected rate exceeded").build());
+        } catch (TooManyRequestsException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return super.invoke(request);
+    }
+}
@@ -0,0 +1,19 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.ses.model.SendEmailRequest;
+import software.amazon.awssdk.services.ses.model.SendEmailResponse;
+import software.amazon.awssdk.services.ses.model.SesException;
+
+public class FaultInjectingSesClient extends InMemorySesClient {
+    private final FaultInjector faults;
+
+    public FaultInjectingSesClient(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public SendEmailResponse sendEmail(SendEmailRequest request) {
+        faults.check(() -> SesException.builder().statusCode(503).message("Injected service unavailable").build());
+        return super.sendEmail(request);
+    }
+}
@@ -0,0 +1,42 @@
+package myorg.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Switchable outage for a local stand-in: while failing, every call waits {@code latencyMillis} and then
+ * throws the exception the real service would.
+ */
+public class FaultInjector {
+    private volatile boolean failing;
+    private volatile long latencyMillis;
+    private final AtomicLong injected = new AtomicLong();
+
+    public void fail(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        this.failing = true;
+    }
+
+    public void heal() {
+        failing = false;
+    }
+
+    public long injectedCount() {
+        return injected.get();
+    }
+
+    void check(Supplier<? extends RuntimeException> error) {
+        if (!failing) {
+            return;
+        }
+        injected.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        throw error.get();
+    }
+}
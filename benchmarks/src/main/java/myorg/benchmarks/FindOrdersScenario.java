@@ -0,0 +1,219 @@
+package myorg.benchmarks;
+
+import myorg.BulkOrderIngestion;
+import myorg.Json;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the find orders dialog against the in-memory table and checks what each turn sent to DynamoDB and
+ * answered: the address asked for first, then the customer's orders newest first, a page per Query on the
+ * email index and never a Scan, "Show more" while orders remain, and the lookup of an unknown address or a
+ * declined next page. Then times lookups of synthetic customers on a small table and on a huge one, which
+ * must take about as long. Arguments: lookups to time (default 2000) and orders in the huge table (default
+ * 5000000). Exits with status 1 if any check fails.
+ */
+public final class FindOrdersScenario {
+    private static final int EXISTING_ORDERS = 1000;
+    private static final int FIRST_SYNTHETIC_ORDER = 1000;
+    private static final int PAGE_SIZE = 4;
+    private static final String CUSTOMER = "jane.doe@example.org";
+    private static final String ROUND_CUSTOMER = "john.doe@example.org";
+    private static final List<String> SLOTS = List.of("Email", "ShowMore");
+
+    private final InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient(EXISTING_ORDERS);
+    private final InMemorySqsClient sqsClient = new InMemorySqsClient();
+    private final SimpleHandler handler = handler(dynamoDbClient);
+    private final LexEvents events = LexEvents.load();
+    private final LocalContext context = new LocalContext();
+    private Map<String, Long> callsBefore = Map.of();
+    private int failedChecks;
+
+    public static void main(String[] args) throws Exception {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int hugeTable = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        FindOrdersScenario scenario = new FindOrdersScenario();
+        scenario.run();
+        scenario.compareTableSizes(lookups, hugeTable);
+        System.exit(scenario.failedChecks == 0 ? 0 : 1);
+    }
+
+    private SimpleHandler handler(InMemoryDynamoDbClient table) {
+        return new SimpleHandler(new InMemoryLambdaClient(), table, HttpClient.newHttpClient(),
+                new SqsEmailOutbox(sqsClient, "local-email-outbox"), new InMemorySecretsManagerClient());
+    }
+
+    private void run() throws Exception {
+        List<Integer> placed = place(CUSTOMER, 9);
+        List<Integer> newestFirst = new ArrayList<>(placed);
+        newestFirst.sort((a, b) -> b - a);
+        callsBefore = dynamoDbClient.operationCounts();
+
+        Map<String, Object> response = turn(Map.of(), Map.of());
+        expect("address asked first", response, "provide the email address", Map.of());
+
+        response = turn(Map.of("Email", CUSTOMER), attributesOf(response));
+        expect("first page", response, "Would you like to see more", Map.of("Query", 1L));
+        expectOrders("first page", response, newestFirst.subList(0, PAGE_SIZE), true);
+
+        response = turn(Map.of("ShowMore", "yes"), attributesOf(response));
+        expect("second page", response, "Would you like to see more", Map.of("Query", 1L));
+        expectOrders("second page", response, newestFirst.subList(PAGE_SIZE, 2 * PAGE_SIZE), true);
+
+        response = turn(Map.of("ShowMore", "yes"), attributesOf(response));
+        expect("last page", response, "Here are your orders.", Map.of("Query", 1L));
+        expectOrders("last page", response, newestFirst.subList(2 * PAGE_SIZE, placed.size()), false);
+
+        expect("unknown address", turn(Map.of("Email", "nobody@example.org"), Map.of()), "couldn't find any order", Map.of("Query", 1L));
+        expect("not an address", turn(Map.of("Email", "jane.doe"), Map.of()), "provide the email address", Map.of());
+
+        response = turn(Map.of("Email", CUSTOMER), Map.of());
+        expect("first page again", response, "Would you like to see more", Map.of("Query", 1L));
+        expect("next page declined", turn(Map.of("ShowMore", "no"), attributesOf(response)), "Tell me an order number", Map.of());
+
+        // A full last page still has a cursor, so the page after it is empty.
+        List<Integer> round = place(ROUND_CUSTOMER, PAGE_SIZE);
+        round.sort((a, b) -> b - a);
+        callsBefore = dynamoDbClient.operationCounts();
+        response = turn(Map.of("Email", ROUND_CUSTOMER), Map.of());
+        expect("full page", response, "Would you like to see more", Map.of("Query", 1L));
+        expectOrders("full page", response, round, true);
+        expect("empty page after a full one", turn(Map.of("ShowMore", "yes"), attributesOf(response)), "That was all of your orders.",
+                Map.of("Query", 1L));
+
+        int synthetic = FIRST_SYNTHETIC_ORDER + 7;
+        response = turn(Map.of("Email", "customer" + synthetic + "@example.com"), Map.of());
+        expect("synthetic customer", response, "Here are your orders.", Map.of("Query", 1L));
+        expectOrders("synthetic customer", response, List.of(synthetic), false);
+    }
+
+    private void compareTableSizes(int lookups, int hugeTable) {
+        double small = timeLookups(EXISTING_ORDERS, lookups);
+        double huge = timeLookups(hugeTable, lookups);
+        System.out.printf("Lookup by email: %.1f us with %d orders, %.1f us with %d orders%n", small / 1e3, EXISTING_ORDERS, huge / 1e3, hugeTable);
+        if (huge > 3 * small) {
+            fail("table size", "lookups on the huge table are " + String.format("%.1f", huge / small) + " times slower");
+        }
+    }
+
+    // Mean nanoseconds per lookup, after a warm-up of as many lookups.
+    private double timeLookups(int orders, int lookups) {
+        InMemoryDynamoDbClient table = new InMemoryDynamoDbClient(orders);
+        SimpleHandler lookupHandler = handler(table);
+        long start = 0;
+        for (int i = 0; i < 2 * lookups; i++) {
+            if (i == lookups) {
+                start = System.nanoTime();
+            }
+            int customer = FIRST_SYNTHETIC_ORDER + (int) ((long) i * 7919 % orders);
+            Map<String, Object> response = lookupHandler.handleRequest(events.event("FindOrdersIntent", "Find my orders", SLOTS,
+                    Map.of("Email", "customer" + customer + "@example.com"), Map.of()), context);
+            if (!contentOf(response).startsWith("Here are your orders.")) {
+                fail("table size", "customer" + customer + " got \"" + contentOf(response) + "\"");
+                return 0;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (table.operationCount("Scan") != 0) {
+            fail("table size", "lookups scanned the table");
+        }
+        return (double) nanos / lookups;
+    }
+
+    private List<Integer> place(String email, int orders) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < orders; i++) {
+            body.append(Json.MAPPER.writeValueAsString(Map.of(
+                    "clientName", "Jane Doe",
+                    "email", email,
+                    "products", "laptop",
+                    "productName", "Streambook",
+                    "productNumber", String.valueOf(i + 1),
+                    "paymentMethod", i % 2 == 0 ? "card" : "cash",
+                    "shippingAddress", "Paris"))).append('\n');
+        }
+        Map<String, Object> response = new BulkOrderIngestion(dynamoDbClient, new SqsEmailOutbox(sqsClient, "local-email-outbox"), 2)
+                .handleRequest(Map.of("body", body.toString()), context);
+        List<Integer> placed = new ArrayList<>();
+        for (Object order : (List<?>) Json.MAPPER.readValue((String) response.get("body"), Map.class).get("placed")) {
+            placed.add(((Number) ((Map<?, ?>) order).get("orderNumber")).intValue());
+        }
+        if (placed.size() != orders) {
+            throw new IllegalStateException("Only " + placed.size() + " of " + orders + " orders were placed: " + response.get("body"));
+        }
+        return placed;
+    }
+
+    private Map<String, Object> turn(Map<String, String> slots, Map<String, String> session) {
+        return handler.handleRequest(events.event("FindOrdersIntent", "Find my orders", SLOTS, slots, session), context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> attributesOf(Map<String, Object> response) {
+        Map<String, Object> sessionState = (Map<String, Object>) response.get("sessionState");
+        Map<String, String> attributes = new HashMap<>();
+        ((Map<String, Object>) sessionState.get("sessionAttributes")).forEach((name, value) -> attributes.put(name, String.valueOf(value)));
+        return attributes;
+    }
+
+    private static Object[] messagesOf(Map<String, Object> response) {
+        return (Object[]) response.get("messages");
+    }
+
+    private static String contentOf(Map<String, Object> response) {
+        return String.valueOf(((Map<?, ?>) messagesOf(response)[0]).get("content"));
+    }
+
+    private void expectOrders(String step, Map<String, Object> response, List<Integer> orderNumbers, boolean showMore) {
+        Object[] messages = messagesOf(response);
+        if (messages.length < 2) {
+            fail(step, "answered without a card");
+            return;
+        }
+        Map<?, ?> card = (Map<?, ?>) ((Map<?, ?>) messages[1]).get("imageResponseCard");
+        List<String> expected = new ArrayList<>();
+        orderNumbers.forEach(orderNumber -> expected.add("Modify order " + orderNumber));
+        if (showMore) {
+            expected.add("yes");
+        }
+        List<String> values = new ArrayList<>();
+        for (Object button : (List<?>) card.get("buttons")) {
+            values.add(String.valueOf(((Map<?, ?>) button).get("value")));
+        }
+        if (!values.equals(expected)) {
+            fail(step, "offered " + values + ", expected " + expected);
+        }
+    }
+
+    private void expect(String step, Map<String, Object> response, String message, Map<String, Long> calls) {
+        Map<String, Long> after = dynamoDbClient.operationCounts();
+        Map<String, Long> made = new HashMap<>();
+        after.forEach((operation, count) -> {
+            long delta = count - callsBefore.getOrDefault(operation, 0L);
+            if (delta != 0) {
+                made.put(operation, delta);
+            }
+        });
+        callsBefore = after;
+        String content = contentOf(response);
+        if (!content.contains(message)) {
+            fail(step, "answered \"" + content + "\"");
+        } else if (!made.equals(calls)) {
+            fail(step, "made " + made + ", expected " + calls);
+        } else {
+            System.out.println(step + ": " + made + " -> " + content);
+        }
+    }
+
+    private void fail(String step, String message) {
+        failedChecks++;
+        System.out.println(step + ": FAILED, " + message);
+    }
+}
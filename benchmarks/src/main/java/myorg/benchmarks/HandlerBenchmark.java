@@ -0,0 +1,62 @@
+package myorg.benchmarks;
+
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Lex turn through SimpleHandler.handleRequest per operation, with every AWS client replaced by an
+ * in-memory stand-in. Run with {@code -prof gc} to get the allocation rate per turn.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerBenchmark {
+    private static final int EXISTING_ORDERS = 1000;
+
+    @Param({"OrderSlotTurn", "OrderPlacementTurn", "ChangeOrderIntent", "GreetingsIntent", "FallbackIntent", "FAQIntent"})
+    public String turn;
+
+    private SimpleHandler handler;
+    private LocalContext context;
+    private Map<String, Object> event;
+
+    @Setup
+    public void setUp() {
+        handler = new SimpleHandler(new InMemoryLambdaClient(), new InMemoryDynamoDbClient(EXISTING_ORDERS),
+                HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+        context = new LocalContext();
+        LexEvents events = LexEvents.load();
+        event = switch (turn) {
+            case "OrderSlotTurn" -> events.orderSlotTurn();
+            case "OrderPlacementTurn" -> events.orderPlacementTurn();
+            case "ChangeOrderIntent" -> events.changeOrderTurn(1000);
+            case "GreetingsIntent" -> events.greetingsTurn();
+            case "FallbackIntent" -> events.fallbackTurn();
+            case "FAQIntent" -> events.faqTurn();
+            default -> throw new IllegalArgumentException("Unknown turn: " + turn);
+        };
+    }
+
+    @Benchmark
+    public Map<String, Object> handleRequest() {
+        return handler.handleRequest(event, context);
+    }
+}
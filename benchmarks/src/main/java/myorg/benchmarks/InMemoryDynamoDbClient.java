@@ -0,0 +1,467 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DynamoDB stand-in for the orders table, keyed by {@code order_number}. It understands the small expression
+ * subset used by the handler (attribute_exists / attribute_not_exists / = / &lt;&gt; conditions and
+ * SET / ADD / REMOVE updates), unconditional batch writes, and queries of the email_address index.
+ * Synthetic orders let a benchmark model a large table without holding it. Items of the other tables,
+ * keyed by one of {@link #OTHER_KEYS} such as the order number counter, are kept in a plain map per table
+ * for GetItem, PutItem and UpdateItem.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+    private static final String KEY = "order_number";
+    // The partition keys of the order number counter and FAQ answer cache tables.
+    private static final Set<String> OTHER_KEYS = Set.of("counter_name", "query_key");
+    private static final int SCAN_PAGE_SIZE = 1000;
+    private static final int FIRST_SYNTHETIC_ORDER = 1000;
+    private static final int MAX_BATCH_WRITES = 25;
+    private static final String EMAIL = "email_address";
+    private static final String EMAIL_INDEX = "email_address-index";
+    private static final Pattern SYNTHETIC_EMAIL = Pattern.compile("customer(\\d+)@example\\.com");
+
+    private final TreeMap<Integer, Map<String, AttributeValue>> items = new TreeMap<>();
+    private final Map<List<Object>, Map<String, AttributeValue>> otherTables = new HashMap<>();
+    private final Set<Integer> deletedSynthetic = new HashSet<>();
+    private final Map<String, NavigableSet<Integer>> ordersByEmail = new HashMap<>();
+    private final int syntheticOrders;
+    private final Map<String, AtomicLong> operationCounts = new ConcurrentHashMap<>();
+
+    public InMemoryDynamoDbClient() {
+        this(0);
+    }
+
+    public InMemoryDynamoDbClient(int syntheticOrders) {
+        this.syntheticOrders = syntheticOrders;
+    }
+
+    public long operationCount(String operation) {
+        AtomicLong count = operationCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public Map<String, Long> operationCounts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        operationCounts.forEach((operation, count) -> snapshot.put(operation, count.get()));
+        return snapshot;
+    }
+
+    @Override
+    public synchronized GetItemResponse getItem(GetItemRequest request) {
+        count("GetItem");
+        Map<String, AttributeValue> item = isOrderKey(request.key()) ? lookup(keyOf(request.key()))
+                : otherTables.get(otherKey(request.tableName(), request.key()));
+        return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(project(item, request.projectionExpression(), request.expressionAttributeNames())).build();
+    }
+
+    @Override
+    public synchronized PutItemResponse putItem(PutItemRequest request) {
+        count("PutItem");
+        if (!isOrderKey(request.item())) {
+            List<Object> key = otherKey(request.tableName(), request.item());
+            checkCondition(otherTables.get(key), request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+            otherTables.put(key, new HashMap<>(request.item()));
+            return PutItemResponse.builder().build();
+        }
+        int key = keyOf(request.item());
+        Map<String, AttributeValue> existing = lookup(key);
+        checkCondition(existing, request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+        store(key, new HashMap<>(request.item()));
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public synchronized UpdateItemResponse updateItem(UpdateItemRequest request) {
+        count("UpdateItem");
+        boolean order = isOrderKey(request.key());
+        List<Object> otherKey = order ? null : otherKey(request.tableName(), request.key());
+        Map<String, AttributeValue> existing = order ? lookup(keyOf(request.key())) : otherTables.get(otherKey);
+        checkCondition(existing, request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.returnValuesOnConditionCheckFailure());
+
+        Map<String, AttributeValue> updated = existing == null ? new HashMap<>(request.key()) : new HashMap<>(existing);
+        Set<String> touched = applyUpdate(updated, request.updateExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+        if (order) {
+            store(keyOf(request.key()), updated);
+        } else {
+            otherTables.put(otherKey, updated);
+        }
+
+        UpdateItemResponse.Builder response = UpdateItemResponse.builder();
+        ReturnValue returnValues = request.returnValues();
+        if (returnValues == ReturnValue.ALL_NEW) {
+            response.attributes(updated);
+        } else if (returnValues == ReturnValue.ALL_OLD && existing != null) {
+            response.attributes(existing);
+        } else if (returnValues == ReturnValue.UPDATED_NEW) {
+            Map<String, AttributeValue> changed = new HashMap<>();
+            for (String name : touched) {
+                if (updated.containsKey(name)) {
+                    changed.put(name, updated.get(name));
+                }
+            }
+            response.attributes(changed);
+        }
+        return response.build();
+    }
+
+    @Override
+    public synchronized DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        count("DeleteItem");
+        int key = keyOf(request.key());
+        Map<String, AttributeValue> existing = lookup(key);
+        checkCondition(existing, request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.returnValuesOnConditionCheckFailure());
+        remove(key);
+        DeleteItemResponse.Builder response = DeleteItemResponse.builder();
+        if (request.returnValues() == ReturnValue.ALL_OLD && existing != null) {
+            response.attributes(existing);
+        }
+        return response.build();
+    }
+
+    @Override
+    public synchronized BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        count("BatchWriteItem");
+        int writes = request.requestItems().values().stream().mapToInt(List::size).sum();
+        if (writes == 0 || writes > MAX_BATCH_WRITES) {
+            throw DynamoDbException.builder().statusCode(400).message("A batch write holds 1 to " + MAX_BATCH_WRITES + " requests, not " + writes).build();
+        }
+        for (List<WriteRequest> tableWrites : request.requestItems().values()) {
+            for (WriteRequest write : tableWrites) {
+                if (write.putRequest() != null) {
+                    store(keyOf(write.putRequest().item()), new HashMap<>(write.putRequest().item()));
+                } else {
+                    remove(keyOf(write.deleteRequest().key()));
+                }
+            }
+        }
+        return BatchWriteItemResponse.builder().unprocessedItems(Map.of()).build();
+    }
+
+    /** Queries the email index, the only secondary index, by its partition key and in sort key order. */
+    @Override
+    public synchronized QueryResponse query(QueryRequest request) {
+        count("Query");
+        if (!EMAIL_INDEX.equals(request.indexName())) {
+            throw DynamoDbException.builder().statusCode(400).message("Only the " + EMAIL_INDEX + " index can be queried, not " + request.indexName()).build();
+        }
+        String[] condition = request.keyConditionExpression().split("=");
+        if (condition.length != 2 || !EMAIL.equals(resolve(condition[0].trim(), request.expressionAttributeNames()))) {
+            throw DynamoDbException.builder().statusCode(400).message("Unsupported key condition: " + request.keyConditionExpression()).build();
+        }
+        String email = request.expressionAttributeValues().get(condition[1].trim()).s();
+        NavigableSet<Integer> orders = ordersOf(email);
+        if (Boolean.FALSE.equals(request.scanIndexForward())) {
+            orders = orders.descendingSet();
+        }
+        if (request.hasExclusiveStartKey() && !request.exclusiveStartKey().isEmpty()) {
+            orders = orders.tailSet(keyOf(request.exclusiveStartKey()), false);
+        }
+        int limit = request.limit() != null ? request.limit() : SCAN_PAGE_SIZE;
+        List<Map<String, AttributeValue>> page = new ArrayList<>();
+        Integer last = null;
+        for (Integer key : orders) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(project(lookup(key), request.projectionExpression(), request.expressionAttributeNames()));
+            last = key;
+        }
+        QueryResponse.Builder response = QueryResponse.builder().items(page).count(page.size());
+        // Like DynamoDB, a full page has a LastEvaluatedKey even when nothing follows it.
+        if (page.size() == limit && last != null) {
+            response.lastEvaluatedKey(Map.of(KEY, number(last), EMAIL, AttributeValue.builder().s(email).build()));
+        }
+        return response.build();
+    }
+
+    @Override
+    public synchronized ScanResponse scan(ScanRequest request) {
+        count("Scan");
+        int limit = request.limit() != null ? request.limit() : SCAN_PAGE_SIZE;
+        int after = request.hasExclusiveStartKey() && !request.exclusiveStartKey().isEmpty() ? keyOf(request.exclusiveStartKey()) : Integer.MIN_VALUE;
+
+        List<Map<String, AttributeValue>> page = new ArrayList<>();
+        Integer cursor = after;
+        while (page.size() < limit) {
+            cursor = nextKey(cursor);
+            if (cursor == null) {
+                break;
+            }
+            page.add(project(lookup(cursor), request.projectionExpression(), request.expressionAttributeNames()));
+        }
+
+        ScanResponse.Builder response = ScanResponse.builder().items(page).count(page.size());
+        if (cursor != null && nextKey(cursor) != null) {
+            response.lastEvaluatedKey(Map.of(KEY, number(cursor)));
+        }
+        return response.build();
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    void count(String operation) {
+        operationCounts.computeIfAbsent(operation, ignored -> new AtomicLong()).incrementAndGet();
+    }
+
+    Map<String, AttributeValue> lookup(int key) {
+        Map<String, AttributeValue> item = items.get(key);
+        if (item == null && isSynthetic(key) && !deletedSynthetic.contains(key)) {
+            item = syntheticOrder(key);
+        }
+        return item;
+    }
+
+    void store(int key, Map<String, AttributeValue> item) {
+        unindex(key, items.put(key, item));
+        deletedSynthetic.remove(key);
+        String email = emailOf(item);
+        if (email != null) {
+            ordersByEmail.computeIfAbsent(email, ignored -> new TreeSet<>()).add(key);
+        }
+    }
+
+    private void remove(int key) {
+        unindex(key, items.remove(key));
+        if (isSynthetic(key)) {
+            deletedSynthetic.add(key);
+        }
+    }
+
+    private void unindex(int key, Map<String, AttributeValue> item) {
+        String email = item == null ? null : emailOf(item);
+        NavigableSet<Integer> orders = email == null ? null : ordersByEmail.get(email);
+        if (orders != null) {
+            orders.remove(key);
+            if (orders.isEmpty()) {
+                ordersByEmail.remove(email);
+            }
+        }
+    }
+
+    private static String emailOf(Map<String, AttributeValue> item) {
+        AttributeValue email = item.get(EMAIL);
+        return email == null ? null : email.s();
+    }
+
+    // The orders of one address, stored and synthetic, without looking at the rest of the table.
+    private NavigableSet<Integer> ordersOf(String email) {
+        NavigableSet<Integer> orders = new TreeSet<>(ordersByEmail.getOrDefault(email, new TreeSet<>()));
+        Matcher synthetic = SYNTHETIC_EMAIL.matcher(email);
+        if (synthetic.matches()) {
+            int key = Integer.parseInt(synthetic.group(1));
+            if (isSynthetic(key) && !items.containsKey(key) && !deletedSynthetic.contains(key)) {
+                orders.add(key);
+            }
+        }
+        return orders;
+    }
+
+    private Integer nextKey(int after) {
+        Integer stored = items.higherKey(after);
+        int candidate = Math.max(after + 1, FIRST_SYNTHETIC_ORDER);
+        while (isSynthetic(candidate) && deletedSynthetic.contains(candidate)) {
+            candidate++;
+        }
+        Integer synthetic = isSynthetic(candidate) ? candidate : null;
+        if (stored == null) {
+            return synthetic;
+        }
+        return synthetic == null ? stored : Math.min(stored, synthetic);
+    }
+
+    private boolean isSynthetic(int key) {
+        return key >= FIRST_SYNTHETIC_ORDER && key < FIRST_SYNTHETIC_ORDER + syntheticOrders;
+    }
+
+    private static Map<String, AttributeValue> syntheticOrder(int orderNumber) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(KEY, number(orderNumber));
+        item.put("clients_name", AttributeValue.builder().s("Customer " + orderNumber).build());
+        item.put("product_type", AttributeValue.builder().s("laptop").build());
+        item.put("product_name", AttributeValue.builder().s("Streambook").build());
+        item.put("product_number", AttributeValue.builder().s("11").build());
+        item.put("payment_method", AttributeValue.builder().s(orderNumber % 2 == 0 ? "cash" : "card").build());
+        item.put("shipping_address", AttributeValue.builder().s("Paris").build());
+        item.put("email_address", AttributeValue.builder().s("customer" + orderNumber + "@example.com").build());
+        return item;
+    }
+
+    private static boolean isOrderKey(Map<String, AttributeValue> item) {
+        return item.containsKey(KEY);
+    }
+
+    private static List<Object> otherKey(String tableName, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        item.forEach((name, value) -> {
+            if (OTHER_KEYS.contains(name)) {
+                key.put(name, value);
+            }
+        });
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + KEY + " or one of " + OTHER_KEYS + " as the key");
+        }
+        return List.of(tableName, key);
+    }
+
+    static int keyOf(Map<String, AttributeValue> item) {
+        AttributeValue key = item.get(KEY);
+        if (key == null || key.n() == null) {
+            throw new IllegalArgumentException("Missing numeric " + KEY + " key");
+        }
+        return Integer.parseInt(key.n());
+    }
+
+    static AttributeValue number(long value) {
+        return AttributeValue.builder().n(String.valueOf(value)).build();
+    }
+
+    static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projection, Map<String, String> names) {
+        if (projection == null || projection.isBlank()) {
+            return item;
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (String token : projection.split(",")) {
+            String name = resolve(token.trim(), names);
+            if (item.containsKey(name)) {
+                projected.put(name, item.get(name));
+            }
+        }
+        return projected;
+    }
+
+    /** Like DynamoDB, puts the item as it is into the failure when asked to, and when there is one. */
+    static void checkCondition(Map<String, AttributeValue> item, String condition, Map<String, String> names, Map<String, AttributeValue> values,
+                               ReturnValuesOnConditionCheckFailure returnOnFailure) {
+        try {
+            checkCondition(item, condition, names, values);
+        } catch (ConditionalCheckFailedException e) {
+            throw returnOnFailure == ReturnValuesOnConditionCheckFailure.ALL_OLD && item != null ? e.toBuilder().item(item).build() : e;
+        }
+    }
+
+    static void checkCondition(Map<String, AttributeValue> item, String condition, Map<String, String> names, Map<String, AttributeValue> values) {
+        if (condition == null || condition.isBlank()) {
+            return;
+        }
+        boolean satisfied = false;
+        for (String alternative : condition.split("(?i)\\s+OR\\s+")) {
+            boolean all = true;
+            for (String term : alternative.split("(?i)\\s+AND\\s+")) {
+                all &= evaluate(item, term.trim(), names, values);
+            }
+            satisfied |= all;
+        }
+        if (!satisfied) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+    }
+
+    private static boolean evaluate(Map<String, AttributeValue> item, String term, Map<String, String> names, Map<String, AttributeValue> values) {
+        if (term.startsWith("(") && term.endsWith(")") && !term.startsWith("attribute")) {
+            term = term.substring(1, term.length() - 1).trim();
+        }
+        if (term.startsWith("attribute_exists(")) {
+            return item != null && item.containsKey(resolve(argument(term), names));
+        }
+        if (term.startsWith("attribute_not_exists(")) {
+            return item == null || !item.containsKey(resolve(argument(term), names));
+        }
+        String[] comparison = term.split("\\s*(<>|=)\\s*", 2);
+        if (comparison.length == 2) {
+            AttributeValue actual = item == null ? null : item.get(resolve(comparison[0].trim(), names));
+            boolean equal = actual != null && actual.equals(values.get(comparison[1].trim()));
+            return term.contains("<>") != equal;
+        }
+        throw new UnsupportedOperationException("Unsupported condition: " + term);
+    }
+
+    private static String argument(String function) {
+        return function.substring(function.indexOf('(') + 1, function.lastIndexOf(')')).trim();
+    }
+
+    static Set<String> applyUpdate(Map<String, AttributeValue> item, String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        Set<String> touched = new HashSet<>();
+        String[] clauses = expression.trim().split("\\s+(?=(SET|ADD|REMOVE)\\s)");
+        for (String clause : clauses) {
+            String[] parts = clause.trim().split("\\s+", 2);
+            String action = parts[0].toUpperCase();
+            for (String assignment : parts[1].split(",")) {
+                assignment = assignment.trim();
+                switch (action) {
+                    case "SET" -> {
+                        String[] sides = assignment.split("\\s*=\\s*", 2);
+                        String name = resolve(sides[0], names);
+                        item.put(name, values.get(sides[1].trim()));
+                        touched.add(name);
+                    }
+                    case "ADD" -> {
+                        String[] sides = assignment.split("\\s+", 2);
+                        String name = resolve(sides[0], names);
+                        AttributeValue current = item.get(name);
+                        BigDecimal base = current == null ? BigDecimal.ZERO : new BigDecimal(current.n());
+                        BigDecimal delta = new BigDecimal(values.get(sides[1].trim()).n());
+                        item.put(name, AttributeValue.builder().n(base.add(delta).toPlainString()).build());
+                        touched.add(name);
+                    }
+                    case "REMOVE" -> {
+                        String name = resolve(assignment, names);
+                        item.remove(name);
+                        touched.add(name);
+                    }
+                    default -> throw new UnsupportedOperationException("Unsupported update clause: " + clause);
+                }
+            }
+        }
+        return touched;
+    }
+
+    static String resolve(String token, Map<String, String> names) {
+        token = token.trim();
+        return token.startsWith("#") && names != null && names.containsKey(token) ? names.get(token) : token;
+    }
+}
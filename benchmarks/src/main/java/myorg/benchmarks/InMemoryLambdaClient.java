@@ -0,0 +1,61 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the faq_handler function: every invoke returns the same closed FAQ answer, optionally
+ * after a simulated retrieval and generation latency. Invokes complete on a separate thread, like the
+ * SDK's async client.
+ */
+public class InMemoryLambdaClient implements LambdaAsyncClient {
+    private static final String FAQ_RESPONSE = "{\"dialogAction\":{\"type\":\"Close\",\"fulfillmentState\":\"Fulfilled\","
+            + "\"message\":{\"contentType\":\"PlainText\",\"content\":\"You can reach HP support at support@hp.com.\"}}}";
+
+    private final SdkBytes response = SdkBytes.fromUtf8String(FAQ_RESPONSE);
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final long latencyMillis;
+
+    public InMemoryLambdaClient() {
+        this(0);
+    }
+
+    public InMemoryLambdaClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public CompletableFuture<InvokeResponse> invoke(InvokeRequest request) {
+        invocations.incrementAndGet();
+        payloadBytes.addAndGet(request.payload().asByteArrayUnsafe().length);
+        InvokeResponse invokeResponse = InvokeResponse.builder().statusCode(200).payload(response).build();
+        if (latencyMillis <= 0) {
+            return CompletableFuture.completedFuture(invokeResponse);
+        }
+        return CompletableFuture.supplyAsync(() -> invokeResponse, CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS));
+    }
+
+    public long invocationCount() {
+        return invocations.get();
+    }
+
+    public long payloadBytes() {
+        return payloadBytes.get();
+    }
+
+    @Override
+    public String serviceName() {
+        return "lambda";
+    }
+
+    @Override
+    public void close() {
+    }
+}
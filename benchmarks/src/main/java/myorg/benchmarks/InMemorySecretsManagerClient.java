@@ -0,0 +1,31 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+
+public class InMemorySecretsManagerClient implements SecretsManagerClient {
+    private final String secretString;
+
+    public InMemorySecretsManagerClient() {
+        this("{\"apiKey\":\"local-api-key\"}");
+    }
+
+    public InMemorySecretsManagerClient(String secretString) {
+        this.secretString = secretString;
+    }
+
+    @Override
+    public GetSecretValueResponse getSecretValue(GetSecretValueRequest request) {
+        return GetSecretValueResponse.builder().arn(request.secretId()).secretString(secretString).build();
+    }
+
+    @Override
+    public String serviceName() {
+        return "secretsmanager";
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,52 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.SendEmailRequest;
+import software.amazon.awssdk.services.ses.model.SendEmailResponse;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InMemorySesClient implements SesClient {
+    private final AtomicLong sent = new AtomicLong();
+    private final long latencyMillis;
+    private volatile SendEmailRequest lastRequest;
+
+    public InMemorySesClient() {
+        this(0);
+    }
+
+    public InMemorySesClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public SendEmailResponse sendEmail(SendEmailRequest request) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lastRequest = request;
+        long messageNumber = sent.incrementAndGet();
+        return SendEmailResponse.builder().messageId("local-" + messageNumber).build();
+    }
+
+    public long sentCount() {
+        return sent.get();
+    }
+
+    public SendEmailRequest lastRequest() {
+        return lastRequest;
+    }
+
+    @Override
+    public String serviceName() {
+        return "ses";
+    }
+
+    @Override
+    public void close() {
+    }
+}
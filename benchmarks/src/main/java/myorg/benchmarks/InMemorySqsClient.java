@@ -0,0 +1,98 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InMemorySqsClient implements SqsClient {
+    private final Map<String, ConcurrentLinkedQueue<String>> queues = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final long latencyMillis;
+
+    public InMemorySqsClient() {
+        this(0);
+    }
+
+    public InMemorySqsClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        roundTrip();
+        queues.computeIfAbsent(request.queueUrl(), url -> new ConcurrentLinkedQueue<>()).add(request.messageBody());
+        return SendMessageResponse.builder().messageId("local-" + sent.incrementAndGet()).build();
+    }
+
+    @Override
+    public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+        roundTrip();
+        ConcurrentLinkedQueue<String> queue = queues.computeIfAbsent(request.queueUrl(), url -> new ConcurrentLinkedQueue<>());
+        List<SendMessageBatchResultEntry> successful = new ArrayList<>(request.entries().size());
+        for (SendMessageBatchRequestEntry entry : request.entries()) {
+            queue.add(entry.messageBody());
+            successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId("local-" + sent.incrementAndGet()).build());
+        }
+        return SendMessageBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    public long callCount() {
+        return calls.get();
+    }
+
+    private void roundTrip() {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public int depth(String queueUrl) {
+        ConcurrentLinkedQueue<String> queue = queues.get(queueUrl);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Removes up to {@code batchSize} messages and wraps them the way the SQS event source mapping
+     * hands them to a Lambda function.
+     */
+    public Map<String, Object> drainAsEvent(String queueUrl, int batchSize) {
+        ConcurrentLinkedQueue<String> queue = queues.getOrDefault(queueUrl, new ConcurrentLinkedQueue<>());
+        List<Map<String, Object>> records = new ArrayList<>();
+        String body;
+        while (records.size() < batchSize && (body = queue.poll()) != null) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("messageId", "local-record-" + records.size());
+            record.put("body", body);
+            record.put("eventSource", "aws:sqs");
+            records.add(record);
+        }
+        return Map.of("Records", records);
+    }
+
+    @Override
+    public String serviceName() {
+        return "sqs";
+    }
+
+    @Override
+    public void close() {
+    }
+}
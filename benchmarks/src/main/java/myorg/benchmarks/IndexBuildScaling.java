@@ -0,0 +1,62 @@
+package myorg.benchmarks;
+
+import myorg.DocumentChunker;
+import myorg.FaqIndexBuilder;
+import myorg.HashingEmbedder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds the FAQ index from a generated corpus of {@code chunks} one-paragraph chunks with 1, 2, 4, ...
+ * threads up to the core count, and reports the speedup of each over one thread. Every build must
+ * produce the same bytes. Arguments: chunk count (default 100000), dimension (default 256), most threads
+ * (default the core count; more than that only checks the output does not change).
+ */
+public final class IndexBuildScaling {
+    private static final int PARAGRAPHS_PER_DOCUMENT = 10;
+    private static final int WORDS_PER_PARAGRAPH = 60;
+    private static final int TOPICS = 500;
+    // Room for the model number and error code sentence some paragraphs open with.
+    private static final int EXTRA_WORDS = 6;
+
+    public static void main(String[] args) throws Exception {
+        int chunks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Path corpus = Files.createTempDirectory("faq-corpus");
+        new SyntheticFaqCorpus(chunks, WORDS_PER_PARAGRAPH, TOPICS, 11).write(corpus, PARAGRAPHS_PER_DOCUMENT);
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+
+        byte[] reference = null;
+        long baseline = 0;
+        for (int threads : threadCounts) {
+            Path indexFile = Files.createTempFile("faq-index", ".ivf");
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long start = System.nanoTime();
+            FaqIndexBuilder.Result result = new FaqIndexBuilder(new HashingEmbedder(dimension), new DocumentChunker(WORDS_PER_PARAGRAPH + EXTRA_WORDS, 10), 0, pool)
+                    .build(corpus, indexFile);
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+            baseline = baseline == 0 ? elapsed : baseline;
+            byte[] bytes = Files.readAllBytes(indexFile);
+            Files.delete(indexFile);
+            boolean identical = reference == null || Arrays.equals(reference, bytes);
+            reference = reference == null ? bytes : reference;
+            System.out.printf("%2d threads: %.1f s, speedup %.2f, %s%s%n", threads, elapsed / 1e9, baseline / (double) elapsed, result,
+                    identical ? "" : ", OUTPUT DIFFERS from 1 thread");
+            if (!identical) {
+                System.exit(1);
+            }
+        }
+    }
+}
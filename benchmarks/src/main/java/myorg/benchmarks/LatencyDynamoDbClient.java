@@ -0,0 +1,94 @@
+package myorg.benchmarks;
+
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The in-memory table with a round trip of {@code latencyMillis} per call, spent outside the table's lock
+ * so concurrent callers overlap like they would against DynamoDB. Calls are also counted per thread, so a
+ * load generator can tell which turn made them.
+ */
+public class LatencyDynamoDbClient extends InMemoryDynamoDbClient {
+    private final long latencyMillis;
+    private final ThreadLocal<Map<String, Long>> threadCounts = ThreadLocal.withInitial(HashMap::new);
+
+    public LatencyDynamoDbClient(int syntheticOrders, long latencyMillis) {
+        super(syntheticOrders);
+        this.latencyMillis = latencyMillis;
+    }
+
+    /** Returns the calls this thread made since the previous call, by operation, and starts counting again. */
+    public Map<String, Long> takeThreadCounts() {
+        Map<String, Long> counts = threadCounts.get();
+        threadCounts.set(new HashMap<>());
+        return counts;
+    }
+
+    private void roundTrip(String operation) {
+        threadCounts.get().merge(operation, 1L, Long::sum);
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        roundTrip("GetItem");
+        return super.getItem(request);
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        roundTrip("PutItem");
+        return super.putItem(request);
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        roundTrip("UpdateItem");
+        return super.updateItem(request);
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        roundTrip("DeleteItem");
+        return super.deleteItem(request);
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        roundTrip("BatchWriteItem");
+        return super.batchWriteItem(request);
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        roundTrip("Query");
+        return super.query(request);
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        roundTrip("Scan");
+        return super.scan(request);
+    }
+}
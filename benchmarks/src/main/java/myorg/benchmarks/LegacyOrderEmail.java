@@ -0,0 +1,102 @@
+package myorg.benchmarks;
+
+import myorg.OrderConfirmation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The confirmation email as it was built before the compiled templates: format the text body, then
+ * parse it back line by line to assemble the HTML. Kept only as the benchmark baseline.
+ */
+public final class LegacyOrderEmail {
+    private LegacyOrderEmail() {
+    }
+
+    public static String subject(OrderConfirmation confirmation) {
+        return "Order Confirmation - Order #" + confirmation.orderNumber();
+    }
+
+    public static String text(OrderConfirmation confirmation) {
+        return String.format(
+                "Dear %s,\n\nYour order has been successfully placed!\n\nOrder Details:\n- Order Number: #%d\n- Product: %s %s %s\n- Payment Method: %s\n- Shipping Address: %s\n\nThank you for shopping with us!",
+                confirmation.clientName(), confirmation.orderNumber(), confirmation.products(), confirmation.productName(),
+                confirmation.productNumber() != null ? confirmation.productNumber() : "N/A", confirmation.paymentMethod(),
+                confirmation.shippingAddress()
+        );
+    }
+
+    public static String html(OrderConfirmation confirmation) {
+        return htmlBody(subject(confirmation), text(confirmation));
+    }
+
+    private static String htmlBody(String subject, String body) {
+        String greeting = "";
+        String mainMessage = "";
+        Map<String, String> orderDetails = new LinkedHashMap<>();
+        String[] lines = body.split("\n");
+        boolean inOrderDetails = false;
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (line.startsWith("Dear")) {
+                greeting = line;
+            } else if (line.equals("Order Details:")) {
+                inOrderDetails = true;
+            } else if (inOrderDetails && line.startsWith("-")) {
+                String[] parts = line.substring(2).split(":", 2);
+                if (parts.length == 2) {
+                    orderDetails.put(parts[0].trim(), parts[1].trim());
+                }
+            } else if (!line.equals("Order Details:") && !inOrderDetails) {
+                mainMessage += (mainMessage.isEmpty() ? "" : "<br>") + line;
+            }
+        }
+
+        StringBuilder orderDetailsHtml = new StringBuilder();
+        if (!orderDetails.isEmpty()) {
+            orderDetailsHtml.append("<h2 style=\"font-size: 18px; color: #0096D6; margin: 20px 0 10px;\">Order Details</h2>")
+                    .append("<table border=\"0\" cellpadding=\"8\" cellspacing=\"0\" width=\"100%\" style=\"background-color: #F9F9F9; border: 1px solid #E0E0E0;\">");
+            for (Map.Entry<String, String> entry : orderDetails.entrySet()) {
+                orderDetailsHtml.append("<tr>")
+                        .append("<td style=\"font-size: 14px; font-weight: bold; color: #333333;\">").append(entry.getKey()).append(":</td>")
+                        .append("<td style=\"font-size: 14px; color: #333333;\">").append(entry.getValue()).append("</td>")
+                        .append("</tr>");
+            }
+            orderDetailsHtml.append("</table>");
+        }
+
+        return "<!DOCTYPE html>" +
+                "<html>" +
+                "<head>" +
+                "<meta charset=\"UTF-8\">" +
+                "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">" +
+                "<title>" + subject + "</title>" +
+                "</head>" +
+                "<body style=\"margin: 0; padding: 0; font-family: Arial, sans-serif; background-color: #F5F5F5; color: #333333;\">" +
+                "<table align=\"center\" border=\"0\" cellpadding=\"0\" cellspacing=\"0\" width=\"100%\" style=\"max-width: 600px; background-color: #FFFFFF; border: 1px solid #E0E0E0;\">" +
+                "<tr>" +
+                "<td style=\"padding: 20px; text-align: center; background-color: #0096D6;\">" +
+                "<img src=\"https://logo-marque.com/wp-content/uploads/2020/12/Hewlett-Packard-Logo-2008-2014.png\" alt=\"HP Logo\" style=\"max-width: 150px;\">" +
+                "<h1 style=\"color: #FFFFFF; font-size: 24px; margin: 10px 0;\">" + subject + "</h1>" +
+                "</td>" +
+                "</tr>" +
+                "<tr>" +
+                "<td style=\"padding: 20px;\">" +
+                "<p style=\"font-size: 16px; line-height: 1.5;\">" + greeting + "</p>" +
+                "<p style=\"font-size: 16px; line-height: 1.5;\">" + mainMessage + "</p>" +
+                orderDetailsHtml.toString() +
+                "</td>" +
+                "</tr>" +
+                "<tr>" +
+                "<td style=\"padding: 20px; text-align: center; background-color: #F5F5F5; border-top: 1px solid #E0E0E0;\">" +
+                "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Thank you for shopping with us!</p>" +
+                "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 5px 0;\">HP SmartBot Team</p>" +
+                "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Contact us at: <a href=\"mailto:support@hp.com\" style=\"color: #0096D6; text-decoration: none;\">support@hp.com</a></p>" +
+                "</td>" +
+                "</tr>" +
+                "</table>" +
+                "</body>" +
+                "</html>";
+    }
+}
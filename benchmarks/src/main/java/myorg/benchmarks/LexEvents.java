@@ -0,0 +1,156 @@
+package myorg.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds Lex V2 code hook events shaped like the ones the Lambda runtime hands to SimpleHandler.
+ * Transcripts and session attributes are seeded from event.json and, when present, requests.jsonl
+ * (each line's inputTranscript, or its title).
+ */
+public class LexEvents {
+    public static final List<String> ORDER_SLOTS = List.of("Products", "ProductName", "ProductNumber", "Name", "ShippingAddress",
+            "Email", "PaymentMethod", "CardNumber", "ExpirationDate", "CVV", "SuggestionResponse");
+    public static final List<String> CHANGE_ORDER_SLOTS = List.of("OrderNumber", "ActionType", "ShippingAddress", "PaymentMethod",
+            "CardNumber", "ExpirationDate", "CVV");
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String> transcripts;
+    private final Map<String, String> seedAttributes;
+    private int sequence;
+
+    public LexEvents(List<String> transcripts, Map<String, String> seedAttributes) {
+        this.transcripts = transcripts.isEmpty() ? List.of("hello") : transcripts;
+        this.seedAttributes = seedAttributes;
+    }
+
+    public static LexEvents load() {
+        Path eventFile = locate(System.getProperty("lex.event", "event.json"));
+        Path requestsFile = locate(System.getProperty("lex.requests", "requests.jsonl"));
+        List<String> transcripts = new ArrayList<>();
+        Map<String, String> seedAttributes = new HashMap<>();
+        try {
+            if (eventFile != null) {
+                JsonNode seed = objectMapper.readTree(eventFile.toFile());
+                if (seed.hasNonNull("inputTranscript")) {
+                    transcripts.add(seed.get("inputTranscript").asText());
+                }
+                seed.path("sessionAttributes").fields().forEachRemaining(field -> seedAttributes.put(field.getKey(), field.getValue().asText()));
+            }
+            if (requestsFile != null) {
+                for (String line : Files.readAllLines(requestsFile)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode request = objectMapper.readTree(line);
+                    JsonNode transcript = request.hasNonNull("inputTranscript") ? request.get("inputTranscript") : request.get("title");
+                    if (transcript != null) {
+                        transcripts.add(transcript.asText());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read Lex event seeds", e);
+        }
+        return new LexEvents(transcripts, seedAttributes);
+    }
+
+    private static Path locate(String name) {
+        for (Path candidate : List.of(Path.of(name), Path.of("..").resolve(name))) {
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public String nextTranscript() {
+        return transcripts.get(sequence++ % transcripts.size());
+    }
+
+    public Map<String, Object> orderSlotTurn() {
+        Map<String, String> session = new HashMap<>(seedAttributes);
+        session.put("Products", "laptop");
+        return event("OrderHPItemIntent", "Streambook", ORDER_SLOTS, Map.of("ProductName", "Streambook"), session);
+    }
+
+    public Map<String, Object> orderPlacementTurn() {
+        Map<String, String> session = new HashMap<>(seedAttributes);
+        session.put("Products", "laptop");
+        session.put("ProductName", "Streambook");
+        session.put("ProductNumber", "11");
+        session.put("Name", "Jane Doe");
+        session.put("ShippingAddress", "Paris");
+        session.put("Email", "jane.doe@example.com");
+        return event("OrderHPItemIntent", "cash", ORDER_SLOTS, Map.of("PaymentMethod", "cash"), session);
+    }
+
+    public Map<String, Object> changeOrderTurn(int orderNumber) {
+        Map<String, String> session = new HashMap<>(seedAttributes);
+        session.put("OrderNumber", String.valueOf(orderNumber));
+        session.put("ActionType", "update shipping address");
+        return event("ChangeOrderIntent", "Lyon", CHANGE_ORDER_SLOTS, Map.of("ShippingAddress", "Lyon"), session);
+    }
+
+    public Map<String, Object> greetingsTurn() {
+        return event("GreetingsIntent", "Hello", List.of(), Map.of(), new HashMap<>(seedAttributes));
+    }
+
+    public Map<String, Object> fallbackTurn() {
+        return event("FallbackIntent", nextTranscript(), List.of(), Map.of(), new HashMap<>(seedAttributes));
+    }
+
+    public Map<String, Object> faqTurn() {
+        String transcript = nextTranscript();
+        return event("FAQIntent", transcript, List.of("Query"), Map.of("Query", transcript), new HashMap<>(seedAttributes));
+    }
+
+    public Map<String, Object> event(String intentName, String transcript, List<String> slotNames,
+                                     Map<String, String> filledSlots, Map<String, String> sessionAttributes) {
+        Map<String, Object> slots = new LinkedHashMap<>();
+        for (String slotName : slotNames) {
+            String value = filledSlots.get(slotName);
+            slots.put(slotName, value == null ? null : slotValue(value));
+        }
+
+        Map<String, Object> intent = new LinkedHashMap<>();
+        intent.put("name", intentName);
+        intent.put("slots", slots);
+        intent.put("state", "InProgress");
+        intent.put("confirmationState", "None");
+
+        Map<String, Object> sessionState = new LinkedHashMap<>();
+        sessionState.put("sessionAttributes", new LinkedHashMap<>(sessionAttributes));
+        sessionState.put("intent", intent);
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("sessionId", "session-" + Math.abs(transcript.hashCode()));
+        event.put("inputTranscript", transcript);
+        event.put("inputMode", "Text");
+        event.put("invocationSource", "DialogCodeHook");
+        event.put("messageVersion", "1.0");
+        event.put("bot", Map.of("id", "FPQPGFR9ZU", "name", "CustomerSupportBot", "aliasId", "TSTALIASID", "localeId", "en_US", "version", "DRAFT"));
+        event.put("sessionState", sessionState);
+        return objectMapper.convertValue(event, new TypeReference<Map<String, Object>>() {});
+    }
+
+    private static Map<String, Object> slotValue(String value) {
+        Map<String, Object> slotValue = new LinkedHashMap<>();
+        slotValue.put("originalValue", value);
+        slotValue.put("interpretedValue", value);
+        slotValue.put("resolvedValues", List.of(value));
+        return Map.of("shape", "Scalar", "value", slotValue);
+    }
+}
@@ -0,0 +1,87 @@
+package myorg.benchmarks;
+
+import myorg.Json;
+import myorg.LexResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Lex response, from the handler's answer to its JSON bytes, per operation: built as nested maps and
+ * serialized the way the runtime does for SimpleHandler, or written straight to the stream the way
+ * StreamingHandler does. Run with {@code -prof gc} for the bytes allocated per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexResponseBenchmark {
+    private static final LexResponse.Template ASK_PRODUCT_NUMBER = LexResponse.template("OrderHPItemIntent",
+            "What is the model number ?", "InProgress", "ProductNumber");
+    private static final LexResponse.Template GREETING = LexResponse.template("GreetingsIntent",
+            "Hello ! Welcome to HP SmartBot ! How may I help you today ?", "Fulfilled", null);
+    private static final LexResponse.Card SUGGESTION = new LexResponse.Card("You may like this item as well !",
+            "Boost your productivity with a docking station !",
+            List.of(new LexResponse.Button("Yes, show me", "yes"), new LexResponse.Button("No, thank you", "no")));
+
+    @Param({"SlotPrompt", "Greeting", "OrderPlaced"})
+    public String reply;
+
+    private Map<String, Object> sessionAttributes;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+    @Setup
+    public void setUp() {
+        sessionAttributes = new HashMap<>();
+        sessionAttributes.put("orderId", "15");
+        if (!reply.equals("Greeting")) {
+            sessionAttributes.putAll(Map.of("Products", "laptop", "ProductName", "Streambook"));
+        }
+        if (reply.equals("OrderPlaced")) {
+            sessionAttributes.putAll(Map.of("ProductNumber", "11", "Name", "Jane Doe", "ShippingAddress", "Paris",
+                    "Email", "jane.doe@example.com", "PaymentMethod", "cash", "orderNumber", "2000"));
+        }
+    }
+
+    private LexResponse response() {
+        return switch (reply) {
+            case "SlotPrompt" -> ASK_PRODUCT_NUMBER.with(sessionAttributes);
+            case "Greeting" -> GREETING.with(sessionAttributes);
+            case "OrderPlaced" -> LexResponse.textAndCard("OrderHPItemIntent",
+                    "Your order has been successfully placed ! Your order number is #2000.", "InProgress", sessionAttributes,
+                    "SuggestionResponse", SUGGESTION);
+            default -> throw new IllegalArgumentException("Unknown reply: " + reply);
+        };
+    }
+
+    @Benchmark
+    public int mapsSerialized() throws IOException {
+        out.reset();
+        Json.MAPPER.writeValue(out, response().toMap());
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamed() throws IOException {
+        out.reset();
+        response().writeTo(out);
+        return out.size();
+    }
+}
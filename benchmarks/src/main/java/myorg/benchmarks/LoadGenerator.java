@@ -0,0 +1,307 @@
+package myorg.benchmarks;
+
+import myorg.EmailOutboxConsumer;
+import myorg.FaqClient;
+import myorg.SendRateLimiter;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of SimpleHandler with nothing leaving the process. Whole conversations run on
+ * {@code concurrency} threads against latency-configurable stand-ins: the in-memory table for DynamoDB,
+ * the in-memory FAQ function, SES behind the email outbox consumer, and the loopback card validator in
+ * place of RapidAPI. Each thread has its own handler, like a Lambda container. The conversations place
+ * orders, change them, ask FAQ questions and fall back. Reports throughput, p50/p95/p99 per turn type and
+ * the DynamoDB calls each turn type made, so a scan sneaking back into a turn shows up as a call count.
+ * Card payments need ALGOBOOK_API_KEY_SECRET_ARN set to any value; without it every order is paid cash.
+ * Arguments: conversations (default 2000), concurrency (default 8), then simulated latency in ms of
+ * DynamoDB (default 5), the FAQ function (default 50), SES (default 20) and the card validator (default 100).
+ * Exits with status 1 if any turn was answered with an error.
+ */
+public final class LoadGenerator {
+    private static final int EXISTING_ORDERS = 1000;
+    private static final int FIRST_ORDER = 1000;
+    private static final String OUTBOX_URL = "local-email-outbox";
+    private static final String FAQ_FUNCTION = "arn:aws:lambda:us-east-1:000000000000:function:faq_handler";
+
+    private final LatencyDynamoDbClient dynamoDbClient;
+    private final InMemoryLambdaClient lambdaClient;
+    private final InMemorySqsClient sqsClient = new InMemorySqsClient();
+    private final LocalCardValidatorServer validator;
+    private final boolean cardPayments = System.getenv("ALGOBOOK_API_KEY_SECRET_ARN") != null;
+    private final AtomicInteger lastPlacedOrder = new AtomicInteger();
+
+    private LoadGenerator(long dynamoDbMillis, long faqMillis, long validatorMillis) throws Exception {
+        this.dynamoDbClient = new LatencyDynamoDbClient(EXISTING_ORDERS, dynamoDbMillis);
+        this.lambdaClient = new InMemoryLambdaClient(faqMillis);
+        this.validator = new LocalCardValidatorServer(validatorMillis);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int conversations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long dynamoDbMillis = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        long faqMillis = args.length > 3 ? Long.parseLong(args[3]) : 50;
+        long sesMillis = args.length > 4 ? Long.parseLong(args[4]) : 20;
+        long validatorMillis = args.length > 5 ? Long.parseLong(args[5]) : 100;
+
+        LoadGenerator generator = new LoadGenerator(dynamoDbMillis, faqMillis, validatorMillis);
+        InMemorySesClient sesClient = new InMemorySesClient(sesMillis);
+        boolean clean;
+        try {
+            clean = generator.run(conversations, concurrency, sesClient);
+        } finally {
+            generator.validator.close();
+        }
+        System.exit(clean ? 0 : 1);
+    }
+
+    private boolean run(int conversations, int concurrency, InMemorySesClient sesClient) throws Exception {
+        if (!cardPayments) {
+            System.out.println("Card payments skipped: set ALGOBOOK_API_KEY_SECRET_ARN (any value) so card validation can get an API key");
+        }
+        AtomicInteger remaining = new AtomicInteger(conversations);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Results>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            long seed = i;
+            futures.add(workers.submit(() -> drive(remaining, new Random(seed))));
+        }
+
+        // The outbox consumer drains confirmation emails to SES while the conversations run, as the SQS trigger would.
+        EmailOutboxConsumer consumer = new EmailOutboxConsumer(sesClient, sqsClient, "local-email-dlq", new SendRateLimiter(10_000), 4);
+        LocalContext context = new LocalContext();
+        while (!futures.stream().allMatch(Future::isDone) || sqsClient.depth(OUTBOX_URL) > 0) {
+            if (sqsClient.depth(OUTBOX_URL) == 0) {
+                Thread.sleep(10);
+            } else {
+                consumer.handleRequest(sqsClient.drainAsEvent(OUTBOX_URL, 10), context);
+            }
+        }
+        long conversationNanos = System.nanoTime() - start;
+        workers.shutdown();
+
+        Results total = new Results();
+        for (Future<Results> future : futures) {
+            total.add(future.get());
+        }
+        report(total, conversations, concurrency, conversationNanos, sesClient);
+        return total.errors.values().stream().mapToLong(Long::longValue).sum() == 0;
+    }
+
+    private Results drive(AtomicInteger remaining, Random random) {
+        SimpleHandler handler = new SimpleHandler(FaqClient.fromEnvironment(lambdaClient, FAQ_FUNCTION), dynamoDbClient,
+                HttpClient.newHttpClient(), new SqsEmailOutbox(sqsClient, OUTBOX_URL), new InMemorySecretsManagerClient(), validator.endpoint());
+        LexEvents events = LexEvents.load();
+        Results results = new Results();
+        while (remaining.getAndDecrement() > 0) {
+            Conversation conversation = new Conversation(handler, events, results, "load-" + Thread.currentThread().getId() + "-" + random.nextLong());
+            double pick = random.nextDouble();
+            if (pick < 0.4) {
+                placeOrder(conversation, random);
+            } else if (pick < 0.7) {
+                changeOrder(conversation, random);
+            } else if (pick < 0.9) {
+                int questions = 1 + random.nextInt(3);
+                for (int question = 0; question < questions; question++) {
+                    conversation.send("faq", "FAQIntent", Map.of("Query", events.nextTranscript()));
+                }
+            } else {
+                conversation.send("fallback", "FallbackIntent", Map.of());
+            }
+        }
+        return results;
+    }
+
+    private void placeOrder(Conversation conversation, Random random) {
+        conversation.send("greeting", "GreetingsIntent", Map.of());
+        for (Map.Entry<String, String> slot : List.of(Map.entry("Products", "laptop"), Map.entry("ProductName", "Streambook"),
+                Map.entry("ProductNumber", "11"), Map.entry("Name", "Jane Doe"), Map.entry("ShippingAddress", "Paris"),
+                Map.entry("Email", "jane.doe@example.com"))) {
+            conversation.send("order-slot", "OrderHPItemIntent", Map.of(slot.getKey(), slot.getValue()));
+        }
+        if (cardPayments && random.nextDouble() < 0.3) {
+            conversation.send("order-slot", "OrderHPItemIntent", Map.of("PaymentMethod", "card"));
+            conversation.send("order-slot", "OrderHPItemIntent", Map.of("CardNumber", cardNumber(random)));
+            conversation.send("order-slot", "OrderHPItemIntent", Map.of("ExpirationDate", "12/30"));
+            conversation.send("order-place", "OrderHPItemIntent", Map.of("CVV", String.valueOf(100 + random.nextInt(900))));
+        } else {
+            conversation.send("order-place", "OrderHPItemIntent", Map.of("PaymentMethod", "cash"));
+        }
+        String orderNumber = conversation.sessionAttributes.get("orderNumber");
+        if (orderNumber != null) {
+            lastPlacedOrder.set(Integer.parseInt(orderNumber));
+        }
+        conversation.send("order-suggestion", "OrderHPItemIntent", Map.of("SuggestionResponse", random.nextBoolean() ? "yes" : "no"));
+    }
+
+    private void changeOrder(Conversation conversation, Random random) {
+        int placed = lastPlacedOrder.get();
+        int orderNumber = placed != 0 && random.nextBoolean() ? placed : FIRST_ORDER + random.nextInt(EXISTING_ORDERS);
+        conversation.send("change-lookup", "ChangeOrderIntent", Map.of("OrderNumber", String.valueOf(orderNumber)));
+        double pick = random.nextDouble();
+        if (pick < 0.2) {
+            conversation.send("change-write", "ChangeOrderIntent", Map.of("ActionType", "cancel"));
+        } else if (pick < 0.4 && cardPayments) {
+            conversation.send("change-lookup", "ChangeOrderIntent", Map.of("ActionType", "update_payment"));
+            conversation.send("change-slot", "ChangeOrderIntent", Map.of("CardNumber", cardNumber(random)));
+            conversation.send("change-slot", "ChangeOrderIntent", Map.of("ExpirationDate", "12/30"));
+            conversation.send("change-write", "ChangeOrderIntent", Map.of("CVV", String.valueOf(100 + random.nextInt(900))));
+        } else {
+            conversation.send("change-lookup", "ChangeOrderIntent", Map.of("ActionType", "update shipping address"));
+            conversation.send("change-write", "ChangeOrderIntent", Map.of("ShippingAddress", random.nextBoolean() ? "Lyon" : "Nantes"));
+        }
+    }
+
+    // A Visa-like number passing the Luhn check; distinct numbers keep the verdict cache from hiding the validator.
+    private static String cardNumber(Random random) {
+        int[] digits = new int[16];
+        digits[0] = 4;
+        for (int i = 1; i < 15; i++) {
+            digits[i] = random.nextInt(10);
+        }
+        int sum = 0;
+        for (int i = 14; i >= 0; i--) {
+            int doubled = (14 - i) % 2 == 0 ? digits[i] * 2 : digits[i];
+            sum += doubled > 9 ? doubled - 9 : doubled;
+        }
+        digits[15] = (10 - sum % 10) % 10;
+        StringBuilder number = new StringBuilder(16);
+        for (int digit : digits) {
+            number.append(digit);
+        }
+        return number.toString();
+    }
+
+    /** One Lex session: slots accumulate within an intent and session attributes carry over between turns, as Lex does. */
+    private final class Conversation {
+        private final SimpleHandler handler;
+        private final LexEvents events;
+        private final Results results;
+        private final String sessionId;
+        private final LocalContext context = new LocalContext();
+        private final Map<String, String> slots = new HashMap<>();
+        private Map<String, String> sessionAttributes = new HashMap<>();
+        private String intentName;
+
+        private Conversation(SimpleHandler handler, LexEvents events, Results results, String sessionId) {
+            this.handler = handler;
+            this.events = events;
+            this.results = results;
+            this.sessionId = sessionId;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void send(String turnType, String intent, Map<String, String> filledSlots) {
+            if (!intent.equals(intentName)) {
+                slots.clear();
+                intentName = intent;
+            }
+            slots.putAll(filledSlots);
+            List<String> slotNames = switch (intent) {
+                case "OrderHPItemIntent" -> LexEvents.ORDER_SLOTS;
+                case "ChangeOrderIntent" -> LexEvents.CHANGE_ORDER_SLOTS;
+                case "FAQIntent" -> List.of("Query");
+                default -> List.of();
+            };
+            String transcript = filledSlots.isEmpty() ? "Hello" : filledSlots.values().iterator().next();
+            Map<String, Object> event = events.event(intent, transcript, slotNames, slots, sessionAttributes);
+            event.put("sessionId", sessionId);
+
+            dynamoDbClient.takeThreadCounts();
+            long start = System.nanoTime();
+            Map<String, Object> response = handler.handleRequest(event, context);
+            results.record(turnType, System.nanoTime() - start, dynamoDbClient.takeThreadCounts());
+
+            Map<String, Object> sessionState = (Map<String, Object>) response.get("sessionState");
+            Map<String, Object> answeredIntent = (Map<String, Object>) sessionState.getOrDefault("intent", Map.of());
+            // The dependency-unavailable and processing-error replies are the only ones without a real intent.
+            if ("UnknownIntent".equals(answeredIntent.get("name"))) {
+                results.errors.merge(turnType, 1L, Long::sum);
+            }
+            Map<String, String> attributes = new HashMap<>();
+            ((Map<String, Object>) sessionState.getOrDefault("sessionAttributes", Map.of()))
+                    .forEach((name, value) -> attributes.put(name, String.valueOf(value)));
+            sessionAttributes = attributes;
+        }
+    }
+
+    private static final class Results {
+        private final Map<String, Samples> latencies = new TreeMap<>();
+        private final Map<String, Map<String, Long>> dynamoDbCalls = new TreeMap<>();
+        private final Map<String, Long> errors = new TreeMap<>();
+
+        private void record(String turnType, long nanos, Map<String, Long> calls) {
+            latencies.computeIfAbsent(turnType, ignored -> new Samples()).add(nanos);
+            Map<String, Long> byOperation = dynamoDbCalls.computeIfAbsent(turnType, ignored -> new TreeMap<>());
+            calls.forEach((operation, count) -> byOperation.merge(operation, count, Long::sum));
+        }
+
+        private void add(Results other) {
+            other.latencies.forEach((turnType, samples) -> latencies.computeIfAbsent(turnType, ignored -> new Samples()).addAll(samples));
+            other.dynamoDbCalls.forEach((turnType, calls) -> {
+                Map<String, Long> byOperation = dynamoDbCalls.computeIfAbsent(turnType, ignored -> new TreeMap<>());
+                calls.forEach((operation, count) -> byOperation.merge(operation, count, Long::sum));
+            });
+            other.errors.forEach((turnType, count) -> errors.merge(turnType, count, Long::sum));
+        }
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+        }
+
+        private double percentileMillis(long[] sorted, double quantile) {
+            return sorted[Math.max(0, (int) Math.ceil(quantile * size) - 1)] / 1e6;
+        }
+    }
+
+    private void report(Results results, int conversations, int concurrency, long nanos, InMemorySesClient sesClient) {
+        long turns = results.latencies.values().stream().mapToLong(samples -> samples.size).sum();
+        double seconds = nanos / 1e9;
+        System.out.printf("%d conversations, %d turns in %.1f s at concurrency %d: %.0f turns/s, %.0f conversations/s%n",
+                conversations, turns, seconds, concurrency, turns / seconds, conversations / seconds);
+        System.out.printf("%-16s %7s %7s %8s %8s %8s %8s  %s%n", "turn type", "turns", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms",
+                "DynamoDB calls per turn");
+        results.latencies.forEach((turnType, samples) -> {
+            long[] sorted = Arrays.copyOf(samples.nanos, samples.size);
+            Arrays.sort(sorted);
+            StringBuilder calls = new StringBuilder();
+            results.dynamoDbCalls.getOrDefault(turnType, Map.of()).forEach((operation, count) ->
+                    calls.append(calls.length() == 0 ? "" : ", ").append(String.format("%s %.2f", operation, count / (double) samples.size)));
+            System.out.printf("%-16s %7d %7d %8.2f %8.2f %8.2f %8.2f  %s%n", turnType, samples.size, results.errors.getOrDefault(turnType, 0L),
+                    samples.percentileMillis(sorted, 0.50), samples.percentileMillis(sorted, 0.95), samples.percentileMillis(sorted, 0.99),
+                    sorted[samples.size - 1] / 1e6, calls.length() == 0 ? "-" : calls);
+        });
+        System.out.println("DynamoDB calls: " + dynamoDbClient.operationCounts());
+        System.out.printf("FAQ function invocations: %d, card validator requests: %d, confirmation emails sent: %d%n",
+                lambdaClient.invocationCount(), validator.requestCount(), sesClient.sentCount());
+    }
+}
@@ -0,0 +1,112 @@
+package myorg.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import myorg.CardPrechecks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the RapidAPI card validator on a loopback port. Answers like the real endpoint
+ * ({@code isValid}, {@code cardType}), judging cards by their Luhn checksum, after an optional delay.
+ * Every {@code slowEvery}-th request takes {@code slowMillis} instead, to give the latency a tail.
+ */
+public class LocalCardValidatorServer implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        // Without TCP_NODELAY the JDK server's split header/body writes meet delayed ACKs and every call takes ~40 ms.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final int slowEvery;
+    private final long slowMillis;
+    private final AtomicLong requests = new AtomicLong();
+    private final FaultInjector faults = new FaultInjector();
+
+    public LocalCardValidatorServer(long latencyMillis) throws IOException {
+        this(latencyMillis, 0, 0);
+    }
+
+    public LocalCardValidatorServer(long latencyMillis, int slowEvery, long slowMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.slowEvery = slowEvery;
+        this.slowMillis = slowMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/validate-credit-card", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/validate-credit-card");
+    }
+
+    /** While failing, the stand-in answers 503 like an overloaded upstream. */
+    public FaultInjector faults() {
+        return faults;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long requestNumber = requests.incrementAndGet();
+        try {
+            try {
+                faults.check(() -> new IllegalStateException("Injected outage"));
+            } catch (IllegalStateException e) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            long delayMillis = slowEvery > 0 && requestNumber % slowEvery == 0 ? slowMillis : latencyMillis;
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            String cardNumber = request.path("cardNumber").asText("");
+            String digits = CardPrechecks.normalize(cardNumber);
+            boolean valid = digits != null && CardPrechecks.luhnValid(digits);
+            String cardType = digits == null ? "UNKNOWN" : switch (CardPrechecks.network(digits)) {
+                case AMERICAN_EXPRESS -> "American Express";
+                case VISA -> "Visa";
+                case MASTERCARD -> "Mastercard";
+                case DISCOVER -> "Discover";
+                case UNKNOWN -> "UNKNOWN";
+            };
+            byte[] body = MAPPER.writeValueAsBytes(Map.of("isValid", valid, "cardType", cardType));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LocalCardValidatorServer server = new LocalCardValidatorServer(args.length > 0 ? Long.parseLong(args[0]) : 0);
+        System.out.println("Card validator stand-in listening on " + server.endpoint());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,98 @@
+package myorg.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Lambda context for in-process invocations. Log lines are discarded unless {@code echo} is set or a
+ * sink is given.
+ */
+public class LocalContext implements Context {
+    private final LambdaLogger logger;
+
+    public LocalContext() {
+        this(false);
+    }
+
+    public LocalContext(boolean echo) {
+        this(echo ? System.out::println : null);
+    }
+
+    public LocalContext(Consumer<String> sink) {
+        this.logger = new LambdaLogger() {
+            @Override
+            public void log(String message) {
+                if (sink != null) {
+                    sink.accept(message);
+                }
+            }
+
+            @Override
+            public void log(byte[] message) {
+                if (sink != null) {
+                    sink.accept(new String(message, StandardCharsets.UTF_8));
+                }
+            }
+        };
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return "local-request";
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return "/aws/lambda/SimpleHandler";
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return "local";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return "SimpleHandler";
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "$LATEST";
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return "arn:aws:lambda:us-east-1:000000000000:function:SimpleHandler";
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return 400_000;
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return 2048;
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return logger;
+    }
+}
@@ -0,0 +1,106 @@
+package myorg.benchmarks;
+
+import myorg.FaqClient;
+import myorg.Log;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the card turns of the order dialog at DEBUG, with events in the field order Lex sends them, and
+ * checks that no line logged holds the card number, expiration date or CVV the customer typed: when the
+ * slot is filled, when the transcript is not resolved into it, and when only the elicited slot says a card
+ * detail is being typed. Exits with status 1 if any line leaks one. The card turns need
+ * ALGOBOOK_API_KEY_SECRET_ARN set to any value to reach the loopback validator stand-in.
+ */
+public final class LogRedactionScenario {
+    private static final String CARD_NUMBER = "4111111111111111";
+    private static final String EXPIRATION_DATE = "12/29";
+    private static final String CVV = "737";
+
+    private final List<String> lines = new ArrayList<>();
+    private final LocalContext context = new LocalContext(lines::add);
+    private final LexEvents events = LexEvents.load();
+    private final SimpleHandler handler;
+    private int failedChecks;
+
+    private LogRedactionScenario(LocalCardValidatorServer validator) {
+        this.handler = new SimpleHandler(FaqClient.fromEnvironment(new InMemoryLambdaClient(), "arn:aws:lambda:us-east-1:000000000000:function:faq_handler"),
+                new InMemoryDynamoDbClient(1000), HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"),
+                new InMemorySecretsManagerClient(), validator.endpoint());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Log.configure(Log.Level.DEBUG, 0);
+        int failedChecks;
+        try (LocalCardValidatorServer validator = new LocalCardValidatorServer(0)) {
+            LogRedactionScenario scenario = new LogRedactionScenario(validator);
+            scenario.run();
+            failedChecks = scenario.failedChecks;
+        }
+        System.out.println(failedChecks == 0 ? "No card detail was logged" : failedChecks + " line(s) leaked a card detail");
+        System.exit(failedChecks == 0 ? 0 : 1);
+    }
+
+    private void run() {
+        Map<String, String> session = orderSession();
+        turn("card number slot", "4111 1111 1111 1111", Map.of("CardNumber", CARD_NUMBER), session, null);
+        session.put("CardNumber", CARD_NUMBER);
+        turn("expiration date slot", EXPIRATION_DATE, Map.of("ExpirationDate", EXPIRATION_DATE), session, null);
+        session.put("ExpirationDate", EXPIRATION_DATE);
+        turn("CVV slot", CVV, Map.of("CVV", CVV), session, null);
+        turn("CVV not resolved", "my code is " + CVV, Map.of(), session, "CVV");
+        turn("CVV elicited", CVV, Map.of(), orderSession(), "CVV");
+        turn("expiration date elicited", "it expires " + EXPIRATION_DATE, Map.of(), orderSession(), "ExpirationDate");
+    }
+
+    private static Map<String, String> orderSession() {
+        Map<String, String> session = new HashMap<>();
+        session.put("Products", "laptop");
+        session.put("ProductName", "Streambook");
+        session.put("ProductNumber", "11");
+        session.put("Name", "Jane Doe");
+        session.put("ShippingAddress", "Paris");
+        session.put("Email", "jane.doe@example.com");
+        session.put("PaymentMethod", "card");
+        return session;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void turn(String name, String transcript, Map<String, String> filledSlots, Map<String, String> session, String slotToElicit) {
+        Map<String, Object> event = events.event("OrderHPItemIntent", transcript, LexEvents.ORDER_SLOTS, filledSlots, new HashMap<>(session));
+        if (slotToElicit != null) {
+            Map<String, Object> dialogAction = new LinkedHashMap<>();
+            dialogAction.put("type", "ElicitSlot");
+            dialogAction.put("slotToElicit", slotToElicit);
+            ((Map<String, Object>) event.get("sessionState")).put("dialogAction", dialogAction);
+        }
+        lines.clear();
+        handler.handleRequest(event, context);
+        boolean loggedEvent = false;
+        for (String line : lines) {
+            if (line.startsWith("{\"_aws\"")) {
+                continue;
+            }
+            loggedEvent |= line.contains("Event JSON");
+            for (String secret : List.of(CARD_NUMBER, "4111 1111 1111 1111", EXPIRATION_DATE, CVV)) {
+                // Digits on both sides are part of a longer number, such as a timestamp, not the secret.
+                if (Pattern.compile("(?<!\\d)" + Pattern.quote(secret) + "(?!\\d)").matcher(line).find()) {
+                    failedChecks++;
+                    System.out.println(name + ": FAILED, logged " + secret + " in " + line);
+                }
+            }
+        }
+        if (!loggedEvent) {
+            failedChecks++;
+            System.out.println(name + ": FAILED, the event was not logged at DEBUG");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package myorg.benchmarks;
+
+import myorg.Log;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Lex turn per operation at each log level, with log lines dropped by the Lambda logger, so the
+ * difference between levels is what building, redacting and encoding the lines costs. ERROR logs nothing
+ * on these turns; DEBUG logs everything the handler used to log on every turn. Run with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final int EXISTING_ORDERS = 1000;
+
+    @Param({"ERROR", "INFO", "DEBUG"})
+    public String level;
+
+    @Param({"OrderSlotTurn", "ChangeOrderIntent"})
+    public String turn;
+
+    private SimpleHandler handler;
+    private LocalContext context;
+    private Map<String, Object> event;
+
+    @Setup
+    public void setUp() {
+        Log.configure(Log.Level.valueOf(level), 0);
+        handler = new SimpleHandler(new InMemoryLambdaClient(), new InMemoryDynamoDbClient(EXISTING_ORDERS),
+                HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+        context = new LocalContext();
+        LexEvents events = LexEvents.load();
+        event = switch (turn) {
+            case "OrderSlotTurn" -> events.orderSlotTurn();
+            case "ChangeOrderIntent" -> events.changeOrderTurn(1000);
+            default -> throw new IllegalArgumentException("Unknown turn: " + turn);
+        };
+    }
+
+    @Benchmark
+    public Map<String, Object> handleRequest() {
+        return handler.handleRequest(event, context);
+    }
+}
@@ -0,0 +1,172 @@
+package myorg.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import myorg.CircuitBreaker;
+import myorg.Downstream;
+import myorg.Json;
+import myorg.Resilience;
+import myorg.RetryBudget;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs Lex turns against in-memory stand-ins and checks the Embedded Metric Format lines flushed after each:
+ * every line is a valid EMF document, each turn reports its intent once, only downstreams the turn called
+ * report, the FAQ answer cache reports its misses, stores and hits, and a DynamoDB outage shows up as a
+ * failure, without a retry, and an intent error. SnapStart
+ * priming runs first and must write no EMF line nor leave counts behind for the first turn. Exits with
+ * status 1 if any check fails.
+ */
+public final class MetricsScenario {
+    private final List<String> lines = new ArrayList<>();
+    private final LocalContext context = new LocalContext(lines::add);
+    private int failedChecks;
+
+    public static void main(String[] args) throws Exception {
+        Resilience.register(new Downstream(Resilience.DYNAMODB, 2, 5, 20, new CircuitBreaker(20, 5, 0.5, 30_000), new RetryBudget(0.1, 10)));
+        MetricsScenario scenario = new MetricsScenario();
+        scenario.run();
+        System.exit(scenario.failedChecks == 0 ? 0 : 1);
+    }
+
+    private void run() throws Exception {
+        FaultInjector dynamoDbFaults = new FaultInjector();
+        SimpleHandler handler = new SimpleHandler(new InMemoryLambdaClient(), new FaultInjectingDynamoDbClient(1000, dynamoDbFaults),
+                HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+        LexEvents events = LexEvents.load();
+
+        // Priming logs to standard output, where CloudWatch would pick up any EMF line from the init phase.
+        ByteArrayOutputStream primingOutput = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(primingOutput, true, StandardCharsets.UTF_8));
+        try {
+            handler.beforeCheckpoint(null);
+        } finally {
+            System.setOut(stdout);
+        }
+        if (primingOutput.toString(StandardCharsets.UTF_8).contains("\"_aws\"")) {
+            fail("priming", "SnapStart priming wrote EMF lines");
+        }
+
+        Map<String, JsonNode> turn = turn("change order", () -> handler.handleRequest(events.changeOrderTurn(1000), context));
+        expectCount(turn, "Intent=ChangeOrderIntent", "Invocations", 1);
+        expectCount(turn, "Intent=ChangeOrderIntent", "Errors", 0);
+        expectLatencyCount(turn, "Intent=ChangeOrderIntent", 1);
+        JsonNode dynamoDb = turn.get("Downstream=dynamodb");
+        if (dynamoDb == null) {
+            fail("change order", "no line for the DynamoDB calls");
+        } else {
+            expectLatencyCount(turn, "Downstream=dynamodb", dynamoDb.path("Calls").asLong());
+        }
+
+        turn = turn("greeting", () -> handler.handleRequest(events.greetingsTurn(), context));
+        expectCount(turn, "Intent=GreetingsIntent", "Invocations", 1);
+        if (turn.containsKey("Intent=ChangeOrderIntent") || turn.containsKey("Downstream=dynamodb")) {
+            fail("greeting", "flushed groups the turn did not touch: " + turn.keySet());
+        }
+
+        turn = turn("unknown intent", () -> handler.handleRequest(events.event("NoSuchIntent", "hmm", List.of(), Map.of(), new HashMap<>()), context));
+        expectCount(turn, "Intent=FallbackIntent", "Invocations", 1);
+        if (turn.containsKey("Intent=NoSuchIntent")) {
+            fail("unknown intent", "an unregistered intent name became a dimension");
+        }
+
+        String question = "How do I reset my printer?";
+        turn = turn("new FAQ question", () -> handler.handleRequest(events.event("FAQIntent", question, List.of("Query"),
+                Map.of("Query", question), new HashMap<>()), context));
+        expectCount(turn, "Cache=faq-answers", "Misses", 1);
+        expectCount(turn, "Cache=faq-answers", "Stores", 1);
+        turn = turn("repeated FAQ question", () -> handler.handleRequest(events.event("FAQIntent", question, List.of("Query"),
+                Map.of("Query", question), new HashMap<>()), context));
+        expectCount(turn, "Cache=faq-answers", "LocalHits", 1);
+        expectCount(turn, "Cache=faq-answers", "Misses", 0);
+
+        dynamoDbFaults.fail(0);
+        turn = turn("DynamoDB outage", () -> handler.handleRequest(events.changeOrderTurn(1001), context));
+        expectCount(turn, "Intent=ChangeOrderIntent", "Errors", 1);
+        // The address change is a conditional write, which is tried once: a retry could repeat a write that landed.
+        expectCount(turn, "Downstream=dynamodb", "Failures", 1);
+        expectCount(turn, "Downstream=dynamodb", "Retries", 0);
+        dynamoDbFaults.heal();
+
+        System.out.println(failedChecks == 0 ? "All EMF checks passed" : failedChecks + " EMF check(s) failed");
+    }
+
+    // Runs one turn and returns its EMF lines keyed by dimension, e.g. Intent=GreetingsIntent.
+    private Map<String, JsonNode> turn(String name, Runnable turn) throws Exception {
+        lines.clear();
+        turn.run();
+        Map<String, JsonNode> documents = new LinkedHashMap<>();
+        for (String line : lines) {
+            if (!line.startsWith("{\"_aws\"")) {
+                continue;
+            }
+            System.out.println(name + ": " + line);
+            JsonNode document = Json.MAPPER.readTree(line);
+            String key = validate(name, document);
+            if (key != null && documents.put(key, document) != null) {
+                fail(name, key + " was flushed twice in one invocation");
+            }
+        }
+        return documents;
+    }
+
+    // Checks the document against the EMF specification and returns its dimension key.
+    private String validate(String name, JsonNode document) {
+        JsonNode directive = document.path("_aws").path("CloudWatchMetrics").path(0);
+        if (!document.path("_aws").path("Timestamp").isIntegralNumber() || !directive.path("Namespace").isTextual()) {
+            fail(name, "missing timestamp or namespace");
+            return null;
+        }
+        String dimension = directive.path("Dimensions").path(0).path(0).asText();
+        if (!document.path(dimension).isTextual()) {
+            fail(name, "dimension " + dimension + " has no value");
+            return null;
+        }
+        for (JsonNode metric : directive.path("Metrics")) {
+            JsonNode value = document.path(metric.path("Name").asText());
+            if (value.isObject()) {
+                long counted = 0;
+                for (JsonNode count : value.path("Counts")) {
+                    counted += count.asLong();
+                }
+                if (value.path("Values").size() != value.path("Counts").size() || counted != value.path("Count").asLong()
+                        || value.path("Min").asDouble() > value.path("Max").asDouble()) {
+                    fail(name, "inconsistent histogram " + metric);
+                }
+            } else if (!value.isNumber()) {
+                fail(name, "declared metric " + metric + " has no value");
+            }
+        }
+        return dimension + "=" + document.path(dimension).asText();
+    }
+
+    private void expectCount(Map<String, JsonNode> turn, String key, String metric, long expected) {
+        long actual = turn.containsKey(key) ? turn.get(key).path(metric).asLong(-1) : -1;
+        if (actual != expected) {
+            fail(key, metric + " was " + actual + ", expected " + expected);
+        }
+    }
+
+    private void expectLatencyCount(Map<String, JsonNode> turn, String key, long expected) {
+        long actual = turn.containsKey(key) ? turn.get(key).path("Latency").path("Count").asLong(-1) : -1;
+        if (actual != expected) {
+            fail(key, "Latency count was " + actual + ", expected " + expected);
+        }
+    }
+
+    private void fail(String name, String message) {
+        failedChecks++;
+        System.out.println(name + ": FAILED, " + message);
+    }
+}
@@ -0,0 +1,147 @@
+package myorg.benchmarks;
+
+import myorg.EmailOutboxConsumer;
+import myorg.Json;
+import myorg.OrderConfirmation;
+import myorg.SendRateLimiter;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of the turn that places an order against the in-memory table and queue with simulated round
+ * trips. Every {@code conflictEvery}-th order write finds its number taken by another order (0 never does),
+ * so the fallback to a new number is exercised. Checks that every confirmation email was queued after its
+ * order was stored, then drains the outbox through the consumer and checks that every confirmed order is
+ * stored and got exactly one email. Arguments: turns (default 200), simulated latency in ms of DynamoDB
+ * (default 10) and SQS (default 10), and conflictEvery (default 25). Exits with status 1 if a check fails.
+ */
+public final class OrderFinalizationBenchmark {
+    private static final String OUTBOX_URL = "local-email-outbox";
+    private static final String DEAD_LETTER_URL = "local-email-dlq";
+    private static final int WARM_UP_TURNS = 20;
+
+    /** Stores another customer's order under every {@code every}-th new order's number just before it is written. */
+    private static final class ConflictingDynamoDbClient extends LatencyDynamoDbClient {
+        private final int every;
+        private final AtomicLong writes = new AtomicLong();
+        private final AtomicLong conflicts = new AtomicLong();
+
+        ConflictingDynamoDbClient(long latencyMillis, int every) {
+            super(0, latencyMillis);
+            this.every = every;
+        }
+
+        @Override
+        public PutItemResponse putItem(PutItemRequest request) {
+            if (request.conditionExpression() != null && every > 0 && writes.incrementAndGet() % every == 0) {
+                Map<String, AttributeValue> other = new HashMap<>(request.item());
+                other.put("clients_name", AttributeValue.builder().s("Another Customer").build());
+                other.put("email_address", AttributeValue.builder().s("another.customer@example.com").build());
+                super.putItem(PutItemRequest.builder().tableName(request.tableName()).item(other).build());
+                conflicts.incrementAndGet();
+            }
+            return super.putItem(request);
+        }
+    }
+
+    /** Counts the confirmations queued before their order was stored as confirmed. */
+    private static final class OrderCheckingSqsClient extends InMemorySqsClient {
+        private final InMemoryDynamoDbClient orders;
+        private final AtomicLong early = new AtomicLong();
+
+        OrderCheckingSqsClient(long latencyMillis, InMemoryDynamoDbClient orders) {
+            super(latencyMillis);
+            this.orders = orders;
+        }
+
+        @Override
+        public SendMessageResponse sendMessage(SendMessageRequest request) {
+            try {
+                OrderConfirmation confirmation = Json.MAPPER.readValue(request.messageBody(), OrderConfirmation.class);
+                Map<String, AttributeValue> stored = orders.lookup(confirmation.orderNumber());
+                if (stored == null || !confirmation.clientName().equals(stored.get("clients_name").s())) {
+                    early.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return super.sendMessage(request);
+        }
+    }
+
+    public static void main(String[] args) {
+        int turns = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long dynamoDbMillis = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        long sqsMillis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int conflictEvery = args.length > 3 ? Integer.parseInt(args[3]) : 25;
+
+        ConflictingDynamoDbClient dynamoDbClient = new ConflictingDynamoDbClient(dynamoDbMillis, conflictEvery);
+        OrderCheckingSqsClient sqsClient = new OrderCheckingSqsClient(sqsMillis, dynamoDbClient);
+        SimpleHandler handler = new SimpleHandler(new InMemoryLambdaClient(), dynamoDbClient, HttpClient.newHttpClient(),
+                new SqsEmailOutbox(sqsClient, OUTBOX_URL), new InMemorySecretsManagerClient());
+        LexEvents events = LexEvents.load();
+        LocalContext context = new LocalContext(line -> {
+        });
+
+        boolean ok = true;
+        int confirmed = 0;
+        for (int i = 0; i < WARM_UP_TURNS; i++) {
+            confirmed += orderNumberOf(handler.handleRequest(events.orderPlacementTurn(), context)) != null ? 1 : 0;
+        }
+        long[] nanos = new long[turns];
+        for (int i = 0; i < turns; i++) {
+            long start = System.nanoTime();
+            Map<String, Object> response = handler.handleRequest(events.orderPlacementTurn(), context);
+            nanos[i] = System.nanoTime() - start;
+            String orderNumber = orderNumberOf(response);
+            Map<String, AttributeValue> stored = orderNumber == null ? null : dynamoDbClient.lookup(Integer.parseInt(orderNumber));
+            if (stored == null || !"Jane Doe".equals(stored.get("clients_name").s())) {
+                System.out.println("Order #" + orderNumber + " was confirmed but is not stored as placed");
+                ok = false;
+            } else {
+                confirmed++;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("Order placing turn p50 %6.2f ms, p99 %6.2f ms, max %6.2f ms%n",
+                nanos[turns / 2] / 1e6, nanos[Math.max(0, (int) Math.ceil(turns * 0.99) - 1)] / 1e6, nanos[turns - 1] / 1e6);
+
+        InMemorySesClient sesClient = new InMemorySesClient();
+        EmailOutboxConsumer consumer = new EmailOutboxConsumer(sesClient, sqsClient, DEAD_LETTER_URL, new SendRateLimiter(1_000_000), 4);
+        while (sqsClient.depth(OUTBOX_URL) > 0) {
+            consumer.handleRequest(sqsClient.drainAsEvent(OUTBOX_URL, 10), context);
+        }
+        System.out.printf("%d orders confirmed, %d emails sent, %d queued before their order was stored, %d order numbers found taken%n",
+                confirmed, sesClient.sentCount(), sqsClient.early.get(), dynamoDbClient.conflicts.get());
+        if (sesClient.sentCount() != confirmed || sqsClient.depth(DEAD_LETTER_URL) > 0) {
+            System.out.println("Expected exactly one email per confirmed order");
+            ok = false;
+        }
+        if (sqsClient.early.get() > 0) {
+            System.out.println("Confirmation emails were queued before their order was stored");
+            ok = false;
+        }
+
+        System.out.println(ok ? "All order finalization checks passed" : "Order finalization checks failed");
+        System.exit(ok ? 0 : 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String orderNumberOf(Map<String, Object> response) {
+        Map<String, Object> sessionState = (Map<String, Object>) response.get("sessionState");
+        return (String) ((Map<String, Object>) sessionState.get("sessionAttributes")).get("orderNumber");
+    }
+}
@@ -0,0 +1,64 @@
+package myorg.benchmarks;
+
+import myorg.OrderNumberAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order placement (number allocation plus the conditional PutItem) against tables of growing size.
+ * The allocator seeds its counter once in setup; after that the cost per order must not depend on the row count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderPlacementBenchmark {
+    private static final String TABLE_NAME = "Clients_Database";
+    private static final String COUNTER_TABLE_NAME = "Order_Counters";
+
+    @Param({"1000", "100000", "10000000"})
+    public int existingOrders;
+
+    @Param({"10"})
+    public int blockSize;
+
+    private InMemoryDynamoDbClient dynamoDbClient;
+    private OrderNumberAllocator allocator;
+
+    @Setup
+    public void setUp() {
+        dynamoDbClient = new InMemoryDynamoDbClient(existingOrders);
+        allocator = new OrderNumberAllocator(dynamoDbClient, TABLE_NAME, COUNTER_TABLE_NAME, blockSize);
+        allocator.nextOrderNumber();
+    }
+
+    @Benchmark
+    public int placeOrder() {
+        int orderNumber = allocator.nextOrderNumber();
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(Map.of(
+                        "order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build(),
+                        "payment_method", AttributeValue.builder().s("cash").build()
+                ))
+                .conditionExpression("attribute_not_exists(order_number)")
+                .build());
+        return orderNumber;
+    }
+}
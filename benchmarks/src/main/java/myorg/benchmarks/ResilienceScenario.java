@@ -0,0 +1,151 @@
+package myorg.benchmarks;
+
+import myorg.CardValidator;
+import myorg.CardVerdictCache;
+import myorg.CircuitBreaker;
+import myorg.Downstream;
+import myorg.EmailOutboxConsumer;
+import myorg.OrderConfirmation;
+import myorg.OutboundHttp;
+import myorg.Resilience;
+import myorg.RetryBudget;
+import myorg.SendRateLimiter;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives every downstream's circuit breaker through its transitions against fault-injecting stand-ins:
+ * healthy and CLOSED, OPEN under an outage with turns failing fast, a failed HALF_OPEN trial that reopens
+ * it, and a successful trial that closes it. Also checks that a trial ended by an Error is given back rather
+ * than keeping the circuit half open. Exits with status 1 if any transition is missing.
+ */
+public final class ResilienceScenario {
+    private static final long OPEN_MILLIS = 300;
+    private static final long OUTAGE_LATENCY_MILLIS = 50;
+    private static final int MAX_TURNS_TO_OPEN = 20;
+
+    private final LocalContext context = new LocalContext();
+    private int failedChecks;
+
+    public static void main(String[] args) throws Exception {
+        for (String name : List.of(Resilience.FAQ_LAMBDA, Resilience.DYNAMODB, Resilience.SES, Resilience.EMAIL_OUTBOX, Resilience.CARD_VALIDATOR)) {
+            Resilience.register(new Downstream(name, 2, 5, 20, new CircuitBreaker(20, 5, 0.5, OPEN_MILLIS), new RetryBudget(0.1, 10)));
+        }
+        ResilienceScenario scenario = new ResilienceScenario();
+        scenario.run();
+        System.out.println(Resilience.summary());
+        System.exit(scenario.failedChecks == 0 ? 0 : 1);
+    }
+
+    private void run() throws Exception {
+        FaultInjector dynamoDbFaults = new FaultInjector();
+        FaultInjector lambdaFaults = new FaultInjector();
+        FaultInjector sesFaults = new FaultInjector();
+        InMemorySqsClient sqsClient = new InMemorySqsClient();
+        SqsEmailOutbox outbox = new SqsEmailOutbox(sqsClient, "local-email-outbox");
+        SimpleHandler handler = new SimpleHandler(new FaultInjectingLambdaClient(lambdaFaults), new FaultInjectingDynamoDbClient(1000, dynamoDbFaults),
+                HttpClient.newHttpClient(), outbox, new InMemorySecretsManagerClient());
+        LexEvents events = LexEvents.load();
+
+        exercise(Resilience.DYNAMODB, dynamoDbFaults, () -> handler.handleRequest(events.changeOrderTurn(1000), context));
+        // Every FAQ question is new, so the answer cache cannot hide the outage.
+        AtomicInteger questions = new AtomicInteger();
+        exercise(Resilience.FAQ_LAMBDA, lambdaFaults, () -> handler.handleRequest(events.event("FAQIntent", "question " + questions.incrementAndGet(),
+                List.of("Query"), Map.of(), new HashMap<>()), context));
+
+        EmailOutboxConsumer consumer = new EmailOutboxConsumer(new FaultInjectingSesClient(sesFaults), sqsClient, "local-email-dlq",
+                new SendRateLimiter(10_000), 2);
+        OrderConfirmation confirmation = new OrderConfirmation(1000, "Jane Doe", "jane.doe@example.com", "laptop", "Pavilion", "15",
+                "cash", "Paris");
+        exercise(Resilience.SES, sesFaults, () -> {
+            outbox.enqueue(confirmation);
+            consumer.handleRequest(sqsClient.drainAsEvent("local-email-outbox", 1), context);
+        });
+
+        try (LocalCardValidatorServer server = new LocalCardValidatorServer(0)) {
+            CardValidator validator = new CardValidator(new OutboundHttp(HttpClient.newHttpClient(), Duration.ofSeconds(2), false),
+                    ignored -> "local", server.endpoint(), new CardVerdictCache(0, 0));
+            exercise(Resilience.CARD_VALIDATOR, server.faults(), () -> validator.validate("4111111111111111", "123", context));
+        }
+        errorDuringTrial();
+    }
+
+    private void errorDuringTrial() throws InterruptedException {
+        String name = "error-trial";
+        Downstream downstream = new Downstream(name, 1, 0, 0, new CircuitBreaker(20, 5, 0.5, OPEN_MILLIS), new RetryBudget(0.1, 10));
+        while (downstream.breaker().state() != CircuitBreaker.State.OPEN) {
+            downstream.call(() -> {
+                throw new IOException("injected outage");
+            }, unavailable -> null);
+        }
+        Thread.sleep(OPEN_MILLIS + 50);
+        try {
+            downstream.call(() -> {
+                throw new StackOverflowError("injected error");
+            });
+            fail(name, "the Error did not reach the caller");
+        } catch (StackOverflowError expected) {
+            expect(name, "Error during the half-open trial", downstream.breaker(), CircuitBreaker.State.HALF_OPEN);
+        }
+        downstream.call(() -> "ok", unavailable -> null);
+        expect(name, "next half-open trial", downstream.breaker(), CircuitBreaker.State.CLOSED);
+    }
+
+    private void exercise(String name, FaultInjector faults, Runnable turn) throws InterruptedException {
+        CircuitBreaker breaker = Resilience.downstream(name).breaker();
+        turn.run();
+        expect(name, "healthy", breaker, CircuitBreaker.State.CLOSED);
+
+        int turns = openWithOutage(faults, turn, breaker);
+        expect(name, "outage after " + turns + " turns", breaker, CircuitBreaker.State.OPEN);
+
+        long injectedBefore = faults.injectedCount();
+        long start = System.nanoTime();
+        turn.run();
+        double openTurnMillis = (System.nanoTime() - start) / 1_000_000.0;
+        if (faults.injectedCount() != injectedBefore) {
+            fail(name, "a turn reached the dependency while the circuit was open");
+        }
+        System.out.printf("%s: open circuit turn took %.2f ms against %d ms per failing call%n", name, openTurnMillis, OUTAGE_LATENCY_MILLIS);
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        turn.run();
+        expect(name, "failed half-open trial", breaker, CircuitBreaker.State.OPEN);
+
+        faults.heal();
+        Thread.sleep(OPEN_MILLIS + 50);
+        turn.run();
+        expect(name, "successful half-open trial", breaker, CircuitBreaker.State.CLOSED);
+    }
+
+    private int openWithOutage(FaultInjector faults, Runnable turn, CircuitBreaker breaker) {
+        faults.fail(OUTAGE_LATENCY_MILLIS);
+        int turns = 0;
+        while (breaker.state() != CircuitBreaker.State.OPEN && turns < MAX_TURNS_TO_OPEN) {
+            turn.run();
+            turns++;
+        }
+        return turns;
+    }
+
+    private void expect(String name, String step, CircuitBreaker breaker, CircuitBreaker.State expected) {
+        if (breaker.state() == expected) {
+            System.out.println(name + ": " + step + " -> " + expected);
+        } else {
+            fail(name, step + " left the circuit " + breaker.state() + ", expected " + expected);
+        }
+    }
+
+    private void fail(String name, String message) {
+        failedChecks++;
+        System.out.println(name + ": FAILED, " + message);
+    }
+}
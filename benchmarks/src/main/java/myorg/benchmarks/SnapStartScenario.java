@@ -0,0 +1,90 @@
+package myorg.benchmarks;
+
+import myorg.CardVerdictCache;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the SnapStart hooks locally, {@code beforeCheckpoint} then {@code afterRestore}, on a handler that
+ * has served turns, and checks that the restored instance shares nothing the snapshot froze: the next
+ * order leases a new block of order numbers, the card verdict cache is empty under a new salt, and a
+ * change order dialog reads its order from the table again. Exits with status 1 if any check fails.
+ */
+public final class SnapStartScenario {
+    // Synthetic orders start at 1000; even ones are paid cash.
+    private static final int CASH_ORDER = 1002;
+
+    private final InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient(1000);
+    private final SimpleHandler handler = new SimpleHandler(new InMemoryLambdaClient(), dynamoDbClient, HttpClient.newHttpClient(),
+            new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"), new InMemorySecretsManagerClient());
+    private final LexEvents events = LexEvents.load();
+    private final LocalContext context = new LocalContext();
+    private int failedChecks;
+
+    public static void main(String[] args) {
+        SnapStartScenario scenario = new SnapStartScenario();
+        scenario.run();
+        System.out.println(scenario.failedChecks == 0 ? "All SnapStart checks passed" : scenario.failedChecks + " SnapStart check(s) failed");
+        System.exit(scenario.failedChecks == 0 ? 0 : 1);
+    }
+
+    private void run() {
+        int before = placeOrder();
+        expectReads("payment dialog before the snapshot", 1);
+        expectReads("payment dialog again, from the order cache", 0);
+        CardVerdictCache verdicts = handler.cardVerdictCache();
+        verdicts.put("4111111111111111", new CardVerdictCache.Verdict(true, "VISA"));
+        String salt = verdicts.saltDigest();
+
+        handler.beforeCheckpoint(null);
+        handler.afterRestore(null);
+
+        if (verdicts.size() != 0) {
+            fail("card verdicts", verdicts.size() + " verdicts survived the restore");
+        }
+        if (verdicts.saltDigest().equals(salt)) {
+            fail("card verdicts", "the restored instance kept the snapshot's salt");
+        }
+        expectReads("payment dialog after the restore", 1);
+
+        long leases = dynamoDbClient.operationCount("UpdateItem");
+        int after = placeOrder();
+        if (dynamoDbClient.operationCount("UpdateItem") - leases != 1) {
+            fail("order numbers", "order #" + after + " was served from the snapshot's lease, which began at #" + before);
+        } else if (after <= before) {
+            fail("order numbers", "order #" + after + " is not past #" + before);
+        } else {
+            System.out.println("order numbers: #" + before + " before the snapshot, #" + after + " from a new lease after the restore");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int placeOrder() {
+        Map<String, Object> response = handler.handleRequest(events.orderPlacementTurn(), context);
+        Map<String, Object> sessionState = (Map<String, Object>) response.get("sessionState");
+        return Integer.parseInt((String) ((Map<String, Object>) sessionState.get("sessionAttributes")).get("orderNumber"));
+    }
+
+    // Asks for the CVV of a payment change, which needs the order's payment method.
+    private void expectReads(String step, long expected) {
+        Map<String, String> attributes = new HashMap<>(Map.of("OrderNumber", String.valueOf(CASH_ORDER), "ActionType", "update_payment",
+                "CardNumber", "4111111111111111", "ExpirationDate", "12/30"));
+        long reads = dynamoDbClient.operationCount("GetItem");
+        handler.handleRequest(events.event("ChangeOrderIntent", "turn", LexEvents.CHANGE_ORDER_SLOTS, Map.of(), attributes), context);
+        long made = dynamoDbClient.operationCount("GetItem") - reads;
+        if (made != expected) {
+            fail(step, made + " GetItem calls, expected " + expected);
+        } else {
+            System.out.println(step + ": " + made + " GetItem");
+        }
+    }
+
+    private void fail(String step, String message) {
+        failedChecks++;
+        System.out.println(step + ": FAILED, " + message);
+    }
+}
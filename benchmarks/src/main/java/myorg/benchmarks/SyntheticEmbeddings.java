@@ -0,0 +1,77 @@
+package myorg.benchmarks;
+
+import myorg.VectorIndexWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A clustered stand-in for an embedded FAQ corpus: every vector is one of {@code topics} random topic
+ * directions plus Gaussian noise, and queries are noisy copies of corpus vectors, the way a question
+ * lands near, but not on, the chunk that answers it.
+ */
+public final class SyntheticEmbeddings {
+    public static final String MODEL_ID = "synthetic/";
+
+    private final int dimension;
+    private final float[][] topics;
+    private final Random random;
+
+    public SyntheticEmbeddings(int dimension, int topics, long seed) {
+        this.dimension = dimension;
+        this.random = new Random(seed);
+        this.topics = new float[topics][];
+        for (int i = 0; i < topics; i++) {
+            this.topics[i] = gaussian(1.0f);
+        }
+    }
+
+    public List<float[]> corpus(int size) {
+        List<float[]> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            corpus.add(noisy(topics[random.nextInt(topics.length)], 1.0f));
+        }
+        return corpus;
+    }
+
+    public List<float[]> queries(List<float[]> corpus, int count) {
+        List<float[]> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queries.add(noisy(corpus.get(random.nextInt(corpus.size())), 0.5f));
+        }
+        return queries;
+    }
+
+    /** Writes an index over {@code corpus} to a temporary file; chunk texts are just their numbers. */
+    public Path writeIndex(List<float[]> corpus, int listCount) throws IOException {
+        List<String> texts = new ArrayList<>(corpus.size());
+        for (int i = 0; i < corpus.size(); i++) {
+            texts.add("chunk " + i);
+        }
+        Path file = Files.createTempFile("faq-index", ".ivf");
+        file.toFile().deleteOnExit();
+        VectorIndexWriter.write(file, MODEL_ID + dimension, corpus, texts, listCount, 42);
+        return file;
+    }
+
+    private float[] noisy(float[] center, float scale) {
+        float[] vector = gaussian(scale);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private float[] gaussian(float scale) {
+        float[] vector = new float[dimension];
+        float perDimension = (float) (scale / Math.sqrt(dimension));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * perDimension;
+        }
+        return vector;
+    }
+}
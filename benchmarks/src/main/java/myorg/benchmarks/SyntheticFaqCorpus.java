@@ -0,0 +1,117 @@
+package myorg.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generated help article corpus: every paragraph is mostly words of one of {@code topics} topics, half
+ * of them name the topic's printer model, and one in five quotes an error code no other paragraph has.
+ * Questions come in two kinds: an error code with its model and a topic word, answered by exactly one
+ * paragraph, and a handful of topic words with no identifier in them.
+ */
+public final class SyntheticFaqCorpus {
+    private static final int VOCABULARY = 5_000;
+    private static final int WORDS_PER_TOPIC = 40;
+
+    /** A question and the paragraph that answers it, or -1 when any paragraph of the topic will do. */
+    public record Question(String text, int paragraph) {
+    }
+
+    private final String[] vocabulary = new String[VOCABULARY];
+    private final int[][] topicWords;
+    private final String[] models;
+    private final List<String> paragraphs;
+    private final int[] paragraphTopics;
+    private final String[] errorCodes;
+    private final Random random;
+
+    public SyntheticFaqCorpus(int paragraphCount, int wordsPerParagraph, int topics, long seed) {
+        random = new Random(seed);
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = word(4 + random.nextInt(6));
+        }
+        topicWords = new int[topics][WORDS_PER_TOPIC];
+        models = new String[topics];
+        for (int topic = 0; topic < topics; topic++) {
+            for (int i = 0; i < WORDS_PER_TOPIC; i++) {
+                topicWords[topic][i] = random.nextInt(vocabulary.length);
+            }
+            models[topic] = word(1) + (100 + random.nextInt(900)) + word(2);
+        }
+        paragraphs = new ArrayList<>(paragraphCount);
+        paragraphTopics = new int[paragraphCount];
+        errorCodes = new String[paragraphCount];
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < paragraphCount; i++) {
+            int topic = random.nextInt(topics);
+            paragraphTopics[i] = topic;
+            paragraph.setLength(0);
+            if (random.nextInt(2) == 0) {
+                paragraph.append("On the ").append(models[topic]).append(' ');
+            }
+            if (random.nextInt(5) == 0) {
+                errorCodes[i] = String.format("0x%08x", random.nextInt());
+                paragraph.append("error ").append(errorCodes[i]).append(" means ");
+            }
+            for (int w = 0; w < wordsPerParagraph; w++) {
+                int word = random.nextInt(10) < 7 ? topicWords[topic][random.nextInt(WORDS_PER_TOPIC)] : random.nextInt(vocabulary.length);
+                paragraph.append(vocabulary[word]).append(' ');
+            }
+            paragraphs.add(paragraph.toString().trim());
+        }
+    }
+
+    public List<String> paragraphs() {
+        return paragraphs;
+    }
+
+    public List<Question> errorCodeQuestions(int count) {
+        List<Question> questions = new ArrayList<>(count);
+        while (questions.size() < count) {
+            int paragraph = random.nextInt(paragraphs.size());
+            if (errorCodes[paragraph] != null) {
+                int topic = paragraphTopics[paragraph];
+                questions.add(new Question("Error " + errorCodes[paragraph] + " on my " + models[topic] + ", "
+                        + vocabulary[topicWords[topic][random.nextInt(WORDS_PER_TOPIC)]], paragraph));
+            }
+        }
+        return questions;
+    }
+
+    public List<Question> topicQuestions(int count) {
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] words = topicWords[random.nextInt(topicWords.length)];
+            StringBuilder question = new StringBuilder("How do I");
+            for (int w = 0; w < 4; w++) {
+                question.append(' ').append(vocabulary[words[random.nextInt(WORDS_PER_TOPIC)]]);
+            }
+            questions.add(new Question(question.append('?').toString(), -1));
+        }
+        return questions;
+    }
+
+    /** Writes the paragraphs as .md articles of {@code paragraphsPerDocument} blank-line separated paragraphs. */
+    public void write(Path directory, int paragraphsPerDocument) throws IOException {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < paragraphs.size(); i++) {
+            document.append(paragraphs.get(i)).append("\n\n");
+            if ((i + 1) % paragraphsPerDocument == 0 || i + 1 == paragraphs.size()) {
+                Files.writeString(directory.resolve(String.format("article-%06d.md", i / paragraphsPerDocument)), document);
+                document.setLength(0);
+            }
+        }
+    }
+
+    private String word(int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,193 @@
+package myorg.benchmarks;
+
+import myorg.FaqClient;
+import myorg.SimpleHandler;
+import myorg.SqsEmailOutbox;
+import myorg.TraceSegment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Feeds recorded conversations (see TraceRecorder) back through SimpleHandler against in-memory stand-ins,
+ * in recorded order, either as fast as possible or at the recorded inter-arrival times divided by
+ * {@code speedup}. Every reply is compared with the recorded one by dialog action, slot to elicit, intent
+ * state and message text with numbers ignored, since order numbers differ locally. Redacted card details
+ * are replaced with a test card that passes the local checks, and the numbers of orders placed during the
+ * recording with the numbers the replay gave them; card turns need ALGOBOOK_API_KEY_SECRET_ARN
+ * set to any value. Arguments: a trace segment or a directory of them, {@code fast} (default) or
+ * {@code timed}, and the speedup for timed replay (default 1). Exits with status 1 if any reply differs.
+ */
+public final class TraceReplayer {
+    // Enough synthetic orders that most recorded order numbers exist locally.
+    private static final int EXISTING_ORDERS = 10_000;
+    private static final int MISMATCHES_SHOWN = 10;
+    private static final String FAQ_FUNCTION = "arn:aws:lambda:us-east-1:000000000000:function:faq_handler";
+    private static final Map<String, String> REDACTED_STAND_INS = Map.of("cardnumber", "4111111111111111", "cvv", "123",
+            "expirationdate", "12/30");
+
+    public static void main(String[] args) throws Exception {
+        Path traces = Path.of(args.length > 0 ? args[0] : "traces");
+        boolean timed = args.length > 1 && args[1].equals("timed");
+        double speedup = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+
+        List<TraceSegment.Record> records = load(traces);
+        records.sort(Comparator.comparingLong(TraceSegment.Record::timestamp));
+        if (records.isEmpty()) {
+            System.out.println("No trace records under " + traces);
+            System.exit(1);
+        }
+
+        InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient(EXISTING_ORDERS);
+        int mismatches = 0;
+        Map<String, long[]> latencies = new TreeMap<>();
+        Map<String, Integer> turns = new TreeMap<>();
+        long maxLagNanos = 0;
+        Map<String, String> placedOrders = new HashMap<>();
+        try (LocalCardValidatorServer validator = new LocalCardValidatorServer(0)) {
+            SimpleHandler handler = new SimpleHandler(FaqClient.fromEnvironment(new InMemoryLambdaClient(), FAQ_FUNCTION), dynamoDbClient,
+                    HttpClient.newHttpClient(), new SqsEmailOutbox(new InMemorySqsClient(), "local-email-outbox"),
+                    new InMemorySecretsManagerClient(), validator.endpoint());
+            LocalContext context = new LocalContext();
+            long firstTimestamp = records.get(0).timestamp();
+            long start = System.nanoTime();
+            for (TraceSegment.Record record : records) {
+                if (timed) {
+                    long due = start + (long) ((record.timestamp() - firstTimestamp) * 1_000_000 / speedup);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    }
+                    maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - due);
+                }
+                String intent = intentOf(record.event());
+                long turnStart = System.nanoTime();
+                Map<String, Object> response = handler.handleRequest(restore(record.event(), placedOrders), context);
+                long nanos = System.nanoTime() - turnStart;
+
+                int count = turns.merge(intent, 1, Integer::sum);
+                long[] samples = latencies.computeIfAbsent(intent, ignored -> new long[64]);
+                if (count > samples.length) {
+                    samples = Arrays.copyOf(samples, samples.length * 2);
+                    latencies.put(intent, samples);
+                }
+                samples[count - 1] = nanos;
+
+                String recordedOrder = placedOrder(record.response());
+                String replayedOrder = placedOrder(response);
+                if (recordedOrder != null && replayedOrder != null) {
+                    placedOrders.put(recordedOrder, replayedOrder);
+                }
+                String expected = shape(record.response());
+                String actual = shape(response);
+                if (!expected.equals(actual)) {
+                    if (mismatches++ < MISMATCHES_SHOWN) {
+                        System.out.println("Session " + record.sessionId() + ", " + intent + ":\n  recorded " + expected + "\n  replayed " + actual);
+                    }
+                }
+            }
+            System.out.printf("Replayed %d turns from %d sessions in %.1f s%s%n", records.size(),
+                    records.stream().map(TraceSegment.Record::sessionId).distinct().count(), (System.nanoTime() - start) / 1e9,
+                    timed ? String.format(", at most %.1f ms behind the recorded timing", maxLagNanos / 1e6) : "");
+        }
+
+        System.out.printf("%-20s %7s %8s %8s %8s%n", "intent", "turns", "p50 ms", "p99 ms", "max ms");
+        latencies.forEach((intent, samples) -> {
+            long[] sorted = Arrays.copyOf(samples, turns.get(intent));
+            Arrays.sort(sorted);
+            System.out.printf("%-20s %7d %8.2f %8.2f %8.2f%n", intent, sorted.length, percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+        });
+        System.out.println("DynamoDB calls: " + dynamoDbClient.operationCounts());
+        System.out.println(mismatches == 0 ? "Every reply matches the recording" : mismatches + " replies differ from the recording");
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    private static List<TraceSegment.Record> load(Path traces) throws IOException {
+        List<Path> segments;
+        if (Files.isDirectory(traces)) {
+            try (Stream<Path> files = Files.walk(traces)) {
+                segments = files.filter(file -> file.toString().endsWith(".trace.gz")).sorted().toList();
+            }
+        } else {
+            segments = List.of(traces);
+        }
+        List<TraceSegment.Record> records = new ArrayList<>();
+        for (Path segment : segments) {
+            try (InputStream in = Files.newInputStream(segment)) {
+                records.addAll(TraceSegment.read(in));
+            }
+        }
+        return records;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String intentOf(Map<String, Object> event) {
+        Map<String, Object> sessionState = (Map<String, Object>) event.getOrDefault("sessionState", Map.of());
+        Map<String, Object> intent = (Map<String, Object>) sessionState.getOrDefault("intent", Map.of());
+        return String.valueOf(intent.get("name"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String placedOrder(Map<String, Object> response) {
+        Map<String, Object> sessionState = (Map<String, Object>) response.getOrDefault("sessionState", Map.of());
+        Map<String, Object> sessionAttributes = (Map<String, Object>) sessionState.getOrDefault("sessionAttributes", Map.of());
+        return (String) sessionAttributes.get("orderNumber");
+    }
+
+    // What a reply must keep to count as the same: numbers and masked values are ignored.
+    @SuppressWarnings("unchecked")
+    private static String shape(Map<String, Object> response) {
+        Map<String, Object> sessionState = (Map<String, Object>) response.getOrDefault("sessionState", Map.of());
+        Map<String, Object> dialogAction = (Map<String, Object>) sessionState.getOrDefault("dialogAction", Map.of());
+        Map<String, Object> intent = (Map<String, Object>) sessionState.getOrDefault("intent", Map.of());
+        StringBuilder shape = new StringBuilder()
+                .append(dialogAction.get("type")).append('/').append(dialogAction.get("slotToElicit")).append(' ')
+                .append(intent.get("name")).append('/').append(intent.get("state"));
+        // Live replies hold arrays where recorded ones, read back from JSON, hold lists.
+        Object messages = response.getOrDefault("messages", List.of());
+        for (Object message : messages instanceof Object[] array ? List.of(array) : (List<Object>) messages) {
+            Object content = message instanceof Map<?, ?> map ? map.get("content") : null;
+            shape.append(" \"").append(content == null ? "" : content.toString().replaceAll("[0-9*]+", "#")).append('"');
+        }
+        return shape.toString();
+    }
+
+    // Redacted card details would fail validation; give them values that pass the local checks.
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> restore(Map<String, Object> event, Map<String, String> placedOrders) {
+        return (Map<String, Object>) restore(event, null, placedOrders);
+    }
+
+    private static Object restore(Object value, String standIn, Map<String, String> placedOrders) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, child) -> copy.put((String) key, restore(child,
+                    standIn != null ? standIn : REDACTED_STAND_INS.get(((String) key).toLowerCase()), placedOrders)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(child -> restore(child, standIn, placedOrders)).toList();
+        }
+        if (value instanceof String text) {
+            return standIn != null && text.contains("*") ? standIn : placedOrders.getOrDefault(text.trim(), text);
+        }
+        return value;
+    }
+}
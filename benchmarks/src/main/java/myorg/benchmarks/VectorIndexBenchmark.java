@@ -0,0 +1,61 @@
+package myorg.benchmarks;
+
+import myorg.VectorIndex;
+import myorg.VectorIndexWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the memory-mapped IVF index against scoring every vector, on a synthetic clustered
+ * corpus. {@link VectorIndexRecall} reports how many of the true top ten each {@code nprobe} finds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorIndexBenchmark {
+    private static final int DIMENSION = 256;
+    private static final int K = 10;
+
+    @Param({"100000"})
+    public int corpusSize;
+
+    @Param({"4", "16"})
+    public int nprobe;
+
+    private VectorIndex index;
+    private List<float[]> queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticEmbeddings embeddings = new SyntheticEmbeddings(DIMENSION, 2000, 7);
+        List<float[]> corpus = embeddings.corpus(corpusSize);
+        index = VectorIndex.open(embeddings.writeIndex(corpus, VectorIndexWriter.defaultListCount(corpusSize)));
+        queries = embeddings.queries(corpus, 1000);
+    }
+
+    @Benchmark
+    public List<VectorIndex.Hit> ivf() {
+        return index.search(queries.get(next++ % queries.size()), K, nprobe);
+    }
+
+    @Benchmark
+    public List<VectorIndex.Hit> bruteForce() {
+        return index.exactSearch(queries.get(next++ % queries.size()), K);
+    }
+}
@@ -0,0 +1,69 @@
+package myorg.benchmarks;
+
+import myorg.VectorIndex;
+import myorg.VectorIndexWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recall@10 and mean query time of the IVF index for a range of {@code nprobe}, with brute force as the
+ * reference, on a synthetic clustered corpus. Arguments: corpus size (default 100000), dimension (default 256).
+ */
+public final class VectorIndexRecall {
+    private static final int K = 10;
+    private static final int QUERIES = 500;
+
+    public static void main(String[] args) throws Exception {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        SyntheticEmbeddings embeddings = new SyntheticEmbeddings(dimension, 2000, 7);
+        List<float[]> corpus = embeddings.corpus(corpusSize);
+        int listCount = VectorIndexWriter.defaultListCount(corpusSize);
+
+        long start = System.nanoTime();
+        Path file = embeddings.writeIndex(corpus, listCount);
+        System.out.printf("Built %d vectors x %d dimensions into %d lists in %.1f s, %.1f MB%n", corpusSize, dimension, listCount,
+                (System.nanoTime() - start) / 1e9, Files.size(file) / 1e6);
+        VectorIndex index = VectorIndex.open(file);
+        List<float[]> queries = embeddings.queries(corpus, QUERIES);
+
+        List<Set<Integer>> truth = new ArrayList<>();
+        for (int round = 0; round < 2; round++) {
+            truth.clear();
+            start = System.nanoTime();
+            for (float[] query : queries) {
+                truth.add(chunks(index.exactSearch(query, K)));
+            }
+        }
+        System.out.printf("brute force: %.3f ms/query%n", (System.nanoTime() - start) / 1e6 / QUERIES);
+
+        for (int nprobe : new int[] {1, 2, 4, 8, 16, 32}) {
+            int found = 0;
+            long elapsed = 0;
+            for (int round = 0; round < 2; round++) {
+                found = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    Set<Integer> hits = chunks(index.search(queries.get(i), K, nprobe));
+                    hits.retainAll(truth.get(i));
+                    found += hits.size();
+                }
+                elapsed = System.nanoTime() - start;
+            }
+            System.out.printf("nprobe %2d: recall@%d %.3f, %.3f ms/query%n", nprobe, K, found / (double) (QUERIES * K), elapsed / 1e6 / QUERIES);
+        }
+    }
+
+    private static Set<Integer> chunks(List<VectorIndex.Hit> hits) {
+        Set<Integer> chunks = new HashSet<>();
+        for (VectorIndex.Hit hit : hits) {
+            chunks.add(hit.chunk());
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,22 @@
+package myorg;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class Backoff {
+    private Backoff() {
+    }
+
+    // "Full jitter": uniform in [0, min(cap, base * 2^attempt)], attempt counted from 0.
+    public static long fullJitterMillis(int attempt, long baseMillis, long capMillis) {
+        long ceiling = Math.min(capMillis, baseMillis << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package myorg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+
+/**
+ * Titan Text Embeddings V2 through Bedrock, asked for normalized vectors of a fixed size.
+ */
+public class BedrockEmbedder implements Embedder {
+    public static final String DEFAULT_MODEL = "amazon.titan-embed-text-v2:0";
+    public static final int DEFAULT_DIMENSION = 256;
+
+    private final BedrockRuntimeClient bedrockClient;
+    private final String model;
+    private final int dimension;
+
+    public BedrockEmbedder(BedrockRuntimeClient bedrockClient, String model, int dimension) {
+        this.bedrockClient = bedrockClient;
+        this.model = model;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String modelId() {
+        return model + "/" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) throws Exception {
+        ObjectNode body = Json.MAPPER.createObjectNode()
+                .put("inputText", text)
+                .put("dimensions", dimension)
+                .put("normalize", true);
+        InvokeModelResponse response = bedrockClient.invokeModel(InvokeModelRequest.builder()
+                .modelId(model)
+                .contentType("application/json")
+                .accept("application/json")
+                .body(SdkBytes.fromByteArrayUnsafe(Json.MAPPER.writeValueAsBytes(body)))
+                .build());
+        JsonNode embedding = Json.MAPPER.readTree(response.body().asInputStream()).path("embedding");
+        if (embedding.size() != dimension) {
+            throw new IllegalStateException(model + " returned " + embedding.size() + " dimensions, expected " + dimension);
+        }
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) embedding.get(i).asDouble();
+        }
+        return vector;
+    }
+}
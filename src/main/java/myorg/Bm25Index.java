@@ -0,0 +1,382 @@
+package myorg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * BM25 over the FAQ chunks, for the questions dense retrieval handles worst: the ones quoting a model
+ * number or an error code. Terms are the {@link FaqQueryNormalizer} tokens. The term dictionary is an
+ * open-addressing table of int term ids, and the postings of a term are one run of varints: the gap to
+ * the previous chunk shifted left once, with the low bit set when the term occurs once and the count
+ * following otherwise.
+ *
+ * <p>A match is confident when the question quotes an identifier (a token with a digit in it, like a model
+ * number or an error code) that only one chunk contains, that chunk ranks first, and it holds at least
+ * half of the question's IDF weight. An identifier no chunk contains rules a confident match out.
+ */
+public final class Bm25Index {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_QUERY_TERMS = 32;
+    private static final float CONFIDENT_COVERAGE = 0.5f;
+
+    /**
+     * Best chunks first; {@code coverage} is the share of the question's IDF weight the best chunk holds.
+     */
+    public record Matches(List<VectorIndex.Hit> hits, float coverage, boolean confident) {
+        static final Matches NONE = new Matches(List.of(), 0, false);
+    }
+
+    private final TermDictionary dictionary;
+    private final int[] postingOffsets;
+    private final int[] documentFrequencies;
+    private final byte[] postings;
+    private final float[] lengthNorms;
+    private final ThreadLocal<Scratch> scratch;
+
+    private Bm25Index(TermDictionary dictionary, int[] postingOffsets, int[] documentFrequencies, byte[] postings,
+                      int[] chunkLengths, long totalLength) {
+        this.dictionary = dictionary;
+        this.postingOffsets = postingOffsets;
+        this.documentFrequencies = documentFrequencies;
+        this.postings = postings;
+        float averageLength = chunkLengths.length == 0 ? 1 : Math.max(1, totalLength / (float) chunkLengths.length);
+        this.lengthNorms = new float[chunkLengths.length];
+        for (int chunk = 0; chunk < chunkLengths.length; chunk++) {
+            lengthNorms[chunk] = K1 * (1 - B + B * chunkLengths[chunk] / averageLength);
+        }
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(chunkLengths.length));
+    }
+
+    public static Bm25Index build(VectorIndex index) {
+        return build(index.chunkCount(), index::text);
+    }
+
+    public static Bm25Index build(int chunkCount, IntFunction<String> texts) {
+        TermDictionary dictionary = new TermDictionary(1024);
+        PostingsWriter writer = new PostingsWriter(1024);
+        int[] chunkLengths = new int[chunkCount];
+        long totalLength = 0;
+        int[] ids = new int[64];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            String[] terms = terms(texts.apply(chunk));
+            if (terms.length > ids.length) {
+                ids = new int[Math.max(terms.length, ids.length * 2)];
+            }
+            for (int i = 0; i < terms.length; i++) {
+                ids[i] = dictionary.add(terms[i]);
+            }
+            chunkLengths[chunk] = terms.length;
+            totalLength += terms.length;
+            Arrays.sort(ids, 0, terms.length);
+            for (int i = 0; i < terms.length; ) {
+                int run = i;
+                while (run < terms.length && ids[run] == ids[i]) {
+                    run++;
+                }
+                writer.add(ids[i], chunk, run - i);
+                i = run;
+            }
+        }
+        int termCount = dictionary.size();
+        int[] offsets = new int[termCount + 1];
+        for (int term = 0; term < termCount; term++) {
+            offsets[term + 1] = offsets[term] + writer.lengths[term];
+        }
+        byte[] postings = new byte[offsets[termCount]];
+        for (int term = 0; term < termCount; term++) {
+            System.arraycopy(writer.bytes[term], 0, postings, offsets[term], writer.lengths[term]);
+        }
+        return new Bm25Index(dictionary.trim(), offsets, Arrays.copyOf(writer.documentFrequencies, termCount), postings,
+                chunkLengths, totalLength);
+    }
+
+    public int chunkCount() {
+        return lengthNorms.length;
+    }
+
+    public int termCount() {
+        return dictionary.size();
+    }
+
+    public long postingCount() {
+        long count = 0;
+        for (int frequency : documentFrequencies) {
+            count += frequency;
+        }
+        return count;
+    }
+
+    /** Bytes held by the index arrays and term strings, leaving out per-thread query scratch. */
+    public long sizeInBytes() {
+        return postings.length + 4L * (postingOffsets.length + documentFrequencies.length + lengthNorms.length)
+                + dictionary.sizeInBytes();
+    }
+
+    public Matches search(String query, int k) {
+        String[] terms = terms(query);
+        int[] termIds = new int[Math.min(terms.length, MAX_QUERY_TERMS)];
+        float[] idfs = new float[termIds.length];
+        int identifiers = 0; // query terms that are identifiers only one chunk contains
+        int unknownIdentifiers = 0;
+        int count = 0;
+        float totalIdf = 0;
+        for (int i = 0; i < terms.length && count < termIds.length; i++) {
+            int term = dictionary.id(terms[i]);
+            if (term >= 0 && contains(termIds, count, term)) {
+                continue;
+            }
+            float idf = idf(term < 0 ? 0 : documentFrequencies[term]);
+            totalIdf += idf;
+            if (term < 0) {
+                // An unknown word still counts against coverage, and an unknown identifier rules out a confident match.
+                unknownIdentifiers += isIdentifier(terms[i]) ? 1 : 0;
+                continue;
+            }
+            identifiers |= documentFrequencies[term] == 1 && isIdentifier(terms[i]) ? 1 << count : 0;
+            termIds[count] = term;
+            idfs[count++] = idf;
+        }
+        if (count == 0) {
+            return Matches.NONE;
+        }
+
+        Scratch s = scratch.get();
+        int touched = 0;
+        for (int q = 0; q < count; q++) {
+            int term = termIds[q];
+            float idf = idfs[q];
+            int position = postingOffsets[term];
+            int end = postingOffsets[term + 1];
+            int chunk = -1;
+            while (position < end) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = postings[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                chunk += value >>> 1;
+                int frequency = 1;
+                if ((value & 1) == 0) {
+                    frequency = 0;
+                    shift = 0;
+                    do {
+                        b = postings[position++];
+                        frequency |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                }
+                if (s.masks[chunk] == 0) {
+                    s.touched[touched++] = chunk;
+                }
+                s.scores[chunk] += idf * frequency * (K1 + 1) / (frequency + lengthNorms[chunk]);
+                s.masks[chunk] |= 1 << q;
+            }
+        }
+
+        PriorityQueue<VectorIndex.Hit> best = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        int bestMask = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < touched; i++) {
+            int chunk = s.touched[i];
+            float score = s.scores[chunk];
+            if (score > bestScore) {
+                bestScore = score;
+                bestMask = s.masks[chunk];
+            }
+            if (best.size() < k || score > best.peek().score()) {
+                best.add(new VectorIndex.Hit(chunk, score));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            s.scores[chunk] = 0;
+            s.masks[chunk] = 0;
+        }
+        List<VectorIndex.Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+
+        float matchedIdf = 0;
+        for (int q = 0; q < count; q++) {
+            matchedIdf += (bestMask & 1 << q) != 0 ? idfs[q] : 0;
+        }
+        float coverage = matchedIdf / totalIdf;
+        boolean confident = unknownIdentifiers == 0 && (bestMask & identifiers) != 0 && coverage >= CONFIDENT_COVERAGE;
+        return new Matches(hits, coverage, confident);
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (lengthNorms.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /** Model numbers and error codes: tokens with a digit and either a letter or at least three characters. */
+    static boolean isIdentifier(String term) {
+        boolean digit = false;
+        boolean letter = false;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            digit |= Character.isDigit(c);
+            letter |= Character.isLetter(c);
+        }
+        return digit && (letter || term.length() >= 3);
+    }
+
+    private static String[] terms(String text) {
+        String normalized = FaqQueryNormalizer.normalize(text);
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Score accumulators reused across a thread's queries; only the touched entries are cleared. */
+    private static final class Scratch {
+        final float[] scores;
+        final int[] masks;
+        final int[] touched;
+
+        Scratch(int chunkCount) {
+            scores = new float[chunkCount];
+            masks = new int[chunkCount];
+            touched = new int[chunkCount];
+        }
+    }
+
+    /** Growable per-term postings while chunks are added in order. */
+    private static final class PostingsWriter {
+        byte[][] bytes;
+        int[] lengths;
+        int[] lastChunks;
+        int[] documentFrequencies;
+
+        PostingsWriter(int capacity) {
+            bytes = new byte[capacity][];
+            lengths = new int[capacity];
+            lastChunks = new int[capacity];
+            documentFrequencies = new int[capacity];
+        }
+
+        void add(int term, int chunk, int frequency) {
+            if (term >= bytes.length) {
+                int capacity = Math.max(term + 1, bytes.length * 2);
+                bytes = Arrays.copyOf(bytes, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                lastChunks = Arrays.copyOf(lastChunks, capacity);
+                documentFrequencies = Arrays.copyOf(documentFrequencies, capacity);
+            }
+            if (bytes[term] == null) {
+                bytes[term] = new byte[8];
+                lastChunks[term] = -1;
+            }
+            int gap = chunk - lastChunks[term];
+            writeVarint(term, frequency == 1 ? gap << 1 | 1 : gap << 1);
+            if (frequency != 1) {
+                writeVarint(term, frequency);
+            }
+            lastChunks[term] = chunk;
+            documentFrequencies[term]++;
+        }
+
+        private void writeVarint(int term, int value) {
+            if (lengths[term] + 5 > bytes[term].length) {
+                bytes[term] = Arrays.copyOf(bytes[term], bytes[term].length * 2);
+            }
+            byte[] target = bytes[term];
+            int length = lengths[term];
+            while ((value & ~0x7F) != 0) {
+                target[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            target[length++] = (byte) value;
+            lengths[term] = length;
+        }
+    }
+
+    /** Term to id by linear probing over an int table; ids are handed out in insertion order. */
+    private static final class TermDictionary {
+        private String[] terms;
+        private int[] slots;
+        private int size;
+
+        TermDictionary(int capacity) {
+            terms = new String[capacity];
+            slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int id(String term) {
+            int mask = slots.length - 1;
+            for (int slot = mix(term.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0 || terms[id].equals(term)) {
+                    return id;
+                }
+            }
+        }
+
+        int add(String term) {
+            int mask = slots.length - 1;
+            int slot = mix(term.hashCode()) & mask;
+            for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (terms[slots[slot] - 1].equals(term)) {
+                    return slots[slot] - 1;
+                }
+            }
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            terms[size] = term;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+            return size - 1;
+        }
+
+        TermDictionary trim() {
+            terms = Arrays.copyOf(terms, size);
+            return this;
+        }
+
+        long sizeInBytes() {
+            long bytes = 4L * slots.length + 8L * terms.length;
+            for (int i = 0; i < size; i++) {
+                // String header and backing array header, plus one byte per Latin-1 character.
+                bytes += 40 + terms[i].length();
+            }
+            return bytes;
+        }
+
+        private void rehash(int capacity) {
+            int[] rehashed = new int[capacity];
+            int mask = capacity - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = mix(terms[id].hashCode()) & mask;
+                while (rehashed[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rehashed[slot] = id + 1;
+            }
+            slots = rehashed;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
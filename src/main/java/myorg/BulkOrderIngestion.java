@@ -0,0 +1,295 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Places call-center and partner orders in bulk. The request body (a function URL request, or a direct
+ * invocation with a "body") holds one order per line as JSON, with the fields of {@link OrderConfirmation}
+ * but no order number. Valid lines get consecutive order numbers from a single lease, are written 25 at a
+ * time with BatchWriteItem on BULK_WRITE_PARALLELISM threads (8 by default), and have their confirmation
+ * emails queued ten per SQS call as soon as their chunk is stored. Items DynamoDB leaves unprocessed are
+ * written again with backoff. Unlike a conversation's PutItem, the batch write has no condition; the
+ * leased numbers are what keeps it from overwriting an order.
+ */
+public class BulkOrderIngestion implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+    private static final String TABLE_NAME = "Clients_Database";
+    static final int MAX_ORDERS_PER_REQUEST = 10_000;
+    // BatchWriteItem takes at most 25 items.
+    private static final int WRITE_CHUNK_SIZE = 25;
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final int MAX_UNPROCESSED_ATTEMPTS = 8;
+    private static final long BACKOFF_BASE_MILLIS = 25;
+    private static final long BACKOFF_CAP_MILLIS = 2_000;
+
+    /** Where one line of the request ended up: an order number, or why it was not placed. */
+    public record Outcome(int line, int orderNumber, String error) {
+        static Outcome placed(int line, int orderNumber) {
+            return new Outcome(line, orderNumber, null);
+        }
+
+        static Outcome rejected(int line, String error) {
+            return new Outcome(line, 0, error);
+        }
+    }
+
+    private record Chunk(List<Integer> lines, List<OrderConfirmation> orders) {
+    }
+
+    private final DynamoDbClient dynamoDbClient;
+    private final EmailOutbox emailOutbox;
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final ExecutorService writers;
+    private final Downstream dynamoDb = Resilience.downstream(Resilience.DYNAMODB_BULK, () -> new Downstream(Resilience.DYNAMODB_BULK, 4,
+            BACKOFF_BASE_MILLIS, BACKOFF_CAP_MILLIS, new CircuitBreaker(20, 5, 0.5, 30_000), new RetryBudget(0.2, 20)));
+
+    public BulkOrderIngestion() {
+        this(DynamoDbClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build(),
+                SqsEmailOutbox.fromEnvironment(SqsClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build()),
+                Integer.parseInt(System.getenv().getOrDefault("BULK_WRITE_PARALLELISM", String.valueOf(DEFAULT_PARALLELISM))));
+    }
+
+    public BulkOrderIngestion(DynamoDbClient dynamoDbClient, EmailOutbox emailOutbox, int parallelism) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.emailOutbox = emailOutbox;
+        this.orderNumberAllocator = OrderNumberAllocator.fromEnvironment(dynamoDbClient, TABLE_NAME);
+        this.writers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-order-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+        Log.beginTurn(null);
+        try {
+            String body = (String) event.get("body");
+            if (body != null && Boolean.TRUE.equals(event.get("isBase64Encoded"))) {
+                body = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+            }
+            if (body == null || body.isBlank()) {
+                return httpResponse(400, Map.of("message", "The request body must hold one JSON order per line"));
+            }
+            List<Outcome> outcomes = ingest(body, context);
+            List<Outcome> placed = new ArrayList<>();
+            List<Outcome> rejected = new ArrayList<>();
+            for (Outcome outcome : outcomes) {
+                (outcome.error() == null ? placed : rejected).add(outcome);
+            }
+            Log.info(context, () -> "Bulk ingestion placed " + placed.size() + " orders and rejected " + rejected.size() + ", " + dynamoDb);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("placed", placed.stream().map(outcome -> Map.of("line", outcome.line(), "orderNumber", outcome.orderNumber())).toList());
+            result.put("rejected", rejected.stream().map(outcome -> Map.of("line", outcome.line(), "error", outcome.error())).toList());
+            return httpResponse(placed.isEmpty() && !rejected.isEmpty() ? 400 : 200, result);
+        } catch (IllegalArgumentException e) {
+            // Too many lines, or a body that is not valid base64.
+            return httpResponse(400, Map.of("message", e.getMessage()));
+        } finally {
+            Metrics.flush(context);
+        }
+    }
+
+    /**
+     * Places the orders in an NDJSON body and returns one outcome per non-blank line, in line order. An
+     * order whose email could not be queued is still placed; the failure is logged with its number.
+     */
+    public List<Outcome> ingest(String ndjson, Context context) {
+        List<Outcome> outcomes = new ArrayList<>();
+        List<Integer> validLines = new ArrayList<>();
+        List<OrderConfirmation> validOrders = new ArrayList<>();
+        int lineNumber = 0;
+        int start = 0;
+        while (start <= ndjson.length()) {
+            int end = ndjson.indexOf('\n', start);
+            if (end < 0) {
+                end = ndjson.length();
+            }
+            String line = ndjson.substring(start, end).trim();
+            start = end + 1;
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (validLines.size() + outcomes.size() >= MAX_ORDERS_PER_REQUEST) {
+                throw new IllegalArgumentException("At most " + MAX_ORDERS_PER_REQUEST + " orders fit in one request");
+            }
+            try {
+                OrderConfirmation order = Json.MAPPER.readValue(line, OrderConfirmation.class);
+                String error = validate(order);
+                if (error != null) {
+                    outcomes.add(Outcome.rejected(lineNumber, error));
+                } else {
+                    validLines.add(lineNumber);
+                    validOrders.add(order);
+                }
+            } catch (Exception e) {
+                outcomes.add(Outcome.rejected(lineNumber, "Not a JSON order"));
+            }
+        }
+        if (!validOrders.isEmpty()) {
+            outcomes.addAll(place(validLines, validOrders, context));
+            outcomes.sort((a, b) -> Integer.compare(a.line(), b.line()));
+        }
+        return outcomes;
+    }
+
+    private List<Outcome> place(List<Integer> lines, List<OrderConfirmation> orders, Context context) {
+        int firstOrderNumber;
+        try {
+            firstOrderNumber = dynamoDb.call(() -> orderNumberAllocator.nextOrderNumbers(orders.size()));
+        } catch (DownstreamUnavailableException e) {
+            Log.warn(context, () -> "No order numbers for " + orders.size() + " bulk orders: " + e.getMessage());
+            return lines.stream().map(line -> Outcome.rejected(line, "Orders are temporarily unavailable")).toList();
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        List<Future<List<Outcome>>> written = new ArrayList<>();
+        for (int from = 0; from < orders.size(); from += WRITE_CHUNK_SIZE) {
+            int to = Math.min(from + WRITE_CHUNK_SIZE, orders.size());
+            List<OrderConfirmation> numbered = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                OrderConfirmation order = orders.get(i);
+                numbered.add(new OrderConfirmation(firstOrderNumber + i, order.clientName(), order.email(), order.products(),
+                        order.productName(), order.productNumber(), order.paymentMethod(), order.shippingAddress()));
+            }
+            Chunk chunk = new Chunk(lines.subList(from, to), numbered);
+            chunks.add(chunk);
+            written.add(writers.submit(() -> writeAndQueue(chunk, context)));
+        }
+
+        // A chunk that fails only fails its own lines; the other chunks' outcomes are still reported.
+        List<Outcome> outcomes = new ArrayList<>(orders.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            try {
+                outcomes.addAll(written.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chunk.lines().forEach(line -> outcomes.add(Outcome.rejected(line, "The order could not be confirmed")));
+            } catch (ExecutionException e) {
+                Log.error(context, () -> "Bulk orders " + chunk.orders().get(0).orderNumber() + " to "
+                        + chunk.orders().get(chunk.orders().size() - 1).orderNumber() + " failed", e.getCause());
+                chunk.lines().forEach(line -> outcomes.add(Outcome.rejected(line, "The order could not be confirmed")));
+            }
+        }
+        return outcomes;
+    }
+
+    private List<Outcome> writeAndQueue(Chunk chunk, Context context) {
+        Map<Integer, Integer> lineByOrderNumber = new HashMap<>();
+        List<WriteRequest> pending = new ArrayList<>(chunk.orders().size());
+        for (int i = 0; i < chunk.orders().size(); i++) {
+            OrderConfirmation order = chunk.orders().get(i);
+            lineByOrderNumber.put(order.orderNumber(), chunk.lines().get(i));
+            pending.add(WriteRequest.builder().putRequest(PutRequest.builder().item(order.toItem()).build()).build());
+        }
+
+        String failure = null;
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt >= MAX_UNPROCESSED_ATTEMPTS) {
+                    failure = "Orders are temporarily unavailable";
+                    break;
+                }
+                if (attempt > 0) {
+                    Backoff.sleep(Backoff.fullJitterMillis(attempt - 1, BACKOFF_BASE_MILLIS, BACKOFF_CAP_MILLIS));
+                }
+                BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(TABLE_NAME, pending))
+                        .build();
+                BatchWriteItemResponse response = dynamoDb.call(() -> dynamoDbClient.batchWriteItem(request));
+                pending = response.hasUnprocessedItems() ? response.unprocessedItems().getOrDefault(TABLE_NAME, List.of()) : List.of();
+            }
+        } catch (DownstreamUnavailableException e) {
+            failure = "Orders are temporarily unavailable";
+        } catch (RuntimeException e) {
+            // DynamoDB refused the batch, so none of its pending items were written.
+            Log.error(context, () -> "Bulk order batch write failed", e);
+            failure = "The order could not be stored";
+        }
+
+        Set<Integer> unwritten = new HashSet<>();
+        for (WriteRequest write : pending) {
+            unwritten.add(Integer.parseInt(write.putRequest().item().get("order_number").n()));
+        }
+        if (!unwritten.isEmpty()) {
+            Log.warn(context, () -> unwritten.size() + " bulk orders were not stored: " + unwritten);
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(chunk.orders().size());
+        List<OrderConfirmation> stored = new ArrayList<>(chunk.orders().size());
+        for (OrderConfirmation order : chunk.orders()) {
+            int line = lineByOrderNumber.get(order.orderNumber());
+            if (unwritten.contains(order.orderNumber())) {
+                outcomes.add(Outcome.rejected(line, failure));
+            } else {
+                outcomes.add(Outcome.placed(line, order.orderNumber()));
+                stored.add(order);
+            }
+        }
+        try {
+            List<OrderConfirmation> notQueued = emailOutbox.enqueueAll(stored);
+            if (!notQueued.isEmpty()) {
+                Log.warn(context, () -> "Failed to queue confirmation emails for bulk orders "
+                        + notQueued.stream().map(OrderConfirmation::orderNumber).toList());
+            }
+        } catch (RuntimeException e) {
+            Log.warn(context, () -> "Failed to queue confirmation emails for " + stored.size() + " bulk orders: " + e.getMessage());
+        }
+        return outcomes;
+    }
+
+    private static String validate(OrderConfirmation order) {
+        if (isBlank(order.clientName())) {
+            return "Missing clientName";
+        }
+        if (isBlank(order.email()) || !order.email().contains("@")) {
+            return "Missing or malformed email";
+        }
+        if (isBlank(order.products()) || isBlank(order.productName())) {
+            return "Missing products or productName";
+        }
+        if (!"cash".equalsIgnoreCase(order.paymentMethod()) && !"card".equalsIgnoreCase(order.paymentMethod())) {
+            return "paymentMethod must be cash or card";
+        }
+        if (isBlank(order.shippingAddress())) {
+            return "Missing shippingAddress";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Map<String, Object> httpResponse(int statusCode, Map<String, Object> body) {
+        try {
+            return Map.of("statusCode", statusCode,
+                    "headers", Map.of("Content-Type", "application/json"),
+                    "body", Json.MAPPER.writeValueAsString(body));
+        } catch (Exception e) {
+            throw new IllegalStateException("Bulk ingestion result cannot be serialized", e);
+        }
+    }
+}
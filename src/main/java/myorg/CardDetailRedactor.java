@@ -0,0 +1,89 @@
+package myorg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redacts card details from Lex events and responses by their structure rather than by nearby text: every
+ * value under a CardNumber, CVV or ExpirationDate key is masked wherever else it appears, and while the
+ * dialog elicits or holds one of them the turn's transcripts are masked whole, since that is where a
+ * customer types the value, resolved into a slot or not. What is left still goes through {@link Log#redact}.
+ */
+final class CardDetailRedactor {
+    private static final Set<String> SECRET_KEYS = Set.of("cardnumber", "cvv", "expirationdate");
+    private static final Set<String> TRANSCRIPT_KEYS = Set.of("inputTranscript", "rawInputTranscript", "transcriptions");
+    private static final String SECRET_MASK = "***";
+
+    private CardDetailRedactor() {
+    }
+
+    static boolean isSecret(String key) {
+        return SECRET_KEYS.contains(key.toLowerCase());
+    }
+
+    /** The card details in {@code messages}, longest first so a value containing another is masked whole. */
+    static List<String> secrets(Map<?, ?>... messages) {
+        Set<String> secrets = new HashSet<>();
+        for (Map<?, ?> message : messages) {
+            collectSecrets(message, false, secrets);
+        }
+        List<String> sorted = new ArrayList<>(secrets);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        return sorted;
+    }
+
+    /** A copy of a Lex event with its card details masked, and its transcripts too while card details are asked for. */
+    static Map<String, Object> redactEvent(Map<String, Object> event, List<String> secrets) {
+        boolean maskTranscripts = !secrets.isEmpty() || elicitsSecret(event.get("sessionState")) || elicitsSecret(event.get("proposedNextState"));
+        Map<String, Object> copy = new LinkedHashMap<>();
+        event.forEach((key, child) -> copy.put(key, maskTranscripts && TRANSCRIPT_KEYS.contains(key) ? SECRET_MASK : redact(child, secrets)));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> redact(Map<String, Object> message, List<String> secrets) {
+        return (Map<String, Object>) redact((Object) message, secrets);
+    }
+
+    private static boolean elicitsSecret(Object state) {
+        return state instanceof Map<?, ?> map && map.get("dialogAction") instanceof Map<?, ?> dialogAction
+                && dialogAction.get("slotToElicit") instanceof String slot && isSecret(slot);
+    }
+
+    private static void collectSecrets(Object value, boolean secret, Set<String> secrets) {
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((key, child) -> collectSecrets(child, secret || key instanceof String name && isSecret(name), secrets));
+        } else if (value instanceof List<?> list) {
+            list.forEach(child -> collectSecrets(child, secret, secrets));
+        } else if (secret && value instanceof String text && text.trim().length() >= 3) {
+            // Shorter values are not a card detail anyone could use, and masking them everywhere would garble the message.
+            secrets.add(text.trim());
+        }
+    }
+
+    private static Object redact(Object value, List<String> secrets) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            // Session IDs are kept whole: logs and replay group turns by them, even when they look like card numbers.
+            map.forEach((key, child) -> copy.put(String.valueOf(key), "sessionId".equals(key) ? child : redact(child, secrets)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(child -> copy.add(redact(child, secrets)));
+            return copy;
+        }
+        if (value instanceof String text) {
+            for (String secret : secrets) {
+                text = text.replace(secret, SECRET_MASK);
+            }
+            return Log.redact(text);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,119 @@
+package myorg;
+
+/**
+ * In-process card checks that need no network: digits only, a length the network issues, the Luhn
+ * checksum and the CVV length. Anything failing here never reaches the remote validator.
+ */
+public final class CardPrechecks {
+    public enum Network {
+        AMERICAN_EXPRESS(4, 15),
+        VISA(3, 13, 16, 19),
+        MASTERCARD(3, 16),
+        DISCOVER(3, 16, 19),
+        UNKNOWN(3);
+
+        private final int cvvLength;
+        private final int[] lengths;
+
+        Network(int cvvLength, int... lengths) {
+            this.cvvLength = cvvLength;
+            this.lengths = lengths;
+        }
+
+        public int cvvLength() {
+            return cvvLength;
+        }
+
+        boolean acceptsLength(int length) {
+            if (lengths.length == 0) {
+                return length >= 13 && length <= 19;
+            }
+            for (int accepted : lengths) {
+                if (accepted == length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private CardPrechecks() {
+    }
+
+    /** Drops the spaces and dashes people type between digit groups; null if anything else is left over. */
+    public static String normalize(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(cardNumber.length());
+        for (int i = 0; i < cardNumber.length(); i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c != ' ' && c != '-') {
+                return null;
+            }
+        }
+        return digits.length() == 0 ? null : digits.toString();
+    }
+
+    public static Network network(String digits) {
+        if (digits.startsWith("34") || digits.startsWith("37")) {
+            return Network.AMERICAN_EXPRESS;
+        }
+        if (digits.startsWith("4")) {
+            return Network.VISA;
+        }
+        int firstTwo = digits.length() >= 2 ? Integer.parseInt(digits.substring(0, 2)) : -1;
+        int firstFour = digits.length() >= 4 ? Integer.parseInt(digits.substring(0, 4)) : -1;
+        if ((firstTwo >= 51 && firstTwo <= 55) || (firstFour >= 2221 && firstFour <= 2720)) {
+            return Network.MASTERCARD;
+        }
+        if (digits.startsWith("6011") || digits.startsWith("65") || (firstTwo == 64 && firstFour >= 6440)) {
+            return Network.DISCOVER;
+        }
+        return Network.UNKNOWN;
+    }
+
+    public static boolean luhnValid(String digits) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /** Returns why the card is rejected, or null when it may go to the remote validator. */
+    public static String rejection(String digits, String cvv) {
+        if (digits == null) {
+            return "card number is not numeric";
+        }
+        Network network = network(digits);
+        if (!network.acceptsLength(digits.length())) {
+            return network + " card numbers cannot have " + digits.length() + " digits";
+        }
+        if (!luhnValid(digits)) {
+            return "card number fails the Luhn checksum";
+        }
+        if (cvv == null || cvv.length() != network.cvvLength() || !cvv.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            return network + " requires a " + network.cvvLength() + "-digit CVV";
+        }
+        return null;
+    }
+
+    public static String mask(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < 4) {
+            return "****";
+        }
+        return "****" + cardNumber.substring(cardNumber.length() - 4);
+    }
+}
@@ -0,0 +1,112 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Card validation in two stages: {@link CardPrechecks} locally, then the RapidAPI validator for cards
+ * that pass, with its verdicts cached in a {@link CardVerdictCache}. Failed or unreadable remote calls
+ * are never cached. While the validator is unavailable, or when it cannot be read, no card is accepted:
+ * the verdict is {@link Result#UNAVAILABLE} and the customer is asked to try again later or pay cash.
+ */
+public class CardValidator {
+    private static final String DEFAULT_ENDPOINT = "https://credit-card-validator2.p.rapidapi.com/validate-credit-card";
+    private static final String RAPIDAPI_HOST = "credit-card-validator2.p.rapidapi.com";
+
+    private final OutboundHttp outboundHttp;
+    private final Function<Context, String> apiKey;
+    private final URI endpoint;
+    private final CardVerdictCache verdictCache;
+    private final Downstream validatorCalls = Resilience.downstream(Resilience.CARD_VALIDATOR);
+
+    public enum Result {
+        VALID, INVALID, UNAVAILABLE
+    }
+
+    public CardValidator(OutboundHttp outboundHttp, Function<Context, String> apiKey, URI endpoint, CardVerdictCache verdictCache) {
+        this.outboundHttp = outboundHttp;
+        this.apiKey = apiKey;
+        this.endpoint = endpoint;
+        this.verdictCache = verdictCache;
+    }
+
+    /** CARD_VALIDATOR_URL, or the RapidAPI validator when it is not set. */
+    public static URI endpointFromEnvironment() {
+        String configured = System.getenv("CARD_VALIDATOR_URL");
+        return URI.create(configured == null || configured.isEmpty() ? DEFAULT_ENDPOINT : configured);
+    }
+
+    public CardVerdictCache verdictCache() {
+        return verdictCache;
+    }
+
+    public Result validate(String cardNumber, String cvv, Context context) {
+        String digits = CardPrechecks.normalize(cardNumber);
+        String rejection = CardPrechecks.rejection(digits, cvv == null ? null : cvv.trim());
+        if (rejection != null) {
+            Log.info(context, () -> "Card " + CardPrechecks.mask(digits) + " rejected locally: " + rejection);
+            return Result.INVALID;
+        }
+
+        CardVerdictCache.Verdict cached = verdictCache.get(digits);
+        if (cached != null) {
+            Log.debug(context, () -> "Card " + CardPrechecks.mask(digits) + " verdict served from cache: " + cached.valid());
+            return cached.valid() ? Result.VALID : Result.INVALID;
+        }
+
+        CardVerdictCache.Verdict verdict;
+        try {
+            verdict = fetchVerdict(digits, context);
+        } catch (DownstreamUnavailableException e) {
+            Log.warn(context, () -> "Card " + CardPrechecks.mask(digits) + " not verified, validator unavailable: " + e.getMessage());
+            return Result.UNAVAILABLE;
+        } catch (Exception e) {
+            Log.error(context, () -> "Error validating credit card", e);
+            return Result.UNAVAILABLE;
+        }
+        if (verdict == null) {
+            return Result.UNAVAILABLE;
+        }
+        verdictCache.put(digits, verdict);
+        Log.info(context, () -> "Card " + CardPrechecks.mask(digits) + " (" + verdict.cardType() + ") remote verdict: " + verdict.valid());
+        return verdict.valid() ? Result.VALID : Result.INVALID;
+    }
+
+    private CardVerdictCache.Verdict fetchVerdict(String digits, Context context) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .header("X-RapidAPI-Host", RAPIDAPI_HOST)
+                .header("X-RapidAPI-Key", apiKey.apply(context))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.MAPPER.writeValueAsString(Map.of("cardNumber", digits))))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = validatorCalls.call(() -> {
+            HttpResponse<String> attempt = outboundHttp.send(request);
+            if (attempt.statusCode() >= 500 || attempt.statusCode() == 429) {
+                throw new DownstreamUnavailableException("Card validator returned " + attempt.statusCode());
+            }
+            return attempt;
+        });
+        Log.debug(context, () -> "API Status: " + response.statusCode() + " in " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                + response.version() + ", validator calls " + outboundHttp);
+        if (response.statusCode() / 100 != 2) {
+            Log.warn(context, () -> "Card validator returned " + response.statusCode() + ", verdict not cached");
+            return null;
+        }
+
+        JsonNode responseNode = Json.MAPPER.readTree(response.body());
+        if (!responseNode.has("isValid")) {
+            Log.warn(context, () -> "Card validator response has no isValid field, verdict not cached");
+            return null;
+        }
+        return new CardVerdictCache.Verdict(responseNode.path("isValid").asBoolean(false), responseNode.path("cardType").asText("UNKNOWN"));
+    }
+}
@@ -0,0 +1,104 @@
+package myorg;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remote card verdicts kept for a short time, so a customer re-entering only the CVV does not pay for
+ * another validator call. Entries are keyed by SHA-256 over a per-instance random salt and the card
+ * number; the number itself is never stored. Bounded by entry count with least-recently-used eviction.
+ */
+public class CardVerdictCache {
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_SECONDS = 900;
+    private static final int SALT_BYTES = 32;
+
+    public record Verdict(boolean valid, String cardType) {
+    }
+
+    private record Entry(Verdict verdict, long expiresAtNanos) {
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private byte[] salt;
+
+    public CardVerdictCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CardVerdictCache.this.maxEntries;
+            }
+        };
+        this.salt = newSalt();
+    }
+
+    public static CardVerdictCache fromEnvironment() {
+        String maxEntries = System.getenv("CARD_VERDICT_CACHE_SIZE");
+        String ttlSeconds = System.getenv("CARD_VERDICT_TTL_SECONDS");
+        return new CardVerdictCache(
+                maxEntries == null || maxEntries.isEmpty() ? DEFAULT_MAX_ENTRIES : Integer.parseInt(maxEntries),
+                ttlSeconds == null || ttlSeconds.isEmpty() ? DEFAULT_TTL_SECONDS : Long.parseLong(ttlSeconds));
+    }
+
+    public synchronized Verdict get(String cardNumber) {
+        String key = key(cardNumber);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.verdict();
+    }
+
+    public synchronized void put(String cardNumber, Verdict verdict) {
+        if (maxEntries <= 0 || ttlNanos <= 0) {
+            return;
+        }
+        entries.put(key(cardNumber), new Entry(verdict, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Drops every entry and draws a new salt; restored SnapStart instances must not share one. */
+    public synchronized void rotateSalt() {
+        entries.clear();
+        salt = newSalt();
+    }
+
+    /** A digest of the current salt, to tell salts apart without exposing one. */
+    public synchronized String saltDigest() {
+        return key("");
+    }
+
+    private byte[] newSalt() {
+        byte[] bytes = new byte[SALT_BYTES];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private String key(String cardNumber) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(cardNumber.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package myorg;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. It opens once at least half of the last {@code windowSize} calls failed,
+ * after {@code minimumCalls} have been seen. While open it rejects calls for {@code openMillis}, then lets
+ * a single trial call through: success closes it again, failure reopens it.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    // The thread making the HALF_OPEN trial call, null when none is in flight.
+    private Thread trialCaller;
+    private long transitions;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis) {
+        this(windowSize, minimumCalls, failureRateThreshold, openMillis, System::nanoTime);
+    }
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis, LongSupplier nanoClock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /** Whether a call may go out now. In HALF_OPEN only one caller gets through until it reports back. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialCaller != null) {
+                    yield false;
+                }
+                trialCaller = Thread.currentThread();
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            trialCaller = null;
+            transitionTo(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            trialCaller = null;
+            open();
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    /**
+     * Gives back this thread's HALF_OPEN trial when its call ended without an outcome, such as on an Error,
+     * so the next caller can make the trial instead of the circuit staying half open for good.
+     */
+    public synchronized void release() {
+        if (trialCaller == Thread.currentThread()) {
+            trialCaller = null;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized long transitions() {
+        return transitions;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize && outcomes[next]) {
+            failures--;
+        }
+        outcomes[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+    }
+
+    private void open() {
+        openedAtNanos = nanoClock.getAsLong();
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State target) {
+        if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        if (state != target) {
+            transitions++;
+        }
+        state = target;
+    }
+}
@@ -10,16 +10,43 @@ import software.amazon.awscdk.services.secretsmanager.SecretStringGenerator;
 import software.constructs.Construct;
 import software.amazon.awscdk.services.lex.CfnBot;
 import software.amazon.awscdk.services.lambda.Function;
-
-
+import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
+import software.amazon.awscdk.services.s3.BlockPublicAccess;
+import software.amazon.awscdk.services.s3.Bucket;
+import software.amazon.awscdk.services.s3.BucketEncryption;
+import software.amazon.awscdk.services.s3.EventType;
+import software.amazon.awscdk.services.s3.IBucket;
+import software.amazon.awscdk.services.s3.LifecycleRule;
+import software.amazon.awscdk.services.s3.NotificationKeyFilter;
+import software.amazon.awscdk.services.s3.notifications.LambdaDestination;
+import software.amazon.awscdk.services.sqs.DeadLetterQueue;
+import software.amazon.awscdk.services.sqs.Queue;
+import software.amazon.awscdk.customresources.AwsCustomResource;
+import software.amazon.awscdk.customresources.AwsCustomResourcePolicy;
+import software.amazon.awscdk.customresources.AwsSdkCall;
+import software.amazon.awscdk.customresources.PhysicalResourceId;
+import software.amazon.awscdk.customresources.SdkCallsPolicyOptions;
+
+
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class CustomerSupportBotStack extends Stack {
+    // FAQ articles (see FaqIndexBuilder) and the index built from them; other objects in the bucket are not the corpus.
+    private static final List<String> FAQ_CORPUS_SUFFIXES = List.of(".txt", ".md", ".ivf");
+
     public CustomerSupportBotStack(final Construct scope, final String id, final StackProps props) {
         super(scope, id, props);
-        ILayerVersion layer = LayerVersion.fromLayerVersionArn(this, "BotDependencies", "arn:aws:lambda:us-east-1:960673175457:layer:BotDependencies:11");
-        ITable Clients_Database = Table.fromTableName(this, "Clients_Database", "Clients_Database");
+        ILayerVersion layer = LayerVersion.Builder.create(this, "BotDependencies")
+                .code(Code.fromAsset("target/layer"))
+                .compatibleRuntimes(List.of(Runtime.JAVA_17))
+                .description("Runtime dependencies of the bot handlers, built by mvn package")
+                .build();
+        ITable Clients_Database = Table.fromTableAttributes(this, "Clients_Database", TableAttributes.builder()
+                .tableName("Clients_Database")
+                .grantIndexPermissions(true)
+                .build());
         IFunction RAGFAQHandler = Function.fromFunctionArn(this, "ImportedRAGFAQHandler",
                 "arn:aws:lambda:us-east-1:960673175457:function:faq_handler");
         Secret apiKeySecret = Secret.Builder.create(this, "AlgobookApiKeySecret")
@@ -74,6 +101,49 @@ public class CustomerSupportBotStack extends Stack {
                 .build());
 
         Clients_Database.grantFullAccess(lambdaRole);
+        // The order number counter, kept out of the orders table so scans and exports of it see only orders.
+        // Kept when the stack is deleted: a new counter would have to be seeded from a scan of the orders again.
+        Table orderCounters = Table.Builder.create(this, "OrderCounters")
+                .partitionKey(Attribute.builder().name("counter_name").type(AttributeType.STRING).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .removalPolicy(RemovalPolicy.RETAIN)
+                .build();
+        orderCounters.grantReadWriteData(lambdaRole);
+
+        // The orders table lives outside this stack, so its email index is added with UpdateTable. DynamoDB
+        // backfills it in the background and order lookups fail until it is ACTIVE. Assumes on-demand capacity.
+        AwsCustomResource.Builder.create(this, "OrdersByEmailIndex")
+                .onCreate(AwsSdkCall.builder()
+                        .service("DynamoDB")
+                        .action("updateTable")
+                        .parameters(Map.of(
+                                "TableName", Clients_Database.getTableName(),
+                                "AttributeDefinitions", List.of(
+                                        Map.of("AttributeName", "email_address", "AttributeType", "S"),
+                                        Map.of("AttributeName", "order_number", "AttributeType", "N")),
+                                "GlobalSecondaryIndexUpdates", List.of(Map.of("Create", Map.of(
+                                        "IndexName", SimpleHandler.ORDERS_BY_EMAIL_INDEX,
+                                        "KeySchema", List.of(
+                                                Map.of("AttributeName", "email_address", "KeyType", "HASH"),
+                                                Map.of("AttributeName", "order_number", "KeyType", "RANGE")),
+                                        "Projection", Map.of(
+                                                "ProjectionType", "INCLUDE",
+                                                "NonKeyAttributes", SimpleHandler.ORDERS_BY_EMAIL_PROJECTION))))))
+                        .physicalResourceId(PhysicalResourceId.of("Clients_Database-" + SimpleHandler.ORDERS_BY_EMAIL_INDEX))
+                        .build())
+                .onDelete(AwsSdkCall.builder()
+                        .service("DynamoDB")
+                        .action("updateTable")
+                        .parameters(Map.of(
+                                "TableName", Clients_Database.getTableName(),
+                                "GlobalSecondaryIndexUpdates", List.of(Map.of("Delete", Map.of(
+                                        "IndexName", SimpleHandler.ORDERS_BY_EMAIL_INDEX)))))
+                        .build())
+                .policy(AwsCustomResourcePolicy.fromSdkCalls(SdkCallsPolicyOptions.builder()
+                        .resources(List.of(Clients_Database.getTableArn()))
+                        .build()))
+                .installLatestAwsSdk(false)
+                .build();
 
         lambdaRole.addToPolicy(PolicyStatement.Builder.create()
                 .effect(Effect.ALLOW)
@@ -84,18 +154,150 @@ public class CustomerSupportBotStack extends Stack {
                 .resources(List.of("*"))
                 .build());
 
+        Queue emailDeadLetterQueue = Queue.Builder.create(this, "EmailOutboxDeadLetterQueue")
+                .retentionPeriod(Duration.days(14))
+                .build();
+        Queue emailOutboxQueue = Queue.Builder.create(this, "EmailOutboxQueue")
+                .visibilityTimeout(Duration.seconds(360))
+                .deadLetterQueue(DeadLetterQueue.builder()
+                        .queue(emailDeadLetterQueue)
+                        .maxReceiveCount(5)
+                        .build())
+                .build();
+        emailOutboxQueue.grantSendMessages(lambdaRole);
+
+        Function EmailOutboxConsumer = Function.Builder.create(this, "EmailOutboxConsumer")
+                .runtime(Runtime.JAVA_17)
+                .handler("myorg.EmailOutboxConsumer::handleRequest")
+                .code(Code.fromAsset("target/customer-support-bot-0.1.jar"))
+                .memorySize(512)
+                .timeout(Duration.seconds(60))
+                .role(lambdaRole)
+                .layers(List.of(layer))
+                .environment(Map.of(
+                        "EMAIL_DEAD_LETTER_QUEUE_URL", emailDeadLetterQueue.getQueueUrl(),
+                        "SES_MAX_SEND_RATE", "1"
+                ))
+                .build();
+        emailDeadLetterQueue.grantSendMessages(EmailOutboxConsumer);
+        EmailOutboxConsumer.addEventSource(SqsEventSource.Builder.create(emailOutboxQueue)
+                .batchSize(10)
+                .reportBatchItemFailures(true)
+                .maxConcurrency(2)
+                .build());
+
+        Function BulkOrderIngestion = Function.Builder.create(this, "BulkOrderIngestion")
+                .runtime(Runtime.JAVA_17)
+                .handler("myorg.BulkOrderIngestion::handleRequest")
+                .code(Code.fromAsset("target/customer-support-bot-0.1.jar"))
+                .memorySize(1024)
+                .timeout(Duration.seconds(120))
+                .role(lambdaRole)
+                .layers(List.of(layer))
+                .environment(Map.of(
+                        "EMAIL_OUTBOX_QUEUE_URL", emailOutboxQueue.getQueueUrl(),
+                        "ORDER_COUNTER_TABLE_NAME", orderCounters.getTableName(),
+                        "BULK_WRITE_PARALLELISM", "8",
+                        "LOG_LEVEL", "INFO"
+                ))
+                .build();
+        FunctionUrl bulkOrderIngestionUrl = BulkOrderIngestion.addFunctionUrl(FunctionUrlOptions.builder()
+                .authType(FunctionUrlAuthType.AWS_IAM)
+                .build());
+        CfnOutput.Builder.create(this, "BulkOrderIngestionUrl")
+                .description("POST NDJSON orders here, signed with SigV4 by a principal allowed lambda:InvokeFunctionUrl")
+                .value(bulkOrderIngestionUrl.getUrl())
+                .build();
+
+        Table faqAnswerCache = Table.Builder.create(this, "FaqAnswerCache")
+                .partitionKey(Attribute.builder().name("query_key").type(AttributeType.STRING).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .timeToLiveAttribute("expires_at")
+                .removalPolicy(RemovalPolicy.DESTROY)
+                .build();
+        faqAnswerCache.grantReadWriteData(lambdaRole);
+
+        Function FaqCacheInvalidator = Function.Builder.create(this, "FaqCacheInvalidator")
+                .runtime(Runtime.JAVA_17)
+                .handler("myorg.FaqCacheInvalidator::handleRequest")
+                .code(Code.fromAsset("target/customer-support-bot-0.1.jar"))
+                .memorySize(512)
+                .timeout(Duration.seconds(30))
+                .role(lambdaRole)
+                .layers(List.of(layer))
+                .environment(Map.of(
+                        "FAQ_CACHE_TABLE_NAME", faqAnswerCache.getTableName()
+                ))
+                .build();
+        IBucket faqCorpusBucket = Bucket.fromBucketName(this, "FaqCorpusBucket", "customer-support-faq");
+        for (String suffix : FAQ_CORPUS_SUFFIXES) {
+            NotificationKeyFilter corpusObjects = NotificationKeyFilter.builder().suffix(suffix).build();
+            faqCorpusBucket.addEventNotification(EventType.OBJECT_CREATED, new LambdaDestination(FaqCacheInvalidator), corpusObjects);
+            faqCorpusBucket.addEventNotification(EventType.OBJECT_REMOVED, new LambdaDestination(FaqCacheInvalidator), corpusObjects);
+        }
+
+        // Redacted conversation traces for replay, kept apart from the FAQ corpus and expired after a month.
+        Bucket traceBucket = Bucket.Builder.create(this, "TraceBucket")
+                .encryption(BucketEncryption.S3_MANAGED)
+                .blockPublicAccess(BlockPublicAccess.BLOCK_ALL)
+                .enforceSsl(true)
+                .lifecycleRules(List.of(LifecycleRule.builder().expiration(Duration.days(30)).build()))
+                .build();
+        traceBucket.grantPut(lambdaRole);
+        CfnOutput.Builder.create(this, "TraceBucketName")
+                .description("Where sampled conversations are recorded; copy a day's segments down to replay them")
+                .value(traceBucket.getBucketName())
+                .build();
+
+        Map<String, String> simpleHandlerEnvironment = new HashMap<>(Map.of(
+                "DYNAMODB_TABLE_NAME", Clients_Database.getTableName(),
+                "ALGOBOOK_API_KEY_SECRET_ARN", apiKeySecret.getSecretArn(),
+                "EMAIL_OUTBOX_QUEUE_URL", emailOutboxQueue.getQueueUrl(),
+                "OUTBOUND_CONNECT_TIMEOUT_MS", "2000",
+                "OUTBOUND_REQUEST_TIMEOUT_MS", "4000",
+                "OUTBOUND_HEDGING_ENABLED", "false",
+                "FAQ_CACHE_TABLE_NAME", faqAnswerCache.getTableName(),
+                "FAQ_MAX_WAIT_MS", "8000",
+                "LOG_LEVEL", "INFO",
+                "LOG_SAMPLE_RATE", "0.01"
+        ));
+        simpleHandlerEnvironment.put("ORDER_COUNTER_TABLE_NAME", orderCounters.getTableName());
+        // cdk deploy -c faqIndexUri=s3://... switches FAQ turns to in-process retrieval.
+        String faqIndexUri = (String) this.getNode().tryGetContext("faqIndexUri");
+        if (faqIndexUri != null) {
+            simpleHandlerEnvironment.put("FAQ_INDEX_URI", faqIndexUri);
+        }
+        // cdk deploy -c traceSampleRate=0.05 records sampled sessions for replay in the trace bucket.
+        String traceSampleRate = (String) this.getNode().tryGetContext("traceSampleRate");
+        if (traceSampleRate != null) {
+            simpleHandlerEnvironment.put("TRACE_URI", "s3://" + traceBucket.getBucketName() + "/traces");
+            simpleHandlerEnvironment.put("TRACE_SAMPLE_RATE", traceSampleRate);
+        }
         Function SimpleHandler = Function.Builder.create(this, "SimpleHandler")
                 .runtime(Runtime.JAVA_17)
-                .handler("myorg.SimpleHandler::handleRequest")
+                .handler("myorg.StreamingHandler::handleRequest")
                 .code(Code.fromAsset("target/customer-support-bot-0.1.jar"))
                 .memorySize(2048)
                 .timeout(Duration.seconds(400))
                 .role(lambdaRole)
                 .layers(List.of(layer))
-                .environment(Map.of(
-                        "DYNAMODB_TABLE_NAME", Clients_Database.getTableName(),
-                        "ALGOBOOK_API_KEY_SECRET_ARN", apiKeySecret.getSecretArn()
-                ))
+                .snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS)
+                .environment(simpleHandlerEnvironment)
+                .build();
+        Alias SimpleHandlerLive = Alias.Builder.create(this, "SimpleHandlerLiveAlias")
+                .aliasName("live")
+                .version(SimpleHandler.getCurrentVersion())
+                .build();
+        SimpleHandlerLive.addPermission("LexInvokeLivePermission",
+                Permission.builder()
+                        .principal(new ServicePrincipal("lex.amazonaws.com"))
+                        .action("lambda:InvokeFunction")
+                        .sourceArn("arn:aws:lex:us-east-1:960673175457:bot-alias/FPQPGFR9ZU/TSTALIASID")
+                        .build()
+        );
+        CfnOutput.Builder.create(this, "SimpleHandlerLiveAliasArn")
+                .description("The code hook of the bot's test alias; point any other bot alias here too so it uses the SnapStart snapshot")
+                .value(SimpleHandlerLive.getFunctionArn())
                 .build();
         SimpleHandler.addPermission("LexInvokePermission",
                 Permission.builder()
@@ -166,6 +368,15 @@ public class CustomerSupportBotStack extends Stack {
                         .promptSpecification(createPromptSpecification("Would you like to see a recommended accessory for your product ?"))
                         .build())
                 .build();
+        CfnBot.SlotProperty showMoreSlot = CfnBot.SlotProperty.builder()
+                .name("ShowMore")
+                .description("Whether to list more of the client's orders")
+                .slotTypeName("AMAZON.Confirmation")
+                .valueElicitationSetting(CfnBot.SlotValueElicitationSettingProperty.builder()
+                        .slotConstraint("Optional")
+                        .promptSpecification(createPromptSpecification("Would you like to see more of your orders ?"))
+                        .build())
+                .build();
 
         CfnBot.SlotTypeProperty actionSlotType = CfnBot.SlotTypeProperty.builder()
                 .name("ActionType")
@@ -474,6 +685,7 @@ public class CustomerSupportBotStack extends Stack {
                         createOrderHPItemIntent(productsSlot, productNameSlot, paymentMethodSlot,
                                 clientNameSlot, shippingAddressSlot, emailSlot, cardNumberSlot, expirationDateSlot,
                                 cvvSlot, suggestionResponseSlot, productNumberSlot),
+                        createFindOrdersIntent(emailSlot, showMoreSlot),
                         createFallbackIntent(),
                         createGreetingsIntent(),
                         createFAQIntent(querySlot)
@@ -489,7 +701,29 @@ public class CustomerSupportBotStack extends Stack {
                 .idleSessionTtlInSeconds(300)
                 .roleArn(lexRole.getRoleArn())
                 .botLocales(List.of(botLocale))
+                // SnapStart only restores published versions, so Lex calls the live alias, never $LATEST.
+                .testBotAliasSettings(CfnBot.TestBotAliasSettingsProperty.builder()
+                        .botAliasLocaleSettings(List.of(CfnBot.BotAliasLocaleSettingsItemProperty.builder()
+                                .localeId("en_US")
+                                .botAliasLocaleSetting(CfnBot.BotAliasLocaleSettingsProperty.builder()
+                                        .enabled(true)
+                                        .codeHookSpecification(CfnBot.CodeHookSpecificationProperty.builder()
+                                                .lambdaCodeHook(CfnBot.LambdaCodeHookProperty.builder()
+                                                        .lambdaArn(SimpleHandlerLive.getFunctionArn())
+                                                        .codeHookInterfaceVersion("1.0")
+                                                        .build())
+                                                .build())
+                                        .build())
+                                .build()))
+                        .build())
                 .build();
+        SimpleHandlerLive.addPermission("LexBotInvokeLivePermission",
+                Permission.builder()
+                        .principal(new ServicePrincipal("lexv2.amazonaws.com"))
+                        .action("lambda:InvokeFunction")
+                        .sourceArn("arn:aws:lex:" + this.getRegion() + ":" + this.getAccount() + ":bot-alias/" + lexBot.getAttrId() + "/*")
+                        .build()
+        );
 
     }
 
@@ -619,6 +853,32 @@ public class CustomerSupportBotStack extends Stack {
                 .build();
     }
 
+    private CfnBot.IntentProperty createFindOrdersIntent(CfnBot.SlotProperty emailSlot, CfnBot.SlotProperty showMoreSlot) {
+        return CfnBot.IntentProperty.builder()
+                .name("FindOrdersIntent")
+                .description("Lists a client's orders by email address")
+                .slots(List.of(emailSlot, showMoreSlot))
+                .slotPriorities(List.of(
+                        CfnBot.SlotPriorityProperty.builder().priority(1).slotName("Email").build(),
+                        CfnBot.SlotPriorityProperty.builder().priority(2).slotName("ShowMore").build()
+                ))
+                .sampleUtterances(List.of(
+                        CfnBot.SampleUtteranceProperty.builder().utterance("Find my orders").build(),
+                        CfnBot.SampleUtteranceProperty.builder().utterance("Show my orders").build(),
+                        CfnBot.SampleUtteranceProperty.builder().utterance("I forgot my order number").build(),
+                        CfnBot.SampleUtteranceProperty.builder().utterance("What orders did I place").build(),
+                        CfnBot.SampleUtteranceProperty.builder().utterance("Find the orders for {Email}").build(),
+                        CfnBot.SampleUtteranceProperty.builder().utterance("Look up my orders with {Email}").build()
+                ))
+                .dialogCodeHook(CfnBot.DialogCodeHookSettingProperty.builder()
+                        .enabled(true)
+                        .build())
+                .fulfillmentCodeHook(CfnBot.FulfillmentCodeHookSettingProperty.builder()
+                        .enabled(true)
+                        .build())
+                .build();
+    }
+
     private CfnBot.IntentProperty createFallbackIntent() {
         return CfnBot.IntentProperty.builder()
                 .name("FallbackIntent")
@@ -0,0 +1,56 @@
+package myorg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a help article into retrieval chunks of at most {@code maxWords} words. Paragraphs are kept
+ * together while they fit; a paragraph longer than a chunk is cut into windows that overlap by
+ * {@code overlapWords}, so a sentence on a boundary is whole in at least one of them.
+ */
+public class DocumentChunker {
+    private final int maxWords;
+    private final int overlapWords;
+
+    public DocumentChunker(int maxWords, int overlapWords) {
+        if (overlapWords >= maxWords) {
+            throw new IllegalArgumentException("Overlap of " + overlapWords + " words leaves nothing new in a " + maxWords + " word chunk");
+        }
+        this.maxWords = maxWords;
+        this.overlapWords = overlapWords;
+    }
+
+    public List<String> chunk(String document) {
+        List<String> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String paragraph : document.split("\\n\\s*\\n")) {
+            String[] words = paragraph.trim().split("\\s+");
+            if (words.length == 0 || words[0].isEmpty()) {
+                continue;
+            }
+            if (current.size() + words.length > maxWords) {
+                flush(current, chunks);
+            }
+            if (words.length <= maxWords) {
+                current.addAll(List.of(words));
+                continue;
+            }
+            for (int start = 0; start < words.length; start += maxWords - overlapWords) {
+                int end = Math.min(words.length, start + maxWords);
+                chunks.add(String.join(" ", List.of(words).subList(start, end)));
+                if (end == words.length) {
+                    break;
+                }
+            }
+        }
+        flush(current, chunks);
+        return chunks;
+    }
+
+    private static void flush(List<String> words, List<String> chunks) {
+        if (!words.isEmpty()) {
+            chunks.add(String.join(" ", words));
+            words.clear();
+        }
+    }
+}
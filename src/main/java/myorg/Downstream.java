@@ -0,0 +1,159 @@
+package myorg;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * One dependency behind a circuit breaker and a retry budget. Only dependency failures count against
+ * the breaker: network errors, timeouts, throttling and 5xx responses. Business errors such as a failed
+ * DynamoDB condition are rethrown untouched. Calls rejected by an open circuit or out of retries go to
+ * the caller's fallback, or fail with {@link DownstreamUnavailableException} when there is none.
+ * Outcomes and the latency of calls that got past the breaker, retries included, go to its {@link Metrics}.
+ */
+public class Downstream {
+    @FunctionalInterface
+    public interface Action<T> {
+        T run() throws Exception;
+    }
+
+    private final String name;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffCapMillis;
+    private final CircuitBreaker breaker;
+    private final RetryBudget retryBudget;
+    private final Metrics.Group metrics;
+    private final Metrics.Counter calls;
+    private final Metrics.Counter failures;
+    private final Metrics.Counter retries;
+    private final Metrics.Counter rejected;
+    private final Metrics.Counter fallbacks;
+    private final LatencyHistogram latency;
+
+    public Downstream(String name, int maxAttempts, long backoffBaseMillis, long backoffCapMillis,
+                      CircuitBreaker breaker, RetryBudget retryBudget) {
+        this.name = name;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffCapMillis = backoffCapMillis;
+        this.breaker = breaker;
+        this.retryBudget = retryBudget;
+        this.metrics = new Metrics.Group(Metrics.DOWNSTREAM, name);
+        this.calls = metrics.counter("Calls");
+        this.failures = metrics.counter("Failures");
+        this.retries = metrics.counter("Retries");
+        this.rejected = metrics.counter("Rejected");
+        this.fallbacks = metrics.counter("Fallbacks");
+        this.latency = metrics.histogram("Latency");
+    }
+
+    /** Settings for calls made inside a Lex turn: one quick retry, and 30 s of fast failure once half the recent calls fail. */
+    public static Downstream withDefaults(String name) {
+        return new Downstream(name, 2, 50, 400, new CircuitBreaker(20, 5, 0.5, 30_000), new RetryBudget(0.1, 10));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    public Metrics.Group metrics() {
+        return metrics;
+    }
+
+    public <T> T call(Action<T> action) {
+        return call(action, null);
+    }
+
+    public <T> T call(Action<T> action, Function<DownstreamUnavailableException, T> fallback) {
+        return call(action, fallback, maxAttempts);
+    }
+
+    /**
+     * One attempt and no retry, for writes that are not safe to repeat: a conditional write whose response
+     * was lost may have landed, and trying it again would fail its own condition or apply it twice.
+     */
+    public <T> T callOnce(Action<T> action) {
+        return call(action, null, 1);
+    }
+
+    private <T> T call(Action<T> action, Function<DownstreamUnavailableException, T> fallback, int maxAttempts) {
+        calls.increment();
+        if (!breaker.tryAcquire()) {
+            rejected.increment();
+            return unavailable(new DownstreamUnavailableException(name + " circuit is open"), fallback);
+        }
+        retryBudget.deposit();
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    T result = action.run();
+                    breaker.onSuccess();
+                    latency.record(System.nanoTime() - start);
+                    return result;
+                } catch (Exception e) {
+                    if (!isDependencyFailure(e)) {
+                        breaker.onSuccess();
+                        latency.record(System.nanoTime() - start);
+                        throw rethrow(e);
+                    }
+                    failures.increment();
+                    breaker.onFailure();
+                    if (attempt + 1 >= maxAttempts || breaker.state() != CircuitBreaker.State.CLOSED || !retryBudget.tryWithdraw()) {
+                        latency.record(System.nanoTime() - start);
+                        return unavailable(new DownstreamUnavailableException(
+                                name + " failed after " + (attempt + 1) + " attempt(s): " + e.getMessage(), e), fallback);
+                    }
+                    retries.increment();
+                    Backoff.sleep(Backoff.fullJitterMillis(attempt, backoffBaseMillis, backoffCapMillis));
+                }
+            }
+        } finally {
+            // A no-op once the outcome is reported; an Error skips the reporting and would keep a trial in flight.
+            breaker.release();
+        }
+    }
+
+    static boolean isDependencyFailure(Exception e) {
+        if (e instanceof DownstreamUnavailableException || e instanceof IOException || e instanceof TimeoutException
+                || e instanceof SdkClientException) {
+            return true;
+        }
+        if (e instanceof SdkServiceException serviceException) {
+            return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+        }
+        return false;
+    }
+
+    private <T> T unavailable(DownstreamUnavailableException e, Function<DownstreamUnavailableException, T> fallback) {
+        if (fallback == null) {
+            throw e;
+        }
+        fallbacks.increment();
+        return fallback.apply(e);
+    }
+
+    private static RuntimeException rethrow(Exception e) {
+        if (e instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return new IllegalStateException(e.getMessage(), e);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{state=%s, calls=%d, failures=%d, retries=%d, rejected=%d, fallbacks=%d, retryTokens=%.1f}",
+                name, breaker.state(), calls.sum(), failures.sum(), retries.sum(), rejected.sum(), fallbacks.sum(), retryBudget.tokens());
+    }
+}
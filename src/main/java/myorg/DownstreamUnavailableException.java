@@ -0,0 +1,18 @@
+package myorg;
+
+/**
+ * Thrown by {@link Downstream#call} when a dependency's circuit is open or its retries ran out and the
+ * caller gave no fallback. Actions also throw it themselves to report a failed response, such as a 5xx
+ * status, that arrived without an exception.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+
+    public DownstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,21 @@
+package myorg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface EmailOutbox {
+    void enqueue(OrderConfirmation confirmation);
+
+    /** Queues every confirmation it can and returns the ones it could not. */
+    default List<OrderConfirmation> enqueueAll(List<OrderConfirmation> confirmations) {
+        List<OrderConfirmation> notQueued = new ArrayList<>();
+        for (OrderConfirmation confirmation : confirmations) {
+            try {
+                enqueue(confirmation);
+            } catch (RuntimeException e) {
+                notQueued.add(confirmation);
+            }
+        }
+        return notQueued;
+    }
+}
@@ -0,0 +1,112 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.MessageRejectedException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains order confirmation emails from the outbox queue. Transient SES errors are retried with jittered
+ * exponential backoff within the SES {@link Downstream}'s budget and then reported as batch item failures,
+ * so SQS redelivers them and finally moves them to the dead-letter queue. While the SES circuit is open,
+ * emails stay queued without being tried. Unreadable or rejected messages go to the dead-letter queue right away.
+ */
+public class EmailOutboxConsumer implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+    private static final int DEFAULT_MAX_ATTEMPTS = 4;
+    private static final long BACKOFF_BASE_MILLIS = 200;
+    private static final long BACKOFF_CAP_MILLIS = 5_000;
+    private static final int REMAINING_TIME_MARGIN_MILLIS = 10_000;
+
+    private final OrderEmailSender emailSender;
+    private final SqsClient sqsClient;
+    private final String deadLetterQueueUrl;
+    private final SendRateLimiter rateLimiter;
+    private final Downstream ses;
+
+    public EmailOutboxConsumer() {
+        this(SesClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build(), SqsClient.create(), System.getenv("EMAIL_DEAD_LETTER_QUEUE_URL"),
+                new SendRateLimiter(Double.parseDouble(System.getenv().getOrDefault("SES_MAX_SEND_RATE", "1"))), DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public EmailOutboxConsumer(SesClient sesClient, SqsClient sqsClient, String deadLetterQueueUrl, SendRateLimiter rateLimiter, int maxAttempts) {
+        this.emailSender = new OrderEmailSender(sesClient);
+        this.sqsClient = sqsClient;
+        this.deadLetterQueueUrl = deadLetterQueueUrl;
+        this.rateLimiter = rateLimiter;
+        this.ses = Resilience.downstream(Resilience.SES, () -> new Downstream(Resilience.SES, maxAttempts,
+                BACKOFF_BASE_MILLIS, BACKOFF_CAP_MILLIS, new CircuitBreaker(20, 5, 0.5, 60_000), new RetryBudget(0.2, 20)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+        Log.beginTurn(null);
+        List<Map<String, Object>> records = (List<Map<String, Object>>) event.getOrDefault("Records", List.of());
+        List<Map<String, String>> batchItemFailures = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            String messageId = (String) record.get("messageId");
+            if (context.getRemainingTimeInMillis() < REMAINING_TIME_MARGIN_MILLIS || !deliver((String) record.get("body"), context)) {
+                batchItemFailures.add(Map.of("itemIdentifier", messageId));
+            }
+        }
+        Log.info(context, () -> "Processed " + records.size() + " outbox emails, " + batchItemFailures.size() + " left for redelivery, " + ses);
+        Metrics.flush(context);
+        return Map.of("batchItemFailures", batchItemFailures);
+    }
+
+    private boolean deliver(String body, Context context) {
+        OrderConfirmation confirmation;
+        try {
+            confirmation = Json.MAPPER.readValue(body, OrderConfirmation.class);
+        } catch (Exception e) {
+            return deadLetter(body, "Unreadable outbox message: " + e.getMessage(), context);
+        }
+
+        try {
+            boolean sent = ses.call(() -> {
+                rateLimiter.acquire();
+                emailSender.send(confirmation);
+                return true;
+            }, unavailable -> {
+                Log.warn(context, () -> "Order #" + confirmation.orderNumber() + " stays in the outbox: " + unavailable.getMessage());
+                return false;
+            });
+            if (sent) {
+                Log.info(context, () -> "Confirmation email sent for order #" + confirmation.orderNumber());
+            }
+            return sent;
+        } catch (MessageRejectedException e) {
+            return deadLetter(body, "Rejected by SES: " + e.getMessage(), context);
+        } catch (SdkException e) {
+            Log.warn(context, () -> "SES refused order #" + confirmation.orderNumber() + ", leaving it for redelivery: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean deadLetter(String body, String reason, Context context) {
+        Log.warn(context, () -> reason);
+        if (deadLetterQueueUrl == null || deadLetterQueueUrl.isEmpty()) {
+            Log.warn(context, () -> "EMAIL_DEAD_LETTER_QUEUE_URL is missing, leaving message for redrive");
+            return false;
+        }
+        try {
+            sqsClient.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(deadLetterQueueUrl)
+                    .messageBody(body == null || body.isEmpty() ? "<empty>" : body)
+                    .messageAttributes(Map.of("reason", MessageAttributeValue.builder().dataType("String").stringValue(reason).build()))
+                    .build());
+            return true;
+        } catch (SdkException e) {
+            Log.error(context, () -> "Failed to dead-letter outbox message", e);
+            return false;
+        }
+    }
+}
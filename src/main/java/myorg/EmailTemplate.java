@@ -0,0 +1,97 @@
+package myorg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A {{placeholder}} template split once into literal segments and field accessors, so rendering is a
+ * straight walk over both into a buffer. Unknown placeholders fail at compile time, not per email.
+ */
+public final class EmailTemplate<T> {
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    private final String[] literals;
+    private final List<Function<T, String>> fields;
+    private final boolean escapeHtml;
+
+    private EmailTemplate(String[] literals, List<Function<T, String>> fields, boolean escapeHtml) {
+        this.literals = literals;
+        this.fields = fields;
+        this.escapeHtml = escapeHtml;
+    }
+
+    public static <T> EmailTemplate<T> compile(String source, Map<String, Function<T, String>> accessors, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<Function<T, String>> fields = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            Function<T, String> accessor = accessors.get(name);
+            if (accessor == null) {
+                throw new IllegalArgumentException("Unknown placeholder: " + name);
+            }
+            literals.add(source.substring(position, open));
+            fields.add(accessor);
+            position = close + 2;
+        }
+        literals.add(source.substring(position));
+        return new EmailTemplate<>(literals.toArray(new String[0]), List.copyOf(fields), escapeHtml);
+    }
+
+    public void renderTo(T model, StringBuilder out) {
+        for (int i = 0; i < fields.size(); i++) {
+            out.append(literals[i]);
+            String value = fields.get(i).apply(model);
+            if (value == null) {
+                continue;
+            }
+            if (escapeHtml) {
+                appendEscaped(value, out);
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(literals[fields.size()]);
+    }
+
+    public String render(T model) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderTo(model, buffer);
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return rendered;
+    }
+
+    static void appendEscaped(String value, StringBuilder out) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+}
@@ -0,0 +1,13 @@
+package myorg;
+
+/**
+ * Turns text into the embedding a {@link VectorIndex} is searched with. The model id is stored in every
+ * index so that queries are never embedded with a different model than the corpus.
+ */
+public interface Embedder {
+    String modelId();
+
+    int dimension();
+
+    float[] embed(String text) throws Exception;
+}
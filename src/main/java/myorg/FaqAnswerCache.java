@@ -0,0 +1,211 @@
+package myorg;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers from the FAQ function keyed by {@link FaqQueryNormalizer normalized} question. The local tier
+ * is a bounded LRU map. When FAQ_CACHE_TABLE_NAME is set, a DynamoDB table with a TTL attribute is the
+ * shared tier, and it also holds the corpus version. Bumping that version through {@link #invalidate}
+ * retires every cached answer; instances notice within a minute. Hits, misses, stores and invalidations
+ * are flushed as the Cache=faq-answers {@link Metrics} group.
+ */
+public class FaqAnswerCache {
+    static final String KEY_ATTRIBUTE = "query_key";
+    static final String VERSION_KEY = "#corpus-version";
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final long DEFAULT_LOCAL_TTL_SECONDS = 3_600;
+    private static final long DEFAULT_SHARED_TTL_SECONDS = 86_400;
+    private static final long VERSION_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final String METRICS_NAME = "faq-answers";
+
+    public record Answer(String fulfillmentState, String content) {
+    }
+
+    private record Entry(Answer answer, String corpusVersion, long expiresAtNanos) {
+    }
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final int maxEntries;
+    private final long localTtlNanos;
+    private final long sharedTtlSeconds;
+    // A cache read is never worth a retry: on failure the FAQ function answers instead.
+    private final Downstream sharedTier = Resilience.downstream(Resilience.FAQ_CACHE, () -> new Downstream(Resilience.FAQ_CACHE,
+            1, 0, 0, new CircuitBreaker(20, 5, 0.5, 30_000), new RetryBudget(0.1, 10)));
+    private final LinkedHashMap<String, Entry> entries;
+    private String corpusVersion;
+    private long versionCheckedAtNanos;
+    private boolean versionChecked;
+
+    private final Metrics.Group metrics = Metrics.register(new Metrics.Group(Metrics.CACHE, METRICS_NAME));
+    private final Metrics.Counter localHits = metrics.counter("LocalHits");
+    private final Metrics.Counter sharedHits = metrics.counter("SharedHits");
+    private final Metrics.Counter misses = metrics.counter("Misses");
+    private final Metrics.Counter stores = metrics.counter("Stores");
+    private final Metrics.Counter invalidations = metrics.counter("Invalidations");
+
+    public FaqAnswerCache(DynamoDbClient dynamoDbClient, String tableName, int maxEntries, long localTtlSeconds,
+                          long sharedTtlSeconds, String corpusVersion) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName == null || tableName.isEmpty() ? null : tableName;
+        this.maxEntries = maxEntries;
+        this.localTtlNanos = TimeUnit.SECONDS.toNanos(localTtlSeconds);
+        this.sharedTtlSeconds = sharedTtlSeconds;
+        this.corpusVersion = corpusVersion;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > FaqAnswerCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static FaqAnswerCache fromEnvironment(DynamoDbClient dynamoDbClient) {
+        String maxEntries = System.getenv("FAQ_CACHE_SIZE");
+        String ttlSeconds = System.getenv("FAQ_CACHE_TTL_SECONDS");
+        String corpusVersion = System.getenv("FAQ_CORPUS_VERSION");
+        return new FaqAnswerCache(dynamoDbClient, System.getenv("FAQ_CACHE_TABLE_NAME"),
+                maxEntries == null || maxEntries.isEmpty() ? DEFAULT_MAX_ENTRIES : Integer.parseInt(maxEntries),
+                ttlSeconds == null || ttlSeconds.isEmpty() ? DEFAULT_LOCAL_TTL_SECONDS : Long.parseLong(ttlSeconds),
+                DEFAULT_SHARED_TTL_SECONDS,
+                corpusVersion == null || corpusVersion.isEmpty() ? "1" : corpusVersion);
+    }
+
+    public Answer get(String key) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        String version = corpusVersion();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.corpusVersion().equals(version) && System.nanoTime() - entry.expiresAtNanos() < 0) {
+                localHits.increment();
+                return entry.answer();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+
+        Answer shared = tableName == null ? null : sharedTier.call(() -> readShared(key, version), unavailable -> null);
+        if (shared != null) {
+            sharedHits.increment();
+            putLocal(key, shared, version);
+            return shared;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, Answer answer) {
+        if (key.isEmpty()) {
+            return;
+        }
+        String version = corpusVersion();
+        putLocal(key, answer, version);
+        stores.increment();
+        if (tableName != null) {
+            sharedTier.call(() -> dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(Map.of(
+                            KEY_ATTRIBUTE, AttributeValue.builder().s(key).build(),
+                            "fulfillment_state", AttributeValue.builder().s(answer.fulfillmentState()).build(),
+                            "content", AttributeValue.builder().s(answer.content()).build(),
+                            "corpus_version", AttributeValue.builder().s(version).build(),
+                            "expires_at", AttributeValue.builder().n(String.valueOf(epochSeconds() + sharedTtlSeconds)).build()))
+                    .build()), unavailable -> null);
+        }
+    }
+
+    /** Retires every cached answer, here and, through the shared table, on every other instance. */
+    public void invalidate(String newCorpusVersion) {
+        if (tableName != null) {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(Map.of(
+                            KEY_ATTRIBUTE, AttributeValue.builder().s(VERSION_KEY).build(),
+                            "corpus_version", AttributeValue.builder().s(newCorpusVersion).build(),
+                            "updated_at", AttributeValue.builder().n(String.valueOf(epochSeconds())).build()))
+                    .build());
+        }
+        synchronized (this) {
+            corpusVersion = newCorpusVersion;
+            versionChecked = true;
+            versionCheckedAtNanos = System.nanoTime();
+            entries.clear();
+        }
+        invalidations.increment();
+    }
+
+    private synchronized void putLocal(String key, Answer answer, String version) {
+        entries.put(key, new Entry(answer, version, System.nanoTime() + localTtlNanos));
+    }
+
+    /**
+     * The corpus version answers are cached under, read from the shared table at most once a minute. The
+     * read is made outside the lock; other callers meanwhile keep the version already known.
+     */
+    public String corpusVersion() {
+        long checkedAtNanos;
+        synchronized (this) {
+            if (tableName == null || (versionChecked && System.nanoTime() - versionCheckedAtNanos < VERSION_CHECK_INTERVAL_NANOS)) {
+                return corpusVersion;
+            }
+            versionChecked = true;
+            versionCheckedAtNanos = System.nanoTime();
+            checkedAtNanos = versionCheckedAtNanos;
+        }
+        String shared = sharedTier.call(() -> {
+            GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of(KEY_ATTRIBUTE, AttributeValue.builder().s(VERSION_KEY).build()))
+                    .build());
+            return response.hasItem() ? response.item().get("corpus_version").s() : null;
+        }, unavailable -> null);
+        synchronized (this) {
+            // An invalidate() since the read started has set a newer version than the one read.
+            if (shared != null && !shared.equals(corpusVersion) && versionCheckedAtNanos == checkedAtNanos) {
+                corpusVersion = shared;
+                entries.clear();
+                invalidations.increment();
+            }
+            return corpusVersion;
+        }
+    }
+
+    private Answer readShared(String key, String version) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(KEY_ATTRIBUTE, AttributeValue.builder().s(key).build()))
+                .build());
+        if (!response.hasItem()) {
+            return null;
+        }
+        Map<String, AttributeValue> item = response.item();
+        AttributeValue expiresAt = item.get("expires_at");
+        AttributeValue itemVersion = item.get("corpus_version");
+        // DynamoDB deletes expired items lazily, so the TTL is checked here too.
+        if (itemVersion == null || !version.equals(itemVersion.s())
+                || expiresAt == null || Long.parseLong(expiresAt.n()) <= epochSeconds()) {
+            return null;
+        }
+        return new Answer(item.get("fulfillment_state").s(), item.get("content").s());
+    }
+
+    private static long epochSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("{entries=%d, corpusVersion=%s, counts=%s}", entries.size(), corpusVersion, metrics);
+    }
+}
@@ -0,0 +1,65 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Where FAQ answers come from: the faq_handler function ({@link FaqClient}) or, when FAQ_INDEX_URI names
+ * an index, retrieval and generation inside this function ({@link InProcessFaqAnswerer}).
+ */
+public interface FaqAnswerSource {
+    long DEFAULT_MAX_WAIT_MILLIS = 8_000;
+    long RESPONSE_MARGIN_MILLIS = 500;
+
+    FaqReply ask(LexEvent event, String query, Context context) throws Exception;
+
+    /**
+     * The answer cache key for {@code query} in this turn: its normalized text, plus anything else from the
+     * event the source sends along, since the answer may depend on it.
+     */
+    default String cacheKey(LexEvent event, String query) {
+        return FaqQueryNormalizer.normalize(query);
+    }
+
+    /**
+     * Called with the FAQ corpus version before a question is answered; sources holding their own copy of
+     * the corpus reload it when the version changes.
+     */
+    default void useCorpusVersion(String corpusVersion) throws Exception {
+    }
+
+    /** Called after a SnapStart restore; sources holding local state re-check it here. */
+    default void afterRestore() throws Exception {
+    }
+
+    static FaqAnswerSource fromEnvironment(String faqHandlerArn) {
+        String indexUri = System.getenv("FAQ_INDEX_URI");
+        if (indexUri == null || indexUri.isEmpty()) {
+            return FaqClient.fromEnvironment(LambdaAsyncClient.create(), faqHandlerArn);
+        }
+        BedrockRuntimeClient bedrockClient = BedrockRuntimeClient.builder()
+                .overrideConfiguration(override -> override.apiCallTimeout(Duration.ofMillis(maxWaitMillis())))
+                .build();
+        return InProcessFaqAnswerer.fromEnvironment(S3Client.create(), bedrockClient, indexUri);
+    }
+
+    static long maxWaitMillis() {
+        String maxWait = System.getenv("FAQ_MAX_WAIT_MS");
+        return maxWait == null || maxWait.isEmpty() ? DEFAULT_MAX_WAIT_MILLIS : Long.parseLong(maxWait);
+    }
+
+    /** How long a turn may wait for an answer: the configured maximum, cut short near the end of the invocation. */
+    static long waitMillis(long maxWaitMillis, Context context) {
+        return Math.min(maxWaitMillis, context.getRemainingTimeInMillis() - RESPONSE_MARGIN_MILLIS);
+    }
+
+    static boolean isTimeout(DownstreamUnavailableException e) {
+        return e.getCause() instanceof TimeoutException || e.getCause() instanceof ApiCallTimeoutException;
+    }
+}
@@ -0,0 +1,37 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bumps the FAQ corpus version whenever an article (.txt or .md) or index (.ivf) in the FAQ bucket is
+ * added, replaced or removed, so cached answers from the old corpus stop being served. Can also be
+ * invoked by hand with {"corpusVersion": "..."}.
+ */
+public class FaqCacheInvalidator implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+    private final FaqAnswerCache faqAnswerCache;
+
+    public FaqCacheInvalidator() {
+        this(FaqAnswerCache.fromEnvironment(DynamoDbClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build()));
+    }
+
+    public FaqCacheInvalidator(FaqAnswerCache faqAnswerCache) {
+        this.faqAnswerCache = faqAnswerCache;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+        List<Map<String, Object>> records = (List<Map<String, Object>>) event.getOrDefault("Records", List.of());
+        String requestedVersion = (String) event.get("corpusVersion");
+        String corpusVersion = requestedVersion == null || requestedVersion.isEmpty()
+                ? String.valueOf(System.currentTimeMillis()) : requestedVersion;
+        faqAnswerCache.invalidate(corpusVersion);
+        Log.info(context, () -> "FAQ corpus changed (" + records.size() + " S3 records), cache version is now " + corpusVersion);
+        return Map.of("corpusVersion", corpusVersion);
+    }
+}
@@ -0,0 +1,99 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Asks faq_handler for an answer with a {@link FaqRequest} and reads back a {@link FaqReply}. The invoke
+ * is asynchronous and waited on until the deadline {@link FaqAnswerSource#waitMillis} allows. A call that
+ * misses it fails with a {@link DownstreamUnavailableException} caused by a {@link TimeoutException}.
+ */
+public class FaqClient implements FaqAnswerSource {
+    private static final String DEFAULT_SESSION_KEYS = "Products,ProductName,ProductNumber";
+    private static final ObjectWriter REQUEST_WRITER = Json.MAPPER.writerFor(FaqRequest.class);
+    private static final ObjectReader REPLY_READER = Json.MAPPER.readerFor(FaqReply.class);
+
+    private final LambdaAsyncClient lambdaAsyncClient;
+    private final String functionName;
+    private final long maxWaitMillis;
+    private final Set<String> sessionKeys;
+    private final List<String> sortedSessionKeys;
+    private final Downstream faqLambda = Resilience.downstream(Resilience.FAQ_LAMBDA);
+
+    public FaqClient(LambdaAsyncClient lambdaAsyncClient, String functionName, long maxWaitMillis, Set<String> sessionKeys) {
+        this.lambdaAsyncClient = lambdaAsyncClient;
+        this.functionName = functionName;
+        this.maxWaitMillis = maxWaitMillis;
+        this.sessionKeys = sessionKeys;
+        this.sortedSessionKeys = sessionKeys.stream().sorted().toList();
+    }
+
+    public static FaqClient fromEnvironment(LambdaAsyncClient lambdaAsyncClient, String functionName) {
+        String sessionKeys = System.getenv().getOrDefault("FAQ_SESSION_KEYS", DEFAULT_SESSION_KEYS);
+        return new FaqClient(lambdaAsyncClient, functionName, FaqAnswerSource.maxWaitMillis(),
+                Arrays.stream(sessionKeys.split(",")).map(String::trim).filter(key -> !key.isEmpty()).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    @Override
+    public FaqReply ask(LexEvent event, String query, Context context) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FaqAnswerSource.waitMillis(maxWaitMillis, context));
+        InvokeRequest invokeRequest = InvokeRequest.builder()
+                .functionName(functionName)
+                .payload(SdkBytes.fromByteArrayUnsafe(REQUEST_WRITER.writeValueAsBytes(FaqRequest.of(event, query, sessionKeys))))
+                .build();
+
+        InvokeResponse response = faqLambda.call(() -> invokeBefore(invokeRequest, deadline));
+        return REPLY_READER.readValue(response.payload().asInputStream());
+    }
+
+    /** The normalized question and the session attributes forwarded with it, which faq_handler may answer from. */
+    @Override
+    public String cacheKey(LexEvent event, String query) {
+        StringBuilder key = new StringBuilder(FaqQueryNormalizer.normalize(query));
+        for (String sessionKey : sortedSessionKeys) {
+            Object value = event.getSessionAttributes().get(sessionKey);
+            if (value != null) {
+                key.append('|').append(sessionKey).append('=').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    private InvokeResponse invokeBefore(InvokeRequest invokeRequest, long deadline) throws Exception {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new TimeoutException("FAQ deadline passed before the call");
+        }
+        CompletableFuture<InvokeResponse> pending = lambdaAsyncClient.invoke(invokeRequest);
+        InvokeResponse response;
+        try {
+            response = pending.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            pending.cancel(true);
+            throw new TimeoutException("faq_handler did not answer within " + TimeUnit.NANOSECONDS.toMillis(remaining) + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof Exception exception ? exception : e;
+        }
+        if (response.functionError() != null) {
+            throw new DownstreamUnavailableException("FAQHandler returned " + response.functionError());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,161 @@
+package myorg;
+
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline builder of the FAQ {@link VectorIndex}: reads every .txt and .md help article under a
+ * directory, chunks them, embeds the chunks and writes the index, all on one fork/join pool.
+ *
+ * <pre>
+ * java -cp "target/customer-support-bot-0.1.jar:target/layer/java/lib/*" myorg.FaqIndexBuilder \
+ *     corpus/ faq-index.ivf [--embedder bedrock|hashing] [--dimension 256] [--lists n] [--threads n] [--chunk-words 200]
+ * </pre>
+ */
+public final class FaqIndexBuilder {
+    private static final int CHUNKS_PER_TASK = 256;
+    private static final long SEED = 42;
+
+    public record Result(int documents, int chunks, int lists, long bytes, long chunkMillis, long embedMillis, long indexMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d documents, %d chunks, %d lists, %.1f MB; chunking %d ms, embedding %d ms, indexing %d ms",
+                    documents, chunks, lists, bytes / 1e6, chunkMillis, embedMillis, indexMillis);
+        }
+    }
+
+    private final Embedder embedder;
+    private final DocumentChunker chunker;
+    private final int listCount;
+    private final ForkJoinPool pool;
+
+    /** A {@code listCount} of 0 picks {@link VectorIndexWriter#defaultListCount}. */
+    public FaqIndexBuilder(Embedder embedder, DocumentChunker chunker, int listCount, ForkJoinPool pool) {
+        this.embedder = embedder;
+        this.chunker = chunker;
+        this.listCount = listCount;
+        this.pool = pool;
+    }
+
+    public Result build(Path corpusDirectory, Path indexFile) throws IOException {
+        long start = System.nanoTime();
+        List<Path> documents;
+        try (Stream<Path> files = Files.walk(corpusDirectory)) {
+            documents = files.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".txt") || file.toString().endsWith(".md"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        if (documents.isEmpty()) {
+            throw new IllegalArgumentException("No .txt or .md documents under " + corpusDirectory);
+        }
+        List<String> chunks = chunk(documents);
+        long chunked = System.nanoTime();
+
+        float[][] embeddings = new float[chunks.size()][];
+        pool.invoke(new Embed(chunks, embeddings, 0, chunks.size()));
+        long embedded = System.nanoTime();
+
+        int lists = listCount > 0 ? listCount : VectorIndexWriter.defaultListCount(chunks.size());
+        VectorIndexWriter.write(indexFile, embedder.modelId(), Arrays.asList(embeddings), chunks, lists, SEED, pool);
+        long indexed = System.nanoTime();
+        return new Result(documents.size(), chunks.size(), Math.min(lists, chunks.size()), Files.size(indexFile),
+                (chunked - start) / 1_000_000, (embedded - chunked) / 1_000_000, (indexed - embedded) / 1_000_000);
+    }
+
+    private List<String> chunk(List<Path> documents) {
+        List<List<String>> perDocument = pool.submit(() -> documents.parallelStream().map(document -> {
+            try {
+                return chunker.chunk(Files.readString(document));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + document, e);
+            }
+        }).collect(Collectors.toList())).join();
+        List<String> chunks = new ArrayList<>();
+        perDocument.forEach(chunks::addAll);
+        return chunks;
+    }
+
+    /** Embeds {@code chunks[from, to)}; chunks are independent, so ranges split down to a fixed size. */
+    private final class Embed extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> chunks;
+        private final float[][] embeddings;
+        private final int from;
+        private final int to;
+
+        Embed(List<String> chunks, float[][] embeddings, int from, int to) {
+            this.chunks = chunks;
+            this.embeddings = embeddings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNKS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Embed(chunks, embeddings, from, middle), new Embed(chunks, embeddings, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    embeddings[i] = embedder.embed(chunks.get(i));
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to embed chunk " + i + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: FaqIndexBuilder <corpus directory> <index file> [--embedder bedrock|hashing] [--dimension n]"
+                    + " [--lists n] [--threads n] [--chunk-words n]");
+            System.exit(2);
+        }
+        String embedderName = "bedrock";
+        int dimension = BedrockEmbedder.DEFAULT_DIMENSION;
+        int lists = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkWords = 200;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--embedder" -> embedderName = args[i + 1];
+                case "--dimension" -> dimension = Integer.parseInt(args[i + 1]);
+                case "--lists" -> lists = Integer.parseInt(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--chunk-words" -> chunkWords = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Embedder embedder = switch (embedderName) {
+            case "bedrock" -> new BedrockEmbedder(BedrockRuntimeClient.create(), BedrockEmbedder.DEFAULT_MODEL, dimension);
+            case "hashing" -> new HashingEmbedder(dimension);
+            default -> throw new IllegalArgumentException("Unknown embedder " + embedderName);
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Path indexFile = Path.of(args[1]);
+            Result result = new FaqIndexBuilder(embedder, new DocumentChunker(chunkWords, chunkWords / 5), lists, pool)
+                    .build(Path.of(args[0]), indexFile);
+            System.out.println("Wrote " + indexFile + " with " + embedder.modelId() + " on " + threads + " threads: " + result);
+            System.out.println("Upload it to s3://customer-support-faq/ and point FAQ_INDEX_URI at it; the upload also retires cached FAQ answers.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
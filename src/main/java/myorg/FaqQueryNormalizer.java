@@ -0,0 +1,49 @@
+package myorg;
+
+import java.util.Set;
+
+/**
+ * Turns an FAQ question into a cache key: lower case, punctuation dropped, filler words removed,
+ * whitespace collapsed. "Hi, how do I reset the printer?" and "how do I reset printer please" share a
+ * key. Only articles, greetings and courtesies are filler: words such as "can", "should", "what" or
+ * "how" change the question, and dropping them would serve one question's answer for another.
+ */
+public final class FaqQueryNormalizer {
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "a", "an", "the", "please", "kindly", "hi", "hello", "hey", "thanks", "thank");
+
+    private FaqQueryNormalizer() {
+    }
+
+    /** The question as Lex filled it into the Query slot, or the raw transcript when the slot is empty. */
+    public static String queryText(LexEvent event) {
+        String query = event.getSlots().get("Query");
+        return query == null || query.isBlank() ? event.getInputTranscript() : query;
+    }
+
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(query.length());
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? Character.toLowerCase(query.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (c == '\'') {
+                // "what's" and "whats" should meet.
+            } else if (word.length() > 0) {
+                String token = word.toString();
+                if (!FILLER_WORDS.contains(token)) {
+                    if (key.length() > 0) {
+                        key.append(' ');
+                    }
+                    key.append(token);
+                }
+                word.setLength(0);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package myorg;
+
+/**
+ * The fields of a faq_handler response the bot uses; everything else in the reply is skipped while parsing.
+ */
+public record FaqReply(DialogAction dialogAction) {
+    public record DialogAction(String fulfillmentState, Message message) {
+    }
+
+    public record Message(String content) {
+    }
+
+    public static FaqReply of(String fulfillmentState, String content) {
+        return new FaqReply(new DialogAction(fulfillmentState, new Message(content)));
+    }
+
+    public String fulfillmentState() {
+        return dialogAction.fulfillmentState();
+    }
+
+    public String content() {
+        return dialogAction.message().content();
+    }
+
+    public boolean isComplete() {
+        return dialogAction != null && dialogAction.fulfillmentState() != null
+                && dialogAction.message() != null && dialogAction.message().content() != null;
+    }
+}
@@ -0,0 +1,43 @@
+package myorg;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What faq_handler is sent: a Lex V2 event cut down to the session id, the transcript, the Query slot
+ * and a few session attributes. It keeps the Lex shape so the function reads it the same way it reads
+ * events from Lex itself.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record FaqRequest(String sessionId, String inputTranscript, SessionState sessionState) {
+    static final String INTENT_NAME = "FAQIntent";
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public record SessionState(Intent intent, Map<String, String> sessionAttributes) {
+    }
+
+    public record Intent(String name, Map<String, Slot> slots) {
+    }
+
+    public record Slot(SlotValue value) {
+    }
+
+    public record SlotValue(String originalValue, String interpretedValue) {
+    }
+
+    public static FaqRequest of(LexEvent event, String query, Set<String> sessionKeys) {
+        Map<String, String> sessionAttributes = new HashMap<>();
+        for (String key : sessionKeys) {
+            Object value = event.getSessionAttributes().get(key);
+            if (value != null) {
+                sessionAttributes.put(key, value.toString());
+            }
+        }
+        Map<String, Slot> slots = query == null ? Map.of() : Map.of("Query", new Slot(new SlotValue(query, query)));
+        return new FaqRequest(event.getSessionId(), event.getInputTranscript(),
+                new SessionState(new Intent(INTENT_NAME, slots), sessionAttributes));
+    }
+}
@@ -0,0 +1,65 @@
+package myorg;
+
+/**
+ * A deterministic local embedder: words and word pairs are hashed into signed buckets and the result is
+ * normalized. It needs no network, so index builds and retrieval can be run and compared offline; its
+ * quality is that of a bag of words, not of a language model.
+ */
+public class HashingEmbedder implements Embedder {
+    public static final String MODEL = "hashing-v1";
+    private static final float BIGRAM_WEIGHT = 0.5f;
+
+    private final int dimension;
+
+    public HashingEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String modelId() {
+        return MODEL + "/" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        String key = FaqQueryNormalizer.normalize(text);
+        int previous = 0;
+        int start = 0;
+        for (int i = 0; i <= key.length(); i++) {
+            if (i < key.length() && key.charAt(i) != ' ') {
+                continue;
+            }
+            if (i > start) {
+                int word = mix(key.substring(start, i).hashCode());
+                add(vector, word, 1f);
+                if (previous != 0) {
+                    add(vector, mix(previous * 31 + word), BIGRAM_WEIGHT);
+                }
+                previous = word;
+            }
+            start = i + 1;
+        }
+        VectorIndexWriter.normalize(vector);
+        return vector;
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        vector[Math.floorMod(hash, dimension)] += (hash & 0x40000000) == 0 ? weight : -weight;
+    }
+
+    /** The MurmurHash3 finalizer; String.hashCode alone leaves similar words in neighbouring buckets. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,269 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InferenceConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.SystemContentBlock;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers FAQ questions without the faq_handler hop: the question is embedded, the closest help article
+ * chunks are read from a {@link VectorIndex} mapped from /tmp, and Bedrock writes the answer from them.
+ * When no chunk is similar enough the bot says so instead of letting the model guess.
+ *
+ * <p>A {@link Bm25Index} over the same chunks is asked first. A confident lexical match, typically an
+ * exact model number or error code, is answered with its chunk and neither embedding nor generation is
+ * called. A chunk longer than a Lex message is cut after its last sentence that fits, or left to generation
+ * when even its first sentence does not. Otherwise the lexical and dense candidates are merged by
+ * reciprocal rank before generation.
+ */
+public class InProcessFaqAnswerer implements FaqAnswerSource {
+    public static final String DEFAULT_MODEL = "anthropic.claude-3-haiku-20240307-v1:0";
+    private static final int DEFAULT_TOP_K = 4;
+    private static final int DEFAULT_NPROBE = 16;
+    private static final float DEFAULT_MIN_SCORE = 0.3f;
+    private static final float MIN_LEXICAL_COVERAGE = 0.5f;
+    private static final int RANK_FUSION_K = 60;
+    private static final int MAX_ANSWER_TOKENS = 400;
+    // Lex V2 rejects a message longer than this.
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final Path LOCAL_INDEX_DIRECTORY = Path.of("/tmp/faq-index");
+    private static final String SYSTEM_PROMPT = "You are the HP SmartBot customer support assistant. Answer the customer's question "
+            + "using only the help article excerpts provided. Keep the answer short and friendly. If the excerpts do not "
+            + "answer the question, say that you don't know and suggest contacting HP support.";
+    static final String NOT_FOUND = "I couldn't find an answer to that in our help articles. Could you rephrase your question ?";
+
+    private final IndexSource indexSource;
+    private final Embedder embedder;
+    private final BedrockRuntimeClient bedrockClient;
+    private final String model;
+    private final int topK;
+    private final int nprobe;
+    private final float minScore;
+    private final long maxWaitMillis;
+    private final boolean lexicalAnswers;
+    private final Downstream bedrock = Resilience.downstream(Resilience.BEDROCK);
+    private volatile Path indexFile;
+    private volatile Indexes indexes;
+    private volatile String corpusVersion;
+
+    /** Both views of one index file, swapped together. */
+    private record Indexes(VectorIndex vectors, Bm25Index lexical) {
+    }
+
+    /** Where the latest index file lives locally, copied there first if this container does not have it yet. */
+    @FunctionalInterface
+    public interface IndexSource {
+        Path fetch() throws IOException;
+    }
+
+    public InProcessFaqAnswerer(IndexSource indexSource, Embedder embedder, BedrockRuntimeClient bedrockClient, String model,
+                                int topK, int nprobe, float minScore, long maxWaitMillis, boolean lexicalAnswers) throws IOException {
+        this.indexSource = indexSource;
+        this.embedder = embedder;
+        this.bedrockClient = bedrockClient;
+        this.model = model;
+        this.topK = topK;
+        this.nprobe = nprobe;
+        this.minScore = minScore;
+        this.maxWaitMillis = maxWaitMillis;
+        this.lexicalAnswers = lexicalAnswers;
+        this.indexFile = indexSource.fetch();
+        this.indexes = open(indexFile);
+    }
+
+    public static InProcessFaqAnswerer fromEnvironment(S3Client s3Client, BedrockRuntimeClient bedrockClient, String indexUri) {
+        String dimension = System.getenv("FAQ_EMBEDDING_DIMENSION");
+        String topK = System.getenv("FAQ_TOP_K");
+        String nprobe = System.getenv("FAQ_NPROBE");
+        String minScore = System.getenv("FAQ_MIN_SCORE");
+        String embeddingModel = System.getenv().getOrDefault("FAQ_EMBEDDING_MODEL", BedrockEmbedder.DEFAULT_MODEL);
+        int embeddingDimension = dimension == null || dimension.isEmpty() ? BedrockEmbedder.DEFAULT_DIMENSION : Integer.parseInt(dimension);
+        Embedder embedder = HashingEmbedder.MODEL.equals(embeddingModel)
+                ? new HashingEmbedder(embeddingDimension)
+                : new BedrockEmbedder(bedrockClient, embeddingModel, embeddingDimension);
+        try {
+            return new InProcessFaqAnswerer(() -> fetch(s3Client, indexUri), embedder, bedrockClient,
+                    System.getenv().getOrDefault("FAQ_MODEL_ID", DEFAULT_MODEL),
+                    topK == null || topK.isEmpty() ? DEFAULT_TOP_K : Integer.parseInt(topK),
+                    nprobe == null || nprobe.isEmpty() ? DEFAULT_NPROBE : Integer.parseInt(nprobe),
+                    minScore == null || minScore.isEmpty() ? DEFAULT_MIN_SCORE : Float.parseFloat(minScore),
+                    FaqAnswerSource.maxWaitMillis(),
+                    !"false".equalsIgnoreCase(System.getenv("FAQ_LEXICAL_ANSWERS")));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the FAQ index from " + indexUri, e);
+        }
+    }
+
+    /**
+     * Copies an s3://bucket/key index into /tmp, named after the object's ETag so a rebuilt index is a new
+     * file and an unchanged one is not downloaded again; copies of older builds are deleted. Any other URI
+     * is taken as a local path.
+     */
+    static Path fetch(S3Client s3Client, String indexUri) throws IOException {
+        if (!indexUri.startsWith("s3://")) {
+            return Path.of(indexUri);
+        }
+        int slash = indexUri.indexOf('/', "s3://".length());
+        String bucket = indexUri.substring("s3://".length(), slash);
+        String key = indexUri.substring(slash + 1);
+        HeadObjectResponse head = s3Client.headObject(request -> request.bucket(bucket).key(key));
+        String fileName = Path.of(key).getFileName().toString();
+        Path local = LOCAL_INDEX_DIRECTORY.resolve(fileName + "." + head.eTag().replace("\"", ""));
+        if (Files.exists(local)) {
+            return local;
+        }
+        Files.createDirectories(LOCAL_INDEX_DIRECTORY);
+        Path partial = local.resolveSibling(local.getFileName() + ".partial");
+        Files.deleteIfExists(partial);
+        // If the index is replaced again in between, the download fails rather than filing the new bytes under the old ETag.
+        s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).ifMatch(head.eTag()).build(), ResponseTransformer.toFile(partial));
+        Files.move(partial, local, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // An older copy may still be mapped; the mapping outlives the file.
+        try (DirectoryStream<Path> copies = Files.newDirectoryStream(LOCAL_INDEX_DIRECTORY, fileName + ".*")) {
+            for (Path copy : copies) {
+                if (!copy.equals(local)) {
+                    Files.deleteIfExists(copy);
+                }
+            }
+        }
+        return local;
+    }
+
+    private Indexes open(Path file) throws IOException {
+        VectorIndex opened = VectorIndex.open(file);
+        if (!opened.modelId().equals(embedder.modelId())) {
+            throw new IllegalStateException("FAQ index " + file + " was built with " + opened.modelId() + ", queries use " + embedder.modelId());
+        }
+        return new Indexes(opened, Bm25Index.build(opened));
+    }
+
+    public VectorIndex index() {
+        return indexes.vectors();
+    }
+
+    public Bm25Index lexicalIndex() {
+        return indexes.lexical();
+    }
+
+    @Override
+    public FaqReply ask(LexEvent event, String query, Context context) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FaqAnswerSource.waitMillis(maxWaitMillis, context));
+        Indexes current = indexes;
+        Bm25Index.Matches lexical = current.lexical().search(query, topK);
+        if (lexicalAnswers && lexical.confident()) {
+            String answer = fitMessage(current.vectors().text(lexical.hits().get(0).chunk()));
+            if (answer != null) {
+                return FaqReply.of("Fulfilled", answer);
+            }
+        }
+        float[] embedding = bedrock.call(() -> embedder.embed(query));
+        List<VectorIndex.Hit> dense = current.vectors().search(embedding, topK, nprobe);
+        if (!dense.isEmpty() && dense.get(0).score() < minScore) {
+            dense = List.of();
+        }
+        List<VectorIndex.Hit> hits = fuse(dense, lexical.coverage() >= MIN_LEXICAL_COVERAGE ? lexical.hits() : List.of(), topK);
+        if (hits.isEmpty()) {
+            Log.debug(context, () -> "No FAQ chunk above " + minScore + " for: " + query);
+            return FaqReply.of("Failed", NOT_FOUND);
+        }
+
+        StringBuilder prompt = new StringBuilder("Help article excerpts:\n");
+        for (int i = 0; i < hits.size(); i++) {
+            prompt.append('[').append(i + 1).append("] ").append(current.vectors().text(hits.get(i).chunk())).append('\n');
+        }
+        prompt.append("\nQuestion: ").append(query);
+        ConverseResponse response = bedrock.call(() -> {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException("FAQ deadline passed before generation");
+            }
+            return bedrockClient.converse(ConverseRequest.builder()
+                    .modelId(model)
+                    .system(SystemContentBlock.fromText(SYSTEM_PROMPT))
+                    .messages(Message.builder().role(ConversationRole.USER).content(ContentBlock.fromText(prompt.toString())).build())
+                    .inferenceConfig(InferenceConfiguration.builder().maxTokens(MAX_ANSWER_TOKENS).temperature(0.2f).build())
+                    .overrideConfiguration(override -> override.apiCallTimeout(Duration.ofNanos(remaining)))
+                    .build());
+        });
+        return FaqReply.of("Fulfilled", response.output().message().content().get(0).text());
+    }
+
+    /** The text up to its last sentence end within a Lex message, or null when no sentence ends in time. */
+    static String fitMessage(String text) {
+        if (text.length() <= MAX_MESSAGE_LENGTH) {
+            return text;
+        }
+        for (int end = MAX_MESSAGE_LENGTH - 1; end > 0; end--) {
+            char c = text.charAt(end);
+            if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(text.charAt(end + 1))) {
+                return text.substring(0, end + 1);
+            }
+        }
+        return null;
+    }
+
+    /** Reciprocal rank fusion: a chunk scores the sum of 1 / (60 + rank) over the lists it is in. */
+    static List<VectorIndex.Hit> fuse(List<VectorIndex.Hit> dense, List<VectorIndex.Hit> lexical, int k) {
+        Map<Integer, Float> scores = new HashMap<>();
+        for (List<VectorIndex.Hit> ranking : List.of(dense, lexical)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank).chunk(), 1f / (RANK_FUSION_K + rank + 1), Float::sum);
+            }
+        }
+        List<VectorIndex.Hit> fused = new ArrayList<>(scores.size());
+        scores.forEach((chunk, score) -> fused.add(new VectorIndex.Hit(chunk, score)));
+        fused.sort((a, b) -> a.score() != b.score() ? Float.compare(b.score(), a.score()) : Integer.compare(a.chunk(), b.chunk()));
+        return fused.subList(0, Math.min(k, fused.size()));
+    }
+
+    /** Reloads the index when the corpus version has moved on since it was last checked, so new answers come from the new corpus. */
+    @Override
+    public void useCorpusVersion(String version) throws IOException {
+        if (version.equals(corpusVersion)) {
+            return;
+        }
+        synchronized (this) {
+            if (!version.equals(corpusVersion)) {
+                reload();
+                corpusVersion = version;
+            }
+        }
+    }
+
+    @Override
+    public void afterRestore() throws IOException {
+        // The snapshot may be older than the index in S3, and a restored one keeps the mapping but not necessarily the file behind it.
+        reload();
+    }
+
+    private synchronized void reload() throws IOException {
+        Path latest = indexSource.fetch();
+        if (!latest.equals(indexFile) || !Files.exists(indexFile)) {
+            indexes = open(latest);
+            indexFile = latest;
+        }
+    }
+}
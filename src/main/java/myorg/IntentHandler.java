@@ -0,0 +1,8 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+@FunctionalInterface
+public interface IntentHandler {
+    LexResponse handle(LexEvent event, Context context);
+}
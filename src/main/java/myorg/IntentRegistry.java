@@ -0,0 +1,66 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves intent names to handlers with one hash lookup. Every handler, including the fallback used for
+ * unregistered intents, is timed into its own {@link Metrics} group, keyed by the registered name so
+ * unknown intent names cannot add dimensions. Build it once per container.
+ */
+public class IntentRegistry {
+    private final Map<String, Registration> handlers = new HashMap<>();
+    private final Registration fallback;
+
+    public IntentRegistry(String fallbackName, IntentHandler fallbackHandler) {
+        this.fallback = new Registration(fallbackName, fallbackHandler);
+        handlers.put(fallbackName, fallback);
+    }
+
+    public IntentRegistry register(String intentName, IntentHandler handler) {
+        handlers.put(intentName, new Registration(intentName, handler));
+        return this;
+    }
+
+    public LexResponse dispatch(LexEvent event, Context context) {
+        Registration registration = handlers.getOrDefault(event.getIntentName(), fallback);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            LexResponse response = registration.handler.handle(event, context);
+            failed = false;
+            return response;
+        } finally {
+            registration.invocations.increment();
+            if (failed) {
+                registration.errors.increment();
+            }
+            registration.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Metrics.Group> stats() {
+        Map<String, Metrics.Group> stats = new LinkedHashMap<>();
+        handlers.forEach((name, registration) -> stats.put(name, registration.metrics));
+        return stats;
+    }
+
+    private static final class Registration {
+        private final IntentHandler handler;
+        private final Metrics.Group metrics;
+        private final Metrics.Counter invocations;
+        private final Metrics.Counter errors;
+        private final LatencyHistogram latency;
+
+        private Registration(String intentName, IntentHandler handler) {
+            this.handler = handler;
+            this.metrics = Metrics.register(new Metrics.Group(Metrics.INTENT, intentName));
+            this.invocations = metrics.counter("Invocations");
+            this.errors = metrics.counter("Errors");
+            this.latency = metrics.histogram("Latency");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package myorg;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds: every power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so a recorded latency is known to within 1/16 of its value with a
+ * fixed array and no samples kept. {@link #drain()} takes what was recorded since the previous drain.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Up to 2^40 µs, about 12 days; longer latencies land in the last bucket.
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final Snapshot EMPTY = new Snapshot(new long[0], new long[0], 0, 0, 0, 0);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxMicros = new AtomicLong(-1);
+
+    /** Non-empty buckets as their midpoints and counts, with the exact count, sum, min and max, all in microseconds. */
+    public record Snapshot(long[] valuesMicros, long[] counts, long count, long sumMicros, long minMicros, long maxMicros) {
+        public boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketFor(micros));
+        sumMicros.addAndGet(micros);
+        minMicros.accumulateAndGet(micros, Math::min);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    static int bucketFor(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long midpointOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + subBucket * width + width / 2;
+    }
+
+    public boolean hasSamples() {
+        return maxMicros.get() >= 0;
+    }
+
+    /**
+     * Returns and clears what was recorded since the last drain. Recording while draining is safe; a latency
+     * recorded meanwhile may have its bucket in this snapshot and its sum, min or max in the next.
+     */
+    public Snapshot drain() {
+        if (!hasSamples()) {
+            return EMPTY;
+        }
+        long max = maxMicros.getAndSet(-1);
+        long min = minMicros.getAndSet(Long.MAX_VALUE);
+        long sum = sumMicros.getAndSet(0);
+        long[] values = new long[4];
+        long[] bucketCounts = new long[4];
+        int nonEmpty = 0;
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = counts.get(i) == 0 ? 0 : counts.getAndSet(i, 0);
+            if (bucketCount != 0) {
+                if (nonEmpty == values.length) {
+                    values = Arrays.copyOf(values, nonEmpty * 2);
+                    bucketCounts = Arrays.copyOf(bucketCounts, nonEmpty * 2);
+                }
+                values[nonEmpty] = midpointOf(i);
+                bucketCounts[nonEmpty++] = bucketCount;
+                count += bucketCount;
+            }
+        }
+        return count == 0 ? EMPTY : new Snapshot(Arrays.copyOf(values, nonEmpty), Arrays.copyOf(bucketCounts, nonEmpty),
+                count, sum, min == Long.MAX_VALUE ? max : min, Math.max(max, 0));
+    }
+}
@@ -0,0 +1,117 @@
+package myorg;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of a Lex V2 code hook event the bot reads, decoded in a single walk over the event map
+ * the Lambda runtime already deserialized. Slots are reduced to their interpreted values.
+ */
+public class LexEvent {
+    private final String sessionId;
+    private final String inputTranscript;
+    private final String intentName;
+    private final Map<String, String> slots;
+    private final Map<String, Object> sessionAttributes;
+    private final Map<String, Object> source;
+
+    public LexEvent(String sessionId, String inputTranscript, String intentName, Map<String, String> slots,
+                    Map<String, Object> sessionAttributes, Map<String, Object> source) {
+        this.sessionId = sessionId;
+        this.inputTranscript = inputTranscript;
+        this.intentName = intentName;
+        this.slots = slots;
+        this.sessionAttributes = sessionAttributes;
+        this.source = source;
+    }
+
+    public static LexEvent fromMap(Map<String, Object> event) {
+        Object sessionId = event.get("sessionId");
+        Object inputTranscript = event.get("inputTranscript");
+
+        Map<String, Object> sessionState = asMap(event.get("sessionState"));
+        if (sessionState == null) {
+            throw new IllegalStateException("Session state is missing in the event");
+        }
+        Map<String, Object> intent = asMap(sessionState.get("intent"));
+        if (intent == null) {
+            throw new IllegalStateException("Intent is missing in the sessionState");
+        }
+        Object intentName = intent.get("name");
+
+        Map<String, Object> sessionAttributes = new HashMap<>();
+        Map<String, Object> attributes = asMap(sessionState.get("sessionAttributes"));
+        if (attributes != null) {
+            sessionAttributes.putAll(attributes);
+        }
+
+        Map<String, String> slots = Collections.emptyMap();
+        Map<String, Object> slotMap = asMap(intent.get("slots"));
+        if (slotMap != null && !slotMap.isEmpty()) {
+            slots = new HashMap<>();
+            for (Map.Entry<String, Object> slot : slotMap.entrySet()) {
+                String value = interpretedValue(slot.getValue());
+                if (value != null) {
+                    slots.put(slot.getKey(), value);
+                }
+            }
+        }
+
+        return new LexEvent(
+                sessionId != null ? sessionId.toString() : "unknown",
+                inputTranscript != null ? inputTranscript.toString() : null,
+                intentName != null ? intentName.toString() : "UnknownIntent",
+                slots,
+                sessionAttributes,
+                event);
+    }
+
+    static String interpretedValue(Object slot) {
+        Map<String, Object> slotMap = asMap(slot);
+        if (slotMap == null) {
+            return null;
+        }
+        Map<String, Object> value = asMap(slotMap.get("value"));
+        if (value == null || value.get("interpretedValue") == null) {
+            return null;
+        }
+        return stripQuotes(value.get("interpretedValue").toString());
+    }
+
+    static String stripQuotes(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getInputTranscript() {
+        return inputTranscript;
+    }
+
+    public String getIntentName() {
+        return intentName;
+    }
+
+    public Map<String, String> getSlots() {
+        return slots;
+    }
+
+    public Map<String, Object> getSessionAttributes() {
+        return sessionAttributes;
+    }
+
+    public Map<String, Object> getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,305 @@
+package myorg;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Lex V2 fulfillment response. {@link #toMap()} gives the nested maps {@link SimpleHandler} returns to
+ * the Lambda runtime; {@link #writeTo} streams the same JSON straight to an output stream. A reply whose
+ * text never changes is a {@link Template}: its JSON is encoded once, and each response only writes the
+ * slots and session attributes between the pre-encoded bytes.
+ */
+public final class LexResponse {
+    private static final Set<String> ELICITABLE_SLOTS = Set.of("OrderNumber", "ActionType", "ShippingAddress", "PaymentMethod",
+            "CardNumber", "ExpirationDate", "CVV", "Products", "ProductName", "ProductNumber", "Name", "Email", "SuggestionResponse");
+    private static final Map<String, Set<String>> INTENT_SLOTS = Map.of(
+            "OrderHPItemIntent", Set.of("Products", "ProductName", "ProductNumber", "Name", "ShippingAddress", "Email", "PaymentMethod",
+                    "CardNumber", "ExpirationDate", "CVV", "SuggestionResponse"),
+            "ChangeOrderIntent", Set.of("OrderNumber", "ActionType", "ShippingAddress", "CardNumber", "ExpirationDate", "CVV"));
+
+    public record Button(String text, String value) {
+    }
+
+    /** An image response card; {@code title} may be null. */
+    public record Card(String title, String subtitle, List<Button> buttons) {
+    }
+
+    /** Plain text when {@code card} is null, an image response card otherwise. */
+    private record Message(String content, Card card) {
+    }
+
+    private final String intentName;
+    private final String intentState;
+    private final String slotToElicit;
+    private final String fulfillmentState;
+    private final Set<String> intentSlots;
+    private final Map<String, Object> sessionAttributes;
+    private final List<Message> messages;
+    private final Template template;
+
+    private LexResponse(String intentName, String intentState, String slotToElicit, String fulfillmentState, boolean withSlots,
+                        Map<String, Object> sessionAttributes, List<Message> messages, Template template) {
+        this.intentName = intentName;
+        this.intentState = intentState;
+        this.slotToElicit = slotToElicit != null && ELICITABLE_SLOTS.contains(slotToElicit) ? slotToElicit : null;
+        this.fulfillmentState = fulfillmentState;
+        this.intentSlots = withSlots ? INTENT_SLOTS.getOrDefault(intentName, Set.of()) : null;
+        this.sessionAttributes = sessionAttributes != null ? sessionAttributes : new HashMap<>();
+        this.messages = messages;
+        this.template = template;
+    }
+
+    /** Elicits {@code slotToElicit}, or closes the dialog when it is null or not a slot of this bot. */
+    public static LexResponse text(String intentName, String message, String intentState, Map<String, Object> sessionAttributes,
+                                   String slotToElicit) {
+        return new LexResponse(intentName, intentState, slotToElicit, null, true, sessionAttributes,
+                List.of(new Message(message, null)), null);
+    }
+
+    public static LexResponse textAndCard(String intentName, String message, String intentState, Map<String, Object> sessionAttributes,
+                                          String slotToElicit, Card card) {
+        return new LexResponse(intentName, intentState, slotToElicit, null, true, sessionAttributes,
+                List.of(new Message(message, null), new Message(null, card)), null);
+    }
+
+    public static LexResponse card(String intentName, String intentState, Map<String, Object> sessionAttributes, String slotToElicit,
+                                   Card card) {
+        return new LexResponse(intentName, intentState, slotToElicit, null, true, sessionAttributes,
+                List.of(new Message(null, card)), null);
+    }
+
+    /** Closes an FAQ turn: the dialog action carries the fulfillment state and the intent has no slots. */
+    public static LexResponse faq(String fulfillmentState, String content, Map<String, Object> sessionAttributes) {
+        return new LexResponse("FAQIntent", fulfillmentState, null, fulfillmentState, false, sessionAttributes,
+                List.of(new Message(content, null)), null);
+    }
+
+    public static Template template(String intentName, String message, String intentState, String slotToElicit) {
+        return new Template(text(intentName, message, intentState, Map.of(), slotToElicit));
+    }
+
+    public String intentName() {
+        return intentName;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> dialogAction = new HashMap<>();
+        dialogAction.put("type", slotToElicit != null ? "ElicitSlot" : "Close");
+        if (slotToElicit != null) {
+            dialogAction.put("slotToElicit", slotToElicit);
+        }
+        if (fulfillmentState != null) {
+            dialogAction.put("fulfillmentState", fulfillmentState);
+        }
+
+        Map<String, Object> intent = new HashMap<>();
+        intent.put("name", intentName);
+        intent.put("state", intentState);
+        if (intentSlots != null) {
+            Map<String, Object> slots = new HashMap<>();
+            sessionAttributes.forEach((name, value) -> {
+                if (intentSlots.contains(name)) {
+                    slots.put(name, Map.of("value", Map.of("interpretedValue", value)));
+                }
+            });
+            intent.put("slots", slots);
+        }
+
+        Object[] messageMaps = new Object[messages.size()];
+        for (int i = 0; i < messageMaps.length; i++) {
+            Message message = messages.get(i);
+            if (message.card() == null) {
+                messageMaps[i] = Map.of("contentType", "PlainText", "content", message.content());
+                continue;
+            }
+            List<Map<String, String>> buttons = new ArrayList<>();
+            for (Button button : message.card().buttons()) {
+                buttons.add(Map.of("text", button.text(), "value", button.value()));
+            }
+            Map<String, Object> card = new HashMap<>();
+            if (message.card().title() != null) {
+                card.put("title", message.card().title());
+            }
+            card.put("subtitle", message.card().subtitle());
+            card.put("buttons", buttons);
+            messageMaps[i] = Map.of("contentType", "ImageResponseCard", "imageResponseCard", card);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("sessionState", Map.of(
+                "dialogAction", dialogAction,
+                "intent", intent,
+                "sessionAttributes", sessionAttributes));
+        response.put("messages", messageMaps);
+        return response;
+    }
+
+    /** Writes the response as UTF-8 JSON; {@code out} is flushed, not closed. */
+    public void writeTo(OutputStream out) throws IOException {
+        try (JsonGenerator generator = Json.MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (template != null) {
+                // Bare values follow one another at the root of this generator; nothing may separate them.
+                generator.setRootValueSeparator(null);
+                generator.writeRaw(template.head);
+                writeSlots(generator);
+                generator.writeRaw(template.middle);
+                writeSessionAttributes(generator);
+                generator.writeRaw(template.tail);
+            } else {
+                write(generator, null);
+            }
+        }
+    }
+
+    /**
+     * Writes the whole response. {@code marks}, when given, receives the number of bytes written so far
+     * just before and just after the slots and session attributes, which is where a template is cut.
+     */
+    private void write(JsonGenerator generator, List<Integer> marks) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("sessionState");
+
+        generator.writeObjectFieldStart("dialogAction");
+        generator.writeStringField("type", slotToElicit != null ? "ElicitSlot" : "Close");
+        if (slotToElicit != null) {
+            generator.writeStringField("slotToElicit", slotToElicit);
+        }
+        if (fulfillmentState != null) {
+            generator.writeStringField("fulfillmentState", fulfillmentState);
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("intent");
+        generator.writeStringField("name", intentName);
+        generator.writeStringField("state", intentState);
+        if (intentSlots != null) {
+            generator.writeFieldName("slots");
+            mark(generator, marks);
+            writeSlots(generator);
+            mark(generator, marks);
+        }
+        generator.writeEndObject();
+
+        generator.writeFieldName("sessionAttributes");
+        mark(generator, marks);
+        writeSessionAttributes(generator);
+        mark(generator, marks);
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("messages");
+        for (Message message : messages) {
+            generator.writeStartObject();
+            if (message.card() == null) {
+                generator.writeStringField("contentType", "PlainText");
+                generator.writeStringField("content", message.content());
+            } else {
+                generator.writeStringField("contentType", "ImageResponseCard");
+                generator.writeObjectFieldStart("imageResponseCard");
+                if (message.card().title() != null) {
+                    generator.writeStringField("title", message.card().title());
+                }
+                generator.writeStringField("subtitle", message.card().subtitle());
+                generator.writeArrayFieldStart("buttons");
+                for (Button button : message.card().buttons()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("text", button.text());
+                    generator.writeStringField("value", button.value());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void mark(JsonGenerator generator, List<Integer> marks) throws IOException {
+        if (marks != null) {
+            generator.flush();
+            marks.add(((ByteArrayOutputStream) generator.getOutputTarget()).size());
+        }
+    }
+
+    private void writeSlots(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> attribute : sessionAttributes.entrySet()) {
+            if (intentSlots.contains(attribute.getKey())) {
+                generator.writeObjectFieldStart(attribute.getKey());
+                generator.writeObjectFieldStart("value");
+                generator.writeFieldName("interpretedValue");
+                writeValue(generator, attribute.getValue());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeSessionAttributes(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> attribute : sessionAttributes.entrySet()) {
+            generator.writeFieldName(attribute.getKey());
+            writeValue(generator, attribute.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof String text) {
+            generator.writeString(text);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * A reply that differs between turns only in its slots and session attributes. The JSON around them is
+     * encoded when the template is made.
+     */
+    public static final class Template {
+        private final LexResponse prototype;
+        private final SerializedString head;
+        private final SerializedString middle;
+        private final SerializedString tail;
+
+        private Template(LexResponse prototype) {
+            this.prototype = prototype;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            List<Integer> marks = new ArrayList<>();
+            try (JsonGenerator generator = Json.MAPPER.getFactory().createGenerator(bytes, JsonEncoding.UTF8)) {
+                prototype.write(generator, marks);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] json = bytes.toByteArray();
+            // The generator writes a field's colon along with its value, so each value starts one byte after its mark.
+            this.head = segment(json, 0, marks.get(0) + 1);
+            this.middle = segment(json, marks.get(1), marks.get(2) + 1);
+            this.tail = segment(json, marks.get(3), json.length);
+        }
+
+        private static SerializedString segment(byte[] json, int from, int to) {
+            return new SerializedString(new String(json, from, to - from, StandardCharsets.UTF_8));
+        }
+
+        public LexResponse with(Map<String, Object> sessionAttributes) {
+            return new LexResponse(prototype.intentName, prototype.intentState, prototype.slotToElicit, null, true, sessionAttributes,
+                    prototype.messages, this);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Logging for the handlers: one compact JSON object per line, written through the Lambda logger. Messages
+ * are suppliers, so nothing is built for a line below LOG_LEVEL (DEBUG, INFO, WARN, ERROR or OFF; INFO by
+ * default). LOG_SAMPLE_RATE is the fraction of sessions logged at DEBUG whatever the level, picked by
+ * session ID so a sampled dialog is logged whole. Card numbers, CVVs and email addresses are redacted
+ * from every line; Lex events are first redacted by their structure with {@link CardDetailRedactor}.
+ */
+public final class Log {
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int SAMPLE_BUCKETS = 10_000;
+    // How far past a mention of the CVV its value may be, e.g. a slot's original, resolved and interpreted values.
+    private static final int CVV_WINDOW = 160;
+
+    private record Turn(String sessionId, boolean sampled) {
+    }
+
+    private static final Turn NO_TURN = new Turn(null, false);
+    private static final ThreadLocal<Turn> TURN = ThreadLocal.withInitial(() -> NO_TURN);
+
+    private static volatile Level threshold = parseLevel(System.getenv("LOG_LEVEL"));
+    private static volatile int sampledBuckets = parseSampleRate(System.getenv("LOG_SAMPLE_RATE"));
+
+    private Log() {
+    }
+
+    /** Replaces the LOG_LEVEL and LOG_SAMPLE_RATE settings, for local runs and benchmarks. */
+    public static void configure(Level level, double sampleRate) {
+        threshold = level;
+        sampledBuckets = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * SAMPLE_BUCKETS);
+    }
+
+    /** Starts a turn of {@code sessionId} on this thread; lines up to the next turn carry the session ID. */
+    public static void beginTurn(String sessionId) {
+        boolean sampled = sampledBuckets > 0 && sessionId != null
+                && Integer.remainderUnsigned(mix(sessionId.hashCode()), SAMPLE_BUCKETS) < sampledBuckets;
+        TURN.set(sessionId == null ? NO_TURN : new Turn(sessionId, sampled));
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0 || sampledBuckets > 0 && TURN.get().sampled();
+    }
+
+    public static void debug(Context context, Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            write(context, Level.DEBUG, message.get(), null);
+        }
+    }
+
+    public static void info(Context context, Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            write(context, Level.INFO, message.get(), null);
+        }
+    }
+
+    public static void warn(Context context, Supplier<String> message) {
+        if (isEnabled(Level.WARN)) {
+            write(context, Level.WARN, message.get(), null);
+        }
+    }
+
+    public static void error(Context context, Supplier<String> message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            write(context, Level.ERROR, message.get(), error);
+        }
+    }
+
+    private static void write(Context context, Level level, String message, Throwable error) {
+        StringBuilder line = new StringBuilder(message.length() + 96);
+        line.append("{\"level\":\"").append(level).append('"');
+        field(line, "requestId", context.getAwsRequestId());
+        field(line, "sessionId", TURN.get().sessionId());
+        field(line, "message", redact(message));
+        if (error != null) {
+            StringWriter stackTrace = new StringWriter();
+            error.printStackTrace(new PrintWriter(stackTrace));
+            field(line, "error", redact(stackTrace.toString()));
+        }
+        context.getLogger().log(line.append('}').toString());
+    }
+
+    private static void field(StringBuilder line, String name, String value) {
+        if (value != null) {
+            line.append(",\"").append(name).append("\":\"");
+            JsonStringEncoder.getInstance().quoteAsString(value, line);
+            line.append('"');
+        }
+    }
+
+    static String redact(String text) {
+        return maskEmails(maskCvvs(maskCardNumbers(text)));
+    }
+
+    /**
+     * Keeps the last four digits of every run of 13 to 19 digits, which may be grouped by single spaces or
+     * dashes the way people type card numbers. Other numbers that long, such as epoch milliseconds, are
+     * masked too.
+     */
+    private static String maskCardNumbers(String text) {
+        StringBuilder masked = null;
+        int copied = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (!isDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int digits = 0;
+            int end = i;
+            while (end < text.length()) {
+                char c = text.charAt(end);
+                if (isDigit(c)) {
+                    digits++;
+                    end++;
+                } else if ((c == ' ' || c == '-') && end + 1 < text.length() && isDigit(text.charAt(end + 1))) {
+                    end++;
+                } else {
+                    break;
+                }
+            }
+            if (digits >= 13 && digits <= 19) {
+                if (masked == null) {
+                    masked = new StringBuilder(text.length());
+                }
+                masked.append(text, copied, i).append("****").append(text, end - 4, end);
+                copied = end;
+            }
+            i = end;
+        }
+        return masked == null ? text : masked.append(text, copied, text.length()).toString();
+    }
+
+    /** Replaces the local part of every email address with {@code ***}, keeping the domain. */
+    private static String maskEmails(String text) {
+        int at = text.indexOf('@');
+        if (at < 0) {
+            return text;
+        }
+        StringBuilder masked = null;
+        int copied = 0;
+        while (at >= 0) {
+            int start = at;
+            while (start > copied && isLocalPartChar(text.charAt(start - 1))) {
+                start--;
+            }
+            int end = at + 1;
+            int lastDot = -1;
+            while (end < text.length() && isDomainChar(text.charAt(end))) {
+                if (text.charAt(end) == '.') {
+                    lastDot = end;
+                }
+                end++;
+            }
+            if (start < at && lastDot > at + 1 && lastDot < end - 2) {
+                if (masked == null) {
+                    masked = new StringBuilder(text.length());
+                }
+                masked.append(text, copied, start).append("***");
+                copied = at;
+            }
+            at = text.indexOf('@', end);
+        }
+        return masked == null ? text : masked.append(text, copied, text.length()).toString();
+    }
+
+    private static boolean isLocalPartChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || isDigit(c) || c == '.' || c == '-';
+    }
+
+    /** Masks every 3 or 4 digit number within {@link #CVV_WINDOW} characters after a mention of the CVV. */
+    private static String maskCvvs(String text) {
+        int mention = indexOfCvv(text, 0);
+        if (mention < 0) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        while (mention >= 0) {
+            int end = Math.min(chars.length, mention + CVV_WINDOW);
+            int i = mention + 3;
+            while (i < end) {
+                if (!isDigit(chars[i]) || isDigit(chars[i - 1]) || chars[i - 1] == '*') {
+                    i++;
+                    continue;
+                }
+                int digitsEnd = i;
+                while (digitsEnd < chars.length && isDigit(chars[digitsEnd])) {
+                    digitsEnd++;
+                }
+                if (digitsEnd - i == 3 || digitsEnd - i == 4) {
+                    Arrays.fill(chars, i, digitsEnd, '*');
+                }
+                i = digitsEnd;
+            }
+            mention = indexOfCvv(text, mention + 3);
+        }
+        return new String(chars);
+    }
+
+    private static int indexOfCvv(String text, int from) {
+        for (int i = from; i <= text.length() - 3; i++) {
+            // ASCII letters only differ in case by bit 0x20.
+            if ((text.charAt(i) | 0x20) == 'c' && (text.charAt(i + 1) | 0x20) == 'v' && (text.charAt(i + 2) | 0x20) == 'v') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    private static Level parseLevel(String value) {
+        if (value == null || value.isEmpty()) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    private static int parseSampleRate(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return (int) Math.round(Math.max(0, Math.min(1, Double.parseDouble(value.trim()))) * SAMPLE_BUCKETS);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
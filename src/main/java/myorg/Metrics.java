@@ -0,0 +1,227 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-container registry of metric groups, one per intent, downstream and cache, each flushed once per
+ * invocation as a CloudWatch Embedded Metric Format line through the Lambda logger, so CloudWatch extracts
+ * the metrics from the log group with no agent or API call. A group is one dimension, such as
+ * Intent=OrderHPItemIntent, with its counters and {@link LatencyHistogram}s. Recording never locks; a flush
+ * emits what changed since the previous one and skips groups with nothing new. The namespace is
+ * METRICS_NAMESPACE, CustomerSupportBot by default.
+ */
+public final class Metrics {
+    public static final String INTENT = "Intent";
+    public static final String DOWNSTREAM = "Downstream";
+    public static final String CACHE = "Cache";
+
+    private static final String NAMESPACE = System.getenv().getOrDefault("METRICS_NAMESPACE", "CustomerSupportBot");
+    private static final Map<String, Group> GROUPS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /** A counter whose total is kept; flushes emit how much it grew since the previous flush. */
+    public static final class Counter {
+        private final LongAdder total = new LongAdder();
+        private long flushed;
+
+        public void increment() {
+            total.increment();
+        }
+
+        public long sum() {
+            return total.sum();
+        }
+    }
+
+    public static final class Group {
+        private final String dimension;
+        private final String value;
+        private final List<String> counterNames = new ArrayList<>();
+        private final List<Counter> counters = new ArrayList<>();
+        private final List<String> histogramNames = new ArrayList<>();
+        private final List<LatencyHistogram> histograms = new ArrayList<>();
+        private final String dimensionValue;
+        private String header;
+        private long headerShape = -1;
+
+        public Group(String dimension, String value) {
+            this.dimension = dimension;
+            this.value = value;
+            StringBuilder line = new StringBuilder("},");
+            string(line, dimension).append(':');
+            this.dimensionValue = string(line, value).toString();
+        }
+
+        public synchronized Counter counter(String name) {
+            int index = counterNames.indexOf(name);
+            if (index >= 0) {
+                return counters.get(index);
+            }
+            Counter counter = new Counter();
+            counterNames.add(name);
+            counters.add(counter);
+            return counter;
+        }
+
+        public synchronized LatencyHistogram histogram(String name) {
+            int index = histogramNames.indexOf(name);
+            if (index >= 0) {
+                return histograms.get(index);
+            }
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogramNames.add(name);
+            histograms.add(histogram);
+            return histogram;
+        }
+
+        private String key() {
+            return dimension + '=' + value;
+        }
+
+        /** Counter totals since the container started; latency is only kept until the next flush. */
+        @Override
+        public synchronized String toString() {
+            StringBuilder totals = new StringBuilder("{");
+            for (int i = 0; i < counters.size(); i++) {
+                totals.append(i == 0 ? "" : ", ").append(counterNames.get(i)).append('=').append(counters.get(i).sum());
+            }
+            return totals.append('}').toString();
+        }
+
+        // The EMF line for what changed since the last flush, or null when nothing did.
+        private synchronized String flush(long timestamp) {
+            if (!changed()) {
+                return null;
+            }
+            long[] deltas = new long[counters.size()];
+            boolean changed = false;
+            for (int i = 0; i < deltas.length; i++) {
+                Counter counter = counters.get(i);
+                long total = counter.sum();
+                deltas[i] = total - counter.flushed;
+                changed |= deltas[i] != 0;
+                counter.flushed = total;
+            }
+            LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[histograms.size()];
+            // One bit per histogram with samples, plus the counter count: what the declared metrics depend on.
+            long shape = (long) deltas.length << 32;
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = histograms.get(i).drain();
+                shape |= snapshots[i].isEmpty() ? 0 : 1L << i;
+            }
+            if (!changed && (int) shape == 0) {
+                return null;
+            }
+            if (shape != headerShape) {
+                header = header(shape);
+                headerShape = shape;
+            }
+
+            StringBuilder line = new StringBuilder(header.length() + dimensionValue.length() + 64 * (deltas.length + snapshots.length));
+            line.append(header).append(timestamp).append(dimensionValue);
+            for (int i = 0; i < deltas.length; i++) {
+                line.append(",\"").append(counterNames.get(i)).append("\":").append(deltas[i]);
+            }
+            for (int i = 0; i < snapshots.length; i++) {
+                LatencyHistogram.Snapshot snapshot = snapshots[i];
+                if (snapshot.isEmpty()) {
+                    continue;
+                }
+                line.append(",\"").append(histogramNames.get(i)).append("\":{\"Values\":[");
+                for (int j = 0; j < snapshot.valuesMicros().length; j++) {
+                    line.append(j == 0 ? "" : ",").append(snapshot.valuesMicros()[j]);
+                }
+                line.append("],\"Counts\":[");
+                for (int j = 0; j < snapshot.counts().length; j++) {
+                    line.append(j == 0 ? "" : ",").append(snapshot.counts()[j]);
+                }
+                line.append("],\"Max\":").append(snapshot.maxMicros())
+                        .append(",\"Min\":").append(snapshot.minMicros())
+                        .append(",\"Count\":").append(snapshot.count())
+                        .append(",\"Sum\":").append(snapshot.sumMicros()).append('}');
+            }
+            return line.append('}').toString();
+        }
+
+        private synchronized void discard() {
+            for (Counter counter : counters) {
+                counter.flushed = counter.sum();
+            }
+            for (LatencyHistogram histogram : histograms) {
+                histogram.drain();
+            }
+        }
+
+        private boolean changed() {
+            for (Counter counter : counters) {
+                if (counter.sum() != counter.flushed) {
+                    return true;
+                }
+            }
+            for (LatencyHistogram histogram : histograms) {
+                if (histogram.hasSamples()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Everything before the timestamp; counters are always declared, histograms only when they have samples.
+        private String header(long shape) {
+            StringBuilder header = new StringBuilder("{\"_aws\":{\"CloudWatchMetrics\":[{\"Namespace\":");
+            string(header, NAMESPACE).append(",\"Dimensions\":[[");
+            string(header, dimension).append("]],\"Metrics\":[");
+            String separator = "";
+            for (String name : counterNames) {
+                header.append(separator).append("{\"Name\":\"").append(name).append("\",\"Unit\":\"Count\"}");
+                separator = ",";
+            }
+            for (int i = 0; i < histogramNames.size(); i++) {
+                if ((shape & 1L << i) != 0) {
+                    header.append(separator).append("{\"Name\":\"").append(histogramNames.get(i)).append("\",\"Unit\":\"Microseconds\"}");
+                    separator = ",";
+                }
+            }
+            return header.append("]}],\"Timestamp\":").toString();
+        }
+    }
+
+    /** Makes {@code group} the one flushed for its dimension value, dropping whatever it replaces. */
+    public static Group register(Group group) {
+        GROUPS.put(group.key(), group);
+        return group;
+    }
+
+    /** Writes one EMF line per group that changed since the previous flush; call once per invocation. */
+    public static void flush(Context context) {
+        long timestamp = System.currentTimeMillis();
+        for (Group group : GROUPS.values()) {
+            String line = group.flush(timestamp);
+            if (line != null) {
+                context.getLogger().log(line);
+            }
+        }
+    }
+
+    /** Drops everything recorded since the previous flush without writing it, such as SnapStart priming turns. */
+    public static void discard() {
+        for (Group group : GROUPS.values()) {
+            group.discard();
+        }
+    }
+
+    private static StringBuilder string(StringBuilder line, String value) {
+        line.append('"');
+        JsonStringEncoder.getInstance().quoteAsString(value, line);
+        return line.append('"');
+    }
+}
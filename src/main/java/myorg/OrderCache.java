@@ -0,0 +1,93 @@
+package myorg;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The order attributes the change order dialog reads, kept per container for the length of a dialog so
+ * its turns do not each read the order again. Items are fetched with {@link #PROJECTION} only. Writes
+ * made through this container replace the entry with the item the write returned, or drop it. Writes
+ * from another container show once the entry expires, or when a conditional write trips on them.
+ * Bounded by entry count with least-recently-used eviction.
+ */
+public class OrderCache {
+    public static final String PROJECTION = "order_number, payment_method";
+    private static final Set<String> PROJECTED = Set.of("order_number", "payment_method");
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_SECONDS = 120;
+
+    private record Entry(Map<String, AttributeValue> item, long expiresAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Integer, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > OrderCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static OrderCache fromEnvironment() {
+        String maxEntries = System.getenv("ORDER_CACHE_SIZE");
+        String ttlSeconds = System.getenv("ORDER_CACHE_TTL_SECONDS");
+        return new OrderCache(
+                maxEntries == null || maxEntries.isEmpty() ? DEFAULT_MAX_ENTRIES : Integer.parseInt(maxEntries),
+                ttlSeconds == null || ttlSeconds.isEmpty() ? DEFAULT_TTL_SECONDS : Long.parseLong(ttlSeconds));
+    }
+
+    public synchronized Map<String, AttributeValue> get(int orderNumber) {
+        Entry entry = entries.get(orderNumber);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos() < 0) {
+            hits.increment();
+            return entry.item();
+        }
+        if (entry != null) {
+            entries.remove(orderNumber);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Keeps the projected attributes of {@code item}, which may be a whole item returned by a write. */
+    public synchronized void put(int orderNumber, Map<String, AttributeValue> item) {
+        if (maxEntries <= 0 || ttlNanos <= 0) {
+            return;
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        item.forEach((name, value) -> {
+            if (PROJECTED.contains(name)) {
+                projected.put(name, value);
+            }
+        });
+        entries.put(orderNumber, new Entry(Map.copyOf(projected), System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(int orderNumber) {
+        entries.remove(orderNumber);
+    }
+
+    /** Drops every entry; a restored SnapStart instance must not trust orders read before the snapshot. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("{entries=%d, hits=%d, misses=%d}", entries.size(), hits.sum(), misses.sum());
+    }
+}
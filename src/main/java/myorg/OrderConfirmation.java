@@ -0,0 +1,31 @@
+package myorg;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public record OrderConfirmation(
+        int orderNumber,
+        String clientName,
+        String email,
+        String products,
+        String productName,
+        String productNumber,
+        String paymentMethod,
+        String shippingAddress) {
+
+    /** The order as stored in the orders table. */
+    public Map<String, AttributeValue> toItem() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build());
+        item.put("clients_name", AttributeValue.builder().s(clientName).build());
+        item.put("product_type", AttributeValue.builder().s(products).build());
+        item.put("product_name", AttributeValue.builder().s(productName).build());
+        item.put("product_number", AttributeValue.builder().s(productNumber != null ? productNumber : "N/A").build());
+        item.put("payment_method", AttributeValue.builder().s(paymentMethod).build());
+        item.put("shipping_address", AttributeValue.builder().s(shippingAddress).build());
+        item.put("email_address", AttributeValue.builder().s(email).build());
+        return item;
+    }
+}
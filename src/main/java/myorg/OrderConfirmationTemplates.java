@@ -0,0 +1,90 @@
+package myorg;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Subject, text and HTML bodies of the order confirmation email, compiled once per container.
+ * The HTML template escapes every field; the text template leaves them as typed.
+ */
+public final class OrderConfirmationTemplates {
+    private static final Map<String, Function<OrderConfirmation, String>> FIELDS = Map.of(
+            "orderNumber", confirmation -> String.valueOf(confirmation.orderNumber()),
+            "clientName", OrderConfirmation::clientName,
+            "products", OrderConfirmation::products,
+            "productName", OrderConfirmation::productName,
+            "productNumber", confirmation -> confirmation.productNumber() != null ? confirmation.productNumber() : "N/A",
+            "paymentMethod", OrderConfirmation::paymentMethod,
+            "shippingAddress", OrderConfirmation::shippingAddress
+    );
+
+    private static final EmailTemplate<OrderConfirmation> SUBJECT = EmailTemplate.compile(
+            "Order Confirmation - Order #{{orderNumber}}", FIELDS, false);
+
+    private static final EmailTemplate<OrderConfirmation> TEXT = EmailTemplate.compile(
+            "Dear {{clientName}},\n\nYour order has been successfully placed!\n\nOrder Details:\n" +
+                    "- Order Number: #{{orderNumber}}\n" +
+                    "- Product: {{products}} {{productName}} {{productNumber}}\n" +
+                    "- Payment Method: {{paymentMethod}}\n" +
+                    "- Shipping Address: {{shippingAddress}}\n\n" +
+                    "Thank you for shopping with us!", FIELDS, false);
+
+    private static final String DETAIL_ROW_START = "<tr><td style=\"font-size: 14px; font-weight: bold; color: #333333;\">";
+    private static final String DETAIL_ROW_MIDDLE = ":</td><td style=\"font-size: 14px; color: #333333;\">";
+    private static final String DETAIL_ROW_END = "</td></tr>";
+
+    private static final EmailTemplate<OrderConfirmation> HTML = EmailTemplate.compile(
+            "<!DOCTYPE html>" +
+                    "<html>" +
+                    "<head>" +
+                    "<meta charset=\"UTF-8\">" +
+                    "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">" +
+                    "<title>Order Confirmation - Order #{{orderNumber}}</title>" +
+                    "</head>" +
+                    "<body style=\"margin: 0; padding: 0; font-family: Arial, sans-serif; background-color: #F5F5F5; color: #333333;\">" +
+                    "<table align=\"center\" border=\"0\" cellpadding=\"0\" cellspacing=\"0\" width=\"100%\" style=\"max-width: 600px; background-color: #FFFFFF; border: 1px solid #E0E0E0;\">" +
+                    "<tr>" +
+                    "<td style=\"padding: 20px; text-align: center; background-color: #0096D6;\">" +
+                    "<img src=\"https://logo-marque.com/wp-content/uploads/2020/12/Hewlett-Packard-Logo-2008-2014.png\" alt=\"HP Logo\" style=\"max-width: 150px;\">" +
+                    "<h1 style=\"color: #FFFFFF; font-size: 24px; margin: 10px 0;\">Order Confirmation - Order #{{orderNumber}}</h1>" +
+                    "</td>" +
+                    "</tr>" +
+                    "<tr>" +
+                    "<td style=\"padding: 20px;\">" +
+                    "<p style=\"font-size: 16px; line-height: 1.5;\">Dear {{clientName}},</p>" +
+                    "<p style=\"font-size: 16px; line-height: 1.5;\">Your order has been successfully placed!</p>" +
+                    "<h2 style=\"font-size: 18px; color: #0096D6; margin: 20px 0 10px;\">Order Details</h2>" +
+                    "<table border=\"0\" cellpadding=\"8\" cellspacing=\"0\" width=\"100%\" style=\"background-color: #F9F9F9; border: 1px solid #E0E0E0;\">" +
+                    DETAIL_ROW_START + "Order Number" + DETAIL_ROW_MIDDLE + "#{{orderNumber}}" + DETAIL_ROW_END +
+                    DETAIL_ROW_START + "Product" + DETAIL_ROW_MIDDLE + "{{products}} {{productName}} {{productNumber}}" + DETAIL_ROW_END +
+                    DETAIL_ROW_START + "Payment Method" + DETAIL_ROW_MIDDLE + "{{paymentMethod}}" + DETAIL_ROW_END +
+                    DETAIL_ROW_START + "Shipping Address" + DETAIL_ROW_MIDDLE + "{{shippingAddress}}" + DETAIL_ROW_END +
+                    "</table>" +
+                    "</td>" +
+                    "</tr>" +
+                    "<tr>" +
+                    "<td style=\"padding: 20px; text-align: center; background-color: #F5F5F5; border-top: 1px solid #E0E0E0;\">" +
+                    "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Thank you for shopping with us!</p>" +
+                    "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 5px 0;\">HP SmartBot Team</p>" +
+                    "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Contact us at: <a href=\"mailto:support@hp.com\" style=\"color: #0096D6; text-decoration: none;\">support@hp.com</a></p>" +
+                    "</td>" +
+                    "</tr>" +
+                    "</table>" +
+                    "</body>" +
+                    "</html>", FIELDS, true);
+
+    private OrderConfirmationTemplates() {
+    }
+
+    public static String subject(OrderConfirmation confirmation) {
+        return SUBJECT.render(confirmation);
+    }
+
+    public static String text(OrderConfirmation confirmation) {
+        return TEXT.render(confirmation);
+    }
+
+    public static String html(OrderConfirmation confirmation) {
+        return HTML.render(confirmation);
+    }
+}
@@ -0,0 +1,41 @@
+package myorg;
+
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.Body;
+import software.amazon.awssdk.services.ses.model.Content;
+import software.amazon.awssdk.services.ses.model.Destination;
+import software.amazon.awssdk.services.ses.model.Message;
+import software.amazon.awssdk.services.ses.model.SendEmailRequest;
+
+public class OrderEmailSender {
+    private static final String SENDER_EMAIL = "noreply.hpassistance@gmail.com";
+    private static final String RECEIVER_EMAIL = "triguirihem13@gmail.com";
+
+    private final SesClient sesClient;
+
+    public OrderEmailSender(SesClient sesClient) {
+        this.sesClient = sesClient;
+    }
+
+    public void send(OrderConfirmation confirmation) {
+        Destination destination = Destination.builder()
+                .toAddresses(RECEIVER_EMAIL)
+                .build();
+
+        Message message = Message.builder()
+                .subject(Content.builder().data(OrderConfirmationTemplates.subject(confirmation)).build())
+                .body(Body.builder()
+                        .text(Content.builder().data(OrderConfirmationTemplates.text(confirmation)).build())
+                        .html(Content.builder().data(OrderConfirmationTemplates.html(confirmation)).build())
+                        .build())
+                .build();
+
+        SendEmailRequest emailRequest = SendEmailRequest.builder()
+                .source(SENDER_EMAIL)
+                .destination(destination)
+                .message(message)
+                .build();
+
+        sesClient.sendEmail(emailRequest);
+    }
+}
@@ -0,0 +1,153 @@
+package myorg;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.Map;
+
+/**
+ * Hands out order numbers from blocks leased off a counter item in their own table,
+ * ORDER_COUNTER_TABLE_NAME (Order_Counters by default), so scans and exports of the orders table only
+ * ever see orders. Each lease is a single atomic UpdateItem, so ranges never overlap across Lambda
+ * instances, and warm instances serve the rest of their block from memory.
+ */
+public class OrderNumberAllocator {
+    static final String COUNTER_KEY_ATTRIBUTE = "counter_name";
+    static final String COUNTER_NAME = "order_number";
+    static final String COUNTER_ATTRIBUTE = "next_order_number";
+    // Where the counter was kept in the orders table before it had a table of its own.
+    private static final int LEGACY_COUNTER_ORDER_NUMBER = 0;
+    private static final String DEFAULT_COUNTER_TABLE_NAME = "Order_Counters";
+    private static final int FIRST_ORDER_NUMBER = 1000;
+    private static final int DEFAULT_BLOCK_SIZE = 10;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final String counterTableName;
+    private final int blockSize;
+    private int next;
+    private int limit;
+
+    public OrderNumberAllocator(DynamoDbClient dynamoDbClient, String tableName, String counterTableName, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.counterTableName = counterTableName;
+        this.blockSize = blockSize;
+    }
+
+    public static OrderNumberAllocator fromEnvironment(DynamoDbClient dynamoDbClient, String tableName) {
+        String configured = System.getenv("ORDER_NUMBER_BLOCK_SIZE");
+        String counterTableName = System.getenv("ORDER_COUNTER_TABLE_NAME");
+        int blockSize = configured == null || configured.isEmpty() ? DEFAULT_BLOCK_SIZE : Integer.parseInt(configured);
+        return new OrderNumberAllocator(dynamoDbClient, tableName,
+                counterTableName == null || counterTableName.isEmpty() ? DEFAULT_COUNTER_TABLE_NAME : counterTableName, blockSize);
+    }
+
+    public synchronized int nextOrderNumber() {
+        if (next >= limit) {
+            next = leaseBlock(blockSize);
+            limit = next + blockSize;
+        }
+        return next++;
+    }
+
+    /**
+     * Leases {@code count} consecutive order numbers in one UpdateItem and returns the first, leaving
+     * the block that {@link #nextOrderNumber()} serves from untouched.
+     */
+    public synchronized int nextOrderNumbers(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        return leaseBlock(count);
+    }
+
+    public synchronized void discardLease() {
+        next = 0;
+        limit = 0;
+    }
+
+    private int leaseBlock(int size) {
+        while (true) {
+            try {
+                UpdateItemResponse response = dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                        .tableName(counterTableName)
+                        .key(counterKey())
+                        .updateExpression("ADD #next :size")
+                        .conditionExpression("attribute_exists(#next)")
+                        .expressionAttributeNames(Map.of("#next", COUNTER_ATTRIBUTE))
+                        .expressionAttributeValues(Map.of(":size", AttributeValue.builder().n(String.valueOf(size)).build()))
+                        .returnValues(ReturnValue.UPDATED_NEW)
+                        .build());
+                int end = Integer.parseInt(response.attributes().get(COUNTER_ATTRIBUTE).n());
+                return end - size;
+            } catch (ConditionalCheckFailedException e) {
+                seedCounter();
+            }
+        }
+    }
+
+    /**
+     * Runs once per counter table: the counter starts after the highest order placed before it existed,
+     * or where the counter formerly kept in the orders table left off, whichever is later, so numbers
+     * leased from the old counter are not handed out again. That old item is only read, never removed.
+     */
+    private void seedCounter() {
+        int start = Math.max(FIRST_ORDER_NUMBER, nextUnusedOrderNumber());
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(counterTableName)
+                    .item(Map.of(
+                            COUNTER_KEY_ATTRIBUTE, AttributeValue.builder().s(COUNTER_NAME).build(),
+                            COUNTER_ATTRIBUTE, AttributeValue.builder().n(String.valueOf(start)).build()
+                    ))
+                    .conditionExpression("attribute_not_exists(" + COUNTER_KEY_ATTRIBUTE + ")")
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // Another instance seeded the counter first; its value wins.
+        }
+    }
+
+    private int nextUnusedOrderNumber() {
+        int nextOrderNumber = 0;
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanResponse page = dynamoDbClient.scan(ScanRequest.builder()
+                    .tableName(tableName)
+                    .projectionExpression("order_number, " + COUNTER_ATTRIBUTE)
+                    .exclusiveStartKey(startKey)
+                    .build());
+            for (Map<String, AttributeValue> item : page.items()) {
+                AttributeValue orderNumberAttr = item.get("order_number");
+                if (orderNumberAttr == null || orderNumberAttr.n() == null) {
+                    continue;
+                }
+                int orderNumber = Integer.parseInt(orderNumberAttr.n());
+                AttributeValue legacyCounter = item.get(COUNTER_ATTRIBUTE);
+                if (orderNumber == LEGACY_COUNTER_ORDER_NUMBER) {
+                    if (legacyCounter != null && legacyCounter.n() != null) {
+                        nextOrderNumber = Math.max(nextOrderNumber, Integer.parseInt(legacyCounter.n()));
+                    }
+                } else {
+                    nextOrderNumber = Math.max(nextOrderNumber, orderNumber + 1);
+                }
+            }
+            startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+        } while (startKey != null);
+        return nextOrderNumber;
+    }
+
+    private static Map<String, AttributeValue> counterKey() {
+        return Map.of(COUNTER_KEY_ATTRIBUTE, AttributeValue.builder().s(COUNTER_NAME).build());
+    }
+}
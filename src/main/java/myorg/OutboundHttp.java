@@ -0,0 +1,177 @@
+package myorg;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound HTTPS for third-party APIs. Every request carries a timeout and every call is timed into the
+ * Downstream=outbound-http {@link Metrics} group, alongside hedges and HTTP/2 responses. The HTTP/2 client
+ * lives as long as the container, so warm invocations reuse its connection.
+ * With hedging on, a second identical request is sent once the first has taken longer than the
+ * recent p95, and the first response to arrive wins. Only enable it for requests that are safe to repeat.
+ */
+public class OutboundHttp {
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 4_000;
+    private static final int LATENCY_WINDOW = 256;
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 50;
+    private static final String METRICS_NAME = "outbound-http";
+
+    private volatile HttpClient client;
+    private final Duration requestTimeout;
+    private final boolean hedging;
+    private final Metrics.Group metrics = Metrics.register(new Metrics.Group(Metrics.DOWNSTREAM, METRICS_NAME));
+    private final Metrics.Counter requests = metrics.counter("Requests");
+    private final Metrics.Counter errors = metrics.counter("Errors");
+    private final Metrics.Counter http2Responses = metrics.counter("Http2Responses");
+    private final Metrics.Counter hedgesSent = metrics.counter("HedgesSent");
+    private final Metrics.Counter hedgesWon = metrics.counter("HedgesWon");
+    private final LatencyHistogram latency = metrics.histogram("Latency");
+    private final long[] recentMillis = new long[LATENCY_WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    public OutboundHttp(HttpClient client, Duration requestTimeout, boolean hedging) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+        this.hedging = hedging;
+    }
+
+    public static OutboundHttp fromEnvironment(HttpClient client) {
+        String requestTimeout = System.getenv("OUTBOUND_REQUEST_TIMEOUT_MS");
+        String hedging = System.getenv("OUTBOUND_HEDGING_ENABLED");
+        return new OutboundHttp(client,
+                Duration.ofMillis(requestTimeout == null || requestTimeout.isEmpty() ? DEFAULT_REQUEST_TIMEOUT_MILLIS : Long.parseLong(requestTimeout)),
+                Boolean.parseBoolean(hedging));
+    }
+
+    public static HttpClient newHttpClient() {
+        String connectTimeout = System.getenv("OUTBOUND_CONNECT_TIMEOUT_MS");
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeout == null || connectTimeout.isEmpty()
+                        ? DEFAULT_CONNECT_TIMEOUT_MILLIS : Long.parseLong(connectTimeout)))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /** Drops pooled connections, e.g. after a SnapStart restore where they point at a stale socket. */
+    public void reconnect() {
+        client = newHttpClient();
+    }
+
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpRequest timed = HttpRequest.newBuilder(request, (name, value) -> true).timeout(requestTimeout).build();
+        long start = System.nanoTime();
+        requests.increment();
+        try {
+            HttpResponse<String> response = hedging ? sendHedged(timed) : client.send(timed, HttpResponse.BodyHandlers.ofString());
+            long nanos = System.nanoTime() - start;
+            latency.record(nanos);
+            remember(TimeUnit.NANOSECONDS.toMillis(nanos));
+            if (response.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.increment();
+            }
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            latency.record(System.nanoTime() - start);
+            errors.increment();
+            throw e;
+        }
+    }
+
+    private HttpResponse<String> sendHedged(HttpRequest request) throws IOException, InterruptedException {
+        long delayMillis = hedgeDelayMillis();
+        CompletableFuture<HttpResponse<String>> primary = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        if (delayMillis < 0) {
+            return await(primary);
+        }
+        try {
+            return primary.get(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The primary is slower than usual; race it against a second attempt.
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        hedgesSent.increment();
+        CompletableFuture<HttpResponse<String>> hedge = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = await(firstSuccessful(primary, hedge));
+        if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response) {
+            hedgesWon.increment();
+            primary.cancel(true);
+        } else {
+            hedge.cancel(true);
+        }
+        return response;
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : Arrays.asList(first, second)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    winner.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+        return winner;
+    }
+
+    private static HttpResponse<String> await(CompletableFuture<HttpResponse<String>> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        return new IOException(cause);
+    }
+
+    private synchronized void remember(long millis) {
+        recentMillis[recentNext] = millis;
+        recentNext = (recentNext + 1) % LATENCY_WINDOW;
+        recentCount = Math.min(recentCount + 1, LATENCY_WINDOW);
+    }
+
+    /** p95 of the recent successful calls, or -1 while there are too few samples to hedge on. */
+    synchronized long hedgeDelayMillis() {
+        if (recentCount < MIN_SAMPLES_FOR_HEDGING) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(recentMillis, recentCount);
+        Arrays.sort(sorted);
+        return Math.max(MIN_HEDGE_DELAY_MILLIS, sorted[(int) Math.ceil(0.95 * recentCount) - 1]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{calls=%s, hedgeDelayMs=%d}", metrics, hedgeDelayMillis());
+    }
+}
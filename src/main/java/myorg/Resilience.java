@@ -0,0 +1,61 @@
+package myorg;
+
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Per-container registry of {@link Downstream}s. Static on purpose: breaker state and retry budgets
+ * must outlive a single invocation, and every handler in the container shares them. The registered
+ * downstreams are the ones whose {@link Metrics} are flushed. A name stands for one set of settings,
+ * those of whichever caller asks first, so callers that need their own settings use their own name.
+ */
+public final class Resilience {
+    public static final String FAQ_LAMBDA = "faq-lambda";
+    public static final String DYNAMODB = "dynamodb";
+    public static final String DYNAMODB_BULK = "dynamodb-bulk";
+    public static final String SES = "ses";
+    public static final String EMAIL_OUTBOX = "email-outbox";
+    public static final String CARD_VALIDATOR = "card-validator";
+    public static final String FAQ_CACHE = "faq-cache";
+    public static final String BEDROCK = "bedrock";
+
+    /**
+     * Client settings for SDK clients called through a {@link Downstream}, which does the retrying: SDK
+     * retries on top of it would multiply the attempts and repeat writes that must be made only once.
+     */
+    public static final Consumer<ClientOverrideConfiguration.Builder> NO_SDK_RETRIES =
+            override -> override.retryStrategy(AwsRetryStrategy.doNotRetry());
+
+    private static final Map<String, Downstream> DOWNSTREAMS = new ConcurrentHashMap<>();
+
+    private Resilience() {
+    }
+
+    public static Downstream downstream(String name) {
+        return DOWNSTREAMS.computeIfAbsent(name, ignored -> tracked(Downstream.withDefaults(name)));
+    }
+
+    public static Downstream downstream(String name, Supplier<Downstream> factory) {
+        return DOWNSTREAMS.computeIfAbsent(name, ignored -> tracked(factory.get()));
+    }
+
+    /** Replaces a dependency's settings and state; meant for local stand-ins, before handlers are built. */
+    public static void register(Downstream downstream) {
+        DOWNSTREAMS.put(downstream.name(), tracked(downstream));
+    }
+
+    private static Downstream tracked(Downstream downstream) {
+        Metrics.register(downstream.metrics());
+        return downstream;
+    }
+
+    public static String summary() {
+        return new TreeMap<>(DOWNSTREAMS).values().toString();
+    }
+}
@@ -0,0 +1,34 @@
+package myorg;
+
+/**
+ * Caps retries at a fraction of the calls made. Every call deposits {@code ratio} of a token and every
+ * retry spends a whole one, so a failing dependency sees at most (1 + ratio) times its normal load
+ * once the initial {@code maxTokens} are gone.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double tokens() {
+        return tokens;
+    }
+}
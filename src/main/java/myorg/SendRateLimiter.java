@@ -0,0 +1,41 @@
+package myorg;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding at most one second of permits, used to stay under the SES maximum send rate.
+ */
+public class SendRateLimiter {
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    public SendRateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Send rate must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, permitsPerSecond);
+        this.availablePermits = maxPermits;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            availablePermits -= 1;
+            waitNanos = availablePermits >= 0 ? 0 : (long) (-availablePermits / permitsPerNano);
+        }
+        if (waitNanos > 0) {
+            Backoff.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availablePermits = Math.min(maxPermits, availablePermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
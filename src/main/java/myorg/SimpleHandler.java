@@ -2,47 +2,228 @@ package myorg;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.fasterxml.jackson.core.type.TypeReference;
+import org.crac.Core;
+import org.crac.Resource;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
-import software.amazon.awssdk.services.lambda.model.InvokeResponse;
-import software.amazon.awssdk.services.lambda.model.InvokeRequest;
-import software.amazon.awssdk.services.ses.SesClient;
-import software.amazon.awssdk.services.ses.model.*;
-import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import software.amazon.awssdk.services.sqs.SqsClient;
 
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.util.*;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.stream.Collectors;
-
-public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
-    private final LambdaClient lambdaClient = LambdaClient.create();
-    private final DynamoDbClient dynamoDbClient = DynamoDbClient.create();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
-    private final SesClient sesClient = SesClient.create();
-    private final SecretsManagerClient secretsManagerClient = SecretsManagerClient.create();
+
+public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, Resource {
+    private final DynamoDbClient dynamoDbClient;
+    private final OutboundHttp outboundHttp;
+    private final EmailOutbox emailOutbox;
+    private final SecretsManagerClient secretsManagerClient;
     private static final String FAQ_HANDLER_ARN = "arn:aws:lambda:us-east-1:960673175457:function:faq_handler";
     private static final String TABLE_NAME = "Clients_Database";
-    private static final String ALGOBOOK_API_HOST = "credit-card-validator2.p.rapidapi.com";
-    private static final String SENDER_EMAIL = "noreply.hpassistance@gmail.com";
-    private static final String RECEIVER_EMAIL = "triguirihem13@gmail.com";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Partition key email_address, sort key order_number, projecting the attributes the order list shows.
+    static final String ORDERS_BY_EMAIL_INDEX = "email_address-index";
+    static final List<String> ORDERS_BY_EMAIL_PROJECTION = List.of("product_name", "product_type", "payment_method");
+    // Lex shows at most five buttons on a card: one per order, and one to see more.
+    private static final int ORDERS_PAGE_SIZE = 4;
+    private static final ObjectMapper objectMapper = Json.MAPPER;
+    private static final int INTENT_STATS_LOG_INTERVAL = 100;
+    // Replies that never change between turns, encoded once; see LexResponse.Template.
+    private static final LexResponse.Template ASK_PRODUCTS = LexResponse.template("OrderHPItemIntent",
+            "What type of product would you like to buy ?", "InProgress", "Products");
+    private static final LexResponse.Template ASK_PRODUCT_NAME = LexResponse.template("OrderHPItemIntent",
+            "What is the product name ?", "InProgress", "ProductName");
+    private static final LexResponse.Template ASK_PRODUCT_NUMBER = LexResponse.template("OrderHPItemIntent",
+            "What is the model number ?", "InProgress", "ProductNumber");
+    private static final LexResponse.Template ASK_NAME = LexResponse.template("OrderHPItemIntent",
+            "Please provide your full name", "InProgress", "Name");
+    private static final LexResponse.Template ASK_SHIPPING_ADDRESS = LexResponse.template("OrderHPItemIntent",
+            "Please provide your shipping address.", "InProgress", "ShippingAddress");
+    private static final LexResponse.Template ASK_EMAIL = LexResponse.template("OrderHPItemIntent",
+            "Please provide your email address.", "InProgress", "Email");
+    private static final LexResponse.Template ASK_PAYMENT_METHOD = LexResponse.template("OrderHPItemIntent",
+            "How would you like to pay ? You can choose between cash on delivery or online payment with a card.", "InProgress", "PaymentMethod");
+    private static final LexResponse.Template ASK_CARD_NUMBER = LexResponse.template("OrderHPItemIntent",
+            "Please provide your credit card number to complete the payment.", "InProgress", "CardNumber");
+    private static final LexResponse.Template ASK_EXPIRATION_DATE = LexResponse.template("OrderHPItemIntent",
+            "Please provide the expiration date of your card in MM/YY format (e.g., 12/25).", "InProgress", "ExpirationDate");
+    private static final LexResponse.Template ASK_CVV = LexResponse.template("OrderHPItemIntent",
+            "Please provide the CVV code of your card (3 digits for most cards, 4 digits for American Express).", "InProgress", "CVV");
+    private static final LexResponse.Template CARD_UNVERIFIED = LexResponse.template("OrderHPItemIntent",
+            "We can't verify cards right now. Please try again in a few minutes, or choose cash on delivery.", "InProgress", "PaymentMethod");
+    private static final LexResponse.Template SUGGESTION_DECLINED = LexResponse.template("OrderHPItemIntent",
+            "Okay, no problem. Thank you for your order !", "Fulfilled", null);
+    private static final LexResponse.Template SUGGESTION_UNCLEAR = LexResponse.template("OrderHPItemIntent",
+            "I didn't understand your response. Thank you for your order !", "Fulfilled", null);
+    private static final LexResponse.Template ASK_ORDER_NUMBER = LexResponse.template("ChangeOrderIntent",
+            "Please provide your order number.", "InProgress", "OrderNumber");
+    private static final LexResponse.Template ORDER_NUMBER_NOT_POSITIVE = LexResponse.template("ChangeOrderIntent",
+            "Order number must be a positive integer. Please provide a valid order number.", "InProgress", "OrderNumber");
+    private static final LexResponse.Template ORDER_NUMBER_MALFORMED = LexResponse.template("ChangeOrderIntent",
+            "Invalid order number format. Please provide a valid order number.", "InProgress", "OrderNumber");
+    private static final LexResponse.Template ASK_ACTION = LexResponse.template("ChangeOrderIntent",
+            "How can I help you with your order ?", "InProgress", "ActionType");
+    private static final LexResponse.Template ASK_NEW_SHIPPING_ADDRESS = LexResponse.template("ChangeOrderIntent",
+            "Please provide the new shipping address.", "InProgress", "ShippingAddress");
+    private static final LexResponse.Template ASK_PAYMENT_CARD_NUMBER = LexResponse.template("ChangeOrderIntent",
+            "Please provide your credit card number to fulfill the payment.", "InProgress", "CardNumber");
+    private static final LexResponse.Template ASK_PAYMENT_EXPIRATION_DATE = LexResponse.template("ChangeOrderIntent",
+            "Please provide the expiration date of your card in MM/YY format (e.g., 12/25).", "InProgress", "ExpirationDate");
+    private static final LexResponse.Template ASK_PAYMENT_CVV = LexResponse.template("ChangeOrderIntent",
+            "Please provide the CVV code of your card (3 digits for most cards, 4 digits for American Express).", "InProgress", "CVV");
+    private static final LexResponse.Template PAYMENT_CARD_UNVERIFIED = LexResponse.template("ChangeOrderIntent",
+            "We can't verify cards right now. Please try again in a few minutes; until then your order stays payable in cash on delivery.",
+            "Failed", null);
+    private static final LexResponse.Template PAYMENT_DONE = LexResponse.template("ChangeOrderIntent",
+            "Your order has been paid successfully.", "Fulfilled", null);
+    private static final LexResponse.Template ASK_LOOKUP_EMAIL = LexResponse.template("FindOrdersIntent",
+            "Please provide the email address you placed your orders with.", "InProgress", "Email");
+    private static final LexResponse.Template NO_MORE_ORDERS = LexResponse.template("FindOrdersIntent",
+            "Okay. Tell me an order number whenever you want to change one of them.", "Fulfilled", null);
+    private static final LexResponse.Template GREETING = LexResponse.template("GreetingsIntent",
+            "Hello ! Welcome to HP SmartBot ! How may I help you today ?", "Fulfilled", null);
+    private static final LexResponse.Template FALLBACK = LexResponse.template("FallbackIntent",
+            "I'm sorry, I couldn't understand your request. Could you please clarify your message ?", "Fulfilled", null);
+    private static final LexResponse.Template FAQ_ERROR = LexResponse.template("FAQIntent",
+            "Sorry, there was an error processing your request.", "Failed", null);
+    private static final LexResponse.Template DEPENDENCY_UNAVAILABLE = LexResponse.template("UnknownIntent",
+            "We're having trouble reaching our order system. Please try again in a few minutes.", "Failed", null);
+    private static final LexResponse.Template PROCESSING_ERROR = LexResponse.template("UnknownIntent",
+            "Error processing request. Please try again later.", "Failed", null);
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final IntentRegistry intentRegistry;
+    private final CardValidator cardValidator;
+    private final FaqAnswerCache faqAnswerCache;
+    private final OrderCache orderCache;
+    private final FaqAnswerSource faqAnswerSource;
+    private final Downstream dynamoDb = Resilience.downstream(Resilience.DYNAMODB);
+    private final Downstream emailOutboxQueue = Resilience.downstream(Resilience.EMAIL_OUTBOX);
+    private int dispatchedTurns = 0;
     private String cachedApiKey = null;
 
+    public SimpleHandler() {
+        this(FaqAnswerSource.fromEnvironment(FAQ_HANDLER_ARN), DynamoDbClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build(),
+                OutboundHttp.newHttpClient(), SqsEmailOutbox.fromEnvironment(SqsClient.builder().overrideConfiguration(Resilience.NO_SDK_RETRIES).build()),
+                SecretsManagerClient.create());
+        Core.getGlobalContext().register(this);
+    }
+
+    public SimpleHandler(LambdaAsyncClient lambdaAsyncClient, DynamoDbClient dynamoDbClient, HttpClient httpClient,
+                         EmailOutbox emailOutbox, SecretsManagerClient secretsManagerClient) {
+        this(FaqClient.fromEnvironment(lambdaAsyncClient, FAQ_HANDLER_ARN), dynamoDbClient, httpClient, emailOutbox, secretsManagerClient);
+    }
+
+    public SimpleHandler(FaqAnswerSource faqAnswerSource, DynamoDbClient dynamoDbClient, HttpClient httpClient,
+                         EmailOutbox emailOutbox, SecretsManagerClient secretsManagerClient) {
+        this(faqAnswerSource, dynamoDbClient, httpClient, emailOutbox, secretsManagerClient, CardValidator.endpointFromEnvironment());
+    }
+
+    public SimpleHandler(FaqAnswerSource faqAnswerSource, DynamoDbClient dynamoDbClient, HttpClient httpClient,
+                         EmailOutbox emailOutbox, SecretsManagerClient secretsManagerClient, URI cardValidatorEndpoint) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.outboundHttp = OutboundHttp.fromEnvironment(httpClient);
+        this.emailOutbox = emailOutbox;
+        this.secretsManagerClient = secretsManagerClient;
+        this.orderNumberAllocator = OrderNumberAllocator.fromEnvironment(dynamoDbClient, TABLE_NAME);
+        this.cardValidator = new CardValidator(outboundHttp, this::getApiKey, cardValidatorEndpoint, CardVerdictCache.fromEnvironment());
+        this.faqAnswerCache = FaqAnswerCache.fromEnvironment(dynamoDbClient);
+        this.orderCache = OrderCache.fromEnvironment();
+        this.faqAnswerSource = faqAnswerSource;
+        this.intentRegistry = new IntentRegistry("FallbackIntent", (event, context) ->
+                handleFallBackIntent(event.getIntentName(), event.getSlots(), event.getSessionAttributes(), context))
+                .register("OrderHPItemIntent", (event, context) ->
+                        handleOrderHPItemIntent(event.getIntentName(), event.getSlots(), event.getSessionAttributes(), context))
+                .register("ChangeOrderIntent", (event, context) ->
+                        handleChangeOrderIntent(event.getIntentName(), event.getSlots(), event.getSessionAttributes(), context))
+                .register("FindOrdersIntent", (event, context) ->
+                        handleFindOrdersIntent(event.getIntentName(), event.getSlots(), event.getSessionAttributes(), context))
+                .register("GreetingsIntent", (event, context) ->
+                        handleGreetingsIntent(event.getIntentName(), event.getSlots(), event.getSessionAttributes(), context))
+                .register("FAQIntent", (event, context) ->
+                        delegateToFAQHandler(event, FaqQueryNormalizer.queryText(event), context));
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> checkpointContext) {
+        Context context = SnapStartPriming.context();
+        List<LexResponse> responses = new ArrayList<>();
+        // Priming turns go through answer() rather than respond(): they are not conversations, so they are
+        // neither traced nor flushed as metrics, and what they recorded is discarded below.
+        for (Map<String, Object> event : SnapStartPriming.events()) {
+            responses.add(answer(event, context));
+        }
+        responses.add(buildLexResponseWithTextAndCard("OrderHPItemIntent", "Priming", "InProgress", new HashMap<>(), "SuggestionResponse",
+                getRelatedArticleCard("laptop", "0")));
+        responses.add(buildLexResponseWithCardOnly("OrderHPItemIntent", "Fulfilled", new HashMap<>(), null,
+                getUrlCard(getSuggestedURL("laptop"), "laptop")));
+        // Either entry point may be deployed: prime both the runtime's map serialization and the streamed writer.
+        for (LexResponse response : responses) {
+            try {
+                objectMapper.writeValueAsString(response.toMap());
+                response.writeTo(OutputStream.nullOutputStream());
+            } catch (Exception e) {
+                Log.warn(context, () -> "Priming serialization failed: " + e.getMessage());
+            }
+        }
+        SnapStartPriming.loadSdkModelClasses(FAQ_HANDLER_ARN, TABLE_NAME);
+        cardValidator.validate(SnapStartPriming.LUHN_INVALID_CARD, "123", context);
+        cardValidator.verdictCache().get(SnapStartPriming.LUHN_INVALID_CARD);
+        try {
+            SnapStartPriming.serializeOrderConfirmation();
+            SnapStartPriming.serializeFaqExchange();
+        } catch (Exception e) {
+            Log.warn(context, () -> "Priming serialization failed: " + e.getMessage());
+        }
+        warmDynamoDb(context);
+        TraceRecorder.beforeCheckpoint();
+        Metrics.discard();
+        Log.info(context, () -> "Primed " + responses.size() + " responses before the snapshot");
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> checkpointContext) {
+        Context context = SnapStartPriming.context();
+        // Anything leased, cached or connected before the snapshot is shared by every restored instance.
+        orderNumberAllocator.discardLease();
+        outboundHttp.reconnect();
+        cachedApiKey = null;
+        cardValidator.verdictCache().rotateSalt();
+        orderCache.clear();
+        TraceRecorder.afterRestore();
+        warmDynamoDb(context);
+        try {
+            faqAnswerSource.afterRestore();
+        } catch (Exception e) {
+            Log.warn(context, () -> "FAQ answer source failed to restore: " + e.getMessage());
+        }
+        try {
+            getApiKey(context);
+        } catch (Exception e) {
+            Log.warn(context, () -> "API key refresh after restore failed, it will be fetched on first use: " + e.getMessage());
+        }
+    }
+
+    public CardVerdictCache cardVerdictCache() {
+        return cardValidator.verdictCache();
+    }
+
+    private void warmDynamoDb(Context context) {
+        try {
+            // No order has number 0: the read only warms the connection and the GetItem path.
+            fetchOrderItem(0);
+        } catch (Exception e) {
+            Log.warn(context, () -> "DynamoDB warm-up failed: " + e.getMessage());
+        }
+    }
+
     private String getApiKey(Context context) {
         if (cachedApiKey != null) {
             return cachedApiKey;
@@ -51,7 +232,7 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
         try {
             String secretArn = System.getenv("ALGOBOOK_API_KEY_SECRET_ARN");
             if (secretArn == null || secretArn.isEmpty()) {
-                context.getLogger().log("ALGOBOOK_API_KEY_SECRET_ARN environment variable is missing");
+                Log.warn(context, () -> "ALGOBOOK_API_KEY_SECRET_ARN environment variable is missing");
                 throw new RuntimeException("Missing ALGOBOOK_API_KEY_SECRET_ARN");
             }
 
@@ -61,186 +242,144 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
             GetSecretValueResponse response = secretsManagerClient.getSecretValue(request);
             JsonNode secretJson = objectMapper.readTree(response.secretString());
             cachedApiKey = secretJson.get("apiKey").asText();
-            context.getLogger().log("Successfully retrieved API key from Secrets Manager");
+            Log.info(context, () -> "Successfully retrieved API key from Secrets Manager");
             return cachedApiKey;
         } catch (Exception e) {
-            context.getLogger().log("Error retrieving API key from Secrets Manager: " + e.getMessage());
+            Log.error(context, () -> "Error retrieving API key from Secrets Manager", e);
             throw new RuntimeException("Failed to retrieve API key", e);
         }
     }
     @Override
     public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return respond(event, context).toMap();
+    }
+
+    /**
+     * Answers one Lex turn, records it when its session is traced, and flushes the turn's metrics;
+     * {@link StreamingHandler} writes the result without building the response maps.
+     */
+    LexResponse respond(Map<String, Object> event, Context context) {
+        // Captured first: answering a turn modifies the event's session attributes.
+        TraceRecorder.Turn trace = TraceRecorder.begin(event);
         try {
-            if (event == null) {
-                context.getLogger().log("Received null event");
-                throw new IllegalArgumentException("Event cannot be null");
+            LexResponse response = answer(event, context);
+            if (trace != null) {
+                TraceRecorder.finish(trace, response.toMap(), context);
             }
+            return response;
+        } finally {
+            Metrics.flush(context);
+        }
+    }
 
-            JsonNode rootNode = objectMapper.valueToTree(event);
-            context.getLogger().log("Event JSON: " + rootNode.toString());
-
-            String sessionId = rootNode.has("sessionId") ? rootNode.path("sessionId").asText() : "unknown";
-            context.getLogger().log("Session ID: " + sessionId);
-
-            JsonNode sessionState = rootNode.path("sessionState");
-            if (sessionState.isMissingNode()) {
-                context.getLogger().log("Missing sessionState in event");
-                throw new IllegalStateException("Session state is missing in the event");
+    private LexResponse answer(Map<String, Object> event, Context context) {
+        try {
+            if (event == null) {
+                Log.warn(context, () -> "Received null event");
+                throw new IllegalArgumentException("Event cannot be null");
             }
 
-            JsonNode intent = sessionState.path("intent");
-            if (intent.isMissingNode()) {
-                context.getLogger().log("Missing intent in sessionState");
-                throw new IllegalStateException("Intent is missing in the sessionState");
-            }
+            LexEvent lexEvent = LexEvent.fromMap(event);
+            Log.beginTurn(lexEvent.getSessionId());
+            Log.debug(context, () -> "Event JSON: " + objectMapper.valueToTree(CardDetailRedactor.redactEvent(event, CardDetailRedactor.secrets(event))));
 
-            String intentName = intent.has("name") ? intent.path("name").asText() : "UnknownIntent";
-            context.getLogger().log("Intent Name: " + intentName);
-
-            JsonNode sessionAttributes = sessionState.path("sessionAttributes");
-            Map<String, Object> sessionAttributesMap = new HashMap<>();
-            if (sessionAttributes != null && !sessionAttributes.isMissingNode()) {
-                if (sessionAttributes.isObject()) {
-                    try {
-                        Map<String, Object> tempMap = objectMapper.convertValue(sessionAttributes, new TypeReference<Map<String, Object>>() {});
-                        sessionAttributesMap = new HashMap<>(tempMap);
-                    } catch (Exception e) {
-                        context.getLogger().log("Failed to parse sessionAttributes: " + sessionAttributes.toString());
-                        throw new RuntimeException("Error parsing sessionAttributes", e);
-                    }
-                } else {
-                    context.getLogger().log("Session attributes is not an object, skipping: " + sessionAttributes.toString());
-                }
-            } else {
-                context.getLogger().log("Session attributes are missing or not an object: " + (sessionAttributes != null ? sessionAttributes.toString() : "null"));
-            }
+            String intentName = lexEvent.getIntentName();
+            Log.debug(context, () -> "Intent Name: " + intentName);
 
-            JsonNode slotsNode = intent.path("slots");
-            Map<String, Object> slots = new HashMap<>();
-            if (slotsNode != null && !slotsNode.isMissingNode()) {
-                if (slotsNode.isObject()) {
-                    try {
-                        slots = objectMapper.convertValue(slotsNode, new TypeReference<Map<String, Object>>() {});
-                    } catch (Exception e) {
-                        context.getLogger().log("Failed to parse slots: " + slotsNode.toString());
-                        throw new RuntimeException("Error parsing slots", e);
-                    }
-                } else {
-                    context.getLogger().log("Slots is not an object, skipping: " + slotsNode.toString());
-                }
-            } else {
-                context.getLogger().log("Slots are missing or not an object: " + (slotsNode != null ? slotsNode.toString() : "null"));
-            }
+            Map<String, Object> sessionAttributesMap = lexEvent.getSessionAttributes();
+            Map<String, String> slots = lexEvent.getSlots();
+            sessionAttributesMap.putAll(slots);
+            Log.debug(context, () -> "Session Attributes after slot processing: "
+                    + CardDetailRedactor.redact(sessionAttributesMap, CardDetailRedactor.secrets(sessionAttributesMap)));
 
-            for (String slotName : slots.keySet()) {
-                String slotValue = getOrRestoreSlot(slotName, slots, sessionAttributesMap, context);
-                if (slotValue != null && !slotValue.isEmpty()) {
-                    sessionAttributesMap.put(slotName, slotValue);
+            try {
+                return intentRegistry.dispatch(lexEvent, context);
+            } finally {
+                if (++dispatchedTurns % INTENT_STATS_LOG_INTERVAL == 0) {
+                    Log.info(context, () -> "Intent stats: " + intentRegistry.stats() + ", downstreams: " + Resilience.summary()
+                            + ", faqCache: " + faqAnswerCache + ", orderCache: " + orderCache);
                 }
             }
-            context.getLogger().log("Session Attributes after slot processing: " + sessionAttributesMap);
-
-            if ("OrderHPItemIntent".equals(intentName)) {
-                return handleOrderHPItemIntent(intentName, slots, sessionAttributesMap, context);
-            } else if ("ChangeOrderIntent".equals(intentName)) {
-                return handleChangeOrderIntent(intentName, slots, sessionAttributesMap, context);
-            } else if ("GreetingsIntent".equals(intentName)) {
-                return handleGreetingsIntent(intentName, slots, sessionAttributesMap, context);
-            } else if ("FAQIntent".equals(intentName)) {
-                return delegateToFAQHandler(event,context,sessionAttributesMap);
-            }
-            else {
-                return handleFallBackIntent(intentName, slots, sessionAttributesMap, context);
-            }
+        } catch (DownstreamUnavailableException e) {
+            Log.warn(context, () -> "Failing fast, dependency unavailable: " + e.getMessage());
+            return DEPENDENCY_UNAVAILABLE.with(Map.of());
         } catch (Exception e) {
-            StringWriter sw = new StringWriter();
-            e.printStackTrace(new PrintWriter(sw));
-            String stackTrace = sw.toString();
-            context.getLogger().log("Error processing Lex event: " + e.getMessage() + "\nStack Trace: " + stackTrace);
-            return buildLexResponse("UnknownIntent", "Error processing request. Please try again later.", "Failed", Map.of(), null);
+            Log.error(context, () -> "Error processing Lex event", e);
+            return PROCESSING_ERROR.with(Map.of());
         }
     }
-    private Map<String, Object> delegateToFAQHandler(Map<String, Object> input, Context context, Map<String, Object> sessionAttributesMap) {
-        context.getLogger().log("Delegating to FAQHandler for FAQIntent");
+    private LexResponse delegateToFAQHandler(LexEvent event, String query, Context context) {
+        Map<String, Object> sessionAttributesMap = event.getSessionAttributes();
+        String cacheKey = faqAnswerSource.cacheKey(event, query);
+        FaqAnswerCache.Answer cached = faqAnswerCache.get(cacheKey);
+        if (cached != null) {
+            Log.debug(context, () -> "FAQ answer cache hit for: " + cacheKey);
+            return buildFAQResponse(cached, sessionAttributesMap);
+        }
+        Log.debug(context, () -> "Asking " + faqAnswerSource.getClass().getSimpleName() + " for FAQIntent");
         try {
-            String eventJson = objectMapper.writeValueAsString(input);
-            context.getLogger().log("Event JSON sent to FAQHandler: " + eventJson);
-
-            InvokeRequest invokeRequest = InvokeRequest.builder()
-                    .functionName(FAQ_HANDLER_ARN)
-                    .payload(SdkBytes.fromUtf8String(eventJson))
-                    .build();
+            // Answers are cached under the current version, so they must come from that version's corpus.
+            faqAnswerSource.useCorpusVersion(faqAnswerCache.corpusVersion());
+            FaqReply reply = faqAnswerSource.ask(event, query, context);
+            if (!reply.isComplete()) {
+                Log.warn(context, () -> "FAQ reply has no answer");
+                return FAQ_ERROR.with(sessionAttributesMap);
+            }
+            Log.debug(context, () -> "FAQ answered with state " + reply.fulfillmentState());
 
-            InvokeResponse result = lambdaClient.invoke(invokeRequest);
-            context.getLogger().log("FAQHandler invocation result: " + result.statusCode());
-            String responseJson = result.payload().asUtf8String();
-            context.getLogger().log("FAQHandler response: " + responseJson);
-
-            Map<String, Object> responseMap = objectMapper.readValue(responseJson, new TypeReference<Map<String, Object>>() {});
-            Map<String, Object> dialogAction = (Map<String, Object>) responseMap.get("dialogAction");
-            String fulfillmentState = (String) dialogAction.get("fulfillmentState");
-            Map<String, Object> messageMap = (Map<String, Object>) dialogAction.get("message");
-            String content = (String) messageMap.get("content");
-
-            return Map.of(
-                    "sessionState", Map.of(
-                            "dialogAction", Map.of(
-                                    "type", "Close",
-                                    "fulfillmentState", fulfillmentState
-                            ),
-                            "sessionAttributes", sessionAttributesMap,
-                            "intent", Map.of(
-                                    "name", "FAQIntent",
-                                    "state", fulfillmentState
-                            )
-                    ),
-                    "messages", new Object[] {
-                            Map.of(
-                                    "contentType", "PlainText",
-                                    "content", content
-                            )
-                    }
-            );
+            FaqAnswerCache.Answer answer = new FaqAnswerCache.Answer(reply.fulfillmentState(), reply.content());
+            if ("Fulfilled".equals(answer.fulfillmentState())) {
+                faqAnswerCache.put(cacheKey, answer);
+            }
+            return buildFAQResponse(answer, sessionAttributesMap);
+        } catch (DownstreamUnavailableException e) {
+            Log.warn(context, () -> "Skipping FAQ answer: " + e.getMessage());
+            String message = FaqAnswerSource.isTimeout(e)
+                    ? "That question is taking longer than usual to answer. Please try asking again in a moment."
+                    : "Our FAQ assistant is temporarily unavailable. Please try again in a few minutes.";
+            return buildLexResponse("FAQIntent", message, "Failed", sessionAttributesMap, null);
         } catch (Exception e) {
-            context.getLogger().log("Error invoking FAQHandler: " + e.getMessage());
-            return buildLexResponse("FAQIntent", "Sorry, there was an error processing your request.", "Failed", sessionAttributesMap, null);
+            Log.error(context, () -> "Error answering FAQ", e);
+            return FAQ_ERROR.with(sessionAttributesMap);
         }
     }
-    private Map<String, Object> handleOrderHPItemIntent(String intentName, Map<String, Object> slots, Map<String, Object> sessionAttributesMap, Context context) {
+    private LexResponse buildFAQResponse(FaqAnswerCache.Answer answer, Map<String, Object> sessionAttributesMap) {
+        return LexResponse.faq(answer.fulfillmentState(), answer.content(), sessionAttributesMap);
+    }
+    private LexResponse handleOrderHPItemIntent(String intentName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
         String products = getOrRestoreSlot("Products", slots, sessionAttributesMap, context);
         if (products == null || products.isEmpty()) {
-            return buildLexResponse(intentName, "What type of product would you like to buy ?", "InProgress", sessionAttributesMap, "Products");
+            return ASK_PRODUCTS.with(sessionAttributesMap);
         }
 
         String productName = getOrRestoreSlot("ProductName", slots, sessionAttributesMap, context);
         if (productName == null || productName.isEmpty()) {
-            return buildLexResponse(intentName, "What is the product name ?", "InProgress", sessionAttributesMap, "ProductName");
+            return ASK_PRODUCT_NAME.with(sessionAttributesMap);
         }
 
         String productNumber = getOrRestoreSlot("ProductNumber", slots, sessionAttributesMap, context);
         if (productNumber == null || productNumber.isEmpty()) {
-            return buildLexResponse(intentName, "What is the model number ?", "InProgress", sessionAttributesMap, "ProductNumber");
+            return ASK_PRODUCT_NUMBER.with(sessionAttributesMap);
         }
 
         String clientName = getOrRestoreSlot("Name", slots, sessionAttributesMap, context);
         if (clientName == null || clientName.isEmpty()) {
-            return buildLexResponse(intentName, "Please provide your full name", "InProgress", sessionAttributesMap, "Name");
+            return ASK_NAME.with(sessionAttributesMap);
         }
 
         String shippingAddress = getOrRestoreSlot("ShippingAddress", slots, sessionAttributesMap, context);
         if (shippingAddress == null || shippingAddress.isEmpty()) {
-            return buildLexResponse(intentName, "Please provide your shipping address.", "InProgress", sessionAttributesMap, "ShippingAddress");
+            return ASK_SHIPPING_ADDRESS.with(sessionAttributesMap);
         }
 
         String email = getOrRestoreSlot("Email", slots, sessionAttributesMap, context);
         if (email == null || email.isEmpty()) {
-            return buildLexResponse(intentName, "Please provide your email address.", "InProgress", sessionAttributesMap, "Email");
+            return ASK_EMAIL.with(sessionAttributesMap);
         }
 
         String paymentMethod = getOrRestoreSlot("PaymentMethod", slots, sessionAttributesMap, context);
         if (paymentMethod == null || paymentMethod.isEmpty()) {
-            return buildLexResponse(intentName, "How would you like to pay ? You can choose between cash on delivery or online payment with a card.", "InProgress", sessionAttributesMap, "PaymentMethod");
+            return ASK_PAYMENT_METHOD.with(sessionAttributesMap);
         }
 
         String cardNumber = null;
@@ -250,25 +389,29 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
         if (paymentMethod.equalsIgnoreCase("card")) {
             cardNumber = getOrRestoreSlot("CardNumber", slots, sessionAttributesMap, context);
             if (cardNumber == null || cardNumber.isEmpty()) {
-                return buildLexResponse(intentName, "Please provide your credit card number to complete the payment.", "InProgress", sessionAttributesMap, "CardNumber");
+                return ASK_CARD_NUMBER.with(sessionAttributesMap);
             }
 
             expirationDate = getOrRestoreSlot("ExpirationDate", slots, sessionAttributesMap, context);
             if (expirationDate == null || expirationDate.isEmpty()) {
-                return buildLexResponse(intentName, "Please provide the expiration date of your card in MM/YY format (e.g., 12/25).", "InProgress", sessionAttributesMap, "ExpirationDate");
+                return ASK_EXPIRATION_DATE.with(sessionAttributesMap);
             }
 
             cvv = getOrRestoreSlot("CVV", slots, sessionAttributesMap, context);
             if (cvv == null || cvv.isEmpty()) {
-                return buildLexResponse(intentName, "Please provide the CVV code of your card (3 digits for most cards, 4 digits for American Express).", "InProgress", sessionAttributesMap, "CVV");
+                return ASK_CVV.with(sessionAttributesMap);
             }
 
-            context.getLogger().log("Calling validateCreditCard with card: " + cardNumber + " and CVV: " + cvv);
-            boolean isCardValid = validateCreditCard(cardNumber, cvv, context);
-            if (!isCardValid) {
+            CardValidator.Result cardCheck = cardValidator.validate(cardNumber, cvv, context);
+            if (cardCheck == CardValidator.Result.UNAVAILABLE) {
+                clearCardDetails(sessionAttributesMap);
+                sessionAttributesMap.remove("PaymentMethod");
+                return CARD_UNVERIFIED.with(sessionAttributesMap);
+            }
+            if (cardCheck == CardValidator.Result.INVALID) {
                 boolean isAmex = cardNumber.startsWith("34") || cardNumber.startsWith("37");
                 String cvvRequirement = isAmex ? "4-digit CVV" : "3-digit CVV";
-                context.getLogger().log("Card validation failed, prompting for " + cvvRequirement);
+                Log.info(context, () -> "Card validation failed, prompting for " + cvvRequirement);
                 return buildLexResponse(intentName,
                         "Invalid credit card details. Please ensure you're using a valid card number and " + cvvRequirement + ".",
                         "InProgress", sessionAttributesMap, "CVV");
@@ -278,71 +421,23 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
         String suggestionResponse = getOrRestoreSlot("SuggestionResponse", slots, sessionAttributesMap, context);
 
         if (suggestionResponse == null) {
-            int orderNumber = generateOrderNumber();
-
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build());
-            item.put("clients_name", AttributeValue.builder().s(clientName).build());
-            item.put("product_type", AttributeValue.builder().s(products).build());
-            item.put("product_name", AttributeValue.builder().s(productName).build());
-            item.put("product_number", AttributeValue.builder().s(productNumber != null ? productNumber : "N/A").build());
-            item.put("payment_method", AttributeValue.builder().s(paymentMethod).build());
-            item.put("shipping_address", AttributeValue.builder().s(shippingAddress).build());
-            item.put("email_address", AttributeValue.builder().s(email).build());
-
-            PutItemRequest putRequest = PutItemRequest.builder()
-                    .tableName(TABLE_NAME)
-                    .item(item)
-                    .build();
-            dynamoDbClient.putItem(putRequest);
-
-            String subject = "Order Confirmation - Order #" + orderNumber;
-            String body = String.format(
-                    "Dear %s,\n\nYour order has been successfully placed!\n\nOrder Details:\n- Order Number: #%d\n- Product: %s %s %s\n- Payment Method: %s\n- Shipping Address: %s\n\nThank you for shopping with us!",
-                    clientName, orderNumber, products, productName, productNumber != null ? productNumber : "N/A", paymentMethod, shippingAddress
-            );
-
-            sendEmail(email, subject, body, context);
-
-            String confirmationMessage = String.format(
-                    "Your order has been successfully placed ! Your order number is #%d.",
-                    orderNumber
-            );
-
-            String suggestedURL = getSuggestedURL(products);
-            sessionAttributesMap.put("SuggestedURL", suggestedURL);
-            sessionAttributesMap.put("Products", products);
-            sessionAttributesMap.put("orderNumber", String.valueOf(orderNumber));
-            context.getLogger().log("Set SuggestedURL in session attributes: " + suggestedURL);
-
-            JsonNode card = getRelatedArticleCard(products, String.valueOf(orderNumber));
-            return buildLexResponseWithTextAndCard(
-                    intentName,
-                    confirmationMessage,
-                    "InProgress",
-                    sessionAttributesMap,
-                    "SuggestionResponse",
-                    card
-            );
+            OrderConfirmation order = placeOrder(clientName, products, productName, productNumber, paymentMethod, shippingAddress, email, context);
+            // Queued only once the order is stored, so the outbox never holds an email for an order that is not there.
+            queueConfirmationEmail(order, context);
+            return confirmOrder(intentName, order.orderNumber(), products, getSuggestedURL(products),
+                    getRelatedArticleCard(products, String.valueOf(order.orderNumber())), sessionAttributesMap, context);
         }
 
         String cleanResponse = suggestionResponse.replace("\"", "").trim().toLowerCase();
-        context.getLogger().log("Cleaned SuggestionResponse: " + cleanResponse);
-
-        String suggestedURL = (String) sessionAttributesMap.get("SuggestedURL");
-        if (suggestedURL == null) {
-            context.getLogger().log("Suggestion url is not found in session attributes, recomputing");
-            String productsFromSession = (String) sessionAttributesMap.get("Products");
-            if (productsFromSession != null) {
-                suggestedURL = getSuggestedURL(productsFromSession);
-                context.getLogger().log("Recomputed SuggestedURL using Products: " + suggestedURL);
-            } else {
-                context.getLogger().log("Products not found in session attributes, using fallback URL");
-                suggestedURL = "https://bit.ly/hp-accessories";
-            }
-        } else {
-            context.getLogger().log("Found SuggestedURL in session attributes: " + suggestedURL);
-        }
+        Log.debug(context, () -> "Cleaned SuggestionResponse: " + cleanResponse);
+
+        String storedURL = (String) sessionAttributesMap.get("SuggestedURL");
+        String productsFromSession = (String) sessionAttributesMap.get("Products");
+        String suggestedURL = storedURL != null ? storedURL
+                : productsFromSession != null ? getSuggestedURL(productsFromSession) : "https://bit.ly/hp-accessories";
+        Log.debug(context, () -> storedURL != null
+                ? "Found SuggestedURL in session attributes: " + suggestedURL
+                : "SuggestedURL not in session attributes, recomputed from Products " + productsFromSession + ": " + suggestedURL);
 
         String orderNumberStr = (String) sessionAttributesMap.get("orderNumber");
         int orderNumber = orderNumberStr != null ? Integer.parseInt(orderNumberStr) : 0;
@@ -371,317 +466,263 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
                     urlCard
             );
         } else if ("no".equals(cleanResponse)) {
-            String finalMessage = "Okay, no problem. Thank you for your order !";
-            return buildLexResponse(intentName, finalMessage, "Fulfilled", sessionAttributesMap, null);
+            return SUGGESTION_DECLINED.with(sessionAttributesMap);
         } else {
-            String finalMessage = "I didn't understand your response. Thank you for your order !";
-            return buildLexResponse(intentName, finalMessage, "Fulfilled", sessionAttributesMap, null);
+            return SUGGESTION_UNCLEAR.with(sessionAttributesMap);
         }
     }
 
-    private Map<String, Object> handleChangeOrderIntent(String intentName, Map<String, Object> slots, Map<String, Object> sessionAttributesMap, Context context) {
+    private LexResponse handleChangeOrderIntent(String intentName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
         String orderNumberText = getOrRestoreSlot("OrderNumber", slots, sessionAttributesMap, context);
         if (orderNumberText == null || orderNumberText.isEmpty()) {
-            return buildLexResponse(intentName, "Please provide your order number.", "InProgress", sessionAttributesMap, "OrderNumber");
+            return ASK_ORDER_NUMBER.with(sessionAttributesMap);
         }
 
         int orderNumber;
         try {
             orderNumber = Integer.parseInt(orderNumberText);
             if (orderNumber <= 0) {
-                return buildLexResponse(intentName, "Order number must be a positive integer. Please provide a valid order number.", "InProgress", sessionAttributesMap, "OrderNumber");
+                return ORDER_NUMBER_NOT_POSITIVE.with(sessionAttributesMap);
             }
         } catch (NumberFormatException e) {
-            return buildLexResponse(intentName, "Invalid order number format. Please provide a valid order number.", "InProgress", sessionAttributesMap, "OrderNumber");
+            return ORDER_NUMBER_MALFORMED.with(sessionAttributesMap);
+        }
+
+        String action = getOrRestoreSlot("ActionType", slots, sessionAttributesMap, context);
+        String notFoundMessage = "Order number " + orderNumber + " does not exist. Please check and try again.";
+
+        // A turn that writes goes straight to a conditional write, which also checks the order exists.
+        if (action != null && action.equalsIgnoreCase("cancel")) {
+            if (!deleteOrder(orderNumber)) {
+                return buildLexResponse(intentName, notFoundMessage, "Failed", sessionAttributesMap, null);
+            }
+            String confirmationMessage = "Order number " + orderNumber + " has been successfully deleted.";
+            return buildLexResponse(intentName, confirmationMessage, "Fulfilled", sessionAttributesMap, null);
+        }
+
+        String shippingAddress = action != null && action.equalsIgnoreCase("update shipping address")
+                ? getOrRestoreSlot("ShippingAddress", slots, sessionAttributesMap, context) : null;
+        if (shippingAddress != null && !shippingAddress.isEmpty()) {
+            OrderWrite write = updateShippingAddress(orderNumber, shippingAddress);
+            if (!write.applied()) {
+                return buildLexResponse(intentName, notFoundMessage, "Failed", sessionAttributesMap, null);
+            }
+            String confirmationMessage = "The shipping address for order " + orderNumber + " has been successfully updated to "
+                    + write.item().get("shipping_address").s() + ".";
+            return buildLexResponse(intentName, confirmationMessage, "Fulfilled", sessionAttributesMap, null);
         }
 
         Map<String, AttributeValue> orderItem = getOrderItem(orderNumber);
         if (orderItem == null) {
-            return buildLexResponse(intentName, "Order number " + orderNumber + " does not exist. Please check and try again.", "Failed", sessionAttributesMap, null);
+            return buildLexResponse(intentName, notFoundMessage, "Failed", sessionAttributesMap, null);
         }
 
-        String action = getOrRestoreSlot("ActionType", slots, sessionAttributesMap, context);
         if (action == null || action.isEmpty()) {
-            return buildLexResponse(intentName, "How can I help you with your order ?", "InProgress", sessionAttributesMap, "ActionType");
+            return ASK_ACTION.with(sessionAttributesMap);
         }
 
         if (action.equalsIgnoreCase("update shipping address")) {
-            String shippingAddress = getOrRestoreSlot("ShippingAddress", slots, sessionAttributesMap, context);
-            if (shippingAddress == null || shippingAddress.isEmpty()) {
-                return buildLexResponse(intentName, "Please provide the new shipping address.", "InProgress", sessionAttributesMap, "ShippingAddress");
-            }
-            updateShippingAddress(orderNumber, shippingAddress);
-            String confirmationMessage = "The shipping address for order " + orderNumber + " has been successfully updated to " + shippingAddress + ".";
-            return buildLexResponse(intentName, confirmationMessage, "Fulfilled", sessionAttributesMap, null);
-        }
-
-        if (action.equalsIgnoreCase("cancel")) {
-            deleteOrder(orderNumber);
-            String confirmationMessage = "Order number " + orderNumber + " has been successfully deleted.";
-            return buildLexResponse(intentName, confirmationMessage, "Fulfilled", sessionAttributesMap, null);
+            return ASK_NEW_SHIPPING_ADDRESS.with(sessionAttributesMap);
         }
 
         if (action.equalsIgnoreCase("update_payment")) {
             String paymentMethod = orderItem.get("payment_method").s();
-            context.getLogger().log("Processing update_payment for payment method: " + paymentMethod);
+            Log.debug(context, () -> "Processing update_payment for payment method: " + paymentMethod);
             if (paymentMethod.equalsIgnoreCase("card")) {
                 return buildLexResponse(intentName, "The order with number " + orderNumber + " has already been paid online.", "Fulfilled", sessionAttributesMap, null);
             } else if (paymentMethod.equalsIgnoreCase("cash")) {
                 String cardNumber = getOrRestoreSlot("CardNumber", slots, sessionAttributesMap, context);
                 if (cardNumber == null || cardNumber.isEmpty()) {
-                    return buildLexResponse(intentName, "Please provide your credit card number to fulfill the payment.", "InProgress", sessionAttributesMap, "CardNumber");
+                    return ASK_PAYMENT_CARD_NUMBER.with(sessionAttributesMap);
                 }
 
                 String expirationDate = getOrRestoreSlot("ExpirationDate", slots, sessionAttributesMap, context);
                 if (expirationDate == null || expirationDate.isEmpty()) {
-                    return buildLexResponse(intentName, "Please provide the expiration date of your card in MM/YY format (e.g., 12/25).", "InProgress", sessionAttributesMap, "ExpirationDate");
+                    return ASK_PAYMENT_EXPIRATION_DATE.with(sessionAttributesMap);
                 }
 
                 String cvv = getOrRestoreSlot("CVV", slots, sessionAttributesMap, context);
                 if (cvv == null || cvv.isEmpty()) {
-                    return buildLexResponse(intentName, "Please provide the CVV code of your card (3 digits for most cards, 4 digits for American Express).", "InProgress", sessionAttributesMap, "CVV");
+                    return ASK_PAYMENT_CVV.with(sessionAttributesMap);
                 }
 
-                context.getLogger().log("Calling validateCreditCard with card: " + cardNumber + " and CVV: " + cvv);
-                boolean isCardValid = validateCreditCard(cardNumber, cvv, context);
-                if (!isCardValid) {
+                CardValidator.Result cardCheck = cardValidator.validate(cardNumber, cvv, context);
+                if (cardCheck == CardValidator.Result.UNAVAILABLE) {
+                    clearCardDetails(sessionAttributesMap);
+                    return PAYMENT_CARD_UNVERIFIED.with(sessionAttributesMap);
+                }
+                if (cardCheck == CardValidator.Result.INVALID) {
                     boolean isAmex = cardNumber.startsWith("34") || cardNumber.startsWith("37");
                     String cvvRequirement = isAmex ? "4-digit CVV" : "3-digit CVV";
-                    context.getLogger().log("Card validation failed, prompting for " + cvvRequirement);
+                    Log.info(context, () -> "Card validation failed, prompting for " + cvvRequirement);
                     return buildLexResponse(intentName,
                             "Invalid credit card details. Please ensure you're using a valid card number and " + cvvRequirement + ".",
                             "InProgress", sessionAttributesMap, "CVV");
                 }
 
-                updatePaymentMethod(orderNumber, "card");
-                return buildLexResponse(intentName, "Your order has been paid successfully.", "Fulfilled", sessionAttributesMap, null);
+                OrderWrite write = updatePaymentMethod(orderNumber, paymentMethod, "card");
+                if (write.item() == null) {
+                    return buildLexResponse(intentName, notFoundMessage, "Failed", sessionAttributesMap, null);
+                }
+                if (!write.applied()) {
+                    // Changed by another session since this dialog read the order.
+                    String currentMethod = write.item().get("payment_method").s();
+                    return currentMethod.equalsIgnoreCase("card")
+                            ? buildLexResponse(intentName, "The order with number " + orderNumber + " has already been paid online.", "Fulfilled", sessionAttributesMap, null)
+                            : buildLexResponse(intentName, "Unknown payment method for order " + orderNumber + ". Please contact support.", "Failed", sessionAttributesMap, null);
+                }
+                return PAYMENT_DONE.with(sessionAttributesMap);
             } else {
                 return buildLexResponse(intentName, "Unknown payment method for order " + orderNumber + ". Please contact support.", "Failed", sessionAttributesMap, null);
             }
         }
-        return buildLexResponse(intentName, "How can I help you with your order ?", "InProgress", sessionAttributesMap, "ActionType");
-    }
-
-    private Map<String, Object> handleGreetingsIntent(String intentName, Map<String, Object> slots, Map<String, Object> sessionAttributesMap, Context context) {
-        String greetingMessage = "Hello ! Welcome to HP SmartBot ! How may I help you today ?";
-        return buildLexResponse(intentName, greetingMessage, "Fulfilled", sessionAttributesMap, null);
+        return ASK_ACTION.with(sessionAttributesMap);
     }
 
-    private Map<String, Object> handleFallBackIntent(String intentName, Map<String, Object> slots, Map<String, Object> sessionAttributesMap, Context context) {
-        String errorMessage = "I'm sorry, I couldn't understand your request. Could you please clarify your message ?";
-        return buildLexResponse(intentName, errorMessage, "Fulfilled", sessionAttributesMap, null);
-    }
-
-    private String getOrRestoreSlot(String slotName, Map<String, Object> slots, Map<String, Object> sessionAttributesMap, Context context) {
-        String slotValue = null;
-        if (slots.get(slotName) != null) {
-            JsonNode slotNode = new ObjectMapper().valueToTree(slots.get(slotName));
-            if (slotNode.has("value") && slotNode.path("value").has("interpretedValue")) {
-                slotValue = slotNode.path("value").path("interpretedValue").asText();
-                if (slotValue.startsWith("\"") && slotValue.endsWith("\"")) {
-                    slotValue = slotValue.substring(1, slotValue.length() - 1);
-                }
-                sessionAttributesMap.put(slotName, slotValue);
-                context.getLogger().log(slotName + " stored in session attributes: " + slotValue);
+    private LexResponse handleFindOrdersIntent(String intentName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
+        // A newly given address starts over from the most recent order.
+        if (slots.get("Email") != null) {
+            sessionAttributesMap.remove("OrdersCursor");
+        }
+        String email = getOrRestoreSlot("Email", slots, sessionAttributesMap, context);
+        if (email == null || !email.contains("@")) {
+            sessionAttributesMap.remove("Email");
+            return ASK_LOOKUP_EMAIL.with(sessionAttributesMap);
+        }
+
+        String cursor = (String) sessionAttributesMap.get("OrdersCursor");
+        if (cursor != null) {
+            String showMore = slots.get("ShowMore");
+            if (showMore == null || !showMore.trim().equalsIgnoreCase("yes")) {
+                sessionAttributesMap.remove("OrdersCursor");
+                sessionAttributesMap.remove("Email");
+                return NO_MORE_ORDERS.with(sessionAttributesMap);
             }
-        } else if (sessionAttributesMap.containsKey(slotName)) {
-            slotValue = (String) sessionAttributesMap.get(slotName);
-            context.getLogger().log("Restored " + slotName + " from session attributes: " + slotValue);
         }
-        return slotValue;
-    }
 
-    private Map<String, Object> buildLexResponse(String intentName, String message, String intentState, Map<String, Object> sessionAttributes, String slotToElicit) {
-        Map<String, Object> dialogAction = new HashMap<>();
-
-        if (slotToElicit != null && (slotToElicit.equals("OrderNumber") || slotToElicit.equals("ActionType") || slotToElicit.equals("ShippingAddress") ||
-                slotToElicit.equals("PaymentMethod") || slotToElicit.equals("CardNumber") || slotToElicit.equals("ExpirationDate") || slotToElicit.equals("CVV") ||
-                slotToElicit.equals("Products") || slotToElicit.equals("ProductName") || slotToElicit.equals("ProductNumber") || slotToElicit.equals("Name") ||
-                slotToElicit.equals("Email") || slotToElicit.equals("SuggestionResponse"))) {
-            dialogAction.put("type", "ElicitSlot");
-            dialogAction.put("slotToElicit", slotToElicit);
-        } else {
-            dialogAction.put("type", "Close");
+        OrdersPage page = findOrdersByEmail(email.trim(), cursor);
+        if (page.orders().isEmpty()) {
+            sessionAttributesMap.remove("OrdersCursor");
+            sessionAttributesMap.remove("Email");
+            return cursor == null
+                    ? buildLexResponse(intentName, "I couldn't find any order placed with " + email.trim() + ". Please check the address and try again.",
+                            "InProgress", sessionAttributesMap, "Email")
+                    : buildLexResponse(intentName, "That was all of your orders.", "Fulfilled", sessionAttributesMap, null);
         }
 
-        Set<String> validSlots = switch (intentName) {
-            case "OrderHPItemIntent" ->
-                    Set.of("Products", "ProductName", "ProductNumber", "Name", "ShippingAddress", "Email", "PaymentMethod", "CardNumber", "ExpirationDate", "CVV", "SuggestionResponse");
-            case "ChangeOrderIntent" ->
-                    Set.of("OrderNumber", "ActionType", "ShippingAddress", "CardNumber", "ExpirationDate", "CVV");
-            default -> Set.of();
-        };
-
-        Map<String, Object> slots = new HashMap<>();
-        for (String key : sessionAttributes.keySet()) {
-            if (validSlots.contains(key)) {
-                slots.put(key, Map.of("value", Map.of("interpretedValue", sessionAttributes.get(key))));
-            }
+        List<String> lines = new ArrayList<>(page.orders().size());
+        List<LexResponse.Button> buttons = new ArrayList<>(page.orders().size() + 1);
+        for (Map<String, AttributeValue> order : page.orders()) {
+            String orderNumber = order.get("order_number").n();
+            lines.add("#" + orderNumber + " " + textOf(order, "product_name") + " " + textOf(order, "product_type") + ", " + textOf(order, "payment_method"));
+            buttons.add(new LexResponse.Button("Manage #" + orderNumber, "Modify order " + orderNumber));
+        }
+        String subtitle = String.join(" | ", lines);
+        if (subtitle.length() > 250) {
+            subtitle = subtitle.substring(0, 247) + "...";
         }
+        if (page.nextCursor() != null) {
+            buttons.add(new LexResponse.Button("Show more", "yes"));
+            sessionAttributesMap.put("OrdersCursor", page.nextCursor());
+        } else {
+            sessionAttributesMap.remove("OrdersCursor");
+            sessionAttributesMap.remove("Email");
+        }
+        LexResponse.Card card = new LexResponse.Card(cursor == null ? "Your orders" : "More of your orders", subtitle, buttons);
+        String message = page.nextCursor() != null ? "Here are your most recent orders. Would you like to see more ?" : "Here are your orders.";
+        return page.nextCursor() != null
+                ? LexResponse.textAndCard(intentName, message, "InProgress", sessionAttributesMap, "ShowMore", card)
+                : LexResponse.textAndCard(intentName, message, "Fulfilled", sessionAttributesMap, null, card);
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("sessionState", Map.of(
-                "dialogAction", dialogAction,
-                "intent", Map.of(
-                        "name", intentName,
-                        "state", intentState,
-                        "slots", slots
-                ),
-                "sessionAttributes", sessionAttributes != null ? sessionAttributes : new HashMap<>()
-        ));
-
-        response.put("messages", new Object[]{
-                Map.of(
-                        "contentType", "PlainText",
-                        "content", message
-                )
-        });
-
-        return response;
+    private static String textOf(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        return value == null || value.s() == null ? "" : value.s();
     }
 
-    private Map<String, Object> buildLexResponseWithTextAndCard(String intentName, String textMessage, String intentState, Map<String, Object> sessionAttributes, String slotToElicit, JsonNode card) {
-        Map<String, Object> dialogAction = new HashMap<>();
+    private LexResponse handleGreetingsIntent(String intentName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
+        return GREETING.with(sessionAttributesMap);
+    }
 
-        if (slotToElicit != null && (slotToElicit.equals("OrderNumber") || slotToElicit.equals("ActionType") || slotToElicit.equals("ShippingAddress") ||
-                slotToElicit.equals("PaymentMethod") || slotToElicit.equals("CardNumber") || slotToElicit.equals("ExpirationDate") || slotToElicit.equals("CVV") ||
-                slotToElicit.equals("Products") || slotToElicit.equals("ProductName") || slotToElicit.equals("ProductNumber") || slotToElicit.equals("Name") ||
-                slotToElicit.equals("Email") || slotToElicit.equals("SuggestionResponse"))) {
-            dialogAction.put("type", "ElicitSlot");
-            dialogAction.put("slotToElicit", slotToElicit);
-        } else {
-            dialogAction.put("type", "Close");
-        }
+    private LexResponse handleFallBackIntent(String intentName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
+        // Unregistered intents land here too, and their replies carry their own name.
+        return "FallbackIntent".equals(intentName)
+                ? FALLBACK.with(sessionAttributesMap)
+                : buildLexResponse(intentName, "I'm sorry, I couldn't understand your request. Could you please clarify your message ?", "Fulfilled",
+                        sessionAttributesMap, null);
+    }
 
-        Set<String> validSlots = switch (intentName) {
-            case "OrderHPItemIntent" ->
-                    Set.of("Products", "ProductName", "ProductNumber", "Name", "ShippingAddress", "Email", "PaymentMethod", "CardNumber", "ExpirationDate", "CVV", "SuggestionResponse");
-            case "ChangeOrderIntent" ->
-                    Set.of("OrderNumber", "ActionType", "ShippingAddress", "CardNumber", "ExpirationDate", "CVV");
-            default -> Set.of();
-        };
+    private LexResponse confirmOrder(String intentName, int orderNumber, String products, String suggestedURL, JsonNode card,
+                                     Map<String, Object> sessionAttributesMap, Context context) {
+        String confirmationMessage = String.format(
+                "Your order has been successfully placed ! Your order number is #%d.",
+                orderNumber
+        );
+
+        sessionAttributesMap.put("SuggestedURL", suggestedURL);
+        sessionAttributesMap.put("Products", products);
+        sessionAttributesMap.put("orderNumber", String.valueOf(orderNumber));
+        Log.debug(context, () -> "Set SuggestedURL in session attributes: " + suggestedURL);
+
+        return buildLexResponseWithTextAndCard(
+                intentName,
+                confirmationMessage,
+                "InProgress",
+                sessionAttributesMap,
+                "SuggestionResponse",
+                card
+        );
+    }
 
-        Map<String, Object> slots = new HashMap<>();
-        for (String key : sessionAttributes.keySet()) {
-            if (validSlots.contains(key)) {
-                slots.put(key, Map.of("value", Map.of("interpretedValue", sessionAttributes.get(key))));
-            }
-        }
+    private static void clearCardDetails(Map<String, Object> sessionAttributesMap) {
+        sessionAttributesMap.remove("CardNumber");
+        sessionAttributesMap.remove("ExpirationDate");
+        sessionAttributesMap.remove("CVV");
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("sessionState", Map.of(
-                "dialogAction", dialogAction,
-                "intent", Map.of(
-                        "name", intentName,
-                        "state", intentState,
-                        "slots", slots
-                ),
-                "sessionAttributes", sessionAttributes != null ? sessionAttributes : new HashMap<>()
-        ));
-
-        List<Map<String, Object>> messageList = new ArrayList<>();
-
-        messageList.add(Map.of(
-                "contentType", "PlainText",
-                "content", textMessage
-        ));
-
-        JsonNode content = card.get("content");
-        ArrayNode buttons = (ArrayNode) content.get("buttons");
-        List<Map<String, String>> buttonList = new ArrayList<>();
-
-        for (JsonNode buttonNode : buttons) {
-            buttonList.add(Map.of(
-                    "text", buttonNode.get("text").asText(),
-                    "value", buttonNode.get("value").asText()
-            ));
+    private String getOrRestoreSlot(String slotName, Map<String, String> slots, Map<String, Object> sessionAttributesMap, Context context) {
+        String slotValue = slots.get(slotName);
+        if (slotValue != null) {
+            sessionAttributesMap.put(slotName, slotValue);
+            return slotValue;
         }
-
-        Map<String, Object> cardMap = new HashMap<>();
-        if (content.has("title")) {
-            cardMap.put("title", content.get("title").asText());
+        if (!sessionAttributesMap.containsKey(slotName)) {
+            return null;
         }
-        cardMap.put("subtitle", content.get("subtitle").asText());
-        cardMap.put("buttons", buttonList);
+        String restored = (String) sessionAttributesMap.get(slotName);
+        Log.debug(context, () -> "Restored " + slotName + " from session attributes: "
+                + (CardDetailRedactor.isSecret(slotName) ? "***" : restored));
+        return restored;
+    }
 
-        messageList.add(Map.of(
-                "contentType", "ImageResponseCard",
-                "imageResponseCard", cardMap
-        ));
+    private LexResponse buildLexResponse(String intentName, String message, String intentState, Map<String, Object> sessionAttributes, String slotToElicit) {
+        return LexResponse.text(intentName, message, intentState, sessionAttributes, slotToElicit);
+    }
 
-        response.put("messages", messageList.toArray());
-        return response;
+    private LexResponse buildLexResponseWithTextAndCard(String intentName, String textMessage, String intentState, Map<String, Object> sessionAttributes, String slotToElicit, JsonNode card) {
+        return LexResponse.textAndCard(intentName, textMessage, intentState, sessionAttributes, slotToElicit, toCard(card.get("content"), false));
     }
 
-    private Map<String, Object> buildLexResponseWithCardOnly(
+    private LexResponse buildLexResponseWithCardOnly(
             String intentName,
             String intentState,
             Map<String, Object> sessionAttributes,
             String slotToElicit,
             JsonNode card) {
+        return LexResponse.card(intentName, intentState, sessionAttributes, slotToElicit, toCard(card.get("content"), true));
+    }
 
-        Map<String, Object> dialogAction = new HashMap<>();
-        dialogAction.put("type", slotToElicit != null ? "ElicitSlot" : "Close");
-        if (slotToElicit != null) {
-            dialogAction.put("slotToElicit", slotToElicit);
-        }
-
-        JsonNode content = card.get("content");
-        ArrayNode buttons = (ArrayNode) content.get("buttons");
-
-        List<Map<String, String>> buttonList = new ArrayList<>();
-        for (JsonNode buttonNode : buttons) {
+    private LexResponse.Card toCard(JsonNode content, boolean checkButtonValues) {
+        List<LexResponse.Button> buttons = new ArrayList<>();
+        for (JsonNode buttonNode : content.get("buttons")) {
             String buttonValue = buttonNode.get("value").asText();
-            if (buttonValue.length() > 50) {
+            if (checkButtonValues && buttonValue.length() > 50) {
                 throw new IllegalArgumentException("Button value exceeds 50 characters: " + buttonValue);
             }
-            buttonList.add(Map.of(
-                    "text", buttonNode.get("text").asText(),
-                    "value", buttonValue
-            ));
+            buttons.add(new LexResponse.Button(buttonNode.get("text").asText(), buttonValue));
         }
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("sessionState", Map.of(
-                "dialogAction", dialogAction,
-                "intent", Map.of(
-                        "name", intentName,
-                        "state", intentState,
-                        "slots", sessionAttributes.entrySet().stream()
-                                .filter(e -> isValidSlotForIntent(intentName, e.getKey()))
-                                .collect(Collectors.toMap(
-                                        Map.Entry::getKey,
-                                        e -> Map.of("value", Map.of("interpretedValue", e.getValue()))
-                                ))
-                ),
-                "sessionAttributes", sessionAttributes
-        ));
-
-        response.put("messages", new Object[] {
-                Map.of(
-                        "contentType", "ImageResponseCard",
-                        "imageResponseCard", Map.of(
-                                "title", content.get("title").asText(),
-                                "subtitle", content.get("subtitle").asText(),
-                                "buttons", buttonList
-                        )
-                )
-        });
-
-        return response;
-    }
-
-    private boolean isValidSlotForIntent(String intentName, String slotName) {
-        return switch (intentName) {
-            case "OrderHPItemIntent" ->
-                    Set.of("Products", "ProductName", "ProductNumber", "Name",
-                            "ShippingAddress", "Email", "PaymentMethod", "CardNumber",
-                            "ExpirationDate", "CVV", "SuggestionResponse").contains(slotName);
-            case "ChangeOrderIntent" ->
-                    Set.of("OrderNumber", "ActionType", "ShippingAddress",
-                            "CardNumber", "ExpirationDate", "CVV").contains(slotName);
-            default -> false;
-        };
+        String title = content.has("title") ? content.get("title").asText() : null;
+        return new LexResponse.Card(title, content.get("subtitle").asText(), buttons);
     }
 
     private JsonNode getUrlCard(String url, String productType) {
@@ -720,30 +761,78 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
     }
 
     private Map<String, AttributeValue> getOrderItem(int orderNumber) {
+        Map<String, AttributeValue> cached = orderCache.get(orderNumber);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, AttributeValue> item = fetchOrderItem(orderNumber);
+        if (item != null) {
+            orderCache.put(orderNumber, item);
+        }
+        return item;
+    }
+
+    /** One page of a customer's orders, most recent first, and where the next page starts, if there is one. */
+    private record OrdersPage(List<Map<String, AttributeValue>> orders, String nextCursor) {
+    }
+
+    /** A Query on the email index: one round trip per page, however large the table is. */
+    private OrdersPage findOrdersByEmail(String email, String afterOrderNumber) {
+        AttributeValue emailValue = AttributeValue.builder().s(email).build();
+        QueryRequest.Builder request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                .indexName(ORDERS_BY_EMAIL_INDEX)
+                .keyConditionExpression("email_address = :email")
+                .expressionAttributeValues(Map.of(":email", emailValue))
+                .projectionExpression("order_number, " + String.join(", ", ORDERS_BY_EMAIL_PROJECTION))
+                .scanIndexForward(false)
+                .limit(ORDERS_PAGE_SIZE);
+        if (afterOrderNumber != null) {
+            request.exclusiveStartKey(Map.of(
+                    "email_address", emailValue,
+                    "order_number", AttributeValue.builder().n(afterOrderNumber).build()));
+        }
+        QueryRequest query = request.build();
+        QueryResponse response = dynamoDb.call(() -> dynamoDbClient.query(query));
+        String nextCursor = response.hasLastEvaluatedKey() && response.lastEvaluatedKey().containsKey("order_number")
+                ? response.lastEvaluatedKey().get("order_number").n() : null;
+        return new OrdersPage(response.items(), nextCursor);
+    }
+
+    private Map<String, AttributeValue> fetchOrderItem(int orderNumber) {
         GetItemRequest request = GetItemRequest.builder()
                 .tableName(TABLE_NAME)
                 .key(Map.of("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build()))
+                .projectionExpression(OrderCache.PROJECTION)
                 .build();
-        GetItemResponse response = dynamoDbClient.getItem(request);
+        GetItemResponse response = dynamoDb.call(() -> dynamoDbClient.getItem(request));
         if (response.hasItem()) {
             return response.item();
         }
         return null;
     }
 
-    private void deleteOrder(int orderNumber) {
+    /** Deletes the order if it exists; false when there was none. */
+    private boolean deleteOrder(int orderNumber) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build());
 
         DeleteItemRequest deleteRequest = DeleteItemRequest.builder()
                 .tableName(TABLE_NAME)
                 .key(key)
+                .conditionExpression("attribute_exists(order_number)")
                 .build();
 
-        dynamoDbClient.deleteItem(deleteRequest);
+        orderCache.invalidate(orderNumber);
+        try {
+            dynamoDb.callOnce(() -> dynamoDbClient.deleteItem(deleteRequest));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
     }
 
-    private void updateShippingAddress(int orderNumber, String newAddress) {
+    private OrderWrite updateShippingAddress(int orderNumber, String newAddress) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build());
 
@@ -754,18 +843,22 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
                 .tableName(TABLE_NAME)
                 .key(key)
                 .updateExpression("SET shipping_address = :newAddress")
+                .conditionExpression("attribute_exists(order_number)")
                 .expressionAttributeValues(attributeValues)
+                .returnValues(ReturnValue.ALL_NEW)
                 .build();
 
-        dynamoDbClient.updateItem(request);
+        return writeOrder(orderNumber, request);
     }
 
-    private void updatePaymentMethod(int orderNumber, String newPaymentMethod) {
+    /** Sets the payment method only if it still is {@code expectedPaymentMethod}. */
+    private OrderWrite updatePaymentMethod(int orderNumber, String expectedPaymentMethod, String newPaymentMethod) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put("order_number", AttributeValue.builder().n(String.valueOf(orderNumber)).build());
 
         Map<String, AttributeValue> attributeValues = new HashMap<>();
         attributeValues.put(":newPaymentMethod", AttributeValue.builder().s(newPaymentMethod).build());
+        attributeValues.put(":expectedPaymentMethod", AttributeValue.builder().s(expectedPaymentMethod).build());
 
         Map<String, String> expressionAttributeNames = new HashMap<>();
         expressionAttributeNames.put("#pm", "payment_method");
@@ -774,211 +867,81 @@ public class SimpleHandler implements RequestHandler<Map<String, Object>, Map<St
                 .tableName(TABLE_NAME)
                 .key(key)
                 .updateExpression("SET #pm = :newPaymentMethod")
+                .conditionExpression("attribute_exists(order_number) AND #pm = :expectedPaymentMethod")
                 .expressionAttributeValues(attributeValues)
                 .expressionAttributeNames(expressionAttributeNames)
+                .returnValues(ReturnValue.ALL_NEW)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
                 .build();
 
-        dynamoDbClient.updateItem(request);
+        return writeOrder(orderNumber, request);
     }
 
-    private boolean validateCreditCard(String cardNumber, String cvv, Context context) {
-        context.getLogger().log("Entering validateCreditCard with card: " + cardNumber + " and CVV: " + cvv);
-        try {
-            if (cardNumber == null || cardNumber.length() < 13 || cardNumber.length() > 19) {
-                context.getLogger().log("Invalid card number length: " + (cardNumber != null ? cardNumber.length() : "null"));
-                return false;
-            }
-            if (cvv == null || cvv.isEmpty()) {
-                context.getLogger().log("CVV is null or empty");
-                return false;
-            }
-            String requestBody = objectMapper.writeValueAsString(Map.of("cardNumber", cardNumber));
-            context.getLogger().log("Request body: " + requestBody);
-
-
-            String apiKey = getApiKey(context);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://credit-card-validator2.p.rapidapi.com/validate-credit-card"))
-                    .header("X-RapidAPI-Host", ALGOBOOK_API_HOST)
-                    .header("X-RapidAPI-Key", apiKey)
-                    .header("Content-Type", "application/json")
-                    .method("POST", HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            context.getLogger().log("API Status: " + response.statusCode());
-            context.getLogger().log("API Response: " + response.body());
-
-            JsonNode responseNode = objectMapper.readTree(response.body());
-            boolean isValid = responseNode.path("isValid").asBoolean(false);
-            if (!isValid) {
-                context.getLogger().log("Card number validation failed via API");
-                return false;
-            }
-
-            JsonNode cardTypeNode = responseNode.path("cardType");
-            String cardType = cardTypeNode.asText("UNKNOWN");
-            String cleanCvv = cvv.replaceAll("[^0-9]", "");
-
-            context.getLogger().log("Card type identified as: " + cardType);
-            context.getLogger().log("CVV provided: " + cleanCvv + " (length: " + cleanCvv.length() + ")");
-
-            boolean isAmex = cardType.equalsIgnoreCase("American Express") ||
-                    cardNumber.startsWith("34") ||
-                    cardNumber.startsWith("37");
+    /**
+     * The outcome of a conditional order write in one round trip: the item after the write when it was
+     * applied, otherwise the item as the failed condition found it, or null when there is no such order.
+     */
+    private record OrderWrite(boolean applied, Map<String, AttributeValue> item) {
+    }
 
-            if (isAmex) {
-                if (cleanCvv.length() != 4) {
-                    context.getLogger().log("Validation failed: American Express requires 4-digit CVV, got " + cleanCvv.length());
-                    return false;
-                }
+    /** Writes through the order cache; a write that fails may still have landed, so the entry is dropped. */
+    private OrderWrite writeOrder(int orderNumber, UpdateItemRequest request) {
+        try {
+            UpdateItemResponse response = dynamoDb.callOnce(() -> dynamoDbClient.updateItem(request));
+            orderCache.put(orderNumber, response.attributes());
+            return new OrderWrite(true, response.attributes());
+        } catch (ConditionalCheckFailedException e) {
+            Map<String, AttributeValue> current = e.hasItem() && !e.item().isEmpty() ? e.item() : null;
+            if (current == null) {
+                orderCache.invalidate(orderNumber);
             } else {
-                if (cleanCvv.length() != 3) {
-                    context.getLogger().log("Validation failed: " + cardType + " requires 3-digit CVV, got " + cleanCvv.length());
-                    return false;
-                }
-            }
-
-            if (!cleanCvv.matches("\\d+")) {
-                context.getLogger().log("Validation failed: CVV contains invalid characters: " + cleanCvv);
-                return false;
+                orderCache.put(orderNumber, current);
             }
-
-            context.getLogger().log("Credit card and CVV validation successful");
-            return true;
-        } catch (Exception e) {
-            context.getLogger().log("Error validating credit card: " + e.getMessage());
-            return false;
+            return new OrderWrite(false, current);
+        } catch (RuntimeException e) {
+            orderCache.invalidate(orderNumber);
+            throw e;
         }
     }
 
-    private boolean sendEmail(String toEmail, String subject, String body, Context context) {
-        int retries = 3;
-        for (int i = 0; i < retries; i++) {
-            try {
-                String recipientEmail = RECEIVER_EMAIL;
-                Destination destination = Destination.builder()
-                        .toAddresses(recipientEmail)
-                        .build();
-                String greeting = "";
-                String mainMessage = "";
-                Map<String, String> orderDetails = new LinkedHashMap<>();
-                String[] lines = body.split("\n");
-                boolean inOrderDetails = false;
-                for (String line : lines) {
-                    line = line.trim();
-                    if (line.isEmpty()) continue;
-                    if (line.startsWith("Dear")) {
-                        greeting = line;
-                    } else if (line.equals("Order Details:")) {
-                        inOrderDetails = true;
-                    } else if (inOrderDetails && line.startsWith("-")) {
-                        String[] parts = line.substring(2).split(":", 2);
-                        if (parts.length == 2) {
-                            orderDetails.put(parts[0].trim(), parts[1].trim());
-                        }
-                    } else if (!line.equals("Order Details:") && !inOrderDetails) {
-                        mainMessage += (mainMessage.isEmpty() ? "" : "<br>") + line;
-                    }
-                }
-
-                StringBuilder orderDetailsHtml = new StringBuilder();
-                if (!orderDetails.isEmpty()) {
-                    orderDetailsHtml.append("<h2 style=\"font-size: 18px; color: #0096D6; margin: 20px 0 10px;\">Order Details</h2>")
-                            .append("<table border=\"0\" cellpadding=\"8\" cellspacing=\"0\" width=\"100%\" style=\"background-color: #F9F9F9; border: 1px solid #E0E0E0;\">");
-                    for (Map.Entry<String, String> entry : orderDetails.entrySet()) {
-                        orderDetailsHtml.append("<tr>")
-                                .append("<td style=\"font-size: 14px; font-weight: bold; color: #333333;\">").append(entry.getKey()).append(":</td>")
-                                .append("<td style=\"font-size: 14px; color: #333333;\">").append(entry.getValue()).append("</td>")
-                                .append("</tr>");
-                    }
-                    orderDetailsHtml.append("</table>");
-                }
+    private OrderConfirmation placeOrder(String clientName, String products, String productName, String productNumber,
+                                         String paymentMethod, String shippingAddress, String email, Context context) {
+        while (true) {
+            OrderConfirmation order = new OrderConfirmation(generateOrderNumber(), clientName, email, products, productName, productNumber,
+                    paymentMethod, shippingAddress);
 
-                String htmlBody = "<!DOCTYPE html>" +
-                        "<html>" +
-                        "<head>" +
-                        "<meta charset=\"UTF-8\">" +
-                        "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">" +
-                        "<title>" + subject + "</title>" +
-                        "</head>" +
-                        "<body style=\"margin: 0; padding: 0; font-family: Arial, sans-serif; background-color: #F5F5F5; color: #333333;\">" +
-                        "<table align=\"center\" border=\"0\" cellpadding=\"0\" cellspacing=\"0\" width=\"100%\" style=\"max-width: 600px; background-color: #FFFFFF; border: 1px solid #E0E0E0;\">" +
-                        "<tr>" +
-                        "<td style=\"padding: 20px; text-align: center; background-color: #0096D6;\">" +
-                        "<img src=\"https://logo-marque.com/wp-content/uploads/2020/12/Hewlett-Packard-Logo-2008-2014.png\" alt=\"HP Logo\" style=\"max-width: 150px;\">" +
-                        "<h1 style=\"color: #FFFFFF; font-size: 24px; margin: 10px 0;\">" + subject + "</h1>" +
-                        "</td>" +
-                        "</tr>" +
-                        "<tr>" +
-                        "<td style=\"padding: 20px;\">" +
-                        "<p style=\"font-size: 16px; line-height: 1.5;\">" + greeting + "</p>" +
-                        "<p style=\"font-size: 16px; line-height: 1.5;\">" + mainMessage + "</p>" +
-                        orderDetailsHtml.toString() +
-                        "</td>" +
-                        "</tr>" +
-                        "<tr>" +
-                        "<td style=\"padding: 20px; text-align: center; background-color: #F5F5F5; border-top: 1px solid #E0E0E0;\">" +
-                        "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Thank you for shopping with us!</p>" +
-                        "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 5px 0;\">HP SmartBot Team</p>" +
-                        "<p style=\"font-size: 14px; line-height: 1.5; color: #666666; margin: 0;\">Contact us at: <a href=\"mailto:support@hp.com\" style=\"color: #0096D6; text-decoration: none;\">support@hp.com</a></p>" +
-                        "</td>" +
-                        "</tr>" +
-                        "</table>" +
-                        "</body>" +
-                        "</html>";
-
-                Message message = Message.builder()
-                        .subject(Content.builder().data(subject).build())
-                        .body(Body.builder()
-                                .text(Content.builder().data(body).build())
-                                .html(Content.builder().data(htmlBody).build())
-                                .build())
-                        .build();
-
-                SendEmailRequest emailRequest = SendEmailRequest.builder()
-                        .source(SENDER_EMAIL)
-                        .destination(destination)
-                        .message(message)
-                        .build();
-
-                sesClient.sendEmail(emailRequest);
-                context.getLogger().log("Email sent successfully to " + recipientEmail);
-                return true;
-            } catch (Exception e) {
-                context.getLogger().log("Attempt " + (i + 1) + " failed: Error sending email to " + toEmail + ": " + e.getMessage());
-                context.getLogger().log("Stack trace: " + Arrays.toString(e.getStackTrace()));
-                if (i == retries - 1) {
-                    context.getLogger().log("All retries failed for sending email to " + toEmail);
-                    return false;
-                }
-                try {
-                    Thread.sleep(1000 * (i + 1));
-                } catch (InterruptedException ie) {
-                    context.getLogger().log("Retry interrupted: " + ie.getMessage());
-                }
+            try {
+                return storeOrder(order);
+            } catch (ConditionalCheckFailedException e) {
+                Log.warn(context, () -> "Order number " + order.orderNumber() + " is already taken, allocating another one");
             }
         }
-        return false;
     }
 
-    private int generateOrderNumber() {
-        ScanRequest scanRequest = ScanRequest.builder()
+    private OrderConfirmation storeOrder(OrderConfirmation order) {
+        PutItemRequest putRequest = PutItemRequest.builder()
                 .tableName(TABLE_NAME)
+                .item(order.toItem())
+                .conditionExpression("attribute_not_exists(order_number)")
                 .build();
-        ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
-
-        int highestOrderNumber = 0;
-        for (Map<String, AttributeValue> item : scanResponse.items()) {
-            AttributeValue orderNumberAttr = item.get("order_number");
-            if (orderNumberAttr != null && orderNumberAttr.n() != null) {
-                int orderNumber = Integer.parseInt(orderNumberAttr.n());
-                highestOrderNumber = Math.max(highestOrderNumber, orderNumber);
-            }
+        dynamoDb.callOnce(() -> dynamoDbClient.putItem(putRequest));
+        return order;
+    }
+
+    // A confirmation that cannot be queued must not fail the order it confirms.
+    private void queueConfirmationEmail(OrderConfirmation order, Context context) {
+        try {
+            emailOutboxQueue.call(() -> {
+                emailOutbox.enqueue(order);
+                return null;
+            });
+        } catch (Exception e) {
+            Log.warn(context, () -> "Failed to queue confirmation email for order #" + order.orderNumber() + ": " + e.getMessage());
         }
+    }
 
-        return highestOrderNumber == 0 ? 1000 : highestOrderNumber + 1;
+    private int generateOrderNumber() {
+        return orderNumberAllocator.nextOrderNumber();
     }
 
     private JsonNode getRelatedArticleCard(String productType, String orderNumber) {
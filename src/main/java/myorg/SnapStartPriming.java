@@ -0,0 +1,159 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dummy traffic for the SnapStart checkpoint: turns that only elicit slots or close the dialog, so no
+ * order is placed, no email is sent and the FAQ function is not invoked.
+ */
+final class SnapStartPriming {
+    static final String LUHN_INVALID_CARD = "4111111111111112";
+
+    private SnapStartPriming() {
+    }
+
+    static void serializeOrderConfirmation() throws Exception {
+        Json.MAPPER.readValue(Json.MAPPER.writeValueAsString(
+                new OrderConfirmation(0, "priming", "priming@example.com", "laptop", "Streambook", "11", "cash", "priming")),
+                OrderConfirmation.class);
+    }
+
+    static void serializeFaqExchange() throws Exception {
+        Map<String, Object> event = event("FAQIntent", Map.of("Query", "priming"));
+        Json.MAPPER.writerFor(FaqRequest.class).writeValueAsBytes(
+                FaqRequest.of(LexEvent.fromMap(event), "priming", Set.of("Products")));
+        Json.MAPPER.readerFor(FaqReply.class).readValue(
+                "{\"dialogAction\":{\"fulfillmentState\":\"Fulfilled\",\"message\":{\"content\":\"priming\"}}}");
+    }
+
+    static List<Map<String, Object>> events() {
+        return List.of(
+                event("GreetingsIntent", Map.of()),
+                event("FallbackIntent", Map.of()),
+                event("OrderHPItemIntent", Map.of()),
+                event("OrderHPItemIntent", Map.of("Products", "laptop")),
+                event("ChangeOrderIntent", Map.of()),
+                event("ChangeOrderIntent", Map.of("OrderNumber", "not-a-number")),
+                event("FindOrdersIntent", Map.of())
+        );
+    }
+
+    private static Map<String, Object> event(String intentName, Map<String, String> slotValues) {
+        Map<String, Object> slots = new HashMap<>();
+        slotValues.forEach((name, value) ->
+                slots.put(name, Map.of("value", Map.of("originalValue", value, "interpretedValue", value))));
+
+        Map<String, Object> intent = new HashMap<>();
+        intent.put("name", intentName);
+        intent.put("state", "InProgress");
+        intent.put("slots", slots);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("sessionId", "snapstart-priming");
+        event.put("inputTranscript", "priming");
+        event.put("sessionState", Map.of("intent", intent, "sessionAttributes", new HashMap<>()));
+        return event;
+    }
+
+    static void loadSdkModelClasses(String faqHandlerArn, String tableName) {
+        Map<String, AttributeValue> key = Map.of("order_number", AttributeValue.builder().n("0").build());
+        GetItemRequest.builder().tableName(tableName).key(key).build();
+        PutItemRequest.builder().tableName(tableName).item(key).conditionExpression("attribute_not_exists(order_number)").build();
+        UpdateItemRequest.builder().tableName(tableName).key(key).updateExpression("SET shipping_address = :a")
+                .expressionAttributeValues(Map.of(":a", AttributeValue.builder().s("priming").build())).build();
+        DeleteItemRequest.builder().tableName(tableName).key(key).build();
+        SendMessageRequest.builder().queueUrl("priming").messageBody("{}").build();
+        InvokeRequest.builder().functionName(faqHandlerArn).payload(SdkBytes.fromUtf8String("{}")).build();
+    }
+
+    static Context context() {
+        return PrimingContext.INSTANCE;
+    }
+
+    private static final class PrimingContext implements Context {
+        private static final PrimingContext INSTANCE = new PrimingContext();
+
+        private final LambdaLogger logger = new LambdaLogger() {
+            @Override
+            public void log(String message) {
+                System.out.println(message);
+            }
+
+            @Override
+            public void log(byte[] message) {
+                System.out.write(message, 0, message.length);
+            }
+        };
+
+        @Override
+        public String getAwsRequestId() {
+            return "snapstart-priming";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return null;
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return 10_000;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 2048;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return logger;
+        }
+    }
+}
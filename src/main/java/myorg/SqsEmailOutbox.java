@@ -0,0 +1,105 @@
+package myorg;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SqsEmailOutbox implements EmailOutbox {
+    // SendMessageBatch takes at most ten messages.
+    static final int MAX_BATCH_SIZE = 10;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long BACKOFF_BASE_MILLIS = 50;
+    private static final long BACKOFF_CAP_MILLIS = 1_000;
+
+    private final SqsClient sqsClient;
+    private final String queueUrl;
+
+    public SqsEmailOutbox(SqsClient sqsClient, String queueUrl) {
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+    }
+
+    public static SqsEmailOutbox fromEnvironment(SqsClient sqsClient) {
+        return new SqsEmailOutbox(sqsClient, System.getenv("EMAIL_OUTBOX_QUEUE_URL"));
+    }
+
+    @Override
+    public void enqueue(OrderConfirmation confirmation) {
+        requireQueueUrl();
+        sqsClient.sendMessage(SendMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .messageBody(toJson(confirmation))
+                .build());
+    }
+
+    /**
+     * Sends ten confirmations per SendMessageBatch call. Entries SQS failed on its side are sent again with
+     * backoff; entries it rejected as malformed are not. Once a whole call fails, the rest are not tried.
+     */
+    @Override
+    public List<OrderConfirmation> enqueueAll(List<OrderConfirmation> confirmations) {
+        requireQueueUrl();
+        List<OrderConfirmation> notQueued = new ArrayList<>();
+        for (int start = 0; start < confirmations.size(); start += MAX_BATCH_SIZE) {
+            List<OrderConfirmation> batch = confirmations.subList(start, Math.min(start + MAX_BATCH_SIZE, confirmations.size()));
+            try {
+                notQueued.addAll(sendBatch(batch));
+            } catch (SdkException e) {
+                notQueued.addAll(confirmations.subList(start, confirmations.size()));
+                break;
+            }
+        }
+        return notQueued;
+    }
+
+    private List<OrderConfirmation> sendBatch(List<OrderConfirmation> batch) {
+        List<OrderConfirmation> pending = batch;
+        List<OrderConfirmation> rejected = new ArrayList<>();
+        for (int attempt = 0; ; attempt++) {
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                entries.add(SendMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .messageBody(toJson(pending.get(i)))
+                        .build());
+            }
+            SendMessageBatchResponse response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+            List<OrderConfirmation> retryable = new ArrayList<>();
+            for (BatchResultErrorEntry failed : response.failed()) {
+                OrderConfirmation confirmation = pending.get(Integer.parseInt(failed.id()));
+                (Boolean.TRUE.equals(failed.senderFault()) ? rejected : retryable).add(confirmation);
+            }
+            if (retryable.isEmpty() || attempt + 1 >= MAX_BATCH_ATTEMPTS) {
+                rejected.addAll(retryable);
+                return rejected;
+            }
+            Backoff.sleep(Backoff.fullJitterMillis(attempt, BACKOFF_BASE_MILLIS, BACKOFF_CAP_MILLIS));
+            pending = retryable;
+        }
+    }
+
+    private void requireQueueUrl() {
+        if (queueUrl == null || queueUrl.isEmpty()) {
+            throw new IllegalStateException("Missing EMAIL_OUTBOX_QUEUE_URL");
+        }
+    }
+
+    private static String toJson(OrderConfirmation confirmation) {
+        try {
+            return Json.MAPPER.writeValueAsString(confirmation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Order confirmation cannot be serialized", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * The Lex fulfillment entry point as a stream handler. Turns are answered by {@link SimpleHandler}, but
+ * the response is written straight to the output stream with a JSON generator instead of being built as
+ * nested maps for the runtime to serialize. Replies that never change are copied from pre-encoded bytes.
+ */
+public class StreamingHandler implements RequestStreamHandler {
+    private static final TypeReference<Map<String, Object>> EVENT_TYPE = new TypeReference<>() {
+    };
+
+    private final SimpleHandler handler;
+
+    public StreamingHandler() {
+        this(new SimpleHandler());
+    }
+
+    public StreamingHandler(SimpleHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        Map<String, Object> event = Json.MAPPER.readValue(input, EVENT_TYPE);
+        handler.respond(event, context).writeTo(output);
+    }
+}
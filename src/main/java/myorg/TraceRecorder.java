@@ -0,0 +1,150 @@
+package myorg;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opt-in recording of Lex turns for replay: when TRACE_URI is set (an s3://bucket/prefix or a local
+ * directory), a TRACE_SAMPLE_RATE fraction of sessions (all by default), picked by session ID, has every
+ * turn's event and response appended to a {@link TraceSegment}. A segment is written to the
+ * {@link TraceSink} once it holds TRACE_SEGMENT_RECORDS turns (500 by default) or is five minutes old, and
+ * when the JVM shuts down; a container frozen for good loses its open segment. Card details and email
+ * addresses are redacted by {@link CardDetailRedactor} before anything is kept. Segment names carry a
+ * random container ID, drawn again after a SnapStart restore so restored instances do not share it.
+ */
+public final class TraceRecorder {
+    private static final int SAMPLE_BUCKETS = 10_000;
+    private static final long MAX_SEGMENT_AGE_MILLIS = 5 * 60_000;
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyy/MM/dd/HHmmss").withZone(ZoneOffset.UTC);
+
+    /** A sampled turn's redacted event, and the values it redacted, which are also removed from its response. */
+    public record Turn(long timestamp, Map<String, Object> event, List<String> secrets) {
+    }
+
+    private static volatile TraceSink sink;
+    private static volatile int sampledBuckets;
+    private static final int DEFAULT_SEGMENT_RECORDS = 500;
+    private static volatile int segmentRecords = DEFAULT_SEGMENT_RECORDS;
+    private static TraceSegment segment;
+    private static String containerId = newContainerId();
+    private static int segmentSequence;
+
+    static {
+        String uri = System.getenv("TRACE_URI");
+        if (uri != null && !uri.isEmpty()) {
+            configure(TraceSink.fromUri(uri), parseSampleRate(System.getenv("TRACE_SAMPLE_RATE")),
+                    parseSegmentRecords(System.getenv("TRACE_SEGMENT_RECORDS")));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(null)));
+    }
+
+    private TraceRecorder() {
+    }
+
+    /** Replaces the TRACE_* settings, for local runs; a null sink stops recording. */
+    public static void configure(TraceSink traceSink, double sampleRate, int recordsPerSegment) {
+        flush(null);
+        sink = traceSink;
+        sampledBuckets = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * SAMPLE_BUCKETS);
+        segmentRecords = recordsPerSegment;
+    }
+
+    /** Drops the open segment, which would otherwise be in the snapshot and written by every restored instance. */
+    public static synchronized void beforeCheckpoint() {
+        segment = null;
+    }
+
+    /** Gives this restored instance its own container ID, so its segment names do not collide with other instances'. */
+    public static synchronized void afterRestore() {
+        segment = null;
+        containerId = newContainerId();
+        segmentSequence = 0;
+    }
+
+    /** Captures a turn's event before the handler sees it, or returns null when the session is not recorded. */
+    public static Turn begin(Map<String, Object> event) {
+        if (sink == null || event == null || !(event.get("sessionId") instanceof String sessionId)) {
+            return null;
+        }
+        int hash = sessionId.hashCode() * 0x9E3779B9;
+        if (Integer.remainderUnsigned(hash ^ hash >>> 16, SAMPLE_BUCKETS) >= sampledBuckets) {
+            return null;
+        }
+        List<String> secrets = CardDetailRedactor.secrets(event);
+        return new Turn(System.currentTimeMillis(), CardDetailRedactor.redactEvent(event, secrets), secrets);
+    }
+
+    public static void finish(Turn turn, Map<String, Object> response, Context context) {
+        Set<String> secrets = new HashSet<>(turn.secrets());
+        secrets.addAll(CardDetailRedactor.secrets(response));
+        List<String> sortedSecrets = new ArrayList<>(secrets);
+        sortedSecrets.sort(Comparator.comparingInt(String::length).reversed());
+        Map<String, Object> redactedResponse = CardDetailRedactor.redact(response, sortedSecrets);
+        synchronized (TraceRecorder.class) {
+            if (segment == null) {
+                segment = new TraceSegment(turn.timestamp());
+            }
+            segment.append(turn.timestamp(), turn.event(), redactedResponse);
+            if (segment.records() >= segmentRecords || turn.timestamp() - segment.openedAt() >= MAX_SEGMENT_AGE_MILLIS) {
+                flush(context);
+            }
+        }
+    }
+
+    /** Writes the open segment, if it holds any turn. */
+    public static synchronized void flush(Context context) {
+        TraceSink traceSink = sink;
+        if (segment == null || segment.records() == 0 || traceSink == null) {
+            return;
+        }
+        TraceSegment finished = segment;
+        segment = null;
+        String name = SEGMENT_TIME.format(Instant.ofEpochMilli(finished.openedAt())) + "-" + containerId + "-" + segmentSequence++ + ".trace.gz";
+        try {
+            traceSink.write(name, finished.finish());
+        } catch (Exception e) {
+            if (context != null) {
+                Log.warn(context, () -> "Dropped trace segment " + name + " (" + finished.records() + " turns): " + e.getMessage());
+            }
+        }
+    }
+
+    // SecureRandom is reseeded on restore, unlike the snapshotted state of the other generators.
+    private static String newContainerId() {
+        return Long.toHexString(new SecureRandom().nextLong() >>> 16);
+    }
+
+    // An unreadable setting falls back to its default rather than failing every cold start.
+    private static double parseSampleRate(String value) {
+        if (value == null || value.isEmpty()) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static int parseSegmentRecords(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_SEGMENT_RECORDS;
+        }
+        try {
+            int records = Integer.parseInt(value.trim());
+            return records > 0 ? records : DEFAULT_SEGMENT_RECORDS;
+        } catch (NumberFormatException e) {
+            return DEFAULT_SEGMENT_RECORDS;
+        }
+    }
+}
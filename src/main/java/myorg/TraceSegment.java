@@ -0,0 +1,102 @@
+package myorg;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The trace segment format: a gzip stream holding {@link #MAGIC}, then one record per turn as a 4-byte
+ * length followed by that many bytes of JSON, {"t": epoch millis, "event": ..., "response": ...}. Records
+ * are compressed as they are appended, so an open segment holds only its compressed bytes.
+ */
+public final class TraceSegment {
+    public static final int MAGIC = 0x4C585431; // "LXT1"
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    public record Record(long timestamp, Map<String, Object> event, Map<String, Object> response) {
+        public String sessionId() {
+            return (String) event.get("sessionId");
+        }
+    }
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+    private final DataOutputStream out;
+    private final long openedAt;
+    private int records;
+
+    public TraceSegment(long openedAt) {
+        this.openedAt = openedAt;
+        try {
+            this.out = new DataOutputStream(new GZIPOutputStream(bytes, 8 * 1024));
+            out.writeInt(MAGIC);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void append(long timestamp, Map<String, Object> event, Map<String, Object> response) {
+        try {
+            byte[] json = Json.MAPPER.writeValueAsBytes(Map.of("t", timestamp, "event", event, "response", response));
+            out.writeInt(json.length);
+            out.write(json);
+            records++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int records() {
+        return records;
+    }
+
+    public long openedAt() {
+        return openedAt;
+    }
+
+    /** Ends the gzip stream and returns the segment; nothing can be appended afterwards. */
+    public byte[] finish() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<Record> read(InputStream segment) throws IOException {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(segment));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a trace segment");
+        }
+        List<Record> records = new ArrayList<>();
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return records;
+            }
+            byte[] json = new byte[length];
+            in.readFully(json);
+            Map<String, Object> record = Json.MAPPER.readValue(json, MAP);
+            records.add(new Record(((Number) record.get("t")).longValue(), asMap(record.get("event")), asMap(record.get("response"))));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
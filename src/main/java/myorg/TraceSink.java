@@ -0,0 +1,35 @@
+package myorg;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Where finished {@link TraceSegment}s go. */
+@FunctionalInterface
+public interface TraceSink {
+    void write(String name, byte[] segment) throws Exception;
+
+    /** An s3://bucket/prefix URI writes one object per segment under the prefix; anything else is a local directory. */
+    static TraceSink fromUri(String uri) {
+        if (!uri.startsWith("s3://")) {
+            Path directory = Path.of(uri);
+            return (name, segment) -> {
+                Path file = directory.resolve(name);
+                Files.createDirectories(file.getParent());
+                Files.write(file, segment);
+            };
+        }
+        int slash = uri.indexOf('/', "s3://".length());
+        String bucket = slash < 0 ? uri.substring("s3://".length()) : uri.substring("s3://".length(), slash);
+        String prefix = slash < 0 || slash == uri.length() - 1 ? "" : uri.substring(slash + 1).replaceAll("/*$", "/");
+        S3Client s3Client = S3Client.create();
+        return (name, segment) -> s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(prefix + name)
+                .contentType("application/octet-stream")
+                .build(), RequestBody.fromBytes(segment));
+    }
+}
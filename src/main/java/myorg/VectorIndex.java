@@ -0,0 +1,224 @@
+package myorg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Read side of the FAQ retrieval index: an inverted-file (IVF) index over unit-length embeddings, memory
+ * mapped from a file written by {@link VectorIndexWriter}. A query is compared with every list centroid,
+ * then only the vectors of the {@code nprobe} closest lists are scored. Scores are inner products, so
+ * cosine similarity for the normalized vectors the index stores.
+ *
+ * <p>Format version 1, little endian: magic, version, dimension, list count, vector count, chunk count,
+ * embedder model id; centroids; list start offsets; vectors grouped by list; the chunk of each vector;
+ * chunk text offsets and UTF-8 text; a CRC32 of everything before it.
+ */
+public final class VectorIndex {
+    static final int MAGIC = 0x46415149;
+    static final int FORMAT_VERSION = 1;
+
+    public record Hit(int chunk, float score) {
+    }
+
+    private final String modelId;
+    private final int dimension;
+    private final int listCount;
+    private final int vectorCount;
+    private final int chunkCount;
+    private final float[] centroids;
+    private final IntBuffer listOffsets;
+    private final FloatBuffer vectors;
+    private final IntBuffer vectorChunks;
+    private final IntBuffer textOffsets;
+    private final ByteBuffer texts;
+
+    private VectorIndex(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a FAQ vector index");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported FAQ vector index version " + version);
+        }
+        verifyChecksum(buffer);
+        dimension = buffer.getInt(8);
+        listCount = buffer.getInt(12);
+        vectorCount = buffer.getInt(16);
+        chunkCount = buffer.getInt(20);
+        int modelIdLength = buffer.getInt(24);
+        byte[] modelIdBytes = new byte[modelIdLength];
+        buffer.get(28, modelIdBytes);
+        modelId = new String(modelIdBytes, StandardCharsets.UTF_8);
+
+        int position = align(28 + modelIdLength);
+        centroids = new float[listCount * dimension];
+        slice(buffer, position, centroids.length * Float.BYTES).asFloatBuffer().get(centroids);
+        position += centroids.length * Float.BYTES;
+        listOffsets = slice(buffer, position, (listCount + 1) * Integer.BYTES).asIntBuffer();
+        position += (listCount + 1) * Integer.BYTES;
+        vectors = slice(buffer, position, vectorCount * dimension * Float.BYTES).asFloatBuffer();
+        position += vectorCount * dimension * Float.BYTES;
+        vectorChunks = slice(buffer, position, vectorCount * Integer.BYTES).asIntBuffer();
+        position += vectorCount * Integer.BYTES;
+        textOffsets = slice(buffer, position, (chunkCount + 1) * Integer.BYTES).asIntBuffer();
+        position += (chunkCount + 1) * Integer.BYTES;
+        texts = slice(buffer, position, textOffsets.get(chunkCount));
+    }
+
+    public static VectorIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new VectorIndex(buffer);
+        }
+    }
+
+    public static VectorIndex wrap(ByteBuffer buffer) {
+        return new VectorIndex(buffer.duplicate());
+    }
+
+    public String modelId() {
+        return modelId;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return vectorCount;
+    }
+
+    public int listCount() {
+        return listCount;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public String text(int chunk) {
+        int start = textOffsets.get(chunk);
+        byte[] bytes = new byte[textOffsets.get(chunk + 1) - start];
+        texts.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public List<Hit> search(float[] query, int k, int nprobe) {
+        float[] q = normalized(query);
+        int probes = Math.min(nprobe, listCount);
+        PriorityQueue<Hit> closestLists = new PriorityQueue<>(probes + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        for (int list = 0; list < listCount; list++) {
+            offer(closestLists, new Hit(list, dot(q, centroids, list * dimension)), probes);
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        for (Hit list : closestLists) {
+            scan(q, listOffsets.get(list.chunk()), listOffsets.get(list.chunk() + 1), k, best);
+        }
+        return sorted(best);
+    }
+
+    /** Scores every vector; the reference {@link #search} is measured against. */
+    public List<Hit> exactSearch(float[] query, int k) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        scan(normalized(query), 0, vectorCount, k, best);
+        return sorted(best);
+    }
+
+    private void scan(float[] q, int from, int to, int k, PriorityQueue<Hit> best) {
+        for (int vector = from; vector < to; vector++) {
+            float score = dot(q, vectors, vector * dimension);
+            if (best.size() < k || score > best.peek().score()) {
+                offer(best, new Hit(vectorChunks.get(vector), score), k);
+            }
+        }
+    }
+
+    private static void offer(PriorityQueue<Hit> heap, Hit hit, int capacity) {
+        heap.add(hit);
+        if (heap.size() > capacity) {
+            heap.poll();
+        }
+    }
+
+    private static List<Hit> sorted(PriorityQueue<Hit> heap) {
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return hits;
+    }
+
+    private float[] normalized(float[] query) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Query has " + query.length + " dimensions, the index " + dimension);
+        }
+        float[] copy = query.clone();
+        VectorIndexWriter.normalize(copy);
+        return copy;
+    }
+
+    /** Four independent sums, so the loop is not serialized on one floating point add chain. */
+    private static float dot(float[] q, FloatBuffer vectors, int offset) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < q.length; i += 4) {
+            s0 += q[i] * vectors.get(offset + i);
+            s1 += q[i + 1] * vectors.get(offset + i + 1);
+            s2 += q[i + 2] * vectors.get(offset + i + 2);
+            s3 += q[i + 3] * vectors.get(offset + i + 3);
+        }
+        for (; i < q.length; i++) {
+            s0 += q[i] * vectors.get(offset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float dot(float[] q, float[] vectors, int offset) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < q.length; i += 4) {
+            s0 += q[i] * vectors[offset + i];
+            s1 += q[i + 1] * vectors[offset + i + 1];
+            s2 += q[i + 2] * vectors[offset + i + 2];
+            s3 += q[i + 3] * vectors[offset + i + 3];
+        }
+        for (; i < q.length; i++) {
+            s0 += q[i] * vectors[offset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static int align(int position) {
+        return (position + 3) & ~3;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void verifyChecksum(ByteBuffer buffer) {
+        int bodyLength = buffer.limit() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, bodyLength));
+        if (crc.getValue() != buffer.getLong(bodyLength)) {
+            throw new IllegalStateException("FAQ vector index checksum mismatch");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package myorg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+
+/**
+ * Builds a {@link VectorIndex} file. Centroids come from spherical k-means over a sample of the
+ * embeddings, as FAISS trains its IVF quantizers; every embedding then goes to the list of its closest
+ * centroid. Both steps are split into fork/join tasks over fixed ranges and merged in a fixed order, so
+ * the file is the same whatever the pool's parallelism. It is written next to its final name and moved
+ * into place.
+ */
+public final class VectorIndexWriter {
+    private static final int TRAINING_SAMPLES_PER_LIST = 64;
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int VECTORS_PER_TASK = 2048;
+
+    private VectorIndexWriter() {
+    }
+
+    public static int defaultListCount(int vectorCount) {
+        return Math.max(1, (int) Math.round(Math.sqrt(vectorCount)));
+    }
+
+    /** Writes one vector per chunk: {@code embeddings.get(i)} is the embedding of {@code texts.get(i)}. */
+    public static void write(Path file, String modelId, List<float[]> embeddings, List<String> texts, int listCount, long seed)
+            throws IOException {
+        write(file, modelId, embeddings, texts, listCount, seed, ForkJoinPool.commonPool());
+    }
+
+    public static void write(Path file, String modelId, List<float[]> embeddings, List<String> texts, int listCount, long seed,
+                             ForkJoinPool pool) throws IOException {
+        if (embeddings.size() != texts.size() || embeddings.isEmpty()) {
+            throw new IllegalArgumentException("Need one embedding per chunk, got " + embeddings.size() + " for " + texts.size());
+        }
+        int dimension = embeddings.get(0).length;
+        float[][] vectors = new float[embeddings.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            if (embeddings.get(i).length != dimension) {
+                throw new IllegalArgumentException("Embedding " + i + " has " + embeddings.get(i).length + " dimensions, expected " + dimension);
+            }
+            vectors[i] = embeddings.get(i).clone();
+            normalize(vectors[i]);
+        }
+        int lists = Math.min(listCount, vectors.length);
+        float[][] centroids = trainCentroids(vectors, lists, new Random(seed), pool);
+        int[] assignments = new int[vectors.length];
+        pool.invoke(new Assign(vectors, centroids, assignments, 0, vectors.length, false));
+        writeFile(file, modelId, dimension, centroids, vectors, assignments, texts);
+    }
+
+    static float[][] trainCentroids(float[][] vectors, int lists, Random random, ForkJoinPool pool) {
+        float[][] sample = sample(vectors, Math.min(vectors.length, lists * TRAINING_SAMPLES_PER_LIST), random);
+        float[][] centroids = new float[lists][];
+        for (int list = 0; list < lists; list++) {
+            centroids[list] = sample[list].clone();
+        }
+        int dimension = vectors[0].length;
+        int[] assignments = new int[sample.length];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            Partial partial = pool.invoke(new Assign(sample, centroids, assignments, 0, sample.length, true));
+            for (int list = 0; list < lists; list++) {
+                // An empty list restarts from a random sample point rather than staying unreachable.
+                centroids[list] = partial.counts[list] == 0
+                        ? sample[random.nextInt(sample.length)].clone()
+                        : Arrays.copyOfRange(partial.sums, list * dimension, (list + 1) * dimension);
+                normalize(centroids[list]);
+            }
+        }
+        return centroids;
+    }
+
+    /** Per-list vector sums and counts of one range of an assignment pass. */
+    private static final class Partial {
+        final float[] sums;
+        final int[] counts;
+
+        Partial(int lists, int dimension) {
+            sums = new float[lists * dimension];
+            counts = new int[lists];
+        }
+
+        Partial merge(Partial other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            return this;
+        }
+    }
+
+    /** Assigns {@code vectors[from, to)} to their closest centroids, optionally summing them per list. */
+    private static final class Assign extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[][] vectors;
+        private final float[][] centroids;
+        private final int[] assignments;
+        private final int from;
+        private final int to;
+        private final boolean accumulate;
+
+        Assign(float[][] vectors, float[][] centroids, int[] assignments, int from, int to, boolean accumulate) {
+            this.vectors = vectors;
+            this.centroids = centroids;
+            this.assignments = assignments;
+            this.from = from;
+            this.to = to;
+            this.accumulate = accumulate;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > VECTORS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                Assign left = new Assign(vectors, centroids, assignments, from, middle, accumulate);
+                left.fork();
+                Partial right = new Assign(vectors, centroids, assignments, middle, to, accumulate).compute();
+                Partial merged = left.join();
+                return accumulate ? merged.merge(right) : null;
+            }
+            int dimension = centroids[0].length;
+            Partial partial = accumulate ? new Partial(centroids.length, dimension) : null;
+            for (int i = from; i < to; i++) {
+                int list = closest(vectors[i], centroids);
+                assignments[i] = list;
+                if (accumulate) {
+                    int offset = list * dimension;
+                    for (int d = 0; d < dimension; d++) {
+                        partial.sums[offset + d] += vectors[i][d];
+                    }
+                    partial.counts[list]++;
+                }
+            }
+            return partial;
+        }
+    }
+
+    private static float[][] sample(float[][] vectors, int size, Random random) {
+        float[][] shuffled = vectors.clone();
+        for (int i = 0; i < size; i++) {
+            int j = i + random.nextInt(shuffled.length - i);
+            float[] swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        float[][] sample = new float[size][];
+        System.arraycopy(shuffled, 0, sample, 0, size);
+        return sample;
+    }
+
+    static int closest(float[] vector, float[][] centroids) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int list = 0; list < centroids.length; list++) {
+            float score = VectorIndex.dot(vector, centroids[list], 0);
+            if (score > bestScore) {
+                bestScore = score;
+                best = list;
+            }
+        }
+        return best;
+    }
+
+    static void normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    static void writeFile(Path file, String modelId, int dimension, float[][] centroids, float[][] vectors, int[] assignments,
+                          List<String> texts) throws IOException {
+        int lists = centroids.length;
+        int[] listOffsets = new int[lists + 1];
+        for (int assignment : assignments) {
+            listOffsets[assignment + 1]++;
+        }
+        for (int list = 0; list < lists; list++) {
+            listOffsets[list + 1] += listOffsets[list];
+        }
+        int[] order = new int[vectors.length];
+        int[] next = listOffsets.clone();
+        for (int i = 0; i < vectors.length; i++) {
+            order[next[assignments[i]]++] = i;
+        }
+
+        byte[][] textBytes = new byte[texts.size()][];
+        long textLength = 0;
+        for (int i = 0; i < textBytes.length; i++) {
+            textBytes[i] = texts.get(i).getBytes(StandardCharsets.UTF_8);
+            textLength += textBytes[i].length;
+        }
+        byte[] modelIdBytes = modelId.getBytes(StandardCharsets.UTF_8);
+        long size = VectorIndex.align(28 + modelIdBytes.length)
+                + (long) lists * dimension * Float.BYTES
+                + (lists + 1L) * Integer.BYTES
+                + (long) vectors.length * dimension * Float.BYTES
+                + (long) vectors.length * Integer.BYTES
+                + (texts.size() + 1L) * Integer.BYTES
+                + textLength
+                + Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("FAQ vector index would be " + size + " bytes, over the 2 GB a single mapping holds");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(VectorIndex.MAGIC).putInt(VectorIndex.FORMAT_VERSION).putInt(dimension).putInt(lists)
+                .putInt(vectors.length).putInt(texts.size()).putInt(modelIdBytes.length).put(modelIdBytes);
+        buffer.position(VectorIndex.align(buffer.position()));
+        for (float[] centroid : centroids) {
+            buffer.asFloatBuffer().put(centroid);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+        }
+        for (int offset : listOffsets) {
+            buffer.putInt(offset);
+        }
+        for (int vector : order) {
+            buffer.asFloatBuffer().put(vectors[vector]);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+        }
+        for (int vector : order) {
+            buffer.putInt(vector);
+        }
+        int textOffset = 0;
+        buffer.putInt(textOffset);
+        for (byte[] text : textBytes) {
+            textOffset += text.length;
+            buffer.putInt(textOffset);
+        }
+        for (byte[] text : textBytes) {
+            buffer.put(text);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}